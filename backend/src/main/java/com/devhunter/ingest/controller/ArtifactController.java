@@ -1,32 +1,72 @@
 package com.devhunter.ingest.controller;
 
 import com.devhunter.ingest.dto.ArtifactResponse;
+import com.devhunter.ingest.dto.BatchPresignRequest;
+import com.devhunter.ingest.dto.BatchPresignResponse;
 import com.devhunter.ingest.dto.FinalizeRequest;
+import com.devhunter.ingest.dto.MultipartPresignResponse;
 import com.devhunter.ingest.dto.PresignRequest;
 import com.devhunter.ingest.dto.PresignResponse;
+import com.devhunter.ingest.repository.ArtifactWriteRepository.ArtifactRow;
+import com.devhunter.ingest.service.ArtifactDownloadService;
 import com.devhunter.ingest.service.StorageService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/v1/artifacts")
 @RequiredArgsConstructor
 @Tag(name = "Artifacts", description = "Artifact upload and management")
 public class ArtifactController {
 
+    private static final String X_CONTENT_TYPE_OPTIONS = "X-Content-Type-Options";
+
+    // Shown in the browser; everything else is downloaded
+    private static final List<MediaType> INLINE_TYPES = List.of(
+            MediaType.IMAGE_PNG,
+            MediaType.IMAGE_JPEG,
+            MediaType.IMAGE_GIF,
+            MediaType.APPLICATION_JSON,
+            MediaType.TEXT_PLAIN,
+            MediaType.parseMediaType("audio/mpeg"),
+            MediaType.parseMediaType("audio/wav"),
+            MediaType.parseMediaType("video/mp4")
+    );
+
     private final StorageService storageService;
+    private final ArtifactDownloadService artifactDownloadService;
 
     @PostMapping("/presign")
     @Operation(
             summary = "Request presigned upload URL",
-            description = "Generate a presigned URL for uploading an artifact to cloud storage",
+            description = "Generate a presigned URL for uploading an artifact to cloud storage. With a sha256 "
+                    + "of content that is already stored, the artifact is recorded at once instead "
+                    + "(deduplicated, no upload or finalize)",
             responses = {
-                    @ApiResponse(responseCode = "200", description = "Presigned URL generated"),
+                    @ApiResponse(responseCode = "200", description = "Presigned URL generated, or content reused"),
+                    @ApiResponse(responseCode = "404", description = "Run not found (content reuse only)"),
                     @ApiResponse(responseCode = "400", description = "Bad Request"),
                     @ApiResponse(responseCode = "413", description = "Payload Too Large")
             }
@@ -36,19 +76,169 @@ public class ArtifactController {
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping("/presign:batch")
+    @Operation(
+            summary = "Request presigned upload URLs for many files",
+            description = "Presign every file of a run in one call; each file gets its own result, "
+                    + "with the status and error a single presign would have returned",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Per-file results"),
+                    @ApiResponse(responseCode = "400", description = "Bad Request"),
+                    @ApiResponse(responseCode = "409", description = "No storage provider available"),
+                    @ApiResponse(responseCode = "413", description = "Too many files")
+            }
+    )
+    public ResponseEntity<BatchPresignResponse> presignBatch(@Valid @RequestBody BatchPresignRequest request) {
+        BatchPresignResponse response = storageService.generatePresignedUploads(request);
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/presign:multipart")
+    @Operation(
+            summary = "Start a multipart upload",
+            description = "Presign every part of a large artifact; parts are uploaded in parallel "
+                    + "and assembled by finalize",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Upload started, parts presigned"),
+                    @ApiResponse(responseCode = "400", description = "Bad Request"),
+                    @ApiResponse(responseCode = "413", description = "Payload Too Large")
+            }
+    )
+    public ResponseEntity<MultipartPresignResponse> presignMultipart(@Valid @RequestBody PresignRequest request) {
+        MultipartPresignResponse response = storageService.initiateMultipartUpload(request);
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/uploads/{presignedId}/parts")
+    @Operation(
+            summary = "Presign parts of a multipart upload again",
+            description = "Fresh URLs for the given parts (all parts if none are given), e.g. to retry "
+                    + "a failed part after its URL expired",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Parts presigned"),
+                    @ApiResponse(responseCode = "400", description = "Invalid part number"),
+                    @ApiResponse(responseCode = "404", description = "Multipart upload not found")
+            }
+    )
+    public ResponseEntity<MultipartPresignResponse> presignParts(
+            @PathVariable String presignedId,
+            @RequestParam(required = false) List<Integer> partNumbers) {
+        return ResponseEntity.ok(storageService.presignUploadParts(presignedId, partNumbers));
+    }
+
+    @DeleteMapping("/uploads/{presignedId}")
+    @Operation(
+            summary = "Abort a multipart upload",
+            description = "Discard a multipart upload and the parts uploaded so far",
+            responses = {
+                    @ApiResponse(responseCode = "204", description = "Upload aborted"),
+                    @ApiResponse(responseCode = "404", description = "Multipart upload not found")
+            }
+    )
+    public ResponseEntity<Void> abortMultipart(@PathVariable String presignedId) {
+        storageService.abortMultipartUpload(presignedId);
+        return ResponseEntity.noContent().build();
+    }
+
     @PostMapping("/finalize")
     @Operation(
             summary = "Finalize artifact upload",
-            description = "Verify and finalize an uploaded artifact with checksum validation",
+            description = "Verify and finalize an uploaded artifact with checksum validation; "
+                    + "multipart uploads are assembled from their parts first",
             responses = {
                     @ApiResponse(responseCode = "200", description = "Upload finalized"),
                     @ApiResponse(responseCode = "400", description = "Bad Request"),
                     @ApiResponse(responseCode = "409", description = "Checksum or size mismatch")
             }
     )
-    public ResponseEntity<ArtifactResponse> finalize(@Valid @RequestBody FinalizeRequest request) {
-        ArtifactResponse response = storageService.finalizeUpload(request);
-        return ResponseEntity.ok(response);
+    public CompletableFuture<ResponseEntity<ArtifactResponse>> finalize(@Valid @RequestBody FinalizeRequest request) {
+        // Completed off the servlet thread, which is released while the provider checks the object
+        return storageService.finalizeUpload(request).thenApply(ResponseEntity::ok);
     }
-}
 
+    @GetMapping("/{id}/content")
+    @Operation(
+            summary = "Download artifact content",
+            description = "Small artifacts are served from this node's disk cache; larger ones redirect to a "
+                    + "short-lived provider URL, or are streamed through in stream mode. Supports a single "
+                    + "byte range and If-None-Match",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Artifact content"),
+                    @ApiResponse(responseCode = "206", description = "Requested range"),
+                    @ApiResponse(responseCode = "302", description = "Redirect to a presigned provider URL, or to the "
+                            + "external URL of an artifact without a stored object"),
+                    @ApiResponse(responseCode = "304", description = "Not modified"),
+                    @ApiResponse(responseCode = "404", description = "Artifact not found"),
+                    @ApiResponse(responseCode = "416", description = "Range outside the artifact")
+            }
+    )
+    public void content(@PathVariable UUID id, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        ArtifactRow artifact = artifactDownloadService.find(id);
+        String etag = ETags.of(artifact.id());
+        if (etag.equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            response.setHeader(HttpHeaders.ETAG, etag);
+            return;
+        }
+
+        Optional<FileChannel> cached = artifactDownloadService.openCached(artifact);
+        if (cached.isPresent()) {
+            try (FileChannel channel = cached.get()) {
+                ByteRanges.Range range = contentHeaders(artifact, etag, channel.size(), request, response);
+                if (range != null) {
+                    WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+                    long end = range.start() + range.length();
+                    for (long position = range.start(); position < end; ) {
+                        position += channel.transferTo(position, end - position, out);
+                    }
+                }
+            }
+            return;
+        }
+
+        Optional<String> redirectUrl = artifactDownloadService.redirectUrl(artifact);
+        if (redirectUrl.isPresent()) {
+            response.setStatus(HttpStatus.FOUND.value());
+            response.setHeader(HttpHeaders.LOCATION, redirectUrl.get());
+            return;
+        }
+
+        ByteRanges.Range range = contentHeaders(artifact, etag, artifact.sizeBytes(), request, response);
+        if (range != null) {
+            artifactDownloadService.stream(artifact, range.start(), range.length(), response.getOutputStream());
+        }
+    }
+
+    private static ByteRanges.Range contentHeaders(ArtifactRow artifact, String etag, long size,
+                                                   HttpServletRequest request, HttpServletResponse response) {
+        MediaType contentType = mediaType(artifact.contentType());
+        response.setContentType(contentType.toString());
+        // The content type is the uploader's: browsers must neither sniff another one nor render
+        // anything that could run script in this origin
+        response.setHeader(X_CONTENT_TYPE_OPTIONS, "nosniff");
+        boolean inline = INLINE_TYPES.stream().anyMatch(contentType::equalsTypeAndSubtype);
+        // Encoded (filename*) only when it has to be
+        ContentDisposition.Builder disposition = inline ? ContentDisposition.inline() : ContentDisposition.attachment();
+        if (StandardCharsets.US_ASCII.newEncoder().canEncode(artifact.filename())) {
+            disposition.filename(artifact.filename());
+        } else {
+            disposition.filename(artifact.filename(), StandardCharsets.UTF_8);
+        }
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, disposition.build().toString());
+        // Artifacts never change, so their id is a strong validator
+        response.setHeader(HttpHeaders.ETAG, etag);
+        return ByteRanges.apply(request, response, size);
+    }
+
+    private static MediaType mediaType(String contentType) {
+        if (contentType == null) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+        try {
+            return MediaType.parseMediaType(contentType);
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+    }
+}
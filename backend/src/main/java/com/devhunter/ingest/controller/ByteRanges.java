@@ -0,0 +1,58 @@
+package com.devhunter.ingest.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+
+import java.util.List;
+
+/**
+ * Range requests of downloads. A single range is served as 206; no Range header, a malformed one
+ * or several ranges get the whole object.
+ */
+final class ByteRanges {
+
+    record Range(long start, long length) {
+    }
+
+    private ByteRanges() {
+    }
+
+    /**
+     * Set the status, Accept-Ranges, Content-Range and Content-Length of a download of an object
+     * of {@code size} bytes.
+     *
+     * @return the bytes to send, or null if the requested range is outside the object (416 is set)
+     */
+    static Range apply(HttpServletRequest request, HttpServletResponse response, long size) {
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        List<HttpRange> ranges = parse(request.getHeader(HttpHeaders.RANGE));
+        if (ranges.size() != 1) {
+            response.setContentLengthLong(size);
+            return new Range(0, size);
+        }
+
+        // getRangeStart does not check the start against the size
+        long start = ranges.get(0).getRangeStart(size);
+        long end = ranges.get(0).getRangeEnd(size);
+        if (start >= size || start > end) {
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+            return null;
+        }
+        response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+        response.setHeader(HttpHeaders.CONTENT_RANGE, String.format("bytes %d-%d/%d", start, end, size));
+        response.setContentLengthLong(end - start + 1);
+        return new Range(start, end - start + 1);
+    }
+
+    private static List<HttpRange> parse(String header) {
+        try {
+            return HttpRange.parseRanges(header);
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.devhunter.ingest.controller;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+/**
+ * Strong ETag values derived from row versions.
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    static String of(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * ETag of a row that never changes once written: its id.
+     */
+    static String of(UUID id) {
+        return "\"" + id + "\"";
+    }
+
+    /**
+     * ETag from a timestamp column, at the database's microsecond precision.
+     */
+    static String of(Instant updatedAt) {
+        return "\"" + ChronoUnit.MICROS.between(Instant.EPOCH, updatedAt) + "\"";
+    }
+}
@@ -0,0 +1,115 @@
+package com.devhunter.ingest.controller;
+
+import com.devhunter.ingest.storage.ConditionalOnStorageProvider;
+import com.devhunter.ingest.storage.LocalStorageProvider;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Upload and download endpoints of the local storage provider. Requests are authorized by the
+ * signature in their URL, as handed out by presign, not by the caller.
+ */
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnStorageProvider("local")
+@Tag(name = "Local storage", description = "Presigned uploads and downloads of the local storage provider")
+public class LocalStorageController {
+
+    // Tomcat sends a file named in these request attributes itself, with sendfile, after the servlet returns
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final LocalStorageProvider localStorageProvider;
+
+    @PutMapping(LocalStorageProvider.OBJECTS_PATH)
+    @Operation(
+            summary = "Upload an object",
+            description = "Target of the upload URLs returned by presign; the body is the file content",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Stored; the ETag is the SHA-256 of the content"),
+                    @ApiResponse(responseCode = "403", description = "Invalid or expired signature"),
+                    @ApiResponse(responseCode = "413", description = "Larger than the presigned size")
+            }
+    )
+    public ResponseEntity<Void> upload(
+            @RequestParam String key,
+            @RequestParam long expires,
+            @RequestParam(required = false) Long size,
+            @RequestParam String signature,
+            HttpServletRequest request) throws IOException {
+
+        if (!localStorageProvider.isValidSignature("PUT", key, expires, size, signature)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (size != null && request.getContentLengthLong() > size) {
+            throw new IllegalArgumentException(String.format("Upload exceeds max of %d bytes", size));
+        }
+
+        String sha256 = localStorageProvider.write(key, size, Channels.newChannel(request.getInputStream()));
+        return ResponseEntity.ok().eTag(sha256).build();
+    }
+
+    @GetMapping(LocalStorageProvider.OBJECTS_PATH)
+    @Operation(
+            summary = "Download an object",
+            description = "Supports a single byte range (Range: bytes=start-end)",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Whole object"),
+                    @ApiResponse(responseCode = "206", description = "Requested range"),
+                    @ApiResponse(responseCode = "403", description = "Invalid or expired signature"),
+                    @ApiResponse(responseCode = "404", description = "Object not found"),
+                    @ApiResponse(responseCode = "416", description = "Range outside the object")
+            }
+    )
+    public void download(
+            @RequestParam String key,
+            @RequestParam long expires,
+            @RequestParam String signature,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+
+        if (!localStorageProvider.isValidSignature("GET", key, expires, null, signature)) {
+            response.setStatus(HttpStatus.FORBIDDEN.value());
+            return;
+        }
+        Path path = localStorageProvider.resolve(key);
+        if (!Files.isRegularFile(path)) {
+            throw new IllegalArgumentException("Object not found: " + key);
+        }
+
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        ByteRanges.Range range = ByteRanges.apply(request, response, Files.size(path));
+        if (range == null || range.length() == 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat requires the canonical path
+            request.setAttribute(SENDFILE_FILENAME, path.toRealPath().toString());
+            request.setAttribute(SENDFILE_START, range.start());
+            request.setAttribute(SENDFILE_END, range.start() + range.length());
+            return;
+        }
+        // TLS or another container: the kernel cannot send the file, copy it through the response
+        localStorageProvider.transferTo(key, range.start(), range.length(),
+                Channels.newChannel(response.getOutputStream()));
+    }
+}
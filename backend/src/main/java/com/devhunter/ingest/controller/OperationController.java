@@ -8,9 +8,13 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.Instant;
+import java.util.Optional;
 import java.util.UUID;
 
 @RestController
@@ -24,15 +28,27 @@ public class OperationController {
     @GetMapping("/{id}")
     @Operation(
             summary = "Get operation status",
-            description = "Retrieve the current status and result of an async operation",
+            description = "Retrieve the current status and result of an async operation. " +
+                    "Supports If-None-Match for cheap polling (304 when unchanged)",
             responses = {
                     @ApiResponse(responseCode = "200", description = "Operation found"),
+                    @ApiResponse(responseCode = "304", description = "Not Modified"),
                     @ApiResponse(responseCode = "404", description = "Operation not found")
             }
     )
-    public ResponseEntity<OperationResponse> getOperation(@PathVariable UUID id) {
+    public ResponseEntity<OperationResponse> getOperation(@PathVariable UUID id, WebRequest request) {
+        // Polls that already have the current state are answered from updated_at alone
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Optional<Instant> lastModified = operationService.findLastModified(id);
+            if (lastModified.isPresent() && request.checkNotModified(ETags.of(lastModified.get()))) {
+                return null;
+            }
+        }
+
         com.devhunter.ingest.domain.Operation operation = operationService.getOperation(id);
-        return ResponseEntity.ok(OperationResponse.from(operation));
+        return ResponseEntity.ok()
+                .eTag(ETags.of(operation.getUpdatedAt()))
+                .body(OperationResponse.from(operation));
     }
 }
 
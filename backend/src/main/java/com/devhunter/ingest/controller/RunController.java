@@ -0,0 +1,35 @@
+package com.devhunter.ingest.controller;
+
+import com.devhunter.ingest.dto.ArtifactResponse;
+import com.devhunter.ingest.service.StorageService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/v1/runs")
+@RequiredArgsConstructor
+@Tag(name = "Runs", description = "Run details")
+public class RunController {
+
+    private final StorageService storageService;
+
+    @GetMapping("/{id}/artifacts")
+    @Operation(
+            summary = "List artifacts of a run",
+            description = "Artifacts recorded for a run, oldest first, including uploads finalized moments ago",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Artifacts of the run"),
+                    @ApiResponse(responseCode = "404", description = "Run not found")
+            }
+    )
+    public ResponseEntity<List<ArtifactResponse>> listArtifacts(@PathVariable UUID id) {
+        return ResponseEntity.ok(storageService.listRunArtifacts(id));
+    }
+}
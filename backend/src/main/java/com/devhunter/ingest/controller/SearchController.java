@@ -1,5 +1,6 @@
 package com.devhunter.ingest.controller;
 
+import com.devhunter.ingest.dto.SearchFilters;
 import com.devhunter.ingest.dto.SearchResults;
 import com.devhunter.ingest.service.SearchService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -9,6 +10,9 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
+import java.util.List;
+
 @RestController
 @RequestMapping("/v1/search")
 @RequiredArgsConstructor
@@ -20,19 +24,36 @@ public class SearchController {
     @GetMapping
     @Operation(
             summary = "Full-text search",
-            description = "Search across tests and runs using PostgreSQL full-text search"
+            description = "Search across tests and runs using PostgreSQL full-text search, " +
+                    "with optional run filters and facet counts"
     )
     public ResponseEntity<SearchResults> search(
-            @Parameter(description = "Search query", required = true)
-            @RequestParam String q,
+            @Parameter(description = "Search query (supports \"phrases\", prefix*, OR and -exclusion)")
+            @RequestParam(defaultValue = "") String q,
 
             @Parameter(description = "Maximum results to return")
             @RequestParam(defaultValue = "20") int limit,
 
             @Parameter(description = "Offset for pagination")
-            @RequestParam(defaultValue = "0") int offset) {
+            @RequestParam(defaultValue = "0") int offset,
+
+            @Parameter(description = "Only runs with one of these statuses")
+            @RequestParam(required = false) List<String> status,
+
+            @Parameter(description = "Created at or after (ISO-8601 instant)")
+            @RequestParam(required = false) Instant from,
+
+            @Parameter(description = "Created before (ISO-8601 instant)")
+            @RequestParam(required = false) Instant to,
+
+            @Parameter(description = "Metadata filters as key:value, e.g. branch:main")
+            @RequestParam(required = false) List<String> meta,
+
+            @Parameter(description = "Return the top N values per facet (0 disables facets)")
+            @RequestParam(defaultValue = "0") int facetLimit) {
 
-        SearchResults results = searchService.search(q, limit, offset);
+        SearchFilters filters = SearchFilters.of(status, from, to, meta);
+        SearchResults results = searchService.search(q, filters, limit, offset, facetLimit);
         return ResponseEntity.ok(results);
     }
 }
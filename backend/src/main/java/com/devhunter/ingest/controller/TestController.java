@@ -1,16 +1,37 @@
 package com.devhunter.ingest.controller;
 
 import com.devhunter.ingest.domain.Test;
+import com.devhunter.ingest.dto.OperationResponse;
+import com.devhunter.ingest.dto.RunImportResponse;
+import com.devhunter.ingest.dto.RunPage;
+import com.devhunter.ingest.dto.TestPage;
+import com.devhunter.ingest.dto.TestStats;
 import com.devhunter.ingest.exception.StaleResourceException;
 import com.devhunter.ingest.repository.TestRepository;
+import com.devhunter.ingest.service.RunImportService;
+import com.devhunter.ingest.service.RunStatsService;
+import com.devhunter.ingest.service.TestService;
+import com.fasterxml.jackson.databind.JsonNode;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.headers.Header;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.persistence.OptimisticLockException;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @RestController
@@ -20,27 +41,120 @@ import java.util.UUID;
 public class TestController {
 
     private final TestRepository testRepository;
+    private final TestService testService;
+    private final RunStatsService runStatsService;
+    private final RunImportService runImportService;
 
     @GetMapping
-    @Operation(summary = "List all tests")
-    public ResponseEntity<List<Test>> listTests() {
-        return ResponseEntity.ok(testRepository.findAll());
+    @Operation(
+            summary = "List tests",
+            description = "Keyset-paginated listing ordered by creation time; pass nextCursor as 'after'"
+    )
+    public ResponseEntity<TestPage> listTests(
+            @Parameter(description = "Page size (max 500)")
+            @RequestParam(defaultValue = "50") int limit,
+
+            @Parameter(description = "Cursor returned as nextCursor by the previous page")
+            @RequestParam(required = false) String after,
+
+            @Parameter(description = "Comma-separated fields to return, e.g. id,name,externalId")
+            @RequestParam(required = false) String fields) {
+
+        return ResponseEntity.ok(testService.listTests(limit, after, fields));
+    }
+
+    @GetMapping("/export")
+    @Operation(
+            summary = "Export all tests",
+            description = "Stream every test as newline-delimited JSON, read through a database cursor"
+    )
+    public void exportTests(
+            @Parameter(description = "Comma-separated fields to return, e.g. id,name,externalId")
+            @RequestParam(required = false) String fields,
+            HttpServletResponse response) throws IOException {
+
+        response.setContentType("application/x-ndjson");
+        testService.exportTests(fields, response.getOutputStream());
     }
 
     @GetMapping("/{id}")
-    @Operation(summary = "Get test by ID")
-    public ResponseEntity<Test> getTest(@PathVariable UUID id) {
-        Test test = testRepository.findById(id)
+    @Operation(
+            summary = "Get test by ID",
+            description = "Supports If-None-Match: returns 304 without reading the test body when unchanged"
+    )
+    public ResponseEntity<Test> getTest(@PathVariable UUID id, WebRequest request) {
+        // Revalidation only needs the version, a primary key lookup of one column
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Optional<Long> version = testRepository.findVersionById(id);
+            if (version.isPresent() && request.checkNotModified(ETags.of(version.get()))) {
+                return null;
+            }
+        }
+
+        Test test = testRepository.findActiveById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Test not found: " + id));
 
         // Generate ETag based on version
-        String etag = "\"" + test.getVersion() + "\"";
+        String etag = ETags.of(test.getVersion());
 
         return ResponseEntity.ok()
                 .eTag(etag)
                 .body(test);
     }
 
+    @GetMapping("/{id}/runs")
+    @Operation(
+            summary = "List runs of a test",
+            description = "Newest first, keyset-paginated; pass nextCursor as 'before'"
+    )
+    public ResponseEntity<RunPage> listRuns(
+            @PathVariable UUID id,
+
+            @Parameter(description = "Page size (max 500)")
+            @RequestParam(defaultValue = "50") int limit,
+
+            @Parameter(description = "Cursor returned as nextCursor by the previous page")
+            @RequestParam(required = false) String before,
+
+            @Parameter(description = "Filter by run status (repeatable)")
+            @RequestParam(required = false) List<String> status) {
+
+        return ResponseEntity.ok(testService.listRuns(id, limit, before, status));
+    }
+
+    @PostMapping(value = "/{id}/runs:import", consumes = "application/x-ndjson")
+    @Operation(
+            summary = "Import runs of a test",
+            description = "Bulk-load run history from newline-delimited JSON (status, metadata, createdAt, " +
+                    "artifacts per line). Streamed into the database; all or nothing",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Runs imported"),
+                    @ApiResponse(responseCode = "400", description = "Invalid line"),
+                    @ApiResponse(responseCode = "404", description = "Not Found")
+            }
+    )
+    public ResponseEntity<RunImportResponse> importRuns(@PathVariable UUID id, InputStream body) {
+        return ResponseEntity.ok(runImportService.importRuns(id, body));
+    }
+
+    @GetMapping("/{id}/stats")
+    @Operation(
+            summary = "Run statistics of a test",
+            description = "Per-day, per-status run counts and durations from the daily rollup, " +
+                    "for from <= day < to (UTC); defaults to the last 30 days"
+    )
+    public ResponseEntity<TestStats> getStats(
+            @PathVariable UUID id,
+
+            @Parameter(description = "First day, inclusive (yyyy-MM-dd)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+
+            @Parameter(description = "Last day, exclusive (yyyy-MM-dd)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+
+        return ResponseEntity.ok(runStatsService.getStats(id, from, to));
+    }
+
     @PutMapping("/{id}")
     @Operation(
             summary = "Update test",
@@ -51,12 +165,12 @@ public class TestController {
             @RequestBody Test updatedTest,
             @RequestHeader(value = "If-Match", required = false) String ifMatch) {
 
-        Test existing = testRepository.findById(id)
+        Test existing = testRepository.findActiveById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Test not found: " + id));
 
         // Check ETag if provided
         if (ifMatch != null) {
-            String currentEtag = "\"" + existing.getVersion() + "\"";
+            String currentEtag = ETags.of(existing.getVersion());
             if (!ifMatch.equals(currentEtag)) {
                 throw new StaleResourceException(
                         "Resource has been modified. Expected version: " + ifMatch +
@@ -70,7 +184,7 @@ public class TestController {
 
         try {
             Test saved = testRepository.save(existing);
-            String newEtag = "\"" + saved.getVersion() + "\"";
+            String newEtag = ETags.of(saved.getVersion());
 
             return ResponseEntity.ok()
                     .eTag(newEtag)
@@ -80,11 +194,40 @@ public class TestController {
         }
     }
 
+    @PatchMapping(value = "/{id}", consumes = "application/merge-patch+json")
+    @Operation(
+            summary = "Patch test",
+            description = "Apply a JSON Merge Patch (RFC 7386) to name/metadata in the database. " +
+                    "Guarded by If-Match (412 on stale); returns the new ETag"
+    )
+    public ResponseEntity<Void> patchTest(
+            @PathVariable UUID id,
+            @RequestBody JsonNode patch,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+
+        long version = testService.patchTest(id, patch, ifMatch);
+
+        return ResponseEntity.noContent()
+                .eTag(ETags.of(version))
+                .build();
+    }
+
     @DeleteMapping("/{id}")
-    @Operation(summary = "Delete test")
-    public ResponseEntity<Void> deleteTest(@PathVariable UUID id) {
-        testRepository.deleteById(id);
-        return ResponseEntity.noContent().build();
+    @Operation(
+            summary = "Delete test",
+            description = "Hides the test immediately and removes its runs and artifacts in the background",
+            responses = {
+                    @ApiResponse(responseCode = "202", description = "Accepted",
+                            headers = @Header(name = "Location", description = "URL to poll operation status")),
+                    @ApiResponse(responseCode = "404", description = "Not Found")
+            }
+    )
+    public ResponseEntity<OperationResponse> deleteTest(@PathVariable UUID id) {
+        OperationResponse response = testService.deleteTest(id);
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .header("Location", "/v1/operations/" + response.getId())
+                .body(response);
     }
 }
 
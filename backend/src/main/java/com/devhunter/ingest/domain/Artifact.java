@@ -18,7 +18,7 @@ import java.util.UUID;
 public class Artifact {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidV7
     private UUID id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -31,6 +31,9 @@ public class Artifact {
 
     private String provider;
 
+    @Column(name = "object_key")
+    private String objectKey;
+
     @Column(name = "size_bytes")
     private Long sizeBytes;
 
@@ -42,6 +45,9 @@ public class Artifact {
     @Column(name = "created_at")
     private Instant createdAt;
 
+    // verifying, verified or failed; null if the checksum was not checked
+    private String verification;
+
     @PrePersist
     protected void onCreate() {
         createdAt = Instant.now();
@@ -21,7 +21,7 @@ import java.util.UUID;
 public class IdempotencyRecord {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidV7
     private UUID id;
 
     @Column(name = "idempotency_key", nullable = false, unique = true, length = 255)
@@ -23,7 +23,7 @@ import java.util.UUID;
 public class Operation {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidV7
     private UUID id;
 
     @Column(nullable = false)
@@ -1,5 +1,6 @@
 package com.devhunter.ingest.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -21,7 +22,7 @@ import java.util.UUID;
 public class Test {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidV7
     private UUID id;
 
     @Column(name = "external_id", unique = true)
@@ -45,6 +46,11 @@ public class Test {
     @Version
     private Long version;
 
+    // Set when the test is deleted; its runs and artifacts are then removed in the background
+    @JsonIgnore
+    @Column(name = "deleted_at")
+    private Instant deletedAt;
+
     @PrePersist
     protected void onCreate() {
         createdAt = Instant.now();
@@ -6,6 +6,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.Instant;
 import java.util.UUID;
 
 @Data
@@ -15,20 +16,30 @@ import java.util.UUID;
 public class ArtifactResponse {
 
     private UUID id;
+    private UUID runId;
     private String url;
+    private String provider;
     private Long sizeBytes;
     private String sha256;
     private String filename;
     private String contentType;
+    private Instant createdAt;
+    private String verification;
+    // Operation checking the checksum, on finalize responses of verified uploads
+    private UUID verificationOperationId;
 
     public static ArtifactResponse from(Artifact artifact) {
         return ArtifactResponse.builder()
             .id(artifact.getId())
+            .runId(artifact.getRun() != null ? artifact.getRun().getId() : null)
             .url(artifact.getUrl())
+            .provider(artifact.getProvider())
             .sizeBytes(artifact.getSizeBytes())
             .sha256(artifact.getSha256())
             .filename(artifact.getFilename())
             .contentType(artifact.getContentType())
+            .createdAt(artifact.getCreatedAt())
+            .verification(artifact.getVerification())
             .build();
     }
 }
@@ -0,0 +1,20 @@
+package com.devhunter.ingest.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchPresignRequest {
+
+    // Validated one by one, so an invalid file is reported in its own result instead of failing the batch
+    @NotEmpty(message = "files is required")
+    private List<PresignRequest> files;
+}
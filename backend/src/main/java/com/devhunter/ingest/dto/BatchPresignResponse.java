@@ -0,0 +1,40 @@
+package com.devhunter.ingest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchPresignResponse {
+
+    private int succeeded;
+    private int failed;
+
+    // One per requested file, in request order
+    private List<Item> results;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+
+        private int index;
+        private String filename;
+
+        // HTTP status the file would have had as a single presign: 200, or the error status
+        private int status;
+
+        // Set when status is 200
+        private PresignResponse upload;
+
+        // Set otherwise
+        private String error;
+    }
+}
@@ -8,6 +8,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.UUID;
+
 @Data
 @Builder
 @NoArgsConstructor
@@ -23,5 +25,8 @@ public class FinalizeRequest {
 
     @NotBlank(message = "sha256 is required")
     private String sha256;
+
+    // Run the artifact belongs to, e.g. the run_id of an ingest operation; optional
+    private UUID runId;
 }
 
@@ -19,6 +19,9 @@ public class IngestRequest {
     @NotBlank(message = "test_id is required")
     private String testId;
 
+    // Status of the run recorded for this ingest, e.g. passed or failed
+    private String status;
+
     private Map<String, Object> metadata;
 
     @NotNull(message = "artifact is required")
@@ -0,0 +1,41 @@
+package com.devhunter.ingest.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Opaque pagination cursor: the (created_at, id) of the last row of a page.
+ * Ascending listings start from {@link #START}, descending ones from {@link #END}.
+ */
+public record KeysetCursor(Instant createdAt, UUID id) {
+
+    /** Position before every row */
+    public static final KeysetCursor START = new KeysetCursor(Instant.EPOCH, new UUID(0L, 0L));
+
+    /** Position after every row */
+    public static final KeysetCursor END = new KeysetCursor(SearchFilters.MAX_TIME, new UUID(-1L, -1L));
+
+    public String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String cursor) {
+        return decode(cursor, START);
+    }
+
+    public static KeysetCursor decode(String cursor, KeysetCursor whenAbsent) {
+        if (cursor == null || cursor.isBlank()) {
+            return whenAbsent;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            return new KeysetCursor(Instant.parse(raw.substring(0, sep)), UUID.fromString(raw.substring(sep + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.devhunter.ingest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MultipartPresignResponse {
+
+    private String provider;
+    private String presignedId;
+
+    // Every part is partSize bytes except the last; part n starts at byte (n - 1) * partSize
+    private Long partSize;
+    private Integer partCount;
+
+    // Lifetime of the upload; part URLs expire sooner and can be signed again until then
+    private Integer expiresInSeconds;
+
+    private List<Part> parts;
+
+    // The content was already stored: the artifact is recorded and there is nothing to upload or finalize
+    private boolean deduplicated;
+    private ArtifactResponse artifact;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Part {
+        private int partNumber;
+        private String uploadUrl;
+        private Map<String, String> fields;
+        private Integer expiresInSeconds;
+    }
+}
@@ -2,12 +2,15 @@ package com.devhunter.ingest.dto;
 
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Positive;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.UUID;
+
 @Data
 @Builder
 @NoArgsConstructor
@@ -23,5 +26,12 @@ public class PresignRequest {
     @NotNull(message = "size_bytes is required")
     @Positive(message = "size_bytes must be positive")
     private Long sizeBytes;
+
+    // Optional: content already stored with this SHA-256 and size is reused, and no upload is needed
+    @Pattern(regexp = "^[0-9a-fA-F]{64}$", message = "sha256 must be 64 hex digits")
+    private String sha256;
+
+    // Run the artifact belongs to when presign reuses stored content (there is no finalize); optional
+    private UUID runId;
 }
 
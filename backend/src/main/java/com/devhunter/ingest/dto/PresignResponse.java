@@ -18,5 +18,9 @@ public class PresignResponse {
     private Map<String, String> fields;
     private Integer expiresInSeconds;
     private String presignedId;
+
+    // The content was already stored: the artifact is recorded and there is nothing to upload or finalize
+    private boolean deduplicated;
+    private ArtifactResponse artifact;
 }
 
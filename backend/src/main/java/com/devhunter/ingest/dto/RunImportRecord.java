@@ -0,0 +1,50 @@
+package com.devhunter.ingest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One line of a run import (newline-delimited JSON).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RunImportRecord {
+
+    private String status;
+
+    private Map<String, Object> metadata;
+
+    // Defaults to the time of the import
+    private Instant createdAt;
+
+    private List<ArtifactInfo> artifacts;
+
+    /**
+     * An artifact kept outside the service, at an http(s) {@code url}. Imports cannot name a stored
+     * object: the service neither owns a reference to it nor knows whose it is.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ArtifactInfo {
+
+        private String filename;
+
+        private String url;
+
+        private Long sizeBytes;
+
+        private String sha256;
+
+        private String contentType;
+    }
+}
@@ -0,0 +1,21 @@
+package com.devhunter.ingest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RunImportResponse {
+
+    private UUID testId;
+
+    private long runs;
+
+    private long artifacts;
+}
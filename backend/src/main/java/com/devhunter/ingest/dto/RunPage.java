@@ -0,0 +1,20 @@
+package com.devhunter.ingest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RunPage {
+
+    private List<RunSummary> items;
+
+    /** Cursor for the next (older) page, null on the last page */
+    private String nextCursor;
+}
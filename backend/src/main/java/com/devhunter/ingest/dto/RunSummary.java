@@ -0,0 +1,31 @@
+package com.devhunter.ingest.dto;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Run as returned by the run history endpoint; never carries document_tsv.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RunSummary {
+
+    private UUID id;
+    private String status;
+
+    // jsonb text passed through as-is, never parsed into a Map
+    @JsonRawValue
+    private String metadata;
+
+    private Instant createdAt;
+    private Instant updatedAt;
+    private Long version;
+}
@@ -0,0 +1,100 @@
+package com.devhunter.ingest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchFilters {
+
+    private static final Pattern METADATA_KEY = Pattern.compile("[A-Za-z0-9_.-]+");
+
+    // Open bounds for lookups that always take a date range (snippets, daily facet rollup)
+    public static final Instant MIN_TIME = Instant.EPOCH;
+    public static final Instant MAX_TIME = Instant.parse("9999-12-31T00:00:00Z");
+
+    @Builder.Default
+    private List<String> statuses = List.of();
+
+    private Instant from;
+
+    private Instant to;
+
+    @Builder.Default
+    private Map<String, String> metadata = Map.of();
+
+    public static SearchFilters none() {
+        return SearchFilters.builder().build();
+    }
+
+    /**
+     * Build filters from request parameters. Metadata filters are given as "key:value".
+     */
+    public static SearchFilters of(List<String> statuses, Instant from, Instant to, List<String> metadataFilters) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("Invalid date range: 'from' must be before 'to'");
+        }
+
+        Map<String, String> metadata = new LinkedHashMap<>();
+        if (metadataFilters != null) {
+            for (String filter : metadataFilters) {
+                int sep = filter.indexOf(':');
+                String key = sep > 0 ? filter.substring(0, sep) : "";
+                if (!METADATA_KEY.matcher(key).matches()) {
+                    throw new IllegalArgumentException("Invalid metadata filter (expected key:value): " + filter);
+                }
+                if (metadata.put(key, filter.substring(sep + 1)) != null) {
+                    throw new IllegalArgumentException("Duplicate metadata filter for key: " + key);
+                }
+            }
+        }
+
+        List<String> statusList = statuses == null ? List.of() : statuses.stream()
+                .filter(s -> !s.isBlank())
+                .toList();
+        if (statusList.stream().anyMatch(s -> s.contains(","))) {
+            throw new IllegalArgumentException("Invalid status filter: " + statusList);
+        }
+
+        return SearchFilters.builder()
+                .statuses(statusList)
+                .from(from)
+                .to(to)
+                .metadata(metadata)
+                .build();
+    }
+
+    public Instant fromOrMin() {
+        return from != null ? from : MIN_TIME;
+    }
+
+    public Instant toOrMax() {
+        return to != null ? to : MAX_TIME;
+    }
+
+    public String statusesCsv() {
+        return String.join(",", statuses);
+    }
+
+    /**
+     * True when only a whole-day (UTC) date range is set, i.e. the daily facet rollup can answer exactly.
+     */
+    public boolean isDayAlignedRangeOnly() {
+        return statuses.isEmpty() && metadata.isEmpty() && isMidnight(from) && isMidnight(to);
+    }
+
+    private static boolean isMidnight(Instant instant) {
+        return instant == null || instant.atOffset(ZoneOffset.UTC).toLocalTime().toNanoOfDay() == 0;
+    }
+}
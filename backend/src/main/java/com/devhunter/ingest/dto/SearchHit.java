@@ -0,0 +1,16 @@
+package com.devhunter.ingest.dto;
+
+import lombok.Value;
+
+import java.util.UUID;
+
+/**
+ * Ranked search match (id and ts_rank only), read before snippets are built.
+ */
+@Value
+public class SearchHit {
+
+    UUID id;
+
+    Double rank;
+}
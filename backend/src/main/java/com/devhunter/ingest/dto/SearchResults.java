@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Data
@@ -16,6 +17,8 @@ public class SearchResults {
 
     private Long total;
     private List<SearchItem> items;
+    private boolean partial;
+    private Map<String, List<FacetCount>> facets;
 
     @Data
     @Builder
@@ -25,7 +28,16 @@ public class SearchResults {
         private UUID id;
         private String type;
         private Double score;
+        // HTML: escaped text with matches in <b>
         private String snippet;
     }
-}
 
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FacetCount {
+        private String value;
+        private Long count;
+    }
+}
@@ -0,0 +1,13 @@
+package com.devhunter.ingest.dto;
+
+import java.util.UUID;
+
+/**
+ * Highlighted ts_headline fragment for one search match.
+ */
+public interface SearchSnippet {
+
+    UUID getId();
+
+    String getSnippet();
+}
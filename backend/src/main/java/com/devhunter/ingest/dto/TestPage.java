@@ -0,0 +1,20 @@
+package com.devhunter.ingest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TestPage {
+
+    private List<TestSummary> items;
+
+    /** Cursor for the next page, null on the last page */
+    private String nextCursor;
+}
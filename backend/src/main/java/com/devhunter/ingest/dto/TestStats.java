@@ -0,0 +1,41 @@
+package com.devhunter.ingest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Run statistics of one test over [from, to), read from the daily rollup.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TestStats {
+
+    private UUID testId;
+    private LocalDate from;
+    private LocalDate to;
+    private long runs;
+    private Map<String, Long> runsByStatus;
+    private List<DailyStats> days;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DailyStats {
+        private LocalDate day;
+        private String status;
+        private long runs;
+        /** Sum of metadata.duration_ms over runs that reported one */
+        private long durationMsSum;
+        private Long durationMsMax;
+    }
+}
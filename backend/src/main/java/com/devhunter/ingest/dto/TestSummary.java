@@ -0,0 +1,34 @@
+package com.devhunter.ingest.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Test as returned by list/export endpoints. Fields that were not selected are null and omitted.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TestSummary {
+
+    private UUID id;
+    private String externalId;
+    private String name;
+
+    // jsonb text passed through as-is, never parsed into a Map
+    @JsonRawValue
+    private String metadata;
+
+    private Instant createdAt;
+    private Instant updatedAt;
+    private Long version;
+}
@@ -120,7 +120,10 @@ public class GlobalExceptionHandler {
                 .body(problem);
     }
 
-    private HttpStatus determineStatus(String message) {
+    /**
+     * Status for an IllegalArgumentException message; also used for per-item errors of batch requests.
+     */
+    public static HttpStatus determineStatus(String message) {
         if (message.contains("too large") || message.contains("max")) {
             return HttpStatus.PAYLOAD_TOO_LARGE;
         }
@@ -0,0 +1,140 @@
+package com.devhunter.ingest.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Batched inserts and per-run reads of artifact rows, without loading Run entities.
+ */
+@Repository
+public class ArtifactWriteRepository {
+
+    // runs has no foreign key target since partitioning (V10), so this does the foreign key's check
+    // itself: the run row is locked FOR KEY SHARE until the batch commits. A run deleted before the
+    // lock is seen as gone and its rows are skipped; a delete after it waits, and its cascade
+    // trigger then sees the new rows. Without the lock, a purge committing in between cascaded
+    // before these rows existed and left them orphaned.
+    private static final String INSERT_SQL = """
+        INSERT INTO artifacts (id, run_id, filename, url, provider, object_key, size_bytes, sha256, content_type, created_at,
+                               verification)
+        SELECT CAST(? AS uuid), CAST(? AS uuid), ?, ?, ?, ?, CAST(? AS bigint), ?, ?, CAST(? AS timestamptz), ?
+        WHERE CAST(? AS uuid) IS NULL OR EXISTS (SELECT 1 FROM runs WHERE id = CAST(? AS uuid) FOR KEY SHARE)
+        ON CONFLICT (id) DO NOTHING
+        """;
+
+    private static final String FIND_BY_RUN_SQL = """
+        SELECT id, run_id, filename, url, provider, object_key, size_bytes, sha256, content_type, created_at,
+               verification
+        FROM artifacts
+        WHERE run_id = ?
+        ORDER BY created_at, id
+        """;
+
+    private static final String FIND_BY_ID_SQL = """
+        SELECT id, run_id, filename, url, provider, object_key, size_bytes, sha256, content_type, created_at,
+               verification
+        FROM artifacts
+        WHERE id = ?
+        """;
+
+    private static final String FIND_IDS_SQL = "SELECT id FROM artifacts WHERE id = ANY(?)";
+
+    private static final String UPDATE_VERIFICATION_SQL = "UPDATE artifacts SET verification = ? WHERE id = ?";
+
+    private static final RowMapper<ArtifactRow> ROW_MAPPER = ArtifactWriteRepository::mapRow;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ArtifactWriteRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Insert rows with one JDBC batch. Rows that already exist are left as they are; rows whose run
+     * no longer exists are skipped. Called in a transaction, which holds off deletes of the runs
+     * until it commits.
+     *
+     * @return the skipped rows
+     */
+    public List<ArtifactRow> insertBatch(List<ArtifactRow> rows) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setObject(1, row.id());
+            ps.setObject(2, row.runId());
+            ps.setString(3, row.filename());
+            ps.setString(4, row.url());
+            ps.setString(5, row.provider());
+            ps.setString(6, row.objectKey());
+            ps.setObject(7, row.sizeBytes());
+            ps.setString(8, row.sha256());
+            ps.setString(9, row.contentType());
+            ps.setObject(10, row.createdAt().atOffset(ZoneOffset.UTC));
+            ps.setString(11, row.verification());
+            ps.setObject(12, row.runId());
+            ps.setObject(13, row.runId());
+        });
+        // Batched counts cannot tell a skipped row from an existing one (and may be SUCCESS_NO_INFO)
+        Set<UUID> recorded = new HashSet<>(jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(FIND_IDS_SQL);
+            ps.setArray(1, con.createArrayOf("uuid", rows.stream().map(ArtifactRow::id).toArray()));
+            return ps;
+        }, (rs, rowNum) -> rs.getObject("id", UUID.class)));
+        return rows.stream().filter(row -> !recorded.contains(row.id())).toList();
+    }
+
+    public List<ArtifactRow> findByRun(UUID runId) {
+        return jdbcTemplate.query(FIND_BY_RUN_SQL, ROW_MAPPER, runId);
+    }
+
+    public Optional<ArtifactRow> findById(UUID id) {
+        return jdbcTemplate.query(FIND_BY_ID_SQL, ROW_MAPPER, id).stream().findFirst();
+    }
+
+    /**
+     * @return the number of rows updated, 0 if the artifact is not (yet) written
+     */
+    public int updateVerification(UUID id, String verification) {
+        return jdbcTemplate.update(UPDATE_VERIFICATION_SQL, verification, id);
+    }
+
+    private static ArtifactRow mapRow(ResultSet rs, int rowNum) throws SQLException {
+        OffsetDateTime createdAt = rs.getObject("created_at", OffsetDateTime.class);
+        return new ArtifactRow(
+                rs.getObject("id", UUID.class),
+                rs.getObject("run_id", UUID.class),
+                rs.getString("filename"),
+                rs.getString("url"),
+                rs.getString("provider"),
+                rs.getString("object_key"),
+                rs.getObject("size_bytes", Long.class),
+                rs.getString("sha256"),
+                rs.getString("content_type"),
+                createdAt == null ? null : createdAt.toInstant(),
+                rs.getString("verification"));
+    }
+
+    /**
+     * One artifact row; {@code runId} may be null for artifacts not linked to a run, and
+     * {@code verification} is null for artifacts whose checksum was not checked.
+     */
+    public record ArtifactRow(UUID id, UUID runId, String filename, String url, String provider,
+                              String objectKey, Long sizeBytes, String sha256, String contentType,
+                              Instant createdAt, String verification) {
+    }
+}
@@ -0,0 +1,152 @@
+package com.devhunter.ingest.repository;
+
+import com.devhunter.ingest.repository.TestPurgeRepository.StoredObject;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Reference-counted stored objects, found by the SHA-256 and size of their content. Taking and
+ * releasing references lock the object's row, so a release that drops the last reference can
+ * delete the object before anyone takes a new one. Only objects whose content is known to match
+ * the digest are shared; a digest the client merely claims is not enough.
+ */
+@Repository
+public class ContentObjectRepository {
+
+    private static final String ACQUIRE_EXISTING_SQL = """
+        UPDATE content_objects SET ref_count = ref_count + 1
+        WHERE sha256 = ? AND size_bytes = ? AND shareable AND ref_count > 0
+        RETURNING provider, object_key, url
+        """;
+
+    // On a conflict the content is already stored: the caller's object is not recorded
+    private static final String ACQUIRE_SQL = """
+        INSERT INTO content_objects (provider, object_key, sha256, size_bytes, url, ref_count, shareable)
+        VALUES (?, ?, ?, ?, ?, 1, true)
+        ON CONFLICT (sha256, size_bytes) WHERE shareable
+        DO UPDATE SET ref_count = content_objects.ref_count + 1
+        RETURNING provider, object_key, url
+        """;
+
+    private static final String REGISTER_UNVERIFIED_SQL = """
+        INSERT INTO content_objects (provider, object_key, sha256, size_bytes, url, ref_count, shareable)
+        VALUES (?, ?, ?, ?, ?, 1, false)
+        """;
+
+    // Another object of the content may have become shareable first; that one is kept
+    private static final String MARK_SHAREABLE_SQL = """
+        UPDATE content_objects c SET shareable = true
+        WHERE c.provider = ? AND c.object_key = ? AND NOT c.shareable AND c.ref_count > 0
+          AND NOT EXISTS (
+            SELECT 1 FROM content_objects o
+            WHERE o.sha256 = c.sha256 AND o.size_bytes = c.size_bytes AND o.shareable
+          )
+        """;
+
+    private static final String RELEASE_SQL = """
+        UPDATE content_objects c SET ref_count = c.ref_count - r.refs
+        FROM (
+          SELECT provider, object_key, count(*) AS refs
+          FROM unnest(CAST(? AS text[]), CAST(? AS text[])) AS released(provider, object_key)
+          GROUP BY provider, object_key
+        ) r
+        WHERE c.provider = r.provider AND c.object_key = r.object_key
+        RETURNING c.provider, c.object_key, c.ref_count
+        """;
+
+    private static final String DELETE_UNREFERENCED_SQL =
+            "DELETE FROM content_objects WHERE provider = ? AND object_key = ? AND ref_count <= 0";
+
+    private static final String MARK_UNSHAREABLE_SQL =
+            "UPDATE content_objects SET shareable = false WHERE provider = ? AND object_key = ?";
+
+    private static final RowMapper<ContentObject> ROW_MAPPER = (rs, rowNum) -> new ContentObject(
+            rs.getString("provider"), rs.getString("object_key"), rs.getString("url"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ContentObjectRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Take a reference to the stored object with this content, if there is one.
+     */
+    public Optional<ContentObject> acquireExisting(String sha256, long sizeBytes) {
+        return jdbcTemplate.query(ACQUIRE_EXISTING_SQL, ROW_MAPPER, sha256, sizeBytes).stream().findFirst();
+    }
+
+    /**
+     * Record a newly uploaded object with one reference, or take a reference to the object already
+     * stored for this content. In the latter case the returned object is not the given one, which
+     * is then unreferenced. Only for content whose digest was checked, by the server or by a
+     * provider that enforces it: the object is handed out to other uploads right away.
+     */
+    public ContentObject acquire(String provider, String objectKey, String sha256, long sizeBytes, String url) {
+        return jdbcTemplate.queryForObject(ACQUIRE_SQL, ROW_MAPPER, provider, objectKey, sha256, sizeBytes, url);
+    }
+
+    /**
+     * Record a newly uploaded object with one reference, not reused for other uploads until its
+     * content is verified (see {@link #markShareable}).
+     */
+    public void registerUnverified(String provider, String objectKey, String sha256, long sizeBytes, String url) {
+        jdbcTemplate.update(REGISTER_UNVERIFIED_SQL, provider, objectKey, sha256, sizeBytes, url);
+    }
+
+    /**
+     * Hand out references to an object whose content was verified against its digest, unless
+     * another object of the same content already is.
+     *
+     * @throws org.springframework.dao.DuplicateKeyException if another one became shareable concurrently
+     */
+    public void markShareable(String provider, String objectKey) {
+        jdbcTemplate.update(MARK_SHAREABLE_SQL, provider, objectKey);
+    }
+
+    /**
+     * Drop one reference per entry (an object may be listed more than once). Call within a
+     * transaction that also deletes the objects left without references, see
+     * {@link #deleteUnreferenced}.
+     *
+     * @return references left to each released object; objects not recorded here are absent
+     */
+    public Map<StoredObject, Long> release(List<StoredObject> objects) {
+        String[] providers = objects.stream().map(StoredObject::provider).toArray(String[]::new);
+        String[] keys = objects.stream().map(StoredObject::objectKey).toArray(String[]::new);
+        Map<StoredObject, Long> remaining = new LinkedHashMap<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(RELEASE_SQL);
+            ps.setArray(1, con.createArrayOf("text", providers));
+            ps.setArray(2, con.createArrayOf("text", keys));
+            return ps;
+        }, rs -> {
+            remaining.put(new StoredObject(rs.getString("provider"), rs.getString("object_key")),
+                    rs.getLong("ref_count"));
+        });
+        return remaining;
+    }
+
+    public void deleteUnreferenced(StoredObject object) {
+        jdbcTemplate.update(DELETE_UNREFERENCED_SQL, object.provider(), object.objectKey());
+    }
+
+    /**
+     * Stop handing out references to an object whose content does not match its digest. Existing
+     * references are kept; the next upload of the content is stored as a new object.
+     */
+    public void markUnshareable(String provider, String objectKey) {
+        jdbcTemplate.update(MARK_UNSHAREABLE_SQL, provider, objectKey);
+    }
+
+    public record ContentObject(String provider, String objectKey, String url) {
+    }
+}
@@ -2,18 +2,72 @@ package com.devhunter.ingest.repository;
 
 import com.devhunter.ingest.domain.Operation;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface OperationRepository extends JpaRepository<Operation, UUID> {
 
-    @Query("SELECT o FROM Operation o WHERE o.status = 'PENDING' ORDER BY o.createdAt ASC")
-    List<Operation> findPendingOperations();
+    /**
+     * Lock up to {@code limit} pending operations of the given types, oldest first, for the
+     * caller's transaction. Rows another node has locked are skipped, so each operation is
+     * picked up once.
+     */
+    @Query(value = """
+            SELECT * FROM operations
+            WHERE status = 'PENDING' AND type IN (:types)
+            ORDER BY created_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<Operation> claimPending(@Param("types") Collection<String> types, @Param("limit") int limit);
+
+    /**
+     * {@link #claimPending} for every type but the given ones
+     */
+    @Query(value = """
+            SELECT * FROM operations
+            WHERE status = 'PENDING' AND type NOT IN (:types)
+            ORDER BY created_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<Operation> claimPendingExcept(@Param("types") Collection<String> types, @Param("limit") int limit);
+
+    /**
+     * Mark running operations as alive, so they are not taken for abandoned.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE operations SET updated_at = now() WHERE id IN (:ids) AND status = 'RUNNING'",
+            nativeQuery = true)
+    int touch(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Queue running operations again whose node stopped touching them (it died mid-operation).
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE operations SET status = 'PENDING', updated_at = now()
+            WHERE status = 'RUNNING' AND updated_at < now() - make_interval(secs => :staleAfterSeconds)
+            """, nativeQuery = true)
+    int requeueAbandoned(@Param("staleAfterSeconds") long staleAfterSeconds);
 
     List<Operation> findByStatus(Operation.OperationStatus status);
-}
 
+    /**
+     * Last modification time only, without loading the entity.
+     */
+    @Query("SELECT o.updatedAt FROM Operation o WHERE o.id = :id")
+    Optional<Instant> findUpdatedAtById(@Param("id") UUID id);
+}
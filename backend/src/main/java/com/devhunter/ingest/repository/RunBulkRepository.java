@@ -0,0 +1,221 @@
+package com.devhunter.ingest.repository;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Bulk writes of runs and their artifacts: rows are streamed with COPY into a session-local staging
+ * table, then merged with one INSERT ... SELECT. The rollups are maintained by the same statement
+ * (see V11) instead of by the per-row triggers.
+ */
+@Repository
+public class RunBulkRepository {
+
+    // Kept per pooled connection; emptied at commit, and gone with a rolled-back creation
+    private static final String STAGE_SQL = """
+        CREATE TEMP TABLE IF NOT EXISTS run_stage (
+          id UUID NOT NULL,
+          test_id UUID NOT NULL,
+          status TEXT,
+          metadata JSONB,
+          created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+          artifacts JSONB
+        ) ON COMMIT DELETE ROWS
+        """;
+
+    private static final String COPY_SQL =
+            "COPY run_stage (id, test_id, status, metadata, created_at, artifacts) FROM STDIN WITH (FORMAT csv)";
+
+    // Same lock and order as the per-row trigger and RunStatsRepository.rebuildChunk
+    private static final String LOCK_TESTS_SQL = """
+        SELECT count(pg_advisory_xact_lock_shared(run_stats_lock_key(test_id)))
+        FROM (SELECT DISTINCT test_id FROM run_stage ORDER BY test_id) t
+        """;
+
+    // Runs of tombstoned tests are dropped; runs already present (same id and created_at) are kept as is.
+    // Artifacts are written without provider and object_key: staged rows come from clients, and a
+    // stored object is only referenced through ContentObjectRepository.acquire.
+    private static final String MERGE_SQL = """
+        WITH inserted AS (
+          INSERT INTO runs (id, test_id, status, metadata, created_at, updated_at)
+          SELECT s.id, s.test_id, s.status, s.metadata, s.created_at, now()
+          FROM run_stage s
+          WHERE EXISTS (SELECT 1 FROM tests t WHERE t.id = s.test_id AND t.deleted_at IS NULL)
+          ON CONFLICT (id, created_at) DO NOTHING
+          RETURNING id, test_id, status, metadata, created_at
+        ), artifact_rows AS (
+          INSERT INTO artifacts (run_id, filename, url, size_bytes, sha256, content_type, created_at)
+          SELECT s.id, a.filename, a.url, a.size_bytes, a.sha256, a.content_type, s.created_at
+          FROM run_stage s
+          JOIN inserted i ON i.id = s.id AND i.created_at = s.created_at
+          CROSS JOIN LATERAL jsonb_to_recordset(s.artifacts)
+            AS a(filename TEXT, url TEXT, size_bytes BIGINT, sha256 TEXT, content_type TEXT)
+          WHERE s.artifacts IS NOT NULL
+          RETURNING 1
+        ), facet_rows AS (
+          INSERT INTO run_facet_counts_daily (day, facet, value, shard, hits)
+          SELECT (i.created_at AT TIME ZONE 'UTC')::date, f.facet, f.value, run_facet_counts_shard(), count(*)
+          FROM inserted i
+          CROSS JOIN LATERAL (
+            SELECT 'status' AS facet, i.status AS value
+            UNION ALL
+            SELECT k.key, i.metadata ->> k.key FROM run_facet_keys k
+          ) f
+          WHERE f.value IS NOT NULL
+          GROUP BY 1, 2, 3
+          ORDER BY 1, 2, 3
+          ON CONFLICT (day, facet, value, shard) DO UPDATE SET hits = run_facet_counts_daily.hits + EXCLUDED.hits
+        ), stats_rows AS (
+          INSERT INTO run_stats_daily AS d (test_id, day, status, runs, duration_ms_sum, duration_ms_max)
+          SELECT i.test_id, (i.created_at AT TIME ZONE 'UTC')::date, coalesce(i.status, 'unknown'), count(*),
+                 coalesce(sum(run_duration_ms(i.metadata)), 0), max(run_duration_ms(i.metadata))
+          FROM inserted i
+          GROUP BY 1, 2, 3
+          ORDER BY 1, 2, 3
+          ON CONFLICT (test_id, day, status) DO UPDATE
+          SET runs = d.runs + EXCLUDED.runs,
+              duration_ms_sum = d.duration_ms_sum + EXCLUDED.duration_ms_sum,
+              duration_ms_max = GREATEST(d.duration_ms_max, EXCLUDED.duration_ms_max)
+        )
+        SELECT (SELECT count(*) FROM inserted) AS runs, (SELECT count(*) FROM artifact_rows) AS artifacts,
+               (SELECT array_agg(DISTINCT s.test_id) FROM run_stage s
+                WHERE NOT EXISTS (SELECT 1 FROM tests t WHERE t.id = s.test_id AND t.deleted_at IS NULL)) AS dropped_test_ids
+        """;
+
+    private static final int COPY_BUFFER_BYTES = 64 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RunBulkRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Stage and merge every run of {@code runs}. Must run in a transaction; the iterator is consumed
+     * while the COPY is open, so it may stream from a request body.
+     */
+    public BulkResult write(Iterator<StagedRun> runs) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Bulk run writes need a transaction");
+        }
+        jdbcTemplate.execute(STAGE_SQL);
+
+        long staged = jdbcTemplate.execute((ConnectionCallback<Long>) con ->
+                copy(con.unwrap(PGConnection.class), runs));
+        if (staged == 0) {
+            return new BulkResult(0, 0, Set.of());
+        }
+
+        // Temp tables are never analyzed automatically; the merge joins run_stage with its own output
+        jdbcTemplate.execute("ANALYZE run_stage");
+        jdbcTemplate.queryForObject(LOCK_TESTS_SQL, Long.class);
+
+        jdbcTemplate.queryForObject("SELECT set_config('devhunter.bulk_merge', 'on', true)", String.class);
+        BulkResult result = jdbcTemplate.queryForObject(MERGE_SQL, (rs, rowNum) -> {
+            Array dropped = rs.getArray("dropped_test_ids");
+            return new BulkResult(rs.getLong("runs"), rs.getLong("artifacts"),
+                    dropped == null ? Set.of() : Set.of((UUID[]) dropped.getArray()));
+        });
+        jdbcTemplate.queryForObject("SELECT set_config('devhunter.bulk_merge', 'off', true)", String.class);
+        return result;
+    }
+
+    private static long copy(PGConnection connection, Iterator<StagedRun> runs) throws SQLException {
+        PGCopyOutputStream copy = new PGCopyOutputStream(connection, COPY_SQL, COPY_BUFFER_BYTES);
+        long staged = 0;
+        try {
+            Writer out = new BufferedWriter(new OutputStreamWriter(copy, StandardCharsets.UTF_8), COPY_BUFFER_BYTES);
+            while (runs.hasNext()) {
+                writeRow(out, runs.next());
+                staged++;
+            }
+            out.close();
+            return staged;
+        } catch (IOException e) {
+            cancel(copy);
+            // Rejected rows (e.g. invalid JSON) surface here; rethrown for JdbcTemplate to translate
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            // Invalid input: leave the connection usable for the rollback
+            cancel(copy);
+            throw e;
+        }
+    }
+
+    private static void writeRow(Writer out, StagedRun run) throws IOException {
+        out.write(run.id().toString());
+        out.write(',');
+        out.write(run.testId().toString());
+        out.write(',');
+        writeText(out, run.status());
+        out.write(',');
+        writeText(out, run.metadataJson());
+        out.write(',');
+        out.write(run.createdAt().toString());
+        out.write(',');
+        writeText(out, run.artifactsJson());
+        out.write('\n');
+    }
+
+    // CSV: an unquoted empty field is NULL, anything quoted is text with quotes doubled
+    private static void writeText(Writer out, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        out.write('"');
+        int start = 0;
+        for (int i = value.indexOf('"'); i >= 0; i = value.indexOf('"', start)) {
+            out.write(value, start, i + 1 - start);
+            out.write('"');
+            start = i + 1;
+        }
+        out.write(value, start, value.length() - start);
+        out.write('"');
+    }
+
+    private static void cancel(PGCopyOutputStream copy) {
+        try {
+            if (copy.isActive()) {
+                copy.cancelCopy();
+            }
+        } catch (Exception e) {
+            // The transaction is rolled back either way
+        }
+    }
+
+    /**
+     * One run to stage. JSON values are passed through as text; {@code artifactsJson} is an array of
+     * objects with the artifacts column names as keys.
+     */
+    public record StagedRun(UUID id, UUID testId, String status, String metadataJson,
+                            Instant createdAt, String artifactsJson) {
+    }
+
+    /**
+     * @param droppedTestIds tests whose staged runs were dropped because the test is deleted; read in
+     *                       the same snapshot as the merge
+     */
+    public record BulkResult(long runs, long artifacts, Set<UUID> droppedTestIds) {
+    }
+}
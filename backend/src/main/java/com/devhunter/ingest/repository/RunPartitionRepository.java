@@ -0,0 +1,142 @@
+package com.devhunter.ingest.repository;
+
+import com.devhunter.ingest.repository.TestPurgeRepository.StoredObject;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Maintenance of the runs partitions (see V10): monthly runs_pYYYY_MM plus runs_legacy, which holds
+ * everything from before partitioning. Table names are checked against {@link #PARTITION_NAME} or
+ * {@link #LEGACY_PARTITION} before they are used in SQL.
+ */
+@Repository
+public class RunPartitionRepository {
+
+    public static final String LEGACY_PARTITION = "runs_legacy";
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("runs_p(\\d{4})_(\\d{2})");
+
+    // Attached partitions and ones already detached by an interrupted retention pass
+    private static final String LIST_SQL = """
+        SELECT c.relname, i.inhparent IS NOT NULL AS attached
+        FROM pg_class c
+        LEFT JOIN pg_inherits i ON i.inhrelid = c.oid
+        WHERE c.relkind = 'r'
+          AND c.relnamespace = CAST(current_schema() AS regnamespace)
+          AND c.relname ~ '^runs_p[0-9]{4}_[0-9]{2}$'
+        ORDER BY c.relname
+        """;
+
+    private static final String DELETE_ARTIFACTS_SQL = """
+        DELETE FROM artifacts
+        WHERE id IN (
+          SELECT a.id FROM artifacts a
+          WHERE a.run_id IN (SELECT r.id FROM %s r WHERE r.created_at < ?)
+          LIMIT ?
+        )
+        RETURNING provider, object_key
+        """;
+
+    private static final String DELETE_RUNS_SQL = """
+        DELETE FROM %1$s
+        WHERE id IN (SELECT id FROM %1$s WHERE created_at < ? LIMIT ?)
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RunPartitionRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Serializes maintenance across instances for the current transaction.
+     *
+     * @return false if another instance is already running it
+     */
+    public boolean tryLockMaintenance() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT pg_try_advisory_xact_lock(hashtextextended('runs_partition_maintenance', 37))",
+                Boolean.class));
+    }
+
+    /**
+     * Create missing partitions from the current month through {@code monthsAhead} months ahead.
+     *
+     * @return the number of partitions created
+     */
+    public int ensurePartitions(int monthsAhead) {
+        Integer created = jdbcTemplate.queryForObject("SELECT runs_ensure_partitions(?)", Integer.class, monthsAhead);
+        return created != null ? created : 0;
+    }
+
+    public List<MonthlyPartition> findMonthlyPartitions() {
+        return jdbcTemplate.query(LIST_SQL, (rs, rowNum) ->
+                MonthlyPartition.of(rs.getString("relname"), rs.getBoolean("attached")));
+    }
+
+    /**
+     * Detach a partition: its runs leave search and listings at once, the table stays for cleanup.
+     */
+    public void detach(MonthlyPartition partition) {
+        jdbcTemplate.execute("ALTER TABLE runs DETACH PARTITION " + partition.name());
+    }
+
+    public void drop(MonthlyPartition partition) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition.name());
+    }
+
+    /**
+     * Delete up to {@code limit} artifacts of runs in {@code table} created before {@code before}.
+     *
+     * @return the storage location of every deleted artifact
+     */
+    public List<StoredObject> deleteArtifacts(String table, Instant before, int limit) {
+        return jdbcTemplate.query(DELETE_ARTIFACTS_SQL.formatted(checked(table)),
+                (rs, rowNum) -> new StoredObject(rs.getString("provider"), rs.getString("object_key")),
+                before.atOffset(ZoneOffset.UTC), limit);
+    }
+
+    /**
+     * Delete up to {@code limit} runs of an attached partition created before {@code before}.
+     * Row deletes go through the runs triggers, so the rollups follow.
+     */
+    public int deleteRuns(String table, Instant before, int limit) {
+        return jdbcTemplate.update(DELETE_RUNS_SQL.formatted(checked(table)), before.atOffset(ZoneOffset.UTC), limit);
+    }
+
+    /**
+     * Remove rollup rows for the days of a dropped partition, which no row trigger saw go.
+     */
+    public void deleteRollups(YearMonth month) {
+        Object[] days = {month.atDay(1), month.plusMonths(1).atDay(1)};
+        jdbcTemplate.update("DELETE FROM run_facet_counts_daily WHERE day >= ? AND day < ?", days);
+        jdbcTemplate.update("DELETE FROM run_stats_daily WHERE day >= ? AND day < ?", days);
+    }
+
+    private static String checked(String table) {
+        if (!LEGACY_PARTITION.equals(table) && !PARTITION_NAME.matcher(table).matches()) {
+            throw new IllegalArgumentException("Not a runs partition: " + table);
+        }
+        return table;
+    }
+
+    public record MonthlyPartition(String name, YearMonth month, boolean attached) {
+
+        static MonthlyPartition of(String name, boolean attached) {
+            Matcher matcher = PARTITION_NAME.matcher(name);
+            if (!matcher.matches()) {
+                throw new IllegalStateException("Not a monthly runs partition: " + name);
+            }
+            YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+            return new MonthlyPartition(name, month, attached);
+        }
+    }
+}
@@ -1,11 +1,13 @@
 package com.devhunter.ingest.repository;
 
 import com.devhunter.ingest.domain.Run;
+import com.devhunter.ingest.dto.SearchSnippet;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
 
@@ -14,24 +16,25 @@ public interface RunRepository extends JpaRepository<Run, UUID> {
 
     List<Run> findByTestId(UUID testId);
 
+    /**
+     * Second search phase: highlighted fragments for the page's ids only, raw text with the
+     * selection markers of {@code options} (the caller escapes them into HTML).
+     * {@code ids} is a comma-separated list so the statement text does not depend on page size;
+     * the date bounds of the first phase let id lookups skip partitions outside the range.
+     */
     @Query(value = """
-        SELECT r.*, ts_rank(r.document_tsv, to_tsquery('english', :query)) as rank
+        SELECT r.id AS id,
+               ts_headline('english', coalesce(CAST(r.metadata AS text), ''),
+                           to_tsquery('english', :query), :options) AS snippet
         FROM runs r
-        WHERE r.document_tsv @@ to_tsquery('english', :query)
-        ORDER BY rank DESC
-        LIMIT :limit OFFSET :offset
+        WHERE r.id = ANY(CAST(string_to_array(:ids, ',') AS uuid[]))
+          AND r.created_at >= :fromTs AND r.created_at < :toTs
         """, nativeQuery = true)
-    List<Run> searchByFullText(
+    List<SearchSnippet> headlines(
         @Param("query") String query,
-        @Param("limit") int limit,
-        @Param("offset") int offset
+        @Param("ids") String ids,
+        @Param("fromTs") Instant fromTs,
+        @Param("toTs") Instant toTs,
+        @Param("options") String options
     );
-
-    @Query(value = """
-        SELECT COUNT(*)
-        FROM runs r
-        WHERE r.document_tsv @@ to_tsquery('english', :query)
-        """, nativeQuery = true)
-    long countByFullText(@Param("query") String query);
 }
-
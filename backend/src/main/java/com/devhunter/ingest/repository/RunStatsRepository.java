@@ -0,0 +1,84 @@
+package com.devhunter.ingest.repository;
+
+import com.devhunter.ingest.dto.TestStats;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Reads and rebuilds of run_stats_daily. Incremental maintenance happens in the runs triggers (V9).
+ */
+@Repository
+public class RunStatsRepository {
+
+    private static final String DAILY_SQL = """
+        SELECT day, status, runs, duration_ms_sum, duration_ms_max
+        FROM run_stats_daily
+        WHERE test_id = ? AND day >= ? AND day < ? AND runs > 0
+        ORDER BY day, status
+        """;
+
+    private static final String NEXT_TESTS_SQL = "SELECT id FROM tests WHERE id > ? ORDER BY id LIMIT ?";
+
+    // Waits for in-flight run writes of these tests and holds new ones off until the chunk commits
+    private static final String LOCK_TESTS_SQL = """
+        SELECT count(pg_advisory_xact_lock(run_stats_lock_key(id)))
+        FROM (SELECT id FROM unnest(CAST(string_to_array(?, ',') AS uuid[])) AS id ORDER BY id) ids
+        """;
+
+    private static final String CLEAR_SQL =
+            "DELETE FROM run_stats_daily WHERE test_id = ANY(CAST(string_to_array(?, ',') AS uuid[]))";
+
+    private static final String REBUILD_SQL = """
+        INSERT INTO run_stats_daily (test_id, day, status, runs, duration_ms_sum, duration_ms_max)
+        SELECT test_id, (created_at AT TIME ZONE 'UTC')::date, coalesce(status, 'unknown'), count(*),
+               coalesce(sum(run_duration_ms(metadata)), 0), max(run_duration_ms(metadata))
+        FROM runs
+        WHERE test_id = ANY(CAST(string_to_array(?, ',') AS uuid[])) AND created_at IS NOT NULL
+        GROUP BY 1, 2, 3
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RunStatsRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Rows for one test with {@code from <= day < to}, ordered by day then status.
+     */
+    public List<TestStats.DailyStats> findDaily(UUID testId, LocalDate from, LocalDate to) {
+        return jdbcTemplate.query(DAILY_SQL, (rs, rowNum) -> TestStats.DailyStats.builder()
+                        .day(rs.getObject("day", LocalDate.class))
+                        .status(rs.getString("status"))
+                        .runs(rs.getLong("runs"))
+                        .durationMsSum(rs.getLong("duration_ms_sum"))
+                        .durationMsMax(rs.getObject("duration_ms_max", Long.class))
+                        .build(),
+                testId, from, to);
+    }
+
+    /**
+     * Recompute the statistics of the next {@code limit} tests after {@code after} from their runs.
+     * Must run in a transaction; exact even while runs of those tests are being written.
+     *
+     * @return the ids that were rebuilt, in order (empty once every test has been processed)
+     */
+    public List<UUID> rebuildChunk(UUID after, int limit) {
+        List<UUID> ids = jdbcTemplate.queryForList(NEXT_TESTS_SQL, UUID.class, after, limit);
+        if (ids.isEmpty()) {
+            return ids;
+        }
+        String csv = ids.stream().map(UUID::toString).collect(Collectors.joining(","));
+
+        jdbcTemplate.queryForObject(LOCK_TESTS_SQL, Long.class, csv);
+        jdbcTemplate.update(CLEAR_SQL, csv);
+        jdbcTemplate.update(REBUILD_SQL, csv);
+        return ids;
+    }
+}
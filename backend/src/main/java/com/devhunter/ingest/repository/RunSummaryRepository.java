@@ -0,0 +1,66 @@
+package com.devhunter.ingest.repository;
+
+import com.devhunter.ingest.dto.KeysetCursor;
+import com.devhunter.ingest.dto.RunSummary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Projection reads over a test's runs, newest first. Pages walk idx_runs_test_created_id,
+ * so each page costs the same regardless of how far back it is.
+ */
+@Repository
+public class RunSummaryRepository {
+
+    private static final String PAGE_SQL = """
+        SELECT id, status, metadata::text AS metadata, created_at, updated_at, version
+        FROM runs
+        WHERE test_id = ?
+          AND (created_at, id) < (?, ?)
+          AND (? = '' OR status = ANY(string_to_array(?, ',')))
+        ORDER BY created_at DESC, id DESC
+        LIMIT ?
+        """;
+
+    private static final RowMapper<RunSummary> ROW_MAPPER = RunSummaryRepository::mapRow;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RunSummaryRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * @param before   rows strictly older than this position; {@link KeysetCursor#END} for the first page
+     * @param statuses comma-separated statuses, or "" for all
+     */
+    public List<RunSummary> findPageByTest(UUID testId, KeysetCursor before, String statuses, int limit) {
+        return jdbcTemplate.query(PAGE_SQL, ROW_MAPPER,
+                testId, before.createdAt().atOffset(ZoneOffset.UTC), before.id(), statuses, statuses, limit);
+    }
+
+    private static RunSummary mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return RunSummary.builder()
+                .id(rs.getObject("id", UUID.class))
+                .status(rs.getString("status"))
+                .metadata(rs.getString("metadata"))
+                .createdAt(toInstant(rs.getObject("created_at", OffsetDateTime.class)))
+                .updatedAt(toInstant(rs.getObject("updated_at", OffsetDateTime.class)))
+                .version(rs.getObject("version", Long.class))
+                .build();
+    }
+
+    private static Instant toInstant(OffsetDateTime value) {
+        return value != null ? value.toInstant() : null;
+    }
+}
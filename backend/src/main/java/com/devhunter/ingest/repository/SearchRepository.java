@@ -0,0 +1,282 @@
+package com.devhunter.ingest.repository;
+
+import com.devhunter.ingest.dto.SearchFilters;
+import com.devhunter.ingest.dto.SearchHit;
+import com.devhunter.ingest.dto.SearchResults;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Ranking, counts and facet counts of search over tests and runs. Statements carry a predicate for
+ * each filter that is set and none for the others: a catch-all such as
+ * {@code (:statuses = '' OR ...)} is planned for every binding at once, so the planner cannot use
+ * the document_tsv and metadata GIN indexes for it. The few resulting statement shapes are each
+ * planned on their own.
+ */
+@Slf4j
+@Repository
+public class SearchRepository {
+
+    private static final String STATUS_FACET = "status";
+    private static final Pattern FACET_KEY = Pattern.compile("[A-Za-z0-9_.-]+");
+
+    private static final String FACET_KEYS_SQL = "SELECT key FROM run_facet_keys ORDER BY key";
+
+    // Counters are summed over their shards (see V20). Runs of tombstoned tests are still counted
+    // until their purge deletes them, so they are subtracted, as the live search excludes them.
+    private static final String ROLLUP_SQL = """
+        WITH rollup AS (
+          SELECT facet, value, sum(hits) AS hits
+          FROM run_facet_counts_daily
+          WHERE day >= ? AND day < ?
+          GROUP BY facet, value
+        ), tombstoned AS (
+          SELECT f.facet, f.value, count(*) AS hits
+          FROM tests t
+          JOIN runs r ON r.test_id = t.id AND r.created_at >= ? AND r.created_at < ?
+          CROSS JOIN LATERAL (
+            SELECT 'status' AS facet, r.status AS value
+            UNION ALL
+            SELECT k.key, r.metadata ->> k.key FROM run_facet_keys k
+          ) f
+          WHERE t.deleted_at IS NOT NULL AND f.value IS NOT NULL
+          GROUP BY f.facet, f.value
+        )
+        SELECT facet, value, hits FROM (
+          SELECT facet, value, hits,
+                 row_number() OVER (PARTITION BY facet ORDER BY hits DESC, value) AS rn
+          FROM (
+            SELECT c.facet, c.value, c.hits - coalesce(d.hits, 0) AS hits
+            FROM rollup c
+            LEFT JOIN tombstoned d ON d.facet = c.facet AND d.value = c.value
+          ) counted
+          WHERE hits > 0
+        ) ranked
+        WHERE rn <= ?
+        ORDER BY facet, hits DESC, value
+        """;
+
+    private static final RowMapper<SearchHit> HIT_MAPPER = (rs, rowNum) ->
+            new SearchHit(rs.getObject("id", UUID.class), rs.getDouble("rank"));
+
+    /**
+     * GROUPING SETS select list and groups for the facet keys as of {@code loadedNanos}
+     */
+    private record FacetColumns(String facet, String value, String sets, long loadedNanos) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final long facetKeysRefreshNanos;
+
+    // Reloaded from run_facet_keys once older than facet-keys-refresh-ms
+    private volatile FacetColumns facetColumns;
+
+    public SearchRepository(DataSource dataSource, ObjectMapper objectMapper,
+                            @Value("${app.search.facet-keys-refresh-ms:60000}") long facetKeysRefreshMs) {
+        if (facetKeysRefreshMs < 0) {
+            throw new IllegalStateException("Invalid app.search settings: facet-keys-refresh-ms=" + facetKeysRefreshMs);
+        }
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.objectMapper = objectMapper;
+        this.facetKeysRefreshNanos = TimeUnit.MILLISECONDS.toNanos(facetKeysRefreshMs);
+    }
+
+    /**
+     * First search phase over tests: ids and ranks for one page, without reading full rows.
+     * Run status does not apply to tests and is ignored.
+     */
+    public List<SearchHit> rankTests(String query, SearchFilters filters, int limit, int offset) {
+        return rank("tests", "t", where("t", query, filters), query, limit, offset);
+    }
+
+    /**
+     * First search phase over runs: ids and ranks for one page, without reading full rows.
+     */
+    public List<SearchHit> rankRuns(String query, SearchFilters filters, int limit, int offset) {
+        return rank("runs", "r", where("r", query, filters), query, limit, offset);
+    }
+
+    public long countTests(String query, SearchFilters filters) {
+        return count("tests", "t", where("t", query, filters));
+    }
+
+    public long countRuns(String query, SearchFilters filters) {
+        return count("runs", "r", where("r", query, filters));
+    }
+
+    /**
+     * Count matching runs per facet value in a single pass (GROUPING SETS), keeping the top
+     * {@code facetLimit} values per facet: run status plus the metadata keys listed in
+     * run_facet_keys. An empty {@code query} matches every run.
+     */
+    public Map<String, List<SearchResults.FacetCount>> countFacets(String query, SearchFilters filters, int facetLimit) {
+        FacetColumns columns = facetColumns();
+        Where where = where("r", query, filters);
+        String sql = """
+            SELECT facet, value, hits FROM (
+              SELECT facet, value, hits,
+                     row_number() OVER (PARTITION BY facet ORDER BY hits DESC, value) AS rn
+              FROM (
+                SELECT %s AS facet, %s AS value, count(*) AS hits
+                FROM runs r
+                WHERE %s
+                GROUP BY GROUPING SETS (%s)
+              ) grouped
+              WHERE value IS NOT NULL
+            ) ranked
+            WHERE rn <= ?
+            ORDER BY facet, hits DESC, value
+            """.formatted(columns.facet(), columns.value(), where.sql(), columns.sets());
+        List<Object> args = new ArrayList<>(where.args());
+        args.add(facetLimit);
+        return toFacets(jdbcTemplate.queryForList(sql, args.toArray()));
+    }
+
+    /**
+     * Facet counts from the daily rollup. Only exact for filters where
+     * {@link SearchFilters#isDayAlignedRangeOnly()} holds and without a text query.
+     */
+    public Map<String, List<SearchResults.FacetCount>> countFacetsFromRollup(SearchFilters filters, int facetLimit) {
+        return toFacets(jdbcTemplate.queryForList(ROLLUP_SQL,
+                LocalDate.ofInstant(filters.fromOrMin(), ZoneOffset.UTC),
+                LocalDate.ofInstant(filters.toOrMax(), ZoneOffset.UTC),
+                timestamp(filters.fromOrMin()),
+                timestamp(filters.toOrMax()),
+                facetLimit));
+    }
+
+    private List<SearchHit> rank(String table, String alias, Where where, String query, int limit, int offset) {
+        String sql = """
+            SELECT %1$s.id AS id, CAST(ts_rank(%1$s.document_tsv, to_tsquery('english', ?)) AS float8) AS rank
+            FROM %2$s %1$s
+            WHERE %3$s
+            ORDER BY rank DESC
+            LIMIT ? OFFSET ?
+            """.formatted(alias, table, where.sql());
+        List<Object> args = new ArrayList<>();
+        args.add(query);
+        args.addAll(where.args());
+        args.add(limit);
+        args.add(offset);
+        return jdbcTemplate.query(sql, HIT_MAPPER, args.toArray());
+    }
+
+    private long count(String table, String alias, Where where) {
+        String sql = "SELECT count(*) FROM %s %s WHERE %s".formatted(table, alias, where.sql());
+        Long count = jdbcTemplate.queryForObject(sql, Long.class, where.args().toArray());
+        return count != null ? count : 0;
+    }
+
+    private record Where(String sql, List<Object> args) {
+    }
+
+    /**
+     * Tombstone check plus a predicate per filter that is set; {@code alias} "t" for tests, "r" for runs
+     */
+    private Where where(String alias, String query, SearchFilters filters) {
+        List<String> predicates = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        predicates.add(alias.equals("t")
+                ? "t.deleted_at IS NULL"
+                : "NOT EXISTS (SELECT 1 FROM tests d WHERE d.id = r.test_id AND d.deleted_at IS NOT NULL)");
+        if (!query.isEmpty()) {
+            predicates.add(alias + ".document_tsv @@ to_tsquery('english', ?)");
+            args.add(query);
+        }
+        if (alias.equals("r") && !filters.getStatuses().isEmpty()) {
+            predicates.add(alias + ".status = ANY(string_to_array(?, ','))");
+            args.add(filters.statusesCsv());
+        }
+        if (filters.getFrom() != null) {
+            predicates.add(alias + ".created_at >= ?");
+            args.add(timestamp(filters.getFrom()));
+        }
+        if (filters.getTo() != null) {
+            predicates.add(alias + ".created_at < ?");
+            args.add(timestamp(filters.getTo()));
+        }
+        if (!filters.getMetadata().isEmpty()) {
+            predicates.add(alias + ".metadata @> CAST(? AS jsonb)");
+            args.add(toJson(filters.getMetadata()));
+        }
+        return new Where(String.join("\n  AND ", predicates), args);
+    }
+
+    private FacetColumns facetColumns() {
+        FacetColumns columns = facetColumns;
+        if (columns == null || System.nanoTime() - columns.loadedNanos() >= facetKeysRefreshNanos) {
+            // Concurrent reloads are harmless; the last one wins
+            columns = buildFacetColumns(jdbcTemplate.queryForList(FACET_KEYS_SQL, String.class));
+            facetColumns = columns;
+        }
+        return columns;
+    }
+
+    private static FacetColumns buildFacetColumns(List<String> metadataKeys) {
+        List<String> names = new ArrayList<>(List.of(STATUS_FACET));
+        List<String> exprs = new ArrayList<>(List.of("r.status"));
+        for (String key : metadataKeys) {
+            if (!FACET_KEY.matcher(key).matches() || key.equals(STATUS_FACET)) {
+                log.warn("Ignoring invalid facet key: {}", key);
+                continue;
+            }
+            names.add(key);
+            exprs.add("(r.metadata ->> '" + key + "')");
+        }
+
+        StringBuilder facet = new StringBuilder("CASE");
+        StringBuilder value = new StringBuilder("CASE");
+        List<String> sets = new ArrayList<>();
+        for (int i = 0; i < exprs.size(); i++) {
+            facet.append(" WHEN GROUPING(").append(exprs.get(i)).append(") = 0 THEN '").append(names.get(i)).append("'");
+            value.append(" WHEN GROUPING(").append(exprs.get(i)).append(") = 0 THEN ").append(exprs.get(i));
+            sets.add("(" + exprs.get(i) + ")");
+        }
+        facet.append(" END");
+        value.append(" END");
+        return new FacetColumns(facet.toString(), value.toString(), String.join(", ", sets), System.nanoTime());
+    }
+
+    private static Map<String, List<SearchResults.FacetCount>> toFacets(List<Map<String, Object>> rows) {
+        Map<String, List<SearchResults.FacetCount>> facets = new LinkedHashMap<>();
+        for (Map<String, Object> row : rows) {
+            facets.computeIfAbsent((String) row.get("facet"), k -> new ArrayList<>())
+                    .add(SearchResults.FacetCount.builder()
+                            .value((String) row.get("value"))
+                            .count(((Number) row.get("hits")).longValue())
+                            .build());
+        }
+        return facets;
+    }
+
+    private static OffsetDateTime timestamp(Instant instant) {
+        return instant.atOffset(ZoneOffset.UTC);
+    }
+
+    private String toJson(Map<String, String> metadata) {
+        try {
+            return objectMapper.writeValueAsString(metadata);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid metadata filter", e);
+        }
+    }
+}
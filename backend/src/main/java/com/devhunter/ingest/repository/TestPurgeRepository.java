@@ -0,0 +1,69 @@
+package com.devhunter.ingest.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Bounded deletes for the rows under a tombstoned test, so no single statement holds locks
+ * on a whole run/artifact tree.
+ */
+@Repository
+public class TestPurgeRepository {
+
+    private static final String DELETE_ARTIFACTS_SQL = """
+        DELETE FROM artifacts
+        WHERE id IN (
+          SELECT a.id FROM artifacts a
+          WHERE a.run_id IN (SELECT r.id FROM runs r WHERE r.test_id = ?)
+          LIMIT ?
+        )
+        RETURNING provider, object_key
+        """;
+
+    private static final String DELETE_RUNS_SQL = """
+        DELETE FROM runs
+        WHERE id IN (SELECT id FROM runs WHERE test_id = ? LIMIT ?)
+        """;
+
+    private static final String DELETE_TEST_SQL = "DELETE FROM tests WHERE id = ? AND deleted_at IS NOT NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TestPurgeRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Delete up to {@code limit} artifacts belonging to the test's runs.
+     *
+     * @return the storage location of every deleted artifact
+     */
+    public List<StoredObject> deleteArtifacts(UUID testId, int limit) {
+        return jdbcTemplate.query(DELETE_ARTIFACTS_SQL,
+                (rs, rowNum) -> new StoredObject(rs.getString("provider"), rs.getString("object_key")),
+                testId, limit);
+    }
+
+    /**
+     * Delete up to {@code limit} runs of the test.
+     *
+     * @return the number of runs deleted
+     */
+    public int deleteRuns(UUID testId, int limit) {
+        return jdbcTemplate.update(DELETE_RUNS_SQL, testId, limit);
+    }
+
+    /**
+     * Delete the tombstoned test row itself. Live tests are never touched.
+     */
+    public boolean deleteTombstoned(UUID testId) {
+        return jdbcTemplate.update(DELETE_TEST_SQL, testId) > 0;
+    }
+
+    public record StoredObject(String provider, String objectKey) {
+    }
+}
@@ -1,6 +1,7 @@
 package com.devhunter.ingest.repository;
 
 import com.devhunter.ingest.domain.Test;
+import com.devhunter.ingest.dto.SearchSnippet;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -15,24 +16,34 @@ public interface TestRepository extends JpaRepository<Test, UUID> {
 
     Optional<Test> findByExternalId(String externalId);
 
+    /**
+     * Current version only, without loading the entity.
+     */
+    @Query("SELECT t.version FROM Test t WHERE t.id = :id AND t.deletedAt IS NULL")
+    Optional<Long> findVersionById(@Param("id") UUID id);
+
+    /**
+     * Tests being deleted in the background are tombstoned and no longer visible.
+     */
+    @Query("SELECT t FROM Test t WHERE t.id = :id AND t.deletedAt IS NULL")
+    Optional<Test> findActiveById(@Param("id") UUID id);
+
+    /**
+     * Second search phase: highlighted fragments for the page's ids only, raw text with the
+     * selection markers of {@code options} (the caller escapes them into HTML).
+     * {@code ids} is a comma-separated list so the statement text does not depend on page size.
+     */
     @Query(value = """
-        SELECT t.*, ts_rank(t.document_tsv, to_tsquery('english', :query)) as rank
+        SELECT t.id AS id,
+               ts_headline('english',
+                           coalesce(t.name, '') || ' ' || coalesce(CAST(t.metadata AS text), ''),
+                           to_tsquery('english', :query), :options) AS snippet
         FROM tests t
-        WHERE t.document_tsv @@ to_tsquery('english', :query)
-        ORDER BY rank DESC
-        LIMIT :limit OFFSET :offset
+        WHERE t.id = ANY(CAST(string_to_array(:ids, ',') AS uuid[]))
         """, nativeQuery = true)
-    List<Test> searchByFullText(
+    List<SearchSnippet> headlines(
         @Param("query") String query,
-        @Param("limit") int limit,
-        @Param("offset") int offset
+        @Param("ids") String ids,
+        @Param("options") String options
     );
-
-    @Query(value = """
-        SELECT COUNT(*)
-        FROM tests t
-        WHERE t.document_tsv @@ to_tsquery('english', :query)
-        """, nativeQuery = true)
-    long countByFullText(@Param("query") String query);
 }
-
@@ -0,0 +1,88 @@
+package com.devhunter.ingest.repository;
+
+import com.devhunter.ingest.dto.KeysetCursor;
+import com.devhunter.ingest.dto.TestSummary;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Projection reads over tests for listing and export. Never selects document_tsv,
+ * and only detoasts metadata when the caller asks for it.
+ */
+@Repository
+public class TestSummaryRepository {
+
+    private static final String COLUMNS = """
+        id, external_id, name, CASE WHEN ? THEN metadata::text END AS metadata,
+        created_at, updated_at, version
+        """;
+
+    private static final String PAGE_SQL = "SELECT " + COLUMNS + """
+        FROM tests
+        WHERE (created_at, id) > (?, ?) AND deleted_at IS NULL
+        ORDER BY created_at, id
+        LIMIT ?
+        """;
+
+    private static final String EXPORT_SQL = "SELECT " + COLUMNS + """
+        FROM tests
+        WHERE deleted_at IS NULL
+        ORDER BY created_at, id
+        """;
+
+    private static final RowMapper<TestSummary> ROW_MAPPER = TestSummaryRepository::mapRow;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate exportJdbcTemplate;
+
+    public TestSummaryRepository(DataSource dataSource,
+                                 @Value("${app.tests.export-fetch-size:500}") int exportFetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        // With autocommit off (inside a transaction) a fetch size makes pgJDBC read through a cursor
+        this.exportJdbcTemplate = new JdbcTemplate(dataSource);
+        this.exportJdbcTemplate.setFetchSize(exportFetchSize);
+    }
+
+    public List<TestSummary> findPage(KeysetCursor after, int limit, boolean withMetadata) {
+        return jdbcTemplate.query(PAGE_SQL, ROW_MAPPER,
+                withMetadata, after.createdAt().atOffset(ZoneOffset.UTC), after.id(), limit);
+    }
+
+    /**
+     * Stream every test in (created_at, id) order. Must run inside a transaction so rows are
+     * fetched through a server-side cursor instead of being buffered in memory.
+     */
+    public void streamAll(boolean withMetadata, Consumer<TestSummary> consumer) {
+        exportJdbcTemplate.query(EXPORT_SQL, rs -> {
+            consumer.accept(mapRow(rs, rs.getRow()));
+        }, withMetadata);
+    }
+
+    private static TestSummary mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return TestSummary.builder()
+                .id(rs.getObject("id", UUID.class))
+                .externalId(rs.getString("external_id"))
+                .name(rs.getString("name"))
+                .metadata(rs.getString("metadata"))
+                .createdAt(toInstant(rs.getObject("created_at", OffsetDateTime.class)))
+                .updatedAt(toInstant(rs.getObject("updated_at", OffsetDateTime.class)))
+                .version(rs.getObject("version", Long.class))
+                .build();
+    }
+
+    private static Instant toInstant(OffsetDateTime value) {
+        return value != null ? value.toInstant() : null;
+    }
+}
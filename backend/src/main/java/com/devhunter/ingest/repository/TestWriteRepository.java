@@ -0,0 +1,102 @@
+package com.devhunter.ingest.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Single-statement writes to tests that need RETURNING, done in SQL instead of load-modify-save.
+ */
+@Repository
+public class TestWriteRepository {
+
+    /** Leave the column unchanged */
+    public static final int KEEP = 0;
+    /** Set (name) or merge-patch (metadata) the column */
+    public static final int APPLY = 1;
+    /** Set the column to NULL */
+    public static final int CLEAR = 2;
+
+    /** Skip the version check */
+    public static final long ANY_VERSION = -1L;
+
+    private static final String MERGE_PATCH_SQL = """
+        UPDATE tests
+        SET name = CASE ? WHEN 1 THEN ? WHEN 2 THEN NULL ELSE name END,
+            metadata = CASE ? WHEN 1 THEN jsonb_merge_patch(metadata, ?::jsonb) WHEN 2 THEN NULL ELSE metadata END,
+            version = version + 1
+        WHERE id = ? AND deleted_at IS NULL AND (? < 0 OR version = ?)
+        RETURNING version
+        """;
+
+    // ON CONFLICT DO NOTHING leaves existing rows untouched (no row rewrite, no trigger work)
+    private static final String UPSERT_SQL = """
+        WITH inserted AS (
+          INSERT INTO tests (external_id, metadata)
+          VALUES (?, ?::jsonb)
+          ON CONFLICT (external_id) DO NOTHING
+          RETURNING id
+        )
+        SELECT id FROM inserted
+        UNION ALL
+        SELECT id FROM tests WHERE external_id = ? AND NOT EXISTS (SELECT 1 FROM inserted)
+        """;
+
+    // Releases external_id so the same id can be ingested again while the old tree is removed;
+    // bumping the version makes in-flight PUTs of the old row fail their optimistic lock
+    private static final String TOMBSTONE_SQL = """
+        UPDATE tests t
+        SET deleted_at = now(), external_id = NULL, version = t.version + 1
+        FROM (SELECT id, external_id FROM tests WHERE id = ? FOR UPDATE) old
+        WHERE t.id = old.id AND t.deleted_at IS NULL
+        RETURNING coalesce(old.external_id, '')
+        """;
+
+    private static final String FIND_ID_SQL = "SELECT id FROM tests WHERE external_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TestWriteRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Resolve a test by external id, creating it with {@code metadataJson} if it does not exist.
+     * One round-trip in the common case and safe against concurrent first-time creation.
+     */
+    public UUID upsertByExternalId(String externalId, String metadataJson) {
+        List<UUID> ids = jdbcTemplate.queryForList(UPSERT_SQL, UUID.class, externalId, metadataJson, externalId);
+        if (!ids.isEmpty()) {
+            return ids.get(0);
+        }
+        // Lost a race with a concurrent insert that committed after this statement's snapshot
+        return jdbcTemplate.queryForObject(FIND_ID_SQL, UUID.class, externalId);
+    }
+
+    /**
+     * Mark a test deleted so it disappears from reads, leaving its rows for background removal.
+     *
+     * @return the external id it was registered under ("" if none), or empty if the test does not
+     * exist or is already tombstoned
+     */
+    public Optional<String> tombstone(UUID id) {
+        return jdbcTemplate.queryForList(TOMBSTONE_SQL, String.class, id).stream().findFirst();
+    }
+
+    /**
+     * Apply a merge patch to name/metadata and bump the version in one round-trip.
+     *
+     * @return the new version, or empty if the test does not exist or its version is not {@code expectedVersion}
+     */
+    public Optional<Long> mergePatch(UUID id, long expectedVersion,
+                                     int nameMode, String name,
+                                     int metadataMode, String metadataPatch) {
+        List<Long> versions = jdbcTemplate.queryForList(MERGE_PATCH_SQL, Long.class,
+                nameMode, name, metadataMode, metadataPatch, id, expectedVersion, expectedVersion);
+        return versions.stream().findFirst();
+    }
+}
@@ -0,0 +1,137 @@
+package com.devhunter.ingest.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses user search input into a PostgreSQL tsquery string.
+ *
+ * Supported syntax (close to websearch_to_tsquery):
+ * <pre>
+ *   foo bar      both terms
+ *   "foo bar"    phrase
+ *   foo*         prefix match
+ *   foo OR bar   either term (also "|")
+ *   -foo         exclude term (also "!")
+ * </pre>
+ * Any other character is treated as a word separator, so the output only
+ * contains lexemes made of letters and digits joined by tsquery operators
+ * and is always valid input for {@code to_tsquery}. Dangling or repeated
+ * operators are dropped instead of failing the query.
+ */
+public final class SearchQueryParser {
+
+    /** Upper bound on lexemes per query, to keep tsquery evaluation cost bounded */
+    public static final int MAX_TERMS = 32;
+
+    private SearchQueryParser() {
+    }
+
+    /**
+     * @return the tsquery, or an empty string if the input has no searchable terms
+     */
+    public static String toTsQuery(String input) {
+        if (input == null) {
+            return "";
+        }
+
+        List<String> disjuncts = new ArrayList<>();
+        List<String> clauses = new ArrayList<>();
+        int[] termBudget = {MAX_TERMS};
+
+        int i = 0;
+        int n = input.length();
+        while (i < n) {
+            char c = input.charAt(i);
+
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+
+            if (c == '|') {
+                closeDisjunct(disjuncts, clauses);
+                i++;
+                continue;
+            }
+
+            boolean negated = false;
+            if (c == '-' || c == '!') {
+                negated = true;
+                i++;
+                if (i >= n) {
+                    break;
+                }
+                c = input.charAt(i);
+            }
+
+            String clause;
+            if (c == '"') {
+                int end = input.indexOf('"', i + 1);
+                if (end < 0) {
+                    end = n;
+                }
+                clause = phrase(input, i + 1, end, termBudget);
+                i = Math.min(end + 1, n);
+            } else {
+                int end = i;
+                while (end < n && !isWordBoundary(input.charAt(end))) {
+                    end++;
+                }
+                if (!negated && end - i == 2 && input.startsWith("OR", i)) {
+                    closeDisjunct(disjuncts, clauses);
+                    i = end;
+                    continue;
+                }
+                clause = phrase(input, i, end, termBudget);
+                i = Math.max(end, i + 1);
+            }
+
+            if (clause != null) {
+                clauses.add(negated ? negate(clause) : clause);
+            }
+        }
+        closeDisjunct(disjuncts, clauses);
+
+        return String.join(" | ", disjuncts);
+    }
+
+    private static boolean isWordBoundary(char c) {
+        return Character.isWhitespace(c) || c == '"' || c == '|';
+    }
+
+    private static void closeDisjunct(List<String> disjuncts, List<String> clauses) {
+        if (!clauses.isEmpty()) {
+            disjuncts.add(String.join(" & ", clauses));
+            clauses.clear();
+        }
+    }
+
+    private static String negate(String clause) {
+        return clause.contains(" ") ? "!(" + clause + ")" : "!" + clause;
+    }
+
+    /**
+     * Splits {@code input[start, end)} into lexemes and joins them with the
+     * followed-by operator. A lexeme directly followed by '*' becomes a prefix match.
+     */
+    private static String phrase(String input, int start, int end, int[] termBudget) {
+        List<String> lexemes = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+
+        for (int i = start; i <= end; i++) {
+            char c = i < end ? input.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(c);
+                continue;
+            }
+            if (!word.isEmpty() && termBudget[0] > 0) {
+                lexemes.add(c == '*' ? word + ":*" : word.toString());
+                termBudget[0]--;
+            }
+            word.setLength(0);
+        }
+
+        return lexemes.isEmpty() ? null : String.join(" <-> ", lexemes);
+    }
+}
@@ -0,0 +1,171 @@
+package com.devhunter.ingest.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Size-bounded cache of small stored objects on local disk, so hot artifacts (screenshots, JSON
+ * reports) are downloaded without a round trip to the provider. Stored objects never change under
+ * their key, so entries are never stale; the least valuable ones are evicted, and their files
+ * deleted shortly after, once the cache holds more than {@code max-bytes}. The cache belongs to
+ * this node and starts empty.
+ */
+@Slf4j
+@Component
+public class ArtifactContentCache {
+
+    private record Entry(Path path, long size) {
+    }
+
+    // Evicted files outlive their entry this long, so a download that just looked one up can still open it
+    private static final Duration DELETE_DELAY = Duration.ofSeconds(30);
+
+    // Names of the files store() writes; nothing else in the directory is the cache's
+    private static final Pattern CACHE_FILE =
+            Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}(\\.tmp)?");
+
+    private final Path dir;
+    private final long maxObjectBytes;
+    // Null when disabled (max-bytes 0)
+    private final AsyncCache<String, Entry> cache;
+
+    // Fetches block on the provider; one virtual thread per fetch in flight
+    private final ExecutorService fetchExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Autowired
+    public ArtifactContentCache(@Value("${app.artifacts.download.cache.dir}") String dir,
+                                @Value("${app.artifacts.download.cache.max-bytes:1073741824}") long maxBytes,
+                                @Value("${app.artifacts.download.cache.max-object-bytes:8388608}") long maxObjectBytes)
+            throws IOException {
+        this(dir, maxBytes, maxObjectBytes, DELETE_DELAY);
+    }
+
+    ArtifactContentCache(String dir, long maxBytes, long maxObjectBytes, Duration deleteDelay) throws IOException {
+        if (maxBytes < 0 || maxObjectBytes <= 0 || maxObjectBytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException(String.format(
+                    "Invalid app.artifacts.download.cache settings: max-bytes=%d, max-object-bytes=%d",
+                    maxBytes, maxObjectBytes));
+        }
+        this.dir = Paths.get(dir).toAbsolutePath().normalize();
+        this.maxObjectBytes = maxObjectBytes;
+        if (maxBytes == 0) {
+            this.cache = null;
+            return;
+        }
+
+        Files.createDirectories(this.dir);
+        // Files of a previous run are not in the index, so they could never be evicted. Only this
+        // cache's own files go: the directory may be shared with something else.
+        try (Stream<Path> leftovers = Files.list(this.dir)) {
+            leftovers.filter(path -> CACHE_FILE.matcher(path.getFileName().toString()).matches())
+                    .filter(path -> Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS))
+                    .forEach(ArtifactContentCache::deleteQuietly);
+        }
+        // A new entry can be evicted as soon as it is loaded, when it is less popular than the rest
+        Executor deleteExecutor = CompletableFuture.delayedExecutor(deleteDelay.toMillis(), TimeUnit.MILLISECONDS);
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, Entry entry) -> (int) entry.size())
+                .removalListener((String key, Entry entry, RemovalCause cause) -> {
+                    if (entry != null) {
+                        deleteExecutor.execute(() -> deleteQuietly(entry.path()));
+                    }
+                })
+                .buildAsync();
+        log.info("Artifact content cache in {} ({} bytes, objects up to {} bytes)", this.dir, maxBytes, maxObjectBytes);
+    }
+
+    /**
+     * Whether objects of this size are cached
+     */
+    public boolean accepts(long sizeBytes) {
+        return cache != null && sizeBytes <= maxObjectBytes;
+    }
+
+    /**
+     * Open the cached copy of an object, fetching its content with {@code fetch} first on a miss.
+     * Concurrent misses of one object share a single fetch. The caller closes the channel; an open
+     * channel stays readable if the entry is evicted meanwhile.
+     */
+    public FileChannel open(String provider, String objectKey, Supplier<byte[]> fetch) {
+        String key = provider + "/" + objectKey;
+        for (int attempt = 1; ; attempt++) {
+            CompletableFuture<Entry> future = cache.get(key,
+                    (k, executor) -> CompletableFuture.supplyAsync(() -> store(fetch.get()), fetchExecutor));
+            Entry entry;
+            try {
+                entry = future.join();
+            } catch (CompletionException e) {
+                // Caffeine drops failed loads too, but asynchronously; the next request must fetch again
+                cache.asMap().remove(key, future);
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+            try {
+                return FileChannel.open(entry.path(), StandardOpenOption.READ);
+            } catch (NoSuchFileException e) {
+                // Evicted between the lookup and the open
+                cache.asMap().remove(key, future);
+                if (attempt == 2) {
+                    throw new UncheckedIOException("Cached copy of " + key + " disappeared", e);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open cached copy of " + key, e);
+            }
+        }
+    }
+
+    private Entry store(byte[] content) {
+        // A new file per fetch: an evicted entry's file is deleted without touching its successor's
+        Path path = dir.resolve(UUID.randomUUID().toString());
+        Path temp = dir.resolve(path.getFileName() + ".tmp");
+        try {
+            Files.write(temp, content);
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw new UncheckedIOException("Failed to cache object", e);
+        }
+        return new Entry(path, content.length);
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete {}", path, e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        fetchExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,202 @@
+package com.devhunter.ingest.service;
+
+import com.devhunter.ingest.repository.ArtifactWriteRepository;
+import com.devhunter.ingest.repository.ArtifactWriteRepository.ArtifactRow;
+import com.devhunter.ingest.storage.StorageProvider;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Content of finalized artifacts for download. Small artifacts come from the local
+ * {@link ArtifactContentCache}; larger ones are either redirected to a short-lived presigned URL
+ * of their provider (mode "redirect", the URL reused for the same object while it has plenty of
+ * life left) or streamed through this service (mode "stream").
+ */
+@Slf4j
+@Service
+public class ArtifactDownloadService {
+
+    private static final int STREAM_SEGMENT_BYTES = 4 * 1024 * 1024;
+
+    private final Map<String, StorageProvider> providers = new HashMap<>();
+    private final ArtifactWriteRepository artifactWriteRepository;
+    private final ArtifactWriteBuffer artifactWriteBuffer;
+    private final ArtifactContentCache contentCache;
+    private final boolean redirect;
+    private final int urlTtlSeconds;
+    // Presigned download URLs by provider and object key, dropped well before they expire
+    private final Cache<String, String> downloadUrls;
+
+    // Range reads block on the network; one virtual thread per read in flight
+    private final ExecutorService readExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ArtifactDownloadService(List<StorageProvider> storageProviders,
+                                   ArtifactWriteRepository artifactWriteRepository,
+                                   ArtifactWriteBuffer artifactWriteBuffer,
+                                   ArtifactContentCache contentCache,
+                                   @Value("${app.artifacts.download.mode:redirect}") String mode,
+                                   @Value("${app.artifacts.download.url-ttl-seconds:900}") int urlTtlSeconds,
+                                   @Value("${app.artifacts.download.url-reuse-seconds:600}") int urlReuseSeconds,
+                                   @Value("${app.artifacts.download.url-cache-max-entries:10000}") long urlCacheMaxEntries) {
+        if (!mode.equals("redirect") && !mode.equals("stream")) {
+            throw new IllegalStateException("Invalid app.artifacts.download.mode (redirect|stream): " + mode);
+        }
+        if (urlReuseSeconds < 0 || urlReuseSeconds >= urlTtlSeconds) {
+            throw new IllegalStateException(String.format(
+                    "Invalid app.artifacts.download URL settings: url-ttl-seconds=%d, url-reuse-seconds=%d",
+                    urlTtlSeconds, urlReuseSeconds));
+        }
+        storageProviders.forEach(provider -> providers.put(provider.getProviderName(), provider));
+        this.artifactWriteRepository = artifactWriteRepository;
+        this.artifactWriteBuffer = artifactWriteBuffer;
+        this.contentCache = contentCache;
+        this.redirect = mode.equals("redirect");
+        this.urlTtlSeconds = urlTtlSeconds;
+        this.downloadUrls = Caffeine.newBuilder()
+                .maximumSize(urlCacheMaxEntries)
+                .expireAfterWrite(Duration.ofSeconds(urlReuseSeconds))
+                .build();
+    }
+
+    /**
+     * @throws IllegalArgumentException if there is no such artifact
+     */
+    public ArtifactRow find(UUID id) {
+        // Pending first: a row that is committed in between is then found by the query
+        Optional<ArtifactRow> pending = artifactWriteBuffer.pending(id);
+        return artifactWriteRepository.findById(id)
+                .or(() -> pending)
+                .orElseThrow(() -> new IllegalArgumentException("Artifact not found: " + id));
+    }
+
+    /**
+     * The artifact's content from the local cache, fetched into it first if needed. Empty for
+     * artifacts too large to cache. The caller closes the channel.
+     */
+    public Optional<FileChannel> openCached(ArtifactRow artifact) {
+        // Recorded without a size (imports, or before sizes were required): only the provider knows it
+        if (artifact.objectKey() == null || artifact.sizeBytes() == null || !contentCache.accepts(artifact.sizeBytes())) {
+            return Optional.empty();
+        }
+        StorageProvider provider = provider(artifact);
+        int size = artifact.sizeBytes().intValue();
+        return Optional.of(contentCache.open(artifact.provider(), artifact.objectKey(), () -> {
+            byte[] content = provider.readRange(artifact.objectKey(), 0, size);
+            if (content.length != size) {
+                throw new IllegalStateException(String.format(
+                        "Stored object of artifact %s has %d bytes, expected %d", artifact.id(), content.length, size));
+            }
+            log.debug("Cached artifact content {}/{} ({} bytes)", artifact.provider(), artifact.objectKey(), size);
+            return content;
+        }));
+    }
+
+    /**
+     * A presigned URL to download the artifact from its provider, in redirect mode. Artifacts that
+     * cannot be streamed always redirect: ones without a size to a presigned URL, and ones without
+     * a stored object (recorded with an external URL) to their URL.
+     *
+     * @throws IllegalArgumentException if the artifact has neither a stored object nor a web URL
+     */
+    public Optional<String> redirectUrl(ArtifactRow artifact) {
+        if (artifact.objectKey() == null) {
+            return Optional.of(externalUrl(artifact));
+        }
+        if (!redirect && artifact.sizeBytes() != null) {
+            return Optional.empty();
+        }
+        StorageProvider provider = provider(artifact);
+        return Optional.of(downloadUrls.get(artifact.provider() + "/" + artifact.objectKey(),
+                key -> provider.presignDownload(artifact.objectKey(), urlTtlSeconds)));
+    }
+
+    /**
+     * Copy {@code length} bytes of the artifact from {@code offset} to {@code out}, reading the next
+     * segment from the provider while the current one is written
+     */
+    public void stream(ArtifactRow artifact, long offset, long length, OutputStream out) throws IOException {
+        StorageProvider provider = provider(artifact);
+        long end = offset + length;
+        CompletableFuture<byte[]> next = read(provider, artifact.objectKey(), offset, end);
+        try {
+            for (long position = offset; position < end; ) {
+                byte[] segment = join(next);
+                int expected = (int) Math.min(STREAM_SEGMENT_BYTES, end - position);
+                if (segment.length != expected) {
+                    throw new IllegalStateException(String.format(
+                            "Short read at offset %d: expected %d bytes, got %d", position, expected, segment.length));
+                }
+                position += segment.length;
+                next = position < end ? read(provider, artifact.objectKey(), position, end) : null;
+                out.write(segment);
+            }
+        } finally {
+            // The client went away, or a read failed
+            if (next != null) {
+                next.cancel(true);
+            }
+        }
+    }
+
+    private CompletableFuture<byte[]> read(StorageProvider provider, String objectKey, long offset, long end) {
+        int length = (int) Math.min(STREAM_SEGMENT_BYTES, end - offset);
+        return CompletableFuture.supplyAsync(() -> provider.readRange(objectKey, offset, length), readExecutor);
+    }
+
+    private static byte[] join(CompletableFuture<byte[]> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private static String externalUrl(ArtifactRow artifact) {
+        String url = artifact.url();
+        String scheme;
+        try {
+            scheme = url == null ? null : URI.create(url).getScheme();
+        } catch (IllegalArgumentException e) {
+            scheme = null;
+        }
+        if (scheme == null || !(scheme.equalsIgnoreCase("https") || scheme.equalsIgnoreCase("http"))) {
+            throw new IllegalArgumentException("Content of artifact " + artifact.id() + " not found");
+        }
+        return url;
+    }
+
+    private StorageProvider provider(ArtifactRow artifact) {
+        if (artifact.objectKey() == null) {
+            throw new IllegalStateException("Artifact " + artifact.id() + " has no stored object");
+        }
+        StorageProvider provider = providers.get(artifact.provider());
+        if (provider == null) {
+            throw new IllegalStateException("Unknown provider: " + artifact.provider());
+        }
+        return provider;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        readExecutor.shutdownNow();
+    }
+}
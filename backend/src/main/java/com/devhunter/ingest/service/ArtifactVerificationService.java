@@ -0,0 +1,169 @@
+package com.devhunter.ingest.service;
+
+import com.devhunter.ingest.domain.Operation;
+import com.devhunter.ingest.repository.ArtifactWriteRepository;
+import com.devhunter.ingest.repository.ContentObjectRepository;
+import com.devhunter.ingest.storage.StorageProvider;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Checks the SHA-256 of finalized artifacts for VERIFY_ARTIFACT operations, off the request path.
+ * A checksum the provider already stored is used when there is one; otherwise the object is read
+ * back with parallel ranged reads.
+ */
+@Slf4j
+@Service
+public class ArtifactVerificationService {
+
+    public static final String OPERATION_TYPE = "VERIFY_ARTIFACT";
+
+    public static final String VERIFYING = "verifying";
+    public static final String VERIFIED = "verified";
+    public static final String FAILED = "failed";
+
+    // How often, and how far apart, to wait for a row the write buffer has not committed yet
+    private static final int PENDING_ATTEMPTS = 5;
+    private static final long PENDING_RETRY_MS = 100;
+
+    private final Map<String, StorageProvider> providers = new HashMap<>();
+    private final ArtifactWriteRepository artifactWriteRepository;
+    private final ArtifactWriteBuffer artifactWriteBuffer;
+    private final ContentObjectRepository contentObjectRepository;
+    private final int segmentSize;
+    private final int readParallelism;
+    private final TransactionTemplate resultTransaction;
+
+    // Range reads block on the network; one virtual thread per read in flight
+    private final ExecutorService readExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ArtifactVerificationService(List<StorageProvider> storageProviders,
+                                       ArtifactWriteRepository artifactWriteRepository,
+                                       ArtifactWriteBuffer artifactWriteBuffer,
+                                       ContentObjectRepository contentObjectRepository,
+                                       @Value("${app.storage.verification.segment-size-bytes:8388608}") int segmentSize,
+                                       @Value("${app.storage.verification.read-parallelism:4}") int readParallelism,
+                                       PlatformTransactionManager transactionManager) {
+        if (segmentSize <= 0 || readParallelism <= 0) {
+            throw new IllegalStateException(String.format(
+                    "Invalid app.storage.verification settings: segment-size-bytes=%d, read-parallelism=%d",
+                    segmentSize, readParallelism));
+        }
+        storageProviders.forEach(provider -> providers.put(provider.getProviderName(), provider));
+        this.artifactWriteRepository = artifactWriteRepository;
+        this.artifactWriteBuffer = artifactWriteBuffer;
+        this.contentObjectRepository = contentObjectRepository;
+        this.segmentSize = segmentSize;
+        this.readParallelism = readParallelism;
+        // The read runs outside any transaction; only the outcome is written, and committed on its own
+        this.resultTransaction = new TransactionTemplate(transactionManager);
+        this.resultTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Payload of a verification of the given artifact, for {@link OperationService#createOperation}.
+     */
+    public static Map<String, Object> payload(UUID artifactId, String provider, String objectKey,
+                                              long sizeBytes, String sha256) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("artifact_id", artifactId.toString());
+        payload.put("provider", provider);
+        payload.put("object_key", objectKey);
+        payload.put("size_bytes", sizeBytes);
+        payload.put("sha256", sha256);
+        return payload;
+    }
+
+    /**
+     * Compare the stored object with the client's SHA-256 and record the outcome on the artifact and
+     * in the payload ("verification", "method", "actual_sha256"). An object that passes is reused for
+     * later uploads of its content; one that fails no longer is.
+     *
+     * @throws IllegalStateException on a mismatch, failing the operation
+     */
+    public void verify(Operation operation) {
+        Map<String, Object> payload = operation.getPayload();
+        UUID artifactId = UUID.fromString((String) payload.get("artifact_id"));
+        String objectKey = (String) payload.get("object_key");
+        long sizeBytes = ((Number) payload.get("size_bytes")).longValue();
+        String expected = (String) payload.get("sha256");
+
+        StorageProvider provider = providers.get((String) payload.get("provider"));
+        if (provider == null) {
+            throw new IllegalStateException("Unknown provider: " + payload.get("provider"));
+        }
+
+        Optional<String> stored = provider.getStoredSha256(objectKey);
+        String actual = stored.orElseGet(() -> RangedSha256.digest(sizeBytes, segmentSize, readParallelism,
+                readExecutor, (offset, length) -> provider.readRange(objectKey, offset, length)));
+        boolean verified = actual.equalsIgnoreCase(expected);
+
+        payload.put("verification", verified ? VERIFIED : FAILED);
+        payload.put("method", stored.isPresent() ? "provider_checksum" : "read");
+        payload.put("actual_sha256", actual);
+        recordVerification(artifactId, provider.getProviderName(), objectKey, verified);
+
+        if (!verified) {
+            throw new IllegalStateException(String.format(
+                    "Checksum mismatch for artifact %s: expected %s, got %s", artifactId, expected, actual));
+        }
+        log.info("Verified artifact {} ({} bytes, {})", artifactId, sizeBytes, payload.get("method"));
+    }
+
+    /**
+     * The object's reuse for its content on a match, or its exclusion on a mismatch, then the
+     * artifact's verification, each committed on its own
+     */
+    private void recordVerification(UUID artifactId, String provider, String objectKey, boolean verified) {
+        String verification = verified ? VERIFIED : FAILED;
+        if (verified) {
+            try {
+                resultTransaction.executeWithoutResult(status -> contentObjectRepository.markShareable(provider, objectKey));
+            } catch (DuplicateKeyException e) {
+                // Another object of the content became shareable meanwhile; this one keeps its references only
+                log.debug("Object {}/{} not shared, the content is already", provider, objectKey);
+            }
+        } else {
+            resultTransaction.executeWithoutResult(status -> contentObjectRepository.markUnshareable(provider, objectKey));
+        }
+        for (int attempt = 0; attempt < PENDING_ATTEMPTS; attempt++) {
+            // Finalized moments ago: the row may still be queued, or in a batch being written
+            artifactWriteBuffer.flush();
+            Boolean recorded = resultTransaction.execute(status ->
+                    artifactWriteRepository.updateVerification(artifactId, verification) > 0);
+            if (Boolean.TRUE.equals(recorded)) {
+                return;
+            }
+            if (artifactWriteBuffer.pending(artifactId).isEmpty()) {
+                break;
+            }
+            try {
+                Thread.sleep(PENDING_RETRY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        log.warn("Artifact {} was not recorded (run deleted?), verification result {} not saved",
+                artifactId, verification);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        readExecutor.shutdownNow();
+    }
+}
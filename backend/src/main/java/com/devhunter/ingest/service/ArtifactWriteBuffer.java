@@ -0,0 +1,190 @@
+package com.devhunter.ingest.service;
+
+import com.devhunter.ingest.repository.ArtifactWriteRepository;
+import com.devhunter.ingest.repository.ArtifactWriteRepository.ArtifactRow;
+import com.devhunter.ingest.repository.TestPurgeRepository.StoredObject;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind buffer for finalized artifacts. Callers enqueue and return; one writer thread
+ * group-commits whatever has queued up, at most {@code batchSize} rows per transaction, waiting at
+ * most {@code maxDelayMs} after the first row of a batch. Rows still queued are visible through
+ * {@link #pendingFor(UUID)} so reads do not miss them. A full queue writes the row on the caller's
+ * thread instead of dropping it; rows still queued when the process is killed are lost. Rows that
+ * cannot be recorded (run deleted meanwhile, or failing) give back their stored object.
+ */
+@Slf4j
+@Component
+public class ArtifactWriteBuffer {
+
+    private final ArtifactWriteRepository artifactWriteRepository;
+    private final StoredObjectCleaner storedObjectCleaner;
+    private final TransactionTemplate batchTransaction;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<ArtifactRow> queue;
+    // Queued or being written, by artifact id; removed once the row is committed (or given up on)
+    private final Map<UUID, ArtifactRow> pending = new ConcurrentHashMap<>();
+
+    private volatile boolean running = true;
+    private Thread writer;
+
+    public ArtifactWriteBuffer(ArtifactWriteRepository artifactWriteRepository,
+                               StoredObjectCleaner storedObjectCleaner,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${app.artifacts.write-batch-size:256}") int batchSize,
+                               @Value("${app.artifacts.write-max-delay-ms:20}") long maxDelayMs,
+                               @Value("${app.artifacts.write-queue-capacity:10000}") int queueCapacity) {
+        if (batchSize <= 0 || maxDelayMs < 0 || queueCapacity <= 0) {
+            throw new IllegalStateException(String.format(
+                    "Invalid app.artifacts write settings: batch size %d, max delay %d ms, queue capacity %d",
+                    batchSize, maxDelayMs, queueCapacity));
+        }
+        this.artifactWriteRepository = artifactWriteRepository;
+        this.storedObjectCleaner = storedObjectCleaner;
+        this.batchSize = batchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        // Batches commit on their own, never as part of a caller's transaction
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+        this.batchTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    void start() {
+        writer = Thread.ofPlatform().name("artifact-writer").daemon().start(this::runWriter);
+    }
+
+    /**
+     * Queue a row for the next batch, or write it at once if the queue is full.
+     */
+    public void enqueue(ArtifactRow row) {
+        pending.put(row.id(), row);
+        if (!running || !queue.offer(row)) {
+            write(List.of(row));
+        }
+    }
+
+    /**
+     * Rows of a run that are accepted but may not be committed yet, oldest first. Read this before
+     * querying the table: a row leaves here only after its batch committed.
+     */
+    public List<ArtifactRow> pendingFor(UUID runId) {
+        return pending.values().stream()
+                .filter(row -> runId.equals(row.runId()))
+                .sorted(Comparator.comparing(ArtifactRow::createdAt).thenComparing(ArtifactRow::id))
+                .toList();
+    }
+
+    /**
+     * A row that is accepted but may not be committed yet; read this before querying the table.
+     */
+    public Optional<ArtifactRow> pending(UUID id) {
+        return Optional.ofNullable(pending.get(id));
+    }
+
+    /**
+     * Write everything queued so far on the caller's thread.
+     */
+    public void flush() {
+        List<ArtifactRow> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        flush();
+    }
+
+    private void runWriter() {
+        List<ArtifactRow> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                ArtifactRow first = queue.take();
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < batchSize) {
+                    // Take what is already there without waiting, then wait out the rest of the window
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    ArtifactRow next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // stop() drains the queue on its own thread once this batch is written
+                write(batch);
+                return;
+            }
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<ArtifactRow> batch) {
+        try {
+            List<ArtifactRow> skipped = batchTransaction.execute(status -> artifactWriteRepository.insertBatch(batch));
+            if (!skipped.isEmpty()) {
+                log.info("Skipped {} artifacts whose run was deleted", skipped.size());
+                release(skipped);
+            }
+        } catch (Exception e) {
+            if (batch.size() == 1) {
+                log.error("Failed to record artifact {} of run {}", batch.get(0).id(), batch.get(0).runId(), e);
+                release(batch);
+            } else {
+                // Find the failing rows instead of losing the whole batch
+                log.warn("Failed to record a batch of {} artifacts, retrying one at a time", batch.size(), e);
+                batch.forEach(row -> write(List.of(row)));
+            }
+        } finally {
+            batch.forEach(row -> pending.remove(row.id()));
+        }
+    }
+
+    /**
+     * Give back the stored object references taken for rows that were never recorded, deleting
+     * objects nobody else references
+     */
+    private void release(List<ArtifactRow> rows) {
+        List<StoredObject> objects = rows.stream()
+                .map(row -> new StoredObject(row.provider(), row.objectKey()))
+                .toList();
+        List<String> failures = new ArrayList<>();
+        try {
+            storedObjectCleaner.delete(objects, failures);
+        } catch (Exception e) {
+            failures.add(e.getMessage());
+        }
+        if (!failures.isEmpty()) {
+            log.warn("Failed to release the stored objects of {} unrecorded artifacts: {}", rows.size(), failures);
+        }
+    }
+}
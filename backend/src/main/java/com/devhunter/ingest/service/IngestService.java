@@ -1,45 +1,72 @@
 package com.devhunter.ingest.service;
 
 import com.devhunter.ingest.domain.Operation;
-import com.devhunter.ingest.domain.Test;
 import com.devhunter.ingest.dto.IngestRequest;
 import com.devhunter.ingest.dto.OperationResponse;
-import com.devhunter.ingest.repository.TestRepository;
-import lombok.RequiredArgsConstructor;
+import com.devhunter.ingest.repository.TestWriteRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class IngestService {
 
-    private final TestRepository testRepository;
+    private final TestWriteRepository testWriteRepository;
     private final OperationService operationService;
+    private final ObjectMapper objectMapper;
+
+    // external_id -> id only changes when a test is deleted, so known tests skip the database. A
+    // delete evicts the entry on its own node only; other nodes drop theirs when it expires, and
+    // until then their ingests of the old test fail with TEST_DELETED instead of recording a run.
+    private final Cache<String, UUID> testIdCache;
+
+    public IngestService(TestWriteRepository testWriteRepository,
+                         OperationService operationService,
+                         ObjectMapper objectMapper,
+                         @Value("${app.ingest.test-id-cache-size:100000}") long testIdCacheSize,
+                         @Value("${app.ingest.test-id-cache-ttl-seconds:30}") long testIdCacheTtlSeconds) {
+        if (testIdCacheSize < 0 || testIdCacheTtlSeconds <= 0) {
+            throw new IllegalStateException(String.format(
+                    "Invalid app.ingest settings: test-id-cache-size=%d, test-id-cache-ttl-seconds=%d",
+                    testIdCacheSize, testIdCacheTtlSeconds));
+        }
+        this.testWriteRepository = testWriteRepository;
+        this.operationService = operationService;
+        this.objectMapper = objectMapper;
+        this.testIdCache = Caffeine.newBuilder()
+                .maximumSize(testIdCacheSize)
+                .expireAfterWrite(Duration.ofSeconds(testIdCacheTtlSeconds))
+                .build();
+    }
 
     @Transactional
     public OperationResponse startIngest(IngestRequest request) {
         log.info("Starting ingest for test: {}", request.getTestId());
 
-        // Create or update test
-        Test test = testRepository.findByExternalId(request.getTestId())
-                .orElseGet(() -> {
-                    Test newTest = Test.builder()
-                            .externalId(request.getTestId())
-                            .metadata(request.getMetadata())
-                            .build();
-                    return testRepository.save(newTest);
-                });
+        // Create test if missing
+        UUID testId = resolveTestId(request);
 
         // Create async operation
         Map<String, Object> payload = new HashMap<>();
-        payload.put("test_id", test.getId().toString());
+        payload.put("test_id", testId.toString());
         payload.put("external_id", request.getTestId());
         payload.put("artifact", request.getArtifact());
+        // Recorded as the run's status and metadata when the operation is processed
+        payload.put("status", request.getStatus());
+        payload.put("metadata", request.getMetadata());
 
         Operation operation = operationService.createOperation("INGEST", payload);
 
@@ -47,5 +74,45 @@ public class IngestService {
 
         return OperationResponse.from(operation);
     }
-}
 
+    /**
+     * Drop a cached mapping on this node, e.g. after the test was deleted.
+     */
+    public void evictTestId(String externalId) {
+        testIdCache.invalidate(externalId);
+    }
+
+    private UUID resolveTestId(IngestRequest request) {
+        String externalId = request.getTestId();
+        UUID cached = testIdCache.getIfPresent(externalId);
+        if (cached != null) {
+            return cached;
+        }
+
+        UUID testId = testWriteRepository.upsertByExternalId(externalId, toJson(request.getMetadata()));
+
+        // Only cache once the row is committed; a rolled-back insert must not be remembered
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    testIdCache.put(externalId, testId);
+                }
+            });
+        } else {
+            testIdCache.put(externalId, testId);
+        }
+        return testId;
+    }
+
+    private String toJson(Map<String, Object> metadata) {
+        if (metadata == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(metadata);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid metadata", e);
+        }
+    }
+}
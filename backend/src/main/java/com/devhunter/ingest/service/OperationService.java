@@ -2,23 +2,77 @@ package com.devhunter.ingest.service;
 
 import com.devhunter.ingest.domain.Operation;
 import com.devhunter.ingest.repository.OperationRepository;
-import lombok.RequiredArgsConstructor;
+import com.devhunter.ingest.repository.RunBulkRepository.BulkResult;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class OperationService {
 
+    // Long-running types, run on the workers; the rest are quick and run on the queue thread
+    private static final Set<String> WORKER_TYPES = Set.of(
+            "DELETE_TEST", "RUN_STATS_BACKFILL", ArtifactVerificationService.OPERATION_TYPE);
+
     private final OperationRepository operationRepository;
+    private final TestPurgeService testPurgeService;
+    private final RunStatsService runStatsService;
+    private final RunImportService runImportService;
+    private final ArtifactVerificationService artifactVerificationService;
+    private final TransactionTemplate queueTransaction;
+    private final int claimBatchSize;
+    private final int workerCount;
+    private final long abandonedAfterSeconds;
+
+    // Operations this node's workers are running, touched by the heartbeat
+    private final Set<UUID> running = ConcurrentHashMap.newKeySet();
+    // At most workerCount operations are claimed at a time, so this never queues up
+    private final ExecutorService workerExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public OperationService(OperationRepository operationRepository,
+                            TestPurgeService testPurgeService,
+                            RunStatsService runStatsService,
+                            RunImportService runImportService,
+                            ArtifactVerificationService artifactVerificationService,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${app.operations.claim-batch-size:500}") int claimBatchSize,
+                            @Value("${app.operations.workers:4}") int workerCount,
+                            @Value("${app.operations.abandoned-after-seconds:300}") long abandonedAfterSeconds,
+                            @Value("${app.operations.heartbeat-interval-ms:30000}") long heartbeatIntervalMs) {
+        if (claimBatchSize <= 0 || workerCount <= 0 || heartbeatIntervalMs <= 0
+                || abandonedAfterSeconds * 1000 <= 2 * heartbeatIntervalMs) {
+            throw new IllegalStateException(String.format(
+                    "Invalid app.operations settings: claim-batch-size=%d, workers=%d, abandoned-after-seconds=%d, "
+                            + "heartbeat-interval-ms=%d (abandoned-after must exceed two heartbeats)",
+                    claimBatchSize, workerCount, abandonedAfterSeconds, heartbeatIntervalMs));
+        }
+        this.operationRepository = operationRepository;
+        this.testPurgeService = testPurgeService;
+        this.runStatsService = runStatsService;
+        this.runImportService = runImportService;
+        this.artifactVerificationService = artifactVerificationService;
+        this.claimBatchSize = claimBatchSize;
+        this.workerCount = workerCount;
+        this.abandonedAfterSeconds = abandonedAfterSeconds;
+        // Claims are short: SKIP LOCKED rows are held only while they are marked or (ingests) processed
+        this.queueTransaction = new TransactionTemplate(transactionManager);
+    }
 
     @Transactional
     public Operation createOperation(String type, Map<String, Object> payload) {
@@ -37,6 +91,11 @@ public class OperationService {
                 .orElseThrow(() -> new IllegalArgumentException("Operation not found: " + id));
     }
 
+    @Transactional(readOnly = true)
+    public Optional<Instant> findLastModified(UUID id) {
+        return operationRepository.findUpdatedAtById(id);
+    }
+
     @Transactional
     public Operation updateStatus(UUID id, Operation.OperationStatus status) {
         Operation operation = getOperation(id);
@@ -56,36 +115,91 @@ public class OperationService {
         return operationRepository.save(operation);
     }
 
+    /**
+     * Claim and run queued operations. Light ones (ingests) are run here, in the transaction that
+     * claimed them; heavy ones are handed to the workers as long as one is free and run in their own
+     * short transactions, so a long purge never holds up ingests or a queue transaction.
+     */
     @Scheduled(fixedDelay = 5000) // Process queue every 5 seconds
-    @Transactional
     public void processQueue() {
-        List<Operation> pendingOps = operationRepository.findPendingOperations();
+        Integer processed;
+        do {
+            processed = queueTransaction.execute(status -> processInline());
+        } while (processed != null && processed == claimBatchSize);
+
+        int free = workerCount - running.size();
+        if (free <= 0) {
+            return;
+        }
+        List<Operation> claimed = queueTransaction.execute(status -> {
+            List<Operation> operations = operationRepository.claimPending(WORKER_TYPES, free);
+            operations.forEach(op -> op.setStatus(Operation.OperationStatus.RUNNING));
+            return operationRepository.saveAll(operations);
+        });
+        for (Operation op : claimed) {
+            running.add(op.getId());
+            workerExecutor.execute(() -> runOnWorker(op));
+        }
+    }
+
+    /**
+     * Keep this node's running operations from being taken for abandoned, and queue again those
+     * whose node stopped (they are safe to run again).
+     */
+    @Scheduled(fixedDelayString = "${app.operations.heartbeat-interval-ms:30000}")
+    public void heartbeat() {
+        if (!running.isEmpty()) {
+            operationRepository.touch(List.copyOf(running));
+        }
+        int requeued = operationRepository.requeueAbandoned(abandonedAfterSeconds);
+        if (requeued > 0) {
+            log.warn("Queued {} abandoned operations again", requeued);
+        }
+    }
+
+    private int processInline() {
+        List<Operation> pendingOps = operationRepository.claimPendingExcept(WORKER_TYPES, claimBatchSize);
+
+        recordIngestedRuns(pendingOps.stream()
+                .filter(op -> "INGEST".equals(op.getType()))
+                .toList());
 
         for (Operation op : pendingOps) {
-            try {
-                processOperation(op);
-            } catch (Exception e) {
-                log.error("Failed to process operation {}", op.getId(), e);
-                op.setStatus(Operation.OperationStatus.FAILED);
-                operationRepository.save(op);
-            }
+            processOperation(op);
         }
+        operationRepository.saveAll(pendingOps);
+        return pendingOps.size();
     }
 
-    @Async
-    @Transactional
-    protected void processOperation(Operation operation) {
-        log.info("Processing operation: {} (type: {})", operation.getId(), operation.getType());
+    private void runOnWorker(Operation operation) {
+        try {
+            processOperation(operation);
+            operationRepository.save(operation);
+        } catch (Exception e) {
+            // Left RUNNING; queued again once the heartbeat stops touching it
+            log.error("Failed to record the outcome of operation {}", operation.getId(), e);
+        } finally {
+            running.remove(operation.getId());
+        }
+    }
 
-        operation.setStatus(Operation.OperationStatus.RUNNING);
-        operationRepository.save(operation);
+    private void processOperation(Operation operation) {
+        log.info("Processing operation: {} (type: {})", operation.getId(), operation.getType());
 
         try {
-            // Simulate work based on operation type
             switch (operation.getType()) {
                 case "INGEST":
                     processIngestOperation(operation);
                     break;
+                case "DELETE_TEST":
+                    testPurgeService.purge(operation);
+                    break;
+                case "RUN_STATS_BACKFILL":
+                    runStatsService.backfill(operation);
+                    break;
+                case ArtifactVerificationService.OPERATION_TYPE:
+                    artifactVerificationService.verify(operation);
+                    break;
                 default:
                     log.warn("Unknown operation type: {}", operation.getType());
             }
@@ -101,16 +215,65 @@ public class OperationService {
                             .build()
             );
         }
+    }
 
-        operationRepository.save(operation);
+    @PreDestroy
+    void shutdown() {
+        // Interrupted operations stay RUNNING until another node queues them again
+        workerExecutor.shutdownNow();
+    }
+
+    /**
+     * Write the runs of every pending ingest with one bulk load rather than one insert per operation.
+     * Recorded operations get their run id (the operation's own) in the payload. Ingests of a test
+     * deleted in the meantime (e.g. resolved from another node's cached test id) get no run id and fail.
+     */
+    private void recordIngestedRuns(List<Operation> ingests) {
+        if (ingests.isEmpty()) {
+            return;
+        }
+        try {
+            BulkResult result = runImportService.recordIngestedRuns(ingests);
+            long dropped = 0;
+            for (Operation op : ingests) {
+                String testId = (String) op.getPayload().get("test_id");
+                if (result.droppedTestIds().contains(UUID.fromString(testId))) {
+                    dropped++;
+                    op.getWarnings().add(Operation.OperationWarning.builder()
+                            .code("TEST_DELETED")
+                            .message("Test " + testId + " was deleted; the run was not recorded")
+                            .build());
+                } else {
+                    op.getPayload().put("run_id", op.getId().toString());
+                }
+            }
+            if (result.runs() + dropped < ingests.size()) {
+                log.info("{} of {} ingested runs were already recorded",
+                        ingests.size() - dropped - result.runs(), ingests.size());
+            }
+            if (dropped > 0) {
+                log.info("{} of {} ingested runs belong to deleted tests and were not recorded",
+                        dropped, ingests.size());
+            }
+        } catch (Exception e) {
+            log.error("Failed to record runs for {} ingest operations", ingests.size(), e);
+            ingests.forEach(op -> op.getWarnings().add(
+                    Operation.OperationWarning.builder()
+                            .code("RUN_WRITE_FAILED")
+                            .message(e.getMessage())
+                            .build()));
+        }
     }
 
     private void processIngestOperation(Operation operation) {
-        // Placeholder for actual ingest logic
         log.info("Processing ingest for operation: {}", operation.getId());
 
-        // Example: Check for version conflicts
         Map<String, Object> payload = operation.getPayload();
+        if (!payload.containsKey("run_id")) {
+            throw new IllegalStateException("Run for this ingest was not recorded");
+        }
+
+        // Example: Check for version conflicts
         if (payload.containsKey("force_update")) {
             operation.getWarnings().add(
                     Operation.OperationWarning.builder()
@@ -0,0 +1,66 @@
+package com.devhunter.ingest.service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * SHA-256 of an object read as consecutive ranges. Up to {@code parallelism} ranges are fetched at
+ * once while the digest consumes them in order, so a long read is bound by throughput rather than
+ * by the round trip of each range; at most {@code parallelism} segments are held in memory.
+ * SHA-256 itself is sequential: the digest matches what the client computed over the whole file.
+ */
+final class RangedSha256 {
+
+    @FunctionalInterface
+    interface RangeReader {
+        byte[] read(long offset, int length);
+    }
+
+    private RangedSha256() {
+    }
+
+    static String digest(long size, int segmentSize, int parallelism, Executor executor, RangeReader reader) {
+        MessageDigest sha256 = newSha256();
+        Deque<CompletableFuture<byte[]>> inFlight = new ArrayDeque<>(parallelism);
+        long requested = 0;
+        long hashed = 0;
+        try {
+            while (hashed < size) {
+                // Keep the read-ahead window full
+                while (requested < size && inFlight.size() < parallelism) {
+                    long offset = requested;
+                    int length = (int) Math.min(segmentSize, size - offset);
+                    inFlight.add(CompletableFuture.supplyAsync(() -> reader.read(offset, length), executor));
+                    requested += length;
+                }
+                int expected = (int) Math.min(segmentSize, size - hashed);
+                byte[] segment = inFlight.poll().join();
+                if (segment.length != expected) {
+                    throw new IllegalStateException(String.format(
+                            "Short read at offset %d: expected %d bytes, got %d", hashed, expected, segment.length));
+                }
+                sha256.update(segment);
+                hashed += segment.length;
+            }
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        } finally {
+            inFlight.forEach(read -> read.cancel(true));
+        }
+        return HexFormat.of().formatHex(sha256.digest());
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
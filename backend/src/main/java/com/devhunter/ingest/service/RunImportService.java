@@ -0,0 +1,270 @@
+package com.devhunter.ingest.service;
+
+import com.devhunter.ingest.domain.Operation;
+import com.devhunter.ingest.domain.UuidV7Generator;
+import com.devhunter.ingest.dto.RunImportRecord;
+import com.devhunter.ingest.dto.RunImportResponse;
+import com.devhunter.ingest.repository.RunBulkRepository;
+import com.devhunter.ingest.repository.RunBulkRepository.BulkResult;
+import com.devhunter.ingest.repository.RunBulkRepository.StagedRun;
+import com.devhunter.ingest.repository.TestRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Writes runs in bulk through {@link RunBulkRepository}: history imports streamed from a request
+ * body, and the runs recorded for queued ingests.
+ */
+@Slf4j
+@Service
+public class RunImportService {
+
+    // Runs are stored in monthly partitions created a few months ahead; beyond this is a client clock problem
+    private static final Duration MAX_CLOCK_SKEW = Duration.ofDays(1);
+
+    private static final int SPOOL_BUFFER_BYTES = 64 * 1024;
+
+    private final RunBulkRepository runBulkRepository;
+    private final TestRepository testRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate importTransaction;
+    private final TransactionTemplate batchTransaction;
+    private final long importMaxBytes;
+
+    public RunImportService(RunBulkRepository runBulkRepository,
+                            TestRepository testRepository,
+                            ObjectMapper objectMapper,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${app.runs.import-max-bytes:209715200}") long importMaxBytes) {
+        if (importMaxBytes <= 0) {
+            throw new IllegalStateException("Invalid app.runs settings: import-max-bytes=" + importMaxBytes);
+        }
+        this.importMaxBytes = importMaxBytes;
+        this.runBulkRepository = runBulkRepository;
+        this.testRepository = testRepository;
+        this.objectMapper = objectMapper;
+        this.importTransaction = new TransactionTemplate(transactionManager);
+        // Ingest runs commit independently of the queue transaction that picked them up
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+        this.batchTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Import a test's run history from newline-delimited JSON, one {@link RunImportRecord} per line.
+     * All or nothing: any invalid line rejects the whole import. The body is spooled to a temporary
+     * file first, so a slow client does not hold a transaction and a pooled connection open while it
+     * sends; the load then reads the file at disk speed. Bodies over {@code app.runs.import-max-bytes}
+     * are rejected.
+     */
+    public RunImportResponse importRuns(UUID testId, InputStream ndjson) {
+        if (testRepository.findVersionById(testId).isEmpty()) {
+            throw new IllegalArgumentException("Test not found: " + testId);
+        }
+
+        Path spool = null;
+        try {
+            spool = Files.createTempFile("run-import-", ".ndjson");
+            spool(ndjson, spool);
+            return importRuns(testId, spool);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (spool != null) {
+                try {
+                    Files.deleteIfExists(spool);
+                } catch (IOException e) {
+                    log.warn("Failed to delete {}", spool, e);
+                }
+            }
+        }
+    }
+
+    private void spool(InputStream ndjson, Path spool) throws IOException {
+        byte[] buffer = new byte[SPOOL_BUFFER_BYTES];
+        long copied = 0;
+        try (OutputStream out = Files.newOutputStream(spool)) {
+            for (int n; (n = ndjson.read(buffer)) > 0; ) {
+                copied += n;
+                // Stop before writing past the limit, not after the whole body is on disk
+                if (copied > importMaxBytes) {
+                    throw new IllegalArgumentException("Run import exceeds max size of " + importMaxBytes + " bytes");
+                }
+                out.write(buffer, 0, n);
+            }
+        }
+    }
+
+    private RunImportResponse importRuns(UUID testId, Path spool) {
+        Instant now = Instant.now();
+        BulkResult result;
+        try {
+            result = importTransaction.execute(status -> {
+                try (MappingIterator<RunImportRecord> records =
+                             objectMapper.readerFor(RunImportRecord.class).readValues(spool.toFile())) {
+                    return runBulkRepository.write(stagedRuns(testId, records, now));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalArgumentException("Invalid run data: " + e.getMostSpecificCause().getMessage(), e);
+        } catch (InvalidDataAccessApiUsageException e) {
+            // Lines are validated while the COPY consumes them, so rejections come back translated
+            if (e.getCause() instanceof IllegalArgumentException invalid) {
+                throw invalid;
+            }
+            throw e;
+        }
+        // Deleted while the body was sent; nothing was written
+        if (result.droppedTestIds().contains(testId)) {
+            throw new IllegalArgumentException("Test not found: " + testId);
+        }
+
+        log.info("Imported {} runs and {} artifacts for test {}", result.runs(), result.artifacts(), testId);
+
+        return RunImportResponse.builder()
+                .testId(testId)
+                .runs(result.runs())
+                .artifacts(result.artifacts())
+                .build();
+    }
+
+    /**
+     * Record one run per INGEST operation in a single bulk write. Each run takes its operation's id
+     * and creation time, so recording the same operations again adds nothing. Runs of deleted tests
+     * are not written; their tests are listed in {@link BulkResult#droppedTestIds()}.
+     */
+    public BulkResult recordIngestedRuns(List<Operation> ingests) {
+        return batchTransaction.execute(status ->
+                runBulkRepository.write(ingests.stream().map(this::toStagedRun).iterator()));
+    }
+
+    private Iterator<StagedRun> stagedRuns(UUID testId, MappingIterator<RunImportRecord> records, Instant now) {
+        return new Iterator<>() {
+            private long line;
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    return records.hasNextValue();
+                } catch (IOException e) {
+                    throw invalidImport(e);
+                }
+            }
+
+            @Override
+            public StagedRun next() {
+                line++;
+                try {
+                    return toStagedRun(testId, records.nextValue(), now, line);
+                } catch (IOException e) {
+                    throw invalidImport(e);
+                }
+            }
+        };
+    }
+
+    private StagedRun toStagedRun(UUID testId, RunImportRecord record, Instant now, long line) {
+        if (record == null) {
+            throw new IllegalArgumentException("Invalid run import at line " + line + ": expected an object");
+        }
+        Instant createdAt = record.getCreatedAt() != null ? record.getCreatedAt() : now;
+        if (createdAt.isAfter(now.plus(MAX_CLOCK_SKEW))) {
+            throw new IllegalArgumentException(
+                    "Invalid run import at line " + line + ": createdAt is in the future: " + createdAt);
+        }
+
+        String artifactsJson = null;
+        if (record.getArtifacts() != null && !record.getArtifacts().isEmpty()) {
+            for (RunImportRecord.ArtifactInfo artifact : record.getArtifacts()) {
+                if (artifact == null || !isWebUrl(artifact.getUrl())) {
+                    throw new IllegalArgumentException(
+                            "Invalid run import at line " + line + ": artifacts need an http(s) url");
+                }
+            }
+            artifactsJson = toJson(record.getArtifacts().stream().map(RunImportService::artifactColumns).toList());
+        }
+
+        return new StagedRun(UuidV7Generator.nextId(), testId, record.getStatus(), toJson(record.getMetadata()),
+                createdAt, artifactsJson);
+    }
+
+    private StagedRun toStagedRun(Operation ingest) {
+        Map<String, Object> payload = ingest.getPayload();
+        // The ingest request's artifact (filename, content type, size), stored with the operation
+        String artifactsJson = null;
+        if (payload.get("artifact") != null) {
+            RunImportRecord.ArtifactInfo artifact =
+                    objectMapper.convertValue(payload.get("artifact"), RunImportRecord.ArtifactInfo.class);
+            artifactsJson = toJson(List.of(artifactColumns(artifact)));
+        }
+        return new StagedRun(ingest.getId(), UUID.fromString((String) payload.get("test_id")),
+                (String) payload.get("status"), toJson(payload.get("metadata")), ingest.getCreatedAt(), artifactsJson);
+    }
+
+    private static boolean isWebUrl(String url) {
+        try {
+            URI uri = url == null ? null : new URI(url);
+            return uri != null && uri.getHost() != null
+                    && ("https".equalsIgnoreCase(uri.getScheme()) || "http".equalsIgnoreCase(uri.getScheme()));
+        } catch (URISyntaxException e) {
+            return false;
+        }
+    }
+
+    // Keys match the artifacts columns the merge reads with jsonb_to_recordset; provider and
+    // object_key stay null, so no stored object is reachable through a bulk-written artifact
+    private static Map<String, Object> artifactColumns(RunImportRecord.ArtifactInfo artifact) {
+        Map<String, Object> columns = new LinkedHashMap<>();
+        columns.put("filename", artifact.getFilename());
+        columns.put("url", artifact.getUrl());
+        columns.put("size_bytes", artifact.getSizeBytes());
+        columns.put("sha256", artifact.getSha256());
+        columns.put("content_type", artifact.getContentType());
+        return columns;
+    }
+
+    private static RuntimeException invalidImport(IOException e) {
+        if (e instanceof JsonProcessingException json) {
+            String at = json.getLocation() != null ? " at line " + json.getLocation().getLineNr() : "";
+            return new IllegalArgumentException("Invalid run import" + at + ": " + json.getOriginalMessage(), e);
+        }
+        return new UncheckedIOException(e);
+    }
+
+    private String toJson(Object value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid metadata", e);
+        }
+    }
+}
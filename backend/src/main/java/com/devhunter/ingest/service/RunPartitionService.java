@@ -0,0 +1,139 @@
+package com.devhunter.ingest.service;
+
+import com.devhunter.ingest.repository.RunPartitionRepository;
+import com.devhunter.ingest.repository.RunPartitionRepository.MonthlyPartition;
+import com.devhunter.ingest.repository.TestPurgeRepository.StoredObject;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps monthly runs partitions created ahead of time and applies retention by detaching and
+ * dropping whole months instead of deleting rows.
+ */
+@Slf4j
+@Service
+public class RunPartitionService {
+
+    private final RunPartitionRepository runPartitionRepository;
+    private final StoredObjectCleaner storedObjectCleaner;
+    private final TransactionTemplate transactionTemplate;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final int batchSize;
+
+    public RunPartitionService(RunPartitionRepository runPartitionRepository,
+                               StoredObjectCleaner storedObjectCleaner,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${app.runs.partitions-ahead:3}") int monthsAhead,
+                               @Value("${app.runs.retention-months:0}") int retentionMonths,
+                               @Value("${app.tests.delete-batch-size:1000}") int batchSize) {
+        if (monthsAhead < 1 || retentionMonths < 0) {
+            throw new IllegalStateException(String.format(
+                    "Invalid runs partition settings: partitions-ahead=%d, retention-months=%d",
+                    monthsAhead, retentionMonths));
+        }
+        this.runPartitionRepository = runPartitionRepository;
+        this.storedObjectCleaner = storedObjectCleaner;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+        this.batchSize = batchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${app.runs.partition-maintenance-cron:0 15 3 * * *}")
+    public void maintain() {
+        try {
+            ensurePartitions();
+            if (retentionMonths > 0) {
+                applyRetention(YearMonth.now(ZoneOffset.UTC).minusMonths(retentionMonths));
+            }
+        } catch (RuntimeException e) {
+            log.error("Runs partition maintenance failed", e);
+        }
+    }
+
+    private void ensurePartitions() {
+        Integer created = transactionTemplate.execute(status -> runPartitionRepository.tryLockMaintenance()
+                ? runPartitionRepository.ensurePartitions(monthsAhead)
+                : null);
+        if (created == null) {
+            log.debug("Runs partition maintenance already running elsewhere");
+        } else if (created > 0) {
+            log.info("Created {} runs partitions", created);
+        }
+    }
+
+    /**
+     * Drop runs created before {@code firstKept}. Monthly partitions are detached first so their
+     * runs vanish at once; artifacts and storage objects are then removed in batches before the
+     * table is dropped. Older rows left in runs_legacy are deleted in batches instead.
+     */
+    private void applyRetention(YearMonth firstKept) {
+        Instant cutoff = firstKept.atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC);
+
+        for (MonthlyPartition partition : runPartitionRepository.findMonthlyPartitions()) {
+            if (!partition.month().isBefore(firstKept)) {
+                continue;
+            }
+            if (partition.attached()) {
+                Boolean detached = transactionTemplate.execute(status -> {
+                    if (!runPartitionRepository.tryLockMaintenance()) {
+                        return false;
+                    }
+                    runPartitionRepository.detach(partition);
+                    runPartitionRepository.deleteRollups(partition.month());
+                    return true;
+                });
+                if (!Boolean.TRUE.equals(detached)) {
+                    return;
+                }
+            }
+            deleteArtifacts(partition.name(), cutoff);
+            transactionTemplate.executeWithoutResult(status -> runPartitionRepository.drop(partition));
+            log.info("Dropped runs partition {} (retention {} months)", partition.name(), retentionMonths);
+        }
+
+        deleteArtifacts(RunPartitionRepository.LEGACY_PARTITION, cutoff);
+        long legacyRuns = 0;
+        int deleted;
+        do {
+            deleted = transactionTemplate.execute(status ->
+                    runPartitionRepository.deleteRuns(RunPartitionRepository.LEGACY_PARTITION, cutoff, batchSize));
+            legacyRuns += deleted;
+        } while (deleted == batchSize);
+        if (legacyRuns > 0) {
+            log.info("Deleted {} runs older than {} from {}", legacyRuns, firstKept, RunPartitionRepository.LEGACY_PARTITION);
+        }
+    }
+
+    private void deleteArtifacts(String table, Instant cutoff) {
+        List<StoredObject> deleted;
+        do {
+            deleted = transactionTemplate.execute(status ->
+                    runPartitionRepository.deleteArtifacts(table, cutoff, batchSize));
+            List<String> failures = new ArrayList<>();
+            long skipped = storedObjectCleaner.delete(deleted, failures);
+            failures.forEach(failure -> log.warn("Retention left storage objects behind: {}", failure));
+            if (skipped > 0) {
+                log.warn("Retention skipped {} artifacts of {} without object key or provider", skipped, table);
+            }
+        } while (deleted.size() == batchSize);
+    }
+}
@@ -0,0 +1,108 @@
+package com.devhunter.ingest.service;
+
+import com.devhunter.ingest.domain.Operation;
+import com.devhunter.ingest.dto.TestStats;
+import com.devhunter.ingest.repository.RunStatsRepository;
+import com.devhunter.ingest.repository.TestRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+@Slf4j
+@Service
+public class RunStatsService {
+
+    private static final int DEFAULT_RANGE_DAYS = 30;
+    private static final int MAX_RANGE_DAYS = 366;
+
+    private final RunStatsRepository runStatsRepository;
+    private final TestRepository testRepository;
+    private final TransactionTemplate chunkTransaction;
+    private final int backfillChunkSize;
+
+    public RunStatsService(RunStatsRepository runStatsRepository,
+                           TestRepository testRepository,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${app.tests.stats-backfill-chunk-size:200}") int backfillChunkSize) {
+        if (backfillChunkSize <= 0) {
+            throw new IllegalStateException("app.tests.stats-backfill-chunk-size must be positive: " + backfillChunkSize);
+        }
+        this.runStatsRepository = runStatsRepository;
+        this.testRepository = testRepository;
+        this.backfillChunkSize = backfillChunkSize;
+        // Each chunk commits on its own, so the backfill never holds one long transaction
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Daily run statistics for {@code from <= day < to} (UTC days). Defaults to the last 30 days.
+     */
+    @Transactional(readOnly = true)
+    public TestStats getStats(UUID testId, LocalDate from, LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now(ZoneOffset.UTC).plusDays(1);
+        LocalDate start = from != null ? from : end.minusDays(DEFAULT_RANGE_DAYS);
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("Invalid date range: 'from' must be before 'to'");
+        }
+        if (ChronoUnit.DAYS.between(start, end) > MAX_RANGE_DAYS) {
+            throw new IllegalArgumentException("Date range spans more than " + MAX_RANGE_DAYS + " days");
+        }
+
+        if (testRepository.findVersionById(testId).isEmpty()) {
+            throw new IllegalArgumentException("Test not found: " + testId);
+        }
+
+        List<TestStats.DailyStats> days = runStatsRepository.findDaily(testId, start, end);
+
+        Map<String, Long> byStatus = new TreeMap<>();
+        long total = 0;
+        for (TestStats.DailyStats day : days) {
+            byStatus.merge(day.getStatus(), day.getRuns(), Long::sum);
+            total += day.getRuns();
+        }
+
+        return TestStats.builder()
+                .testId(testId)
+                .from(start)
+                .to(end)
+                .runs(total)
+                .runsByStatus(byStatus)
+                .days(days)
+                .build();
+    }
+
+    /**
+     * RUN_STATS_BACKFILL: rebuild the rollup for every test, a chunk of tests per transaction.
+     * Safe to run again at any time; each chunk replaces its tests' rows.
+     */
+    public void backfill(Operation operation) {
+        UUID after = new UUID(0L, 0L);
+        long tests = 0;
+        List<UUID> chunk;
+        do {
+            UUID from = after;
+            chunk = chunkTransaction.execute(status -> runStatsRepository.rebuildChunk(from, backfillChunkSize));
+            if (!chunk.isEmpty()) {
+                after = chunk.get(chunk.size() - 1);
+                tests += chunk.size();
+                log.debug("Run stats backfill (operation {}): {} tests rebuilt", operation.getId(), tests);
+            }
+        } while (chunk.size() == backfillChunkSize);
+
+        operation.getPayload().put("tests_rebuilt", tests);
+        log.info("Run stats backfill finished: {} tests rebuilt", tests);
+    }
+}
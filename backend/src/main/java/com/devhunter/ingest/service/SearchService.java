@@ -1,17 +1,39 @@
 package com.devhunter.ingest.service;
 
-import com.devhunter.ingest.domain.Test;
-import com.devhunter.ingest.domain.Run;
+import com.devhunter.ingest.dto.SearchFilters;
+import com.devhunter.ingest.dto.SearchHit;
 import com.devhunter.ingest.dto.SearchResults;
-import com.devhunter.ingest.repository.TestRepository;
+import com.devhunter.ingest.dto.SearchSnippet;
 import com.devhunter.ingest.repository.RunRepository;
+import com.devhunter.ingest.repository.SearchRepository;
+import com.devhunter.ingest.repository.TestRepository;
+import com.devhunter.ingest.search.SearchQueryParser;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.util.HtmlUtils;
+
+import java.nio.charset.StandardCharsets;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -20,47 +42,225 @@ public class SearchService {
 
     private final TestRepository testRepository;
     private final RunRepository runRepository;
+    private final SearchRepository searchRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    private static final int MAX_FACET_LIMIT = 100;
+
+    // Sub-queries of one search: rank, count and snippets of tests and of runs, plus facets
+    static final int SUB_QUERIES_PER_SEARCH = 7;
+
+    @Value("${app.search.sub-query-timeout-ms:2000}")
+    private long subQueryTimeoutMs;
+
+    // 0 derives it from the pool size
+    @Value("${app.search.max-concurrent-sub-queries:0}")
+    private int maxConcurrentSubQueries;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int connectionPoolSize;
+
+    @Value("${app.search.snippet.max-words:35}")
+    private int snippetMaxWords;
+
+    @Value("${app.search.snippet.min-words:15}")
+    private int snippetMinWords;
+
+    @Value("${app.search.snippet.max-fragments:2}")
+    private int snippetMaxFragments;
+
+    // ts_headline options, bound as a parameter so the statement text stays fixed
+    private String snippetOptions;
+
+    // ts_headline marks matches with these instead of tags: the indexed text is escaped first, then
+    // they become the only markup in a snippet
+    private static final String MATCH_START = "\u0002";
+    private static final String MATCH_END = "\u0003";
+
+    // Sub-queries block on JDBC, so one virtual thread per sub-query keeps the fan-out cheap
+    private final ExecutorService searchExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Each sub-query holds a pooled connection; without a cap, a few concurrent searches fanning
+    // out up to 7 sub-queries each take the whole pool and starve ingest. Shared by all searches,
+    // and at least one search's worth, so a search on its own never waits for itself.
+    private Semaphore connectionPermits;
+
+    @PostConstruct
+    void init() {
+        if (snippetMinWords <= 0 || snippetMinWords >= snippetMaxWords || snippetMaxFragments < 0) {
+            throw new IllegalStateException(String.format(
+                    "Invalid snippet settings: min-words=%d, max-words=%d, max-fragments=%d",
+                    snippetMinWords, snippetMaxWords, snippetMaxFragments));
+        }
+        int permits = maxConcurrentSubQueries > 0
+                ? maxConcurrentSubQueries
+                : Math.max(SUB_QUERIES_PER_SEARCH, connectionPoolSize * 3 / 4);
+        if (subQueryTimeoutMs <= 0 || maxConcurrentSubQueries < 0 || permits >= connectionPoolSize) {
+            throw new IllegalStateException(String.format(
+                    "Invalid app.search settings: sub-query-timeout-ms=%d, max-concurrent-sub-queries=%d "
+                            + "(must leave connections of the pool of %d for other work)",
+                    subQueryTimeoutMs, permits, connectionPoolSize));
+        }
+        connectionPermits = new Semaphore(permits);
+        snippetOptions = String.format("StartSel=\"%s\", StopSel=\"%s\", MaxWords=%d, MinWords=%d, MaxFragments=%d, "
+                        + "FragmentDelimiter=\" ... \"",
+                MATCH_START, MATCH_END, snippetMaxWords, snippetMinWords, snippetMaxFragments);
+    }
 
-    @Transactional(readOnly = true)
     public SearchResults search(String query, int limit, int offset) {
-        // Sanitize query for PostgreSQL full-text search
-        String sanitizedQuery = sanitizeQuery(query);
+        return search(query, SearchFilters.none(), limit, offset, 0);
+    }
 
+    public SearchResults search(String query, SearchFilters filters, int limit, int offset, int facetLimit) {
+        // Parse user syntax into a tsquery that is always valid for to_tsquery
+        String tsQuery = SearchQueryParser.toTsQuery(query);
+        boolean textSearch = !tsQuery.isEmpty();
+        int facetTop = Math.min(facetLimit, MAX_FACET_LIMIT);
+
+        if (!textSearch && facetTop <= 0) {
+            return SearchResults.builder()
+                    .total(0L)
+                    .items(List.of())
+                    .build();
+        }
+
+        // Run status does not apply to tests, so a status filter narrows the search to runs
+        boolean searchTests = textSearch && filters.getStatuses().isEmpty();
+
+        // Fan out: each sub-query runs on its own read-only connection, at most
+        // max-concurrent-sub-queries of them at once over all searches.
+        // Phase one ranks ids for the page; phase two runs ts_headline for those rows only.
+        // Both phases share one deadline, so the search takes at most sub-query-timeout-ms.
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(subQueryTimeoutMs);
+        CompletableFuture<List<SearchHit>> testHits = searchTests
+                ? submit(() -> searchRepository.rankTests(tsQuery, filters, limit / 2, offset / 2), deadline)
+                : CompletableFuture.completedFuture(List.of());
+        CompletableFuture<List<SearchHit>> runHits = textSearch
+                ? submit(() -> searchRepository.rankRuns(tsQuery, filters, limit / 2, offset / 2), deadline)
+                : CompletableFuture.completedFuture(List.of());
+        CompletableFuture<Map<UUID, String>> testSnippets = testHits.thenCompose(hits ->
+                snippets(hits, ids -> testRepository.headlines(tsQuery, ids, snippetOptions), deadline));
+        CompletableFuture<Map<UUID, String>> runSnippets = runHits.thenCompose(hits ->
+                snippets(hits, ids -> runRepository.headlines(tsQuery, ids, filters.fromOrMin(), filters.toOrMax(),
+                        snippetOptions), deadline));
+        CompletableFuture<Long> testCount = searchTests
+                ? submit(() -> searchRepository.countTests(tsQuery, filters), deadline)
+                : CompletableFuture.completedFuture(0L);
+        CompletableFuture<Long> runCount = textSearch
+                ? submit(() -> searchRepository.countRuns(tsQuery, filters), deadline)
+                : CompletableFuture.completedFuture(0L);
+        CompletableFuture<Map<String, List<SearchResults.FacetCount>>> facetCounts = facetTop > 0
+                ? submit(() -> countFacets(tsQuery, filters, facetTop), deadline)
+                : CompletableFuture.completedFuture(null);
+
+        AtomicBoolean partial = new AtomicBoolean(false);
         List<SearchResults.SearchItem> items = new ArrayList<>();
 
         // Search tests
-        List<Test> tests = testRepository.searchByFullText(sanitizedQuery, limit / 2, offset / 2);
-        tests.forEach(test -> items.add(SearchResults.SearchItem.builder()
-                .id(test.getId())
+        Map<UUID, String> testFragments = await("tests snippets", testSnippets, Map.of(), partial);
+        await("tests", testHits, List.<SearchHit>of(), partial).forEach(hit -> items.add(SearchResults.SearchItem.builder()
+                .id(hit.getId())
                 .type("test")
-                .score(1.0) // Would need to extract rank from native query
-                .snippet(test.getName())
+                .score(hit.getRank())
+                .snippet(testFragments.get(hit.getId()))
                 .build()));
 
         // Search runs
-        List<Run> runs = runRepository.searchByFullText(sanitizedQuery, limit / 2, offset / 2);
-        runs.forEach(run -> items.add(SearchResults.SearchItem.builder()
-                .id(run.getId())
+        Map<UUID, String> runFragments = await("runs snippets", runSnippets, Map.of(), partial);
+        await("runs", runHits, List.<SearchHit>of(), partial).forEach(hit -> items.add(SearchResults.SearchItem.builder()
+                .id(hit.getId())
                 .type("run")
-                .score(0.8) // Would need to extract rank from native query
-                .snippet(run.getStatus())
+                .score(hit.getRank())
+                .snippet(runFragments.get(hit.getId()))
                 .build()));
 
-        long totalTests = testRepository.countByFullText(sanitizedQuery);
-        long totalRuns = runRepository.countByFullText(sanitizedQuery);
+        long totalTests = await("tests count", testCount, 0L, partial);
+        long totalRuns = await("runs count", runCount, 0L, partial);
 
         return SearchResults.builder()
                 .total(totalTests + totalRuns)
                 .items(items)
+                .facets(await("facets", facetCounts, null, partial))
+                .partial(partial.get())
                 .build();
     }
 
-    private String sanitizeQuery(String query) {
-        // Convert plain text to tsquery format
-        // Replace spaces with & (AND operator)
-        return query.trim()
-                .replaceAll("\\s+", " & ")
-                .replaceAll("[^a-zA-Z0-9&|!() ]", "");
+    private CompletableFuture<Map<UUID, String>> snippets(List<SearchHit> hits,
+                                                          Function<String, List<SearchSnippet>> headlines,
+                                                          long deadline) {
+        if (hits.isEmpty()) {
+            return CompletableFuture.completedFuture(Map.of());
+        }
+        String ids = hits.stream()
+                .map(hit -> hit.getId().toString())
+                .collect(Collectors.joining(","));
+        return submit(() -> headlines.apply(ids).stream()
+                .filter(s -> s.getSnippet() != null)
+                .collect(Collectors.toMap(SearchSnippet::getId, s -> highlight(s.getSnippet()))), deadline);
+    }
+
+    /**
+     * HTML of a ts_headline fragment: the text escaped, matches in {@code <b>}
+     */
+    static String highlight(String headline) {
+        return HtmlUtils.htmlEscape(headline, StandardCharsets.UTF_8.name())
+                .replace(MATCH_START, "<b>")
+                .replace(MATCH_END, "</b>");
+    }
+
+    private Map<String, List<SearchResults.FacetCount>> countFacets(String tsQuery, SearchFilters filters, int facetTop) {
+        // Browsing whole days without other filters is answered from the daily rollup
+        if (tsQuery.isEmpty() && filters.isDayAlignedRangeOnly()) {
+            return searchRepository.countFacetsFromRollup(filters, facetTop);
+        }
+        return searchRepository.countFacets(tsQuery, filters, facetTop);
     }
-}
 
+    /**
+     * Run {@code subQuery} on its own connection, giving up at {@code deadline} (a {@link System#nanoTime()}),
+     * including any wait for a connection permit
+     */
+    private <T> CompletableFuture<T> submit(Supplier<T> subQuery, long deadline) {
+        long remainingNanos = Math.max(0, deadline - System.nanoTime());
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+        // Statement timeout (whole seconds) so the database gives up on the query too
+        tx.setTimeout((int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(remainingNanos + 999_999_999)));
+
+        return CompletableFuture.supplyAsync(() -> {
+                    acquirePermit(deadline);
+                    try {
+                        return tx.execute(status -> subQuery.get());
+                    } finally {
+                        connectionPermits.release();
+                    }
+                }, searchExecutor)
+                .orTimeout(remainingNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void acquirePermit(long deadline) {
+        try {
+            if (!connectionPermits.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                throw new IllegalStateException("Too many concurrent search sub-queries");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a search connection", e);
+        }
+    }
+
+    private <T> T await(String name, CompletableFuture<T> future, T fallback, AtomicBoolean partial) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            log.warn("Search sub-query '{}' did not complete, returning partial results", name, e.getCause());
+            partial.set(true);
+            return fallback;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        searchExecutor.shutdownNow();
+    }
+}
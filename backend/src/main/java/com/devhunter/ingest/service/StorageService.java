@@ -1,19 +1,53 @@
 package com.devhunter.ingest.service;
 
+import com.devhunter.ingest.domain.UuidV7Generator;
 import com.devhunter.ingest.dto.ArtifactResponse;
+import com.devhunter.ingest.dto.BatchPresignRequest;
+import com.devhunter.ingest.dto.BatchPresignResponse;
 import com.devhunter.ingest.dto.FinalizeRequest;
+import com.devhunter.ingest.dto.MultipartPresignResponse;
 import com.devhunter.ingest.dto.PresignRequest;
 import com.devhunter.ingest.dto.PresignResponse;
+import com.devhunter.ingest.exception.GlobalExceptionHandler;
+import com.devhunter.ingest.repository.ArtifactWriteRepository;
+import com.devhunter.ingest.repository.ContentObjectRepository;
+import com.devhunter.ingest.repository.ContentObjectRepository.ContentObject;
+import com.devhunter.ingest.repository.ArtifactWriteRepository.ArtifactRow;
+import com.devhunter.ingest.repository.RunRepository;
+import com.devhunter.ingest.storage.PresignStore;
+import com.devhunter.ingest.storage.PresignedPart;
 import com.devhunter.ingest.storage.PresignedUploadInfo;
+import com.devhunter.ingest.storage.ProviderRouter;
+import com.devhunter.ingest.storage.ProviderRouter.Operation;
 import com.devhunter.ingest.storage.StorageProvider;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Slf4j
 @Service
@@ -21,6 +55,15 @@ import java.util.concurrent.ConcurrentHashMap;
 public class StorageService {
 
     private final List<StorageProvider> storageProviders;
+    private final RunRepository runRepository;
+    private final ArtifactWriteRepository artifactWriteRepository;
+    private final ArtifactWriteBuffer artifactWriteBuffer;
+    private final ContentObjectRepository contentObjectRepository;
+    private final PresignStore presignStore;
+    private final ProviderRouter providerRouter;
+    private final OperationService operationService;
+    private final Validator validator;
+    private final PlatformTransactionManager transactionManager;
 
     @Value("${app.limits.default-max-bytes}")
     private long defaultMaxBytes;
@@ -31,7 +74,25 @@ public class StorageService {
     @Value("${app.limits.mp4-enabled}")
     private boolean mp4Enabled;
 
-    private final Map<String, PresignedUploadInfo> presignCache = new ConcurrentHashMap<>();
+    @Value("${app.limits.presign-batch-max-files:500}")
+    private int presignBatchMaxFiles;
+
+    @Value("${app.storage.multipart.part-size-bytes:16777216}")
+    private long multipartPartSize;
+
+    @Value("${app.storage.multipart.ttl-seconds:86400}")
+    private int multipartTtlSeconds;
+
+    @Value("${app.storage.verification.enabled:false}")
+    private boolean verifyChecksums;
+
+    // S3 limits, the strictest of the providers: parts of at least 5 MiB (but the last), at most 10,000 parts
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    private static final int MAX_PARTS = 10_000;
+
+    // Blocking work off request and provider I/O threads: signing (mostly local, but credential
+    // refreshes can block), multipart completion, and the database writes of finalize
+    private final ExecutorService blockingExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
     private static final List<String> ALLOWED_MIME_TYPES = List.of(
             "application/json",
@@ -43,20 +104,445 @@ public class StorageService {
             "audio/wav"
     );
 
+    @PostConstruct
+    void checkMultipartSettings() {
+        if (multipartPartSize < MIN_PART_SIZE || multipartTtlSeconds <= 0) {
+            throw new IllegalStateException(String.format(
+                    "Invalid app.storage.multipart settings: part-size-bytes=%d (min %d), ttl-seconds=%d",
+                    multipartPartSize, MIN_PART_SIZE, multipartTtlSeconds));
+        }
+    }
+
     public PresignResponse generatePresignedUpload(PresignRequest request) {
         validateRequest(request);
 
-        StorageProvider provider = getAvailableProvider();
+        Optional<ArtifactResponse> stored = reuseStoredContent(request);
+        if (stored.isPresent()) {
+            return deduplicatedResponse(stored.get());
+        }
+
+        PresignedUploadInfo info = presign(candidates(request), provider -> sign(provider, request));
+
+        // Kept until finalize or until the upload URL expires
+        presignStore.put(info);
+
+        return toPresignResponse(info);
+    }
+
+    /**
+     * Presign many files. Every file is validated on its own and invalid ones get an error result;
+     * files whose content is already stored are recorded at once, and the rest are routed and signed
+     * in parallel and registered with one store write.
+     */
+    public BatchPresignResponse generatePresignedUploads(BatchPresignRequest request) {
+        List<PresignRequest> files = request.getFiles();
+        if (files.size() > presignBatchMaxFiles) {
+            throw new IllegalArgumentException(
+                    String.format("Too many files: max %d per batch", presignBatchMaxFiles));
+        }
+
+        BatchPresignResponse.Item[] results = new BatchPresignResponse.Item[files.size()];
+        Map<Integer, CompletableFuture<PresignedUploadInfo>> signing = new LinkedHashMap<>();
+        for (int i = 0; i < files.size(); i++) {
+            PresignRequest file = files.get(i);
+            Optional<ArtifactResponse> stored;
+            try {
+                validateBatchFile(file);
+                stored = reuseStoredContent(file);
+            } catch (IllegalArgumentException e) {
+                results[i] = failedItem(i, file, GlobalExceptionHandler.determineStatus(e.getMessage()), e.getMessage());
+                continue;
+            }
+            if (stored.isPresent()) {
+                results[i] = BatchPresignResponse.Item.builder()
+                        .index(i)
+                        .filename(file.getFilename())
+                        .status(HttpStatus.OK.value())
+                        .upload(deduplicatedResponse(stored.get()))
+                        .build();
+                continue;
+            }
+            // Throws if no provider is available, failing the whole batch
+            List<StorageProvider> candidates = candidates(file);
+            signing.put(i, CompletableFuture.supplyAsync(
+                    () -> presign(candidates, provider -> sign(provider, file)), blockingExecutor));
+        }
+
+        List<PresignedUploadInfo> signed = new ArrayList<>(signing.size());
+        signing.forEach((i, future) -> {
+            PresignRequest file = files.get(i);
+            try {
+                PresignedUploadInfo info = future.join();
+                signed.add(info);
+                results[i] = BatchPresignResponse.Item.builder()
+                        .index(i)
+                        .filename(file.getFilename())
+                        .status(HttpStatus.OK.value())
+                        .upload(toPresignResponse(info))
+                        .build();
+            } catch (CompletionException e) {
+                log.error("Failed to presign {} in batch", file.getFilename(), e.getCause());
+                results[i] = failedItem(i, file, HttpStatus.INTERNAL_SERVER_ERROR, "Failed to presign upload");
+            }
+        });
+
+        if (!signed.isEmpty()) {
+            presignStore.putAll(signed);
+        }
+
+        List<BatchPresignResponse.Item> items = List.of(results);
+        int succeeded = (int) items.stream().filter(item -> item.getStatus() == HttpStatus.OK.value()).count();
+        return BatchPresignResponse.builder()
+                .succeeded(succeeded)
+                .failed(items.size() - succeeded)
+                .results(items)
+                .build();
+    }
+
+    /**
+     * Start a multipart upload and presign all of its parts. Parts go up in parallel; a failed part
+     * is uploaded again on its own. Finalize assembles them into the object.
+     */
+    public MultipartPresignResponse initiateMultipartUpload(PresignRequest request) {
+        validateRequest(request);
+
+        Optional<ArtifactResponse> stored = reuseStoredContent(request);
+        if (stored.isPresent()) {
+            return MultipartPresignResponse.builder()
+                    .provider(stored.get().getProvider())
+                    .deduplicated(true)
+                    .artifact(stored.get())
+                    .build();
+        }
+
+        long sizeBytes = request.getSizeBytes();
+        long partSize = Math.max(multipartPartSize, Math.ceilDiv(sizeBytes, MAX_PARTS));
+        int partCount = (int) Math.ceilDiv(sizeBytes, partSize);
+
+        SignedMultipart signed = presign(candidates(request), provider -> {
+            PresignedUploadInfo info = provider.initiateMultipartUpload(
+                    request.getFilename(), request.getContentType(), sizeBytes);
+            info.setFilename(request.getFilename());
+            info.setContentType(request.getContentType());
+            info.setSizeBytes(sizeBytes);
+            info.setPartSize(partSize);
+            info.setPartCount(partCount);
+            // The upload outlives its part URLs, which can be signed again until it expires
+            info.setExpiresInSeconds(multipartTtlSeconds);
+
+            List<PresignedPart> parts;
+            try {
+                parts = provider.presignUploadParts(info.getObjectKey(), info.getUploadId(), info.getContentType(),
+                        sizeBytes, partSize, IntStream.rangeClosed(1, partCount).boxed().toList());
+            } catch (RuntimeException e) {
+                abortQuietly(provider, info);
+                throw e;
+            }
+            return new SignedMultipart(info, parts);
+        });
+
+        // Outside the failover: a store failure is not the provider's, and must not start the upload elsewhere
+        try {
+            presignStore.put(signed.info());
+        } catch (RuntimeException e) {
+            abortQuietly(getProviderByName(signed.info().getProvider()), signed.info());
+            throw e;
+        }
+        return toMultipartResponse(signed.info(), signed.parts());
+    }
+
+    private record SignedMultipart(PresignedUploadInfo info, List<PresignedPart> parts) {
+    }
+
+    /**
+     * Sign parts of a multipart upload again, e.g. to retry a part after its URL expired.
+     *
+     * @param partNumbers 1-based part numbers, or empty for all parts
+     */
+    public MultipartPresignResponse presignUploadParts(String presignedId, List<Integer> partNumbers) {
+        PresignedUploadInfo info = getMultipartUpload(presignedId);
+
+        List<Integer> numbers = partNumbers == null || partNumbers.isEmpty()
+                ? IntStream.rangeClosed(1, info.getPartCount()).boxed().toList()
+                : partNumbers.stream().distinct().sorted().toList();
+        if (numbers.get(0) < 1 || numbers.get(numbers.size() - 1) > info.getPartCount()) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid part number: parts are 1 to %d", info.getPartCount()));
+        }
+
+        List<PresignedPart> parts = getProviderByName(info.getProvider())
+                .presignUploadParts(info.getObjectKey(), info.getUploadId(), info.getContentType(),
+                        // Presigned before the size was kept: the last part is bounded by the part size
+                        info.getSizeBytes() != null ? info.getSizeBytes() : info.getPartSize() * info.getPartCount(),
+                        info.getPartSize(), numbers);
+        return toMultipartResponse(info, parts);
+    }
+
+    /**
+     * Discard a multipart upload that will not be finalized, with its uploaded parts.
+     */
+    public void abortMultipartUpload(String presignedId) {
+        PresignedUploadInfo info = getMultipartUpload(presignedId);
+        getProviderByName(info.getProvider())
+                .abortMultipartUpload(info.getObjectKey(), info.getUploadId(), info.getPartCount());
+        presignStore.remove(presignedId);
+    }
+
+    /**
+     * Verify the uploaded object and record it as an artifact. The row is written behind by
+     * {@link ArtifactWriteBuffer}; the response already carries its id. If the same content is
+     * already stored, the artifact points at that object and the upload is deleted. With checksum
+     * verification enabled, a newly stored object starts out "verifying" and a VERIFY_ARTIFACT
+     * operation checks its SHA-256.
+     */
+    public CompletableFuture<ArtifactResponse> finalizeUpload(FinalizeRequest request) {
+        // The lookups are database reads too; none of the work runs on the servlet thread
+        return CompletableFuture.supplyAsync(() -> lookUpUpload(request), blockingExecutor)
+                .thenCompose(info -> finalizeUpload(request, info));
+    }
+
+    private PresignedUploadInfo lookUpUpload(FinalizeRequest request) {
+        PresignedUploadInfo info = presignStore.get(request.getPresignedId())
+                .orElseThrow(() -> new IllegalArgumentException("Invalid or expired presigned_id"));
+        if (request.getRunId() != null && !runRepository.existsById(request.getRunId())) {
+            throw new IllegalArgumentException("Run not found: " + request.getRunId());
+        }
+        return info;
+    }
+
+    private CompletableFuture<ArtifactResponse> finalizeUpload(FinalizeRequest request, PresignedUploadInfo info) {
+        StorageProvider provider = getProviderByName(info.getProvider());
+
+        // A multipart object only exists once its parts are assembled; a retry after a failed check
+        // (size mismatch) finds it assembled and checks it again
+        CompletableFuture<Void> assembled = info.getUploadId() == null
+                ? CompletableFuture.completedFuture(null)
+                : CompletableFuture.runAsync(() -> {
+                    provider.completeMultipartUpload(info.getObjectKey(), info.getUploadId(), info.getContentType(),
+                            info.getPartCount());
+                    presignStore.markAssembled(request.getPresignedId());
+                }, blockingExecutor);
+
+        return assembled
+                .thenCompose(ignored -> checkUpload(provider, info, request))
+                // The provider completes on its I/O threads; the database work must not run there
+                .thenApplyAsync(finalUrl -> recordFinalizedUpload(request, info, provider, finalUrl), blockingExecutor);
+    }
+
+    private CompletableFuture<String> checkUpload(StorageProvider provider, PresignedUploadInfo info,
+                                                  FinalizeRequest request) {
+        long start = System.nanoTime();
+        return provider.finalizeUploadAsync(request.getPresignedId(), info.getObjectKey(), request.getSizeBytes(),
+                        request.getSha256())
+                .whenComplete((finalUrl, error) -> {
+                    if (error == null) {
+                        providerRouter.recordLatency(provider.getProviderName(), Operation.FINALIZE,
+                                System.nanoTime() - start);
+                    } else if (isProviderFailure(error)) {
+                        providerRouter.recordFailure(provider.getProviderName(), Operation.FINALIZE);
+                    }
+                });
+    }
+
+    /**
+     * Whether a finalize failed on the provider's side (SDK, I/O, timeout) rather than on the
+     * upload: providers report a missing object or a size mismatch as an illegal argument or state
+     */
+    private static boolean isProviderFailure(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return !(cause instanceof IllegalArgumentException || cause instanceof IllegalStateException);
+    }
+
+    private record FinalizedUpload(ArtifactRow row, boolean stored, UUID verificationOperationId) {
+    }
+
+    private ArtifactResponse recordFinalizedUpload(FinalizeRequest request, PresignedUploadInfo info,
+                                                   StorageProvider provider, String finalUrl) {
+        // Read before the transaction, which should not wait on the provider
+        Optional<String> providerSha256 = storedSha256(provider, info);
+        // The upload is claimed, its content reference taken and its verification queued in one
+        // transaction: if any of it fails, the upload stays presigned and can be finalized again
+        FinalizedUpload finalized = new TransactionTemplate(transactionManager).execute(status ->
+                claimUpload(request, info, providerSha256, finalUrl));
+
+        if (!finalized.stored()) {
+            // Uploaded again (without a sha256 at presign, or by a concurrent upload): keep one copy
+            deleteDuplicate(provider, info.getObjectKey());
+        }
+        artifactWriteBuffer.enqueue(finalized.row());
+
+        ArtifactResponse response = toResponse(finalized.row());
+        response.setVerificationOperationId(finalized.verificationOperationId());
+        return response;
+    }
+
+    private FinalizedUpload claimUpload(FinalizeRequest request, PresignedUploadInfo info,
+                                        Optional<String> providerSha256, String finalUrl) {
+        // Only one finalize of an upload records it, whichever node it reaches; a concurrent one
+        // waits for this transaction and then finds the upload gone
+        if (!presignStore.remove(request.getPresignedId())) {
+            throw new IllegalArgumentException("Invalid or expired presigned_id");
+        }
+
+        String sha256 = request.getSha256().toLowerCase(Locale.ROOT);
+        ContentObject content = registerContent(info, providerSha256, sha256, request.getSizeBytes(), finalUrl);
+        boolean stored = content.provider().equals(info.getProvider())
+                && content.objectKey().equals(info.getObjectKey());
+
+        ArtifactRow row = new ArtifactRow(
+                UuidV7Generator.nextId(),
+                request.getRunId(),
+                info.getFilename(),
+                content.url(),
+                content.provider(),
+                content.objectKey(),
+                request.getSizeBytes(),
+                sha256,
+                info.getContentType(),
+                Instant.now(),
+                verifyChecksums && stored ? ArtifactVerificationService.VERIFYING : null);
+
+        UUID operationId = null;
+        if (row.verification() != null) {
+            operationId = operationService.createOperation(ArtifactVerificationService.OPERATION_TYPE,
+                    ArtifactVerificationService.payload(row.id(), row.provider(), row.objectKey(),
+                            row.sizeBytes(), row.sha256())).getId();
+        }
+        return new FinalizedUpload(row, stored, operationId);
+    }
+
+    /**
+     * SHA-256 the provider computed for the uploaded object, if it stores one
+     */
+    private static Optional<String> storedSha256(StorageProvider provider, PresignedUploadInfo info) {
+        try {
+            return provider.getStoredSha256(info.getObjectKey());
+        } catch (Exception e) {
+            // Treated like a provider without checksums; the upload is checked and must be recorded
+            log.warn("Failed to read the stored checksum of {} from {}", info.getObjectKey(), info.getProvider(), e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Record the uploaded object for reuse by later uploads of its content, or take a reference to
+     * the object already stored for it. The sha256 is the client's claim: the object is only shared
+     * at once if the provider stored a matching checksum it computed itself; otherwise it waits for
+     * verification, and is not recorded at all when verification is disabled.
+     *
+     * @return the object the artifact points at
+     */
+    private ContentObject registerContent(PresignedUploadInfo info, Optional<String> providerSha256, String sha256,
+                                          long sizeBytes, String finalUrl) {
+        if (providerSha256.filter(sha256::equalsIgnoreCase).isPresent()) {
+            return contentObjectRepository.acquire(info.getProvider(), info.getObjectKey(), sha256, sizeBytes, finalUrl);
+        }
+        Optional<ContentObject> existing = contentObjectRepository.acquireExisting(sha256, sizeBytes);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        if (verifyChecksums) {
+            contentObjectRepository.registerUnverified(info.getProvider(), info.getObjectKey(), sha256, sizeBytes, finalUrl);
+        }
+        return new ContentObject(info.getProvider(), info.getObjectKey(), finalUrl);
+    }
+
+    /**
+     * Artifacts of a run, oldest first, including ones finalized but not yet written.
+     */
+    public List<ArtifactResponse> listRunArtifacts(UUID runId) {
+        if (!runRepository.existsById(runId)) {
+            throw new IllegalArgumentException("Run not found: " + runId);
+        }
+        // Pending first: a row that is committed in between is then found by the query
+        List<ArtifactRow> pending = artifactWriteBuffer.pendingFor(runId);
+        Map<UUID, ArtifactRow> rows = new LinkedHashMap<>();
+        artifactWriteRepository.findByRun(runId).forEach(row -> rows.put(row.id(), row));
+        // Not yet written rows were finalized last
+        pending.forEach(row -> rows.putIfAbsent(row.id(), row));
 
+        return rows.values().stream()
+                .map(StorageService::toResponse)
+                .toList();
+    }
+
+    private static ArtifactResponse toResponse(ArtifactRow row) {
+        return ArtifactResponse.builder()
+                .id(row.id())
+                .runId(row.runId())
+                .url(row.url())
+                .provider(row.provider())
+                .sizeBytes(row.sizeBytes())
+                .sha256(row.sha256())
+                .filename(row.filename())
+                .contentType(row.contentType())
+                .createdAt(row.createdAt())
+                .verification(row.verification())
+                .build();
+    }
+
+    /**
+     * Record the artifact right away if its content is already stored, taking a reference to the
+     * stored object. Only for requests with a sha256.
+     */
+    private Optional<ArtifactResponse> reuseStoredContent(PresignRequest request) {
+        if (request.getSha256() == null) {
+            return Optional.empty();
+        }
+        // Checked before taking a reference, which is only given back by deleting the artifact
+        if (request.getRunId() != null && !runRepository.existsById(request.getRunId())) {
+            throw new IllegalArgumentException("Run not found: " + request.getRunId());
+        }
+        String sha256 = request.getSha256().toLowerCase(Locale.ROOT);
+        return contentObjectRepository.acquireExisting(sha256, request.getSizeBytes()).map(content -> {
+            ArtifactRow row = new ArtifactRow(
+                    UuidV7Generator.nextId(),
+                    request.getRunId(),
+                    request.getFilename(),
+                    content.url(),
+                    content.provider(),
+                    content.objectKey(),
+                    request.getSizeBytes(),
+                    sha256,
+                    request.getContentType(),
+                    Instant.now(),
+                    null);
+            artifactWriteBuffer.enqueue(row);
+            log.debug("Reused stored object {}/{} for {}", content.provider(), content.objectKey(),
+                    request.getFilename());
+            return toResponse(row);
+        });
+    }
+
+    private static PresignResponse deduplicatedResponse(ArtifactResponse artifact) {
+        return PresignResponse.builder()
+                .provider(artifact.getProvider())
+                .deduplicated(true)
+                .artifact(artifact)
+                .build();
+    }
+
+    private void deleteDuplicate(StorageProvider provider, String objectKey) {
+        try {
+            provider.deleteObjects(List.of(objectKey));
+        } catch (Exception e) {
+            // Unreferenced, so only costs storage
+            log.warn("Failed to delete duplicate upload {} from {}", objectKey, provider.getProviderName(), e);
+        }
+    }
+
+    private PresignedUploadInfo sign(StorageProvider provider, PresignRequest request) {
         PresignedUploadInfo info = provider.generatePresignedUpload(
                 request.getFilename(),
                 request.getContentType(),
                 request.getSizeBytes()
         );
+        info.setFilename(request.getFilename());
+        info.setContentType(request.getContentType());
+        return info;
+    }
 
-        // Cache for finalization
-        presignCache.put(info.getPresignedId(), info);
-
+    private static PresignResponse toPresignResponse(PresignedUploadInfo info) {
         return PresignResponse.builder()
                 .provider(info.getProvider())
                 .uploadUrl(info.getUploadUrl())
@@ -66,28 +552,53 @@ public class StorageService {
                 .build();
     }
 
-    public ArtifactResponse finalizeUpload(FinalizeRequest request) {
-        PresignedUploadInfo info = presignCache.get(request.getPresignedId());
-
-        if (info == null) {
-            throw new IllegalArgumentException("Invalid or expired presigned_id");
-        }
-
-        StorageProvider provider = getProviderByName(info.getProvider());
+    private PresignedUploadInfo getMultipartUpload(String presignedId) {
+        return presignStore.get(presignedId)
+                .filter(info -> info.getUploadId() != null)
+                .orElseThrow(() -> new IllegalArgumentException("Multipart upload not found: " + presignedId));
+    }
 
-        String finalUrl = provider.finalizeUpload(
-                request.getPresignedId(),
-                info.getObjectKey(),
-                request.getSizeBytes(),
-                request.getSha256()
-        );
+    private static MultipartPresignResponse toMultipartResponse(PresignedUploadInfo info, List<PresignedPart> parts) {
+        return MultipartPresignResponse.builder()
+                .provider(info.getProvider())
+                .presignedId(info.getPresignedId())
+                .partSize(info.getPartSize())
+                .partCount(info.getPartCount())
+                .expiresInSeconds(info.getExpiresInSeconds())
+                .parts(parts.stream()
+                        .map(part -> MultipartPresignResponse.Part.builder()
+                                .partNumber(part.getPartNumber())
+                                .uploadUrl(part.getUploadUrl())
+                                .fields(part.getHeaders())
+                                .expiresInSeconds(part.getExpiresInSeconds())
+                                .build())
+                        .toList())
+                .build();
+    }
 
-        presignCache.remove(request.getPresignedId());
+    /**
+     * Bean validation of a single file (what @Valid does for a single presign), then the limits.
+     */
+    private void validateBatchFile(PresignRequest file) {
+        if (file == null) {
+            throw new IllegalArgumentException("file is required");
+        }
+        Set<ConstraintViolation<PresignRequest>> violations = validator.validate(file);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+        validateRequest(file);
+    }
 
-        return ArtifactResponse.builder()
-                .url(finalUrl)
-                .sizeBytes(request.getSizeBytes())
-                .sha256(request.getSha256())
+    private static BatchPresignResponse.Item failedItem(int index, PresignRequest file, HttpStatus status, String error) {
+        return BatchPresignResponse.Item.builder()
+                .index(index)
+                .filename(file != null ? file.getFilename() : null)
+                .status(status.value())
+                .error(error)
                 .build();
     }
 
@@ -122,11 +633,42 @@ public class StorageService {
         }
     }
 
-    private StorageProvider getAvailableProvider() {
-        return storageProviders.stream()
-                .filter(StorageProvider::isAvailable)
-                .findFirst()
-                .orElseThrow(() -> new IllegalStateException("No storage provider available"));
+    private List<StorageProvider> candidates(PresignRequest request) {
+        // Cached breaker states and latencies; the remote checks run in ProviderHealthMonitor
+        return providerRouter.candidates(request.getContentType(), request.getSizeBytes());
+    }
+
+    /**
+     * Presign with the first candidate that succeeds, timing each attempt for the router. Throws the
+     * last failure if every candidate fails.
+     */
+    private <T> T presign(List<StorageProvider> candidates, Function<StorageProvider, T> presign) {
+        RuntimeException failure = null;
+        for (StorageProvider provider : candidates) {
+            long start = System.nanoTime();
+            try {
+                T result = presign.apply(provider);
+                providerRouter.recordLatency(provider.getProviderName(), Operation.PRESIGN, System.nanoTime() - start);
+                return result;
+            } catch (RuntimeException e) {
+                providerRouter.recordFailure(provider.getProviderName(), Operation.PRESIGN);
+                log.warn("Presign with storage provider {} failed", provider.getProviderName(), e);
+                if (failure != null) {
+                    e.addSuppressed(failure);
+                }
+                failure = e;
+            }
+        }
+        throw failure;
+    }
+
+    private static void abortQuietly(StorageProvider provider, PresignedUploadInfo info) {
+        try {
+            provider.abortMultipartUpload(info.getObjectKey(), info.getUploadId(), info.getPartCount());
+        } catch (RuntimeException e) {
+            // Providers drop incomplete uploads eventually; lifecycle rules can do it sooner
+            log.warn("Failed to abort multipart upload {} on {}", info.getObjectKey(), provider.getProviderName(), e);
+        }
     }
 
     private StorageProvider getProviderByName(String name) {
@@ -135,5 +677,9 @@ public class StorageService {
                 .findFirst()
                 .orElseThrow(() -> new IllegalArgumentException("Unknown provider: " + name));
     }
-}
 
+    @PreDestroy
+    void shutdown() {
+        blockingExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,107 @@
+package com.devhunter.ingest.service;
+
+import com.devhunter.ingest.repository.ContentObjectRepository;
+import com.devhunter.ingest.repository.TestPurgeRepository.StoredObject;
+import com.devhunter.ingest.storage.StorageProvider;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Deletes the storage objects of artifact rows that were already removed from the database.
+ * Objects shared by several artifacts (see {@link ContentObjectRepository}) are only deleted with
+ * their last reference.
+ */
+@Slf4j
+@Component
+public class StoredObjectCleaner {
+
+    private final List<StorageProvider> storageProviders;
+    private final ContentObjectRepository contentObjectRepository;
+    private final TransactionTemplate releaseTransaction;
+
+    public StoredObjectCleaner(List<StorageProvider> storageProviders,
+                               ContentObjectRepository contentObjectRepository,
+                               PlatformTransactionManager transactionManager) {
+        this.storageProviders = storageProviders;
+        this.contentObjectRepository = contentObjectRepository;
+        this.releaseTransaction = new TransactionTemplate(transactionManager);
+        this.releaseTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Release one reference per object and delete the objects nobody references any more, grouped
+     * per provider. Objects without a key or a configured provider are skipped.
+     *
+     * @param failures receives one "provider: message" entry per provider call that failed
+     * @return the number of skipped objects
+     */
+    public long delete(List<StoredObject> objects, List<String> failures) {
+        long skipped = 0;
+        List<StoredObject> released = new ArrayList<>();
+        for (StoredObject object : objects) {
+            if (object.provider() == null || object.objectKey() == null) {
+                skipped++;
+            } else {
+                released.add(object);
+            }
+        }
+        if (released.isEmpty()) {
+            return skipped;
+        }
+
+        // The released rows stay locked until the objects are gone, so a finalize or presign of the
+        // same content waits and then stores it anew instead of referencing a deleted object
+        return skipped + releaseTransaction.execute(status -> {
+            Map<StoredObject, Long> remaining = contentObjectRepository.release(released);
+            Set<StoredObject> unreferenced = new LinkedHashSet<>();
+            for (StoredObject object : released) {
+                Long refs = remaining.get(object);
+                // Not shared (or stored before content objects existed): this artifact was its only one
+                if (refs == null || refs <= 0) {
+                    unreferenced.add(object);
+                }
+            }
+            long notDeleted = deleteFromProviders(unreferenced, failures);
+            unreferenced.stream()
+                    .filter(remaining::containsKey)
+                    .forEach(contentObjectRepository::deleteUnreferenced);
+            return notDeleted;
+        });
+    }
+
+    private long deleteFromProviders(Set<StoredObject> objects, List<String> failures) {
+        long skipped = 0;
+        Map<String, List<String>> keysByProvider = new LinkedHashMap<>();
+        for (StoredObject object : objects) {
+            keysByProvider.computeIfAbsent(object.provider(), p -> new ArrayList<>()).add(object.objectKey());
+        }
+
+        for (Map.Entry<String, List<String>> entry : keysByProvider.entrySet()) {
+            StorageProvider provider = storageProviders.stream()
+                    .filter(p -> p.getProviderName().equals(entry.getKey()))
+                    .findFirst()
+                    .orElse(null);
+            if (provider == null) {
+                skipped += entry.getValue().size();
+                continue;
+            }
+            try {
+                provider.deleteObjects(entry.getValue());
+            } catch (Exception e) {
+                log.warn("Failed to delete {} objects from {}", entry.getValue().size(), entry.getKey(), e);
+                failures.add(entry.getKey() + ": " + e.getMessage());
+            }
+        }
+        return skipped;
+    }
+}
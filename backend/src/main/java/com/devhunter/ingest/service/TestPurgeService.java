@@ -0,0 +1,89 @@
+package com.devhunter.ingest.service;
+
+import com.devhunter.ingest.domain.Operation;
+import com.devhunter.ingest.repository.TestPurgeRepository;
+import com.devhunter.ingest.repository.TestPurgeRepository.StoredObject;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Removes the run/artifact tree of a tombstoned test for DELETE_TEST operations.
+ */
+@Slf4j
+@Service
+public class TestPurgeService {
+
+    private final TestPurgeRepository testPurgeRepository;
+    private final StoredObjectCleaner storedObjectCleaner;
+    private final TransactionTemplate batchTransaction;
+    private final int batchSize;
+
+    public TestPurgeService(TestPurgeRepository testPurgeRepository,
+                            StoredObjectCleaner storedObjectCleaner,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${app.tests.delete-batch-size:1000}") int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalStateException("app.tests.delete-batch-size must be positive: " + batchSize);
+        }
+        this.testPurgeRepository = testPurgeRepository;
+        this.storedObjectCleaner = storedObjectCleaner;
+        this.batchSize = batchSize;
+        // Each batch commits on its own so locks and WAL stay bounded, whatever transaction the caller has
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+        this.batchTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Delete artifacts, then runs, then the test row, one bounded batch at a time. Storage objects
+     * are removed after their rows are committed; failures are recorded as warnings, not retried.
+     */
+    public void purge(Operation operation) {
+        UUID testId = UUID.fromString((String) operation.getPayload().get("test_id"));
+        log.info("Purging tombstoned test {} (operation {})", testId, operation.getId());
+
+        long artifactsDeleted = 0;
+        long objectsSkipped = 0;
+        List<StoredObject> deleted;
+        do {
+            deleted = batchTransaction.execute(status -> testPurgeRepository.deleteArtifacts(testId, batchSize));
+            artifactsDeleted += deleted.size();
+            List<String> failures = new ArrayList<>();
+            objectsSkipped += storedObjectCleaner.delete(deleted, failures);
+            failures.forEach(failure -> operation.getWarnings().add(
+                    Operation.OperationWarning.builder()
+                            .code("STORAGE_DELETE_FAILED")
+                            .message(failure)
+                            .build()));
+        } while (deleted.size() == batchSize);
+
+        long runsDeleted = 0;
+        int runs;
+        do {
+            runs = batchTransaction.execute(status -> testPurgeRepository.deleteRuns(testId, batchSize));
+            runsDeleted += runs;
+        } while (runs == batchSize);
+
+        batchTransaction.executeWithoutResult(status -> testPurgeRepository.deleteTombstoned(testId));
+
+        if (objectsSkipped > 0) {
+            operation.getWarnings().add(
+                    Operation.OperationWarning.builder()
+                            .code("STORAGE_OBJECTS_SKIPPED")
+                            .message(objectsSkipped + " artifacts had no object key or no configured provider")
+                            .build()
+            );
+        }
+        operation.getPayload().put("runs_deleted", runsDeleted);
+        operation.getPayload().put("artifacts_deleted", artifactsDeleted);
+
+        log.info("Purged test {}: {} runs, {} artifacts", testId, runsDeleted, artifactsDeleted);
+    }
+}
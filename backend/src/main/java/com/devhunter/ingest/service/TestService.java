@@ -0,0 +1,286 @@
+package com.devhunter.ingest.service;
+
+import com.devhunter.ingest.domain.Operation;
+import com.devhunter.ingest.dto.KeysetCursor;
+import com.devhunter.ingest.dto.OperationResponse;
+import com.devhunter.ingest.dto.RunPage;
+import com.devhunter.ingest.dto.RunSummary;
+import com.devhunter.ingest.dto.TestPage;
+import com.devhunter.ingest.dto.TestSummary;
+import com.devhunter.ingest.exception.StaleResourceException;
+import com.devhunter.ingest.repository.RunSummaryRepository;
+import com.devhunter.ingest.repository.TestRepository;
+import com.devhunter.ingest.repository.TestSummaryRepository;
+import com.devhunter.ingest.repository.TestWriteRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TestService {
+
+    private static final Set<String> FIELDS = Set.of(
+            "id", "externalId", "name", "metadata", "createdAt", "updatedAt", "version");
+
+    private static final Set<String> PATCHABLE_FIELDS = Set.of("name", "metadata");
+
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private final TestRepository testRepository;
+    private final TestSummaryRepository testSummaryRepository;
+    private final TestWriteRepository testWriteRepository;
+    private final RunSummaryRepository runSummaryRepository;
+    private final OperationService operationService;
+    private final IngestService ingestService;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(readOnly = true)
+    public TestPage listTests(int limit, String after, String fields) {
+        Set<String> selected = parseFields(fields);
+        int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+
+        // Read one extra row to know whether another page exists
+        List<TestSummary> rows = testSummaryRepository.findPage(
+                KeysetCursor.decode(after), pageSize + 1, selected.contains("metadata"));
+
+        boolean hasMore = rows.size() > pageSize;
+        List<TestSummary> page = hasMore ? rows.subList(0, pageSize) : rows;
+
+        String nextCursor = null;
+        if (hasMore) {
+            TestSummary last = page.get(page.size() - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        page.forEach(test -> retainFields(test, selected));
+
+        return TestPage.builder()
+                .items(page)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * One page of a test's runs, newest first, optionally restricted to some statuses.
+     */
+    @Transactional(readOnly = true)
+    public RunPage listRuns(UUID testId, int limit, String before, List<String> statuses) {
+        List<String> statusList = statuses == null ? List.of() : statuses.stream()
+                .filter(s -> !s.isBlank())
+                .toList();
+        if (statusList.stream().anyMatch(s -> s.contains(","))) {
+            throw new IllegalArgumentException("Invalid status filter: " + statusList);
+        }
+        int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        KeysetCursor cursor = KeysetCursor.decode(before, KeysetCursor.END);
+
+        if (testRepository.findVersionById(testId).isEmpty()) {
+            throw new IllegalArgumentException("Test not found: " + testId);
+        }
+
+        // Read one extra row to know whether another page exists
+        List<RunSummary> rows = runSummaryRepository.findPageByTest(
+                testId, cursor, String.join(",", statusList), pageSize + 1);
+
+        boolean hasMore = rows.size() > pageSize;
+        List<RunSummary> page = hasMore ? rows.subList(0, pageSize) : rows;
+
+        String nextCursor = null;
+        if (hasMore) {
+            RunSummary last = page.get(page.size() - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        return RunPage.builder()
+                .items(page)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * Write every test as newline-delimited JSON, reading through a database cursor.
+     */
+    public void exportTests(String fields, OutputStream out) {
+        Set<String> selected = parseFields(fields);
+        BufferedOutputStream buffered = new BufferedOutputStream(out, 64 * 1024);
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+        tx.executeWithoutResult(status -> testSummaryRepository.streamAll(selected.contains("metadata"), test -> {
+            try {
+                retainFields(test, selected);
+                buffered.write(objectMapper.writeValueAsBytes(test));
+                buffered.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+
+        try {
+            buffered.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Apply an RFC 7386 merge patch ({@code name}, {@code metadata}) in a single UPDATE guarded by
+     * the If-Match version.
+     *
+     * @return the new version
+     */
+    @Transactional
+    public long patchTest(UUID id, JsonNode patch, String ifMatch) {
+        if (patch == null || !patch.isObject()) {
+            throw new IllegalArgumentException("Merge patch must be a JSON object");
+        }
+        patch.fieldNames().forEachRemaining(field -> {
+            if (!PATCHABLE_FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Field cannot be patched: " + field);
+            }
+        });
+
+        int nameMode = TestWriteRepository.KEEP;
+        String name = null;
+        JsonNode nameNode = patch.get("name");
+        if (nameNode != null) {
+            if (nameNode.isNull()) {
+                nameMode = TestWriteRepository.CLEAR;
+            } else if (nameNode.isTextual()) {
+                nameMode = TestWriteRepository.APPLY;
+                name = nameNode.asText();
+            } else {
+                throw new IllegalArgumentException("Field 'name' must be a string or null");
+            }
+        }
+
+        int metadataMode = TestWriteRepository.KEEP;
+        String metadataPatch = null;
+        JsonNode metadataNode = patch.get("metadata");
+        if (metadataNode != null) {
+            if (metadataNode.isNull()) {
+                metadataMode = TestWriteRepository.CLEAR;
+            } else if (metadataNode.isObject()) {
+                metadataMode = TestWriteRepository.APPLY;
+                metadataPatch = metadataNode.toString();
+            } else {
+                // A merge patch replaces the column with any non-object, which Test.metadata cannot read back
+                throw new IllegalArgumentException("Field 'metadata' must be an object or null");
+            }
+        }
+
+        Long expectedVersion = parseIfMatch(ifMatch);
+        if (expectedVersion == null) {
+            throw staleOrNotFound(id, ifMatch);
+        }
+
+        return testWriteRepository.mergePatch(id, expectedVersion, nameMode, name, metadataMode, metadataPatch)
+                .orElseThrow(() -> staleOrNotFound(id, ifMatch));
+    }
+
+    /**
+     * Tombstone the test so it disappears from reads and search right away, and queue a
+     * DELETE_TEST operation that removes its runs, artifacts and stored objects in batches.
+     */
+    @Transactional
+    public OperationResponse deleteTest(UUID id) {
+        String externalId = testWriteRepository.tombstone(id)
+                .orElseThrow(() -> new IllegalArgumentException("Test not found: " + id));
+
+        if (!externalId.isEmpty()) {
+            // Evict once the tombstone is visible, so a concurrent ingest cannot re-cache the old id
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ingestService.evictTestId(externalId);
+                }
+            });
+        }
+
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("test_id", id.toString());
+        payload.put("external_id", externalId);
+
+        Operation operation = operationService.createOperation("DELETE_TEST", payload);
+        log.info("Tombstoned test {}, purge queued as operation {}", id, operation.getId());
+
+        return OperationResponse.from(operation);
+    }
+
+    /**
+     * @return the expected version, {@link TestWriteRepository#ANY_VERSION} without a precondition,
+     * or null for a tag that can never match
+     */
+    private Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return TestWriteRepository.ANY_VERSION;
+        }
+        // If-Match uses strong comparison, so weak or malformed tags never match
+        String tag = ifMatch.trim();
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                long version = Long.parseLong(tag.substring(1, tag.length() - 1));
+                return version >= 0 ? version : null;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private RuntimeException staleOrNotFound(UUID id, String ifMatch) {
+        Long current = testRepository.findVersionById(id).orElse(null);
+        if (current == null) {
+            return new IllegalArgumentException("Test not found: " + id);
+        }
+        return new StaleResourceException(
+                "Resource has been modified. Expected version: " + ifMatch +
+                ", current version: \"" + current + "\"");
+    }
+
+    private Set<String> parseFields(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return FIELDS;
+        }
+        Set<String> selected = new LinkedHashSet<>();
+        for (String field : Arrays.stream(fields.split(",")).map(String::trim).toList()) {
+            if (!FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Unknown field: " + field + " (allowed: " + FIELDS + ")");
+            }
+            selected.add(field);
+        }
+        return selected;
+    }
+
+    private void retainFields(TestSummary test, Set<String> selected) {
+        if (!selected.contains("id")) test.setId(null);
+        if (!selected.contains("externalId")) test.setExternalId(null);
+        if (!selected.contains("name")) test.setName(null);
+        if (!selected.contains("metadata")) test.setMetadata(null);
+        if (!selected.contains("createdAt")) test.setCreatedAt(null);
+        if (!selected.contains("updatedAt")) test.setUpdatedAt(null);
+        if (!selected.contains("version")) test.setVersion(null);
+    }
+}
@@ -2,36 +2,54 @@ package com.devhunter.ingest.storage;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ChecksumMode;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
 import software.amazon.awssdk.services.s3.model.GetObjectAttributesRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectAttributesResponse;
-import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
-import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.NoSuchUploadException;
 import software.amazon.awssdk.services.s3.model.ObjectAttributes;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.Part;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
 import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
 import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.UploadPartPresignRequest;
 
 import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.util.Base64;
 import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Slf4j
 @Component
-@ConditionalOnProperty(name = "app.storage.provider", havingValue = "aws")
+@ConditionalOnStorageProvider("aws")
 public class AwsS3StorageProvider implements StorageProvider {
 
     private final S3Client s3Client;
+    // Finalize checks only; responses are handled on the SDK's completion threads, not a servlet thread
+    private final S3AsyncClient s3AsyncClient;
     private final S3Presigner s3Presigner;
     private final String bucketName;
     private final int presignExpirySeconds = 3600; // 1 hour
+    private static final int MAX_DELETE_KEYS = 1000; // DeleteObjects limit per request
 
     public AwsS3StorageProvider(
             @Value("${app.storage.aws.region}") String region,
@@ -48,6 +66,11 @@ public class AwsS3StorageProvider implements StorageProvider {
                 .credentialsProvider(credentialsProvider)
                 .build();
 
+        this.s3AsyncClient = S3AsyncClient.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentialsProvider)
+                .build();
+
         this.s3Presigner = S3Presigner.builder()
                 .region(Region.of(region))
                 .credentialsProvider(credentialsProvider)
@@ -86,26 +109,177 @@ public class AwsS3StorageProvider implements StorageProvider {
     }
 
     @Override
-    public String finalizeUpload(String presignedId, String objectKey, long expectedSize, String expectedSha256) {
-        HeadObjectRequest headRequest = HeadObjectRequest.builder()
+    public CompletableFuture<String> finalizeUploadAsync(String presignedId, String objectKey, long expectedSize,
+                                                         String expectedSha256) {
+        return s3AsyncClient.headObject(req -> req
+                        .bucket(bucketName)
+                        .key(objectKey))
+                .thenApply(headResponse -> {
+                    // Verify size
+                    if (headResponse.contentLength() != expectedSize) {
+                        throw new IllegalArgumentException(String.format(
+                                "Size mismatch: expected %d, got %d", expectedSize, headResponse.contentLength()));
+                    }
+
+                    // The ETag is an MD5 at best (not for multipart objects); the SHA-256 is checked, if
+                    // enabled, by ArtifactVerificationService
+                    String etag = headResponse.eTag().replaceAll("\"", "");
+                    log.info("Finalized S3 object: {} (size: {}, ETag: {})", objectKey, expectedSize, etag);
+
+                    return String.format("s3://%s/%s", bucketName, objectKey);
+                })
+                // Reported like the other providers do, so it is not mistaken for a provider failure
+                .exceptionallyCompose(error -> CompletableFuture.failedFuture(
+                        (error instanceof CompletionException ? error.getCause() : error) instanceof NoSuchKeyException
+                                ? new IllegalStateException("Object does not exist: " + objectKey)
+                                : error));
+    }
+
+    @Override
+    public PresignedUploadInfo initiateMultipartUpload(String filename, String contentType, long sizeBytes) {
+        String objectKey = generateObjectKey(filename);
+        String uploadId = s3Client.createMultipartUpload(req -> req
                 .bucket(bucketName)
                 .key(objectKey)
+                .contentType(contentType))
+                .uploadId();
+
+        return PresignedUploadInfo.builder()
+                .presignedId(UUID.randomUUID().toString())
+                .provider("aws")
+                .expiresInSeconds(presignExpirySeconds)
+                .objectKey(objectKey)
+                .uploadId(uploadId)
                 .build();
+    }
 
-        HeadObjectResponse headResponse = s3Client.headObject(headRequest);
+    @Override
+    public List<PresignedPart> presignUploadParts(String objectKey, String uploadId, String contentType,
+                                                  long sizeBytes, long partSize, List<Integer> partNumbers) {
+        return partNumbers.stream()
+                .map(partNumber -> PresignedPart.builder()
+                        .partNumber(partNumber)
+                        .uploadUrl(s3Presigner.presignUploadPart(UploadPartPresignRequest.builder()
+                                        .signatureDuration(Duration.ofSeconds(presignExpirySeconds))
+                                        .uploadPartRequest(req -> req
+                                                .bucket(bucketName)
+                                                .key(objectKey)
+                                                .uploadId(uploadId)
+                                                .partNumber(partNumber))
+                                        .build())
+                                .url()
+                                .toString())
+                        .headers(Map.of())
+                        .expiresInSeconds(presignExpirySeconds)
+                        .build())
+                .toList();
+    }
 
-        // Verify size
-        if (headResponse.contentLength() != expectedSize) {
-            throw new IllegalArgumentException(
-                    String.format("Size mismatch: expected %d, got %d", expectedSize, headResponse.contentLength())
-            );
+    @Override
+    public void completeMultipartUpload(String objectKey, String uploadId, String contentType, int partCount) {
+        try {
+            complete(objectKey, uploadId, partCount);
+        } catch (NoSuchUploadException e) {
+            // Completed by a concurrent finalize, aborted, or expired at S3
+            throw new IllegalArgumentException("Multipart upload not found: " + objectKey, e);
         }
+    }
+
+    private void complete(String objectKey, String uploadId, int partCount) {
+        // The uploaded parts' ETags come from S3 itself, so clients do not have to collect them
+        Map<Integer, String> eTags = s3Client.listPartsPaginator(req -> req
+                        .bucket(bucketName)
+                        .key(objectKey)
+                        .uploadId(uploadId))
+                .parts()
+                .stream()
+                .collect(Collectors.toMap(Part::partNumber, Part::eTag));
 
-        // Get ETag and verify checksum if available
-        String etag = headResponse.eTag().replaceAll("\"", "");
-        log.info("Finalized S3 object: {} (size: {}, ETag: {})", objectKey, expectedSize, etag);
+        List<Integer> missing = IntStream.rangeClosed(1, partCount)
+                .filter(partNumber -> !eTags.containsKey(partNumber))
+                .boxed()
+                .toList();
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Upload incomplete, missing parts: " + missing);
+        }
 
-        return String.format("s3://%s/%s", bucketName, objectKey);
+        List<CompletedPart> parts = IntStream.rangeClosed(1, partCount)
+                .mapToObj(partNumber -> CompletedPart.builder()
+                        .partNumber(partNumber)
+                        .eTag(eTags.get(partNumber))
+                        .build())
+                .toList();
+        s3Client.completeMultipartUpload(req -> req
+                .bucket(bucketName)
+                .key(objectKey)
+                .uploadId(uploadId)
+                .multipartUpload(upload -> upload.parts(parts)));
+        log.info("Completed S3 multipart upload: {} ({} parts)", objectKey, partCount);
+    }
+
+    @Override
+    public void abortMultipartUpload(String objectKey, String uploadId, int partCount) {
+        s3Client.abortMultipartUpload(req -> req
+                .bucket(bucketName)
+                .key(objectKey)
+                .uploadId(uploadId));
+        log.info("Aborted S3 multipart upload: {}", objectKey);
+    }
+
+    /**
+     * The SHA-256 checksum S3 keeps when the uploader sent x-amz-checksum-sha256. Multipart objects
+     * only have a checksum of part checksums ("...-N"), which is not the object's SHA-256.
+     */
+    @Override
+    public Optional<String> getStoredSha256(String objectKey) {
+        String checksum = s3Client.headObject(req -> req
+                .bucket(bucketName)
+                .key(objectKey)
+                .checksumMode(ChecksumMode.ENABLED))
+                .checksumSHA256();
+        if (checksum == null || checksum.contains("-")) {
+            return Optional.empty();
+        }
+        return Optional.of(HexFormat.of().formatHex(Base64.getDecoder().decode(checksum)));
+    }
+
+    @Override
+    public String presignDownload(String objectKey, int expiresInSeconds) {
+        return s3Presigner.presignGetObject(GetObjectPresignRequest.builder()
+                        .signatureDuration(Duration.ofSeconds(expiresInSeconds))
+                        .getObjectRequest(req -> req.bucket(bucketName).key(objectKey))
+                        .build())
+                .url()
+                .toString();
+    }
+
+    @Override
+    public byte[] readRange(String objectKey, long offset, int length) {
+        return s3Client.getObjectAsBytes(req -> req
+                .bucket(bucketName)
+                .key(objectKey)
+                .range(String.format("bytes=%d-%d", offset, offset + length - 1)))
+                .asByteArray();
+    }
+
+    @Override
+    public void deleteObjects(List<String> objectKeys) {
+        for (int from = 0; from < objectKeys.size(); from += MAX_DELETE_KEYS) {
+            List<ObjectIdentifier> keys = objectKeys.subList(from, Math.min(from + MAX_DELETE_KEYS, objectKeys.size()))
+                    .stream()
+                    .map(key -> ObjectIdentifier.builder().key(key).build())
+                    .toList();
+
+            DeleteObjectsResponse response = s3Client.deleteObjects(req -> req
+                    .bucket(bucketName)
+                    .delete(d -> d.objects(keys).quiet(true)));
+
+            if (response.hasErrors() && !response.errors().isEmpty()) {
+                throw new IllegalStateException(String.format("Failed to delete %d S3 objects, first: %s (%s)",
+                        response.errors().size(), response.errors().get(0).key(), response.errors().get(0).code()));
+            }
+        }
+        log.info("Deleted {} S3 objects from bucket: {}", objectKeys.size(), bucketName);
     }
 
     @Override
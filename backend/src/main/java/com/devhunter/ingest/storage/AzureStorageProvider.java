@@ -1,28 +1,48 @@
 package com.devhunter.ingest.storage;
 
+import com.azure.core.util.Context;
+import com.azure.storage.blob.BlobAsyncClient;
 import com.azure.storage.blob.BlobClient;
 import com.azure.storage.blob.BlobContainerClient;
+import com.azure.storage.blob.BlobServiceAsyncClient;
 import com.azure.storage.blob.BlobServiceClient;
 import com.azure.storage.blob.BlobServiceClientBuilder;
-import com.azure.storage.blob.models.BlobProperties;
+import com.azure.storage.blob.models.BlobErrorCode;
+import com.azure.storage.blob.models.BlobHttpHeaders;
+import com.azure.storage.blob.models.BlobRange;
+import com.azure.storage.blob.models.BlobStorageException;
+import com.azure.storage.blob.models.Block;
+import com.azure.storage.blob.models.BlockListType;
+import com.azure.storage.blob.specialized.BlockBlobClient;
 import com.azure.storage.blob.sas.BlobSasPermission;
 import com.azure.storage.blob.sas.BlobServiceSasSignatureValues;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+import java.io.ByteArrayOutputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.time.OffsetDateTime;
+import java.util.Base64;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Slf4j
 @Component
-@ConditionalOnProperty(name = "app.storage.provider", havingValue = "azure")
+@ConditionalOnStorageProvider("azure")
 public class AzureStorageProvider implements StorageProvider {
 
     private final BlobServiceClient blobServiceClient;
+    // Finalize checks only; responses are handled on the HTTP client's event loop, not a servlet thread
+    private final BlobServiceAsyncClient blobServiceAsyncClient;
     private final String containerName;
     private final int sasExpirySeconds = 3600; // 1 hour
 
@@ -30,9 +50,10 @@ public class AzureStorageProvider implements StorageProvider {
             @Value("${app.storage.azure.connection-string}") String connectionString,
             @Value("${app.storage.azure.container-name}") String containerName) {
         this.containerName = containerName;
-        this.blobServiceClient = new BlobServiceClientBuilder()
-                .connectionString(connectionString)
-                .buildClient();
+        BlobServiceClientBuilder clientBuilder = new BlobServiceClientBuilder()
+                .connectionString(connectionString);
+        this.blobServiceClient = clientBuilder.buildClient();
+        this.blobServiceAsyncClient = clientBuilder.buildAsyncClient();
 
         // Ensure container exists
         BlobContainerClient containerClient = blobServiceClient.getBlobContainerClient(containerName);
@@ -78,28 +99,134 @@ public class AzureStorageProvider implements StorageProvider {
     }
 
     @Override
-    public String finalizeUpload(String presignedId, String objectKey, long expectedSize, String expectedSha256) {
-        BlobContainerClient containerClient = blobServiceClient.getBlobContainerClient(containerName);
-        BlobClient blobClient = containerClient.getBlobClient(objectKey);
+    public CompletableFuture<String> finalizeUploadAsync(String presignedId, String objectKey, long expectedSize,
+                                                         String expectedSha256) {
+        BlobAsyncClient blobClient = blobServiceAsyncClient.getBlobContainerAsyncClient(containerName)
+                .getBlobAsyncClient(objectKey);
 
-        if (!blobClient.exists()) {
-            throw new IllegalStateException("Blob does not exist: " + objectKey);
-        }
+        return blobClient.getProperties()
+                .onErrorMap(e -> e instanceof BlobStorageException storageError
+                                && storageError.getErrorCode() == BlobErrorCode.BLOB_NOT_FOUND,
+                        e -> new IllegalStateException("Blob does not exist: " + objectKey))
+                .map(properties -> {
+                    // Verify size
+                    if (properties.getBlobSize() != expectedSize) {
+                        throw new IllegalArgumentException(String.format(
+                                "Size mismatch: expected %d, got %d", expectedSize, properties.getBlobSize()));
+                    }
 
-        BlobProperties properties = blobClient.getProperties();
+                    // Azure stores no SHA-256; the client's hash is checked by reading the blob back when
+                    // app.storage.verification.enabled is set (ArtifactVerificationService)
+                    log.info("Finalized Azure blob: {} (size: {})", objectKey, expectedSize);
 
-        // Verify size
-        if (properties.getBlobSize() != expectedSize) {
-            throw new IllegalArgumentException(
-                    String.format("Size mismatch: expected %d, got %d", expectedSize, properties.getBlobSize())
-            );
+                    return blobClient.getBlobUrl();
+                })
+                .toFuture();
+    }
+
+    /**
+     * Parts are staged as uncommitted blocks of the target blob and committed as a block list, so
+     * there is no upload to create; the upload id only ties the parts together on our side.
+     */
+    @Override
+    public PresignedUploadInfo initiateMultipartUpload(String filename, String contentType, long sizeBytes) {
+        return PresignedUploadInfo.builder()
+                .presignedId(UUID.randomUUID().toString())
+                .provider("azure")
+                .expiresInSeconds(sasExpirySeconds)
+                .objectKey(generateObjectKey(filename))
+                .uploadId(UUID.randomUUID().toString())
+                .build();
+    }
+
+    @Override
+    public List<PresignedPart> presignUploadParts(String objectKey, String uploadId, String contentType,
+                                                  long sizeBytes, long partSize, List<Integer> partNumbers) {
+        BlobClient blobClient = blobServiceClient.getBlobContainerClient(containerName).getBlobClient(objectKey);
+
+        // One SAS for the blob covers Put Block for every part
+        BlobServiceSasSignatureValues sasValues = new BlobServiceSasSignatureValues(
+                OffsetDateTime.now().plusSeconds(sasExpirySeconds),
+                new BlobSasPermission().setWritePermission(true));
+        String sasToken = blobClient.generateSas(sasValues);
+
+        return partNumbers.stream()
+                .map(partNumber -> PresignedPart.builder()
+                        .partNumber(partNumber)
+                        .uploadUrl(blobClient.getBlobUrl()
+                                + "?comp=block&blockid=" + URLEncoder.encode(blockId(partNumber), StandardCharsets.UTF_8)
+                                + "&" + sasToken)
+                        .headers(Map.of())
+                        .expiresInSeconds(sasExpirySeconds)
+                        .build())
+                .toList();
+    }
+
+    @Override
+    public void completeMultipartUpload(String objectKey, String uploadId, String contentType, int partCount) {
+        BlockBlobClient blockBlobClient = blobServiceClient.getBlobContainerClient(containerName)
+                .getBlobClient(objectKey)
+                .getBlockBlobClient();
+
+        Set<String> staged = blockBlobClient.listBlocks(BlockListType.UNCOMMITTED).getUncommittedBlocks().stream()
+                .map(Block::getName)
+                .collect(Collectors.toSet());
+        List<String> blockIds = IntStream.rangeClosed(1, partCount)
+                .mapToObj(AzureStorageProvider::blockId)
+                .toList();
+        List<Integer> missing = IntStream.rangeClosed(1, partCount)
+                .filter(partNumber -> !staged.contains(blockIds.get(partNumber - 1)))
+                .boxed()
+                .toList();
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Upload incomplete, missing parts: " + missing);
         }
 
-        // Note: Azure doesn't automatically calculate SHA256, would need custom implementation
-        // For now, we trust the client-provided hash
-        log.info("Finalized Azure blob: {} (size: {})", objectKey, expectedSize);
+        blockBlobClient.commitBlockListWithResponse(blockIds,
+                new BlobHttpHeaders().setContentType(contentType), null, null, null, null, null);
+        log.info("Committed Azure block list: {} ({} blocks)", objectKey, partCount);
+    }
+
+    @Override
+    public void abortMultipartUpload(String objectKey, String uploadId, int partCount) {
+        // Uncommitted blocks cannot be deleted on their own; Azure discards them after a week
+        log.info("Abandoned Azure block upload: {}", objectKey);
+    }
+
+    /**
+     * Azure only keeps an MD5 (and only when the uploader set it), never a SHA-256
+     */
+    @Override
+    public Optional<String> getStoredSha256(String objectKey) {
+        return Optional.empty();
+    }
+
+    @Override
+    public String presignDownload(String objectKey, int expiresInSeconds) {
+        BlobClient blobClient = blobServiceClient.getBlobContainerClient(containerName).getBlobClient(objectKey);
+        BlobServiceSasSignatureValues sasValues = new BlobServiceSasSignatureValues(
+                OffsetDateTime.now().plusSeconds(expiresInSeconds),
+                new BlobSasPermission().setReadPermission(true)
+        );
+        return blobClient.getBlobUrl() + "?" + blobClient.generateSas(sasValues);
+    }
+
+    @Override
+    public byte[] readRange(String objectKey, long offset, int length) {
+        BlobClient blobClient = blobServiceClient.getBlobContainerClient(containerName).getBlobClient(objectKey);
+        ByteArrayOutputStream content = new ByteArrayOutputStream(length);
+        blobClient.downloadStreamWithResponse(content, new BlobRange(offset, (long) length),
+                null, null, false, null, Context.NONE);
+        return content.toByteArray();
+    }
 
-        return blobClient.getBlobUrl();
+    @Override
+    public void deleteObjects(List<String> objectKeys) {
+        BlobContainerClient containerClient = blobServiceClient.getBlobContainerClient(containerName);
+        for (String objectKey : objectKeys) {
+            containerClient.getBlobClient(objectKey).deleteIfExists();
+        }
+        log.info("Deleted {} Azure blobs from container: {}", objectKeys.size(), containerName);
     }
 
     @Override
@@ -118,6 +245,12 @@ public class AzureStorageProvider implements StorageProvider {
         }
     }
 
+    // Block ids of a blob must all have the same length before encoding
+    private static String blockId(int partNumber) {
+        return Base64.getEncoder().encodeToString(
+                String.format("part-%06d", partNumber).getBytes(StandardCharsets.UTF_8));
+    }
+
     private String generateObjectKey(String filename) {
         String sanitized = filename.replaceAll("[^a-zA-Z0-9._-]", "_");
         return String.format("uploads/%s/%s",
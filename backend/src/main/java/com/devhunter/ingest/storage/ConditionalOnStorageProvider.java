@@ -0,0 +1,25 @@
+package com.devhunter.ingest.storage;
+
+import org.springframework.context.annotation.Conditional;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Creates the bean only if the named storage provider is configured, in {@code app.storage.providers}
+ * or else the single {@code app.storage.provider}. Several providers can be active at once.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Conditional(OnStorageProviderCondition.class)
+public @interface ConditionalOnStorageProvider {
+
+    /**
+     * Provider name (azure, aws, gcs, local)
+     */
+    String value();
+}
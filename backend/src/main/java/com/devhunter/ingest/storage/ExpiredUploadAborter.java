@@ -0,0 +1,46 @@
+package com.devhunter.ingest.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aborts multipart uploads whose presigned entry expired (or was evicted) before finalize, so their
+ * parts do not keep using storage. Best effort: uploads this misses (a node that died with an
+ * in-memory store, a failed abort) are left to the provider, e.g. an S3 lifecycle rule with
+ * AbortIncompleteMultipartUpload.
+ */
+@Slf4j
+@Component
+public class ExpiredUploadAborter {
+
+    private final Map<String, StorageProvider> providers = new HashMap<>();
+
+    public ExpiredUploadAborter(List<StorageProvider> storageProviders) {
+        storageProviders.forEach(provider -> providers.put(provider.getProviderName(), provider));
+    }
+
+    /**
+     * Abort the upload if it is a multipart one that was not assembled yet; never throws
+     */
+    public void abort(PresignedUploadInfo info) {
+        if (info.getUploadId() == null) {
+            return;
+        }
+        StorageProvider provider = providers.get(info.getProvider());
+        if (provider == null) {
+            log.warn("Cannot abort expired multipart upload {}: unknown provider {}", info.getObjectKey(),
+                    info.getProvider());
+            return;
+        }
+        try {
+            provider.abortMultipartUpload(info.getObjectKey(), info.getUploadId(), info.getPartCount());
+            log.debug("Aborted expired multipart upload {} on {}", info.getObjectKey(), info.getProvider());
+        } catch (RuntimeException e) {
+            log.warn("Failed to abort expired multipart upload {} on {}", info.getObjectKey(), info.getProvider(), e);
+        }
+    }
+}
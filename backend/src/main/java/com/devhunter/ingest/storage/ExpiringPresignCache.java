@@ -0,0 +1,109 @@
+package com.devhunter.ingest.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Size-bounded Caffeine cache of presigned uploads where each entry expires at its own time.
+ */
+class ExpiringPresignCache {
+
+    private record Entry(PresignedUploadInfo info, Instant expiresAt) {
+    }
+
+    private final Cache<String, Entry> cache;
+
+    ExpiringPresignCache(long maxEntries) {
+        this(maxEntries, null);
+    }
+
+    /**
+     * @param onExpired called with entries that expired or were evicted, never with removed ones
+     */
+    ExpiringPresignCache(long maxEntries, Consumer<PresignedUploadInfo> onExpired) {
+        Caffeine<String, Entry> builder = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfter(new Expiry<String, Entry>() {
+                    @Override
+                    public long expireAfterCreate(String key, Entry entry, long currentTime) {
+                        return Math.max(0, Duration.between(Instant.now(), entry.expiresAt()).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, entry, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                });
+        if (onExpired != null) {
+            builder.removalListener((String key, Entry entry, RemovalCause cause) -> {
+                if (entry != null && (cause == RemovalCause.EXPIRED || cause == RemovalCause.SIZE)) {
+                    onExpired.accept(entry.info());
+                }
+            });
+        }
+        this.cache = builder.build();
+    }
+
+    void put(PresignedUploadInfo info, Instant expiresAt) {
+        cache.put(info.getPresignedId(), new Entry(info, expiresAt));
+    }
+
+    Optional<PresignedUploadInfo> get(String presignedId) {
+        return Optional.ofNullable(cache.getIfPresent(presignedId)).map(Entry::info);
+    }
+
+    void markAssembled(String presignedId) {
+        cache.asMap().computeIfPresent(presignedId,
+                (id, entry) -> new Entry(entry.info().toBuilder().uploadId(null).build(), entry.expiresAt()));
+    }
+
+    /**
+     * Expire due entries now rather than on the next access
+     */
+    void cleanUp() {
+        cache.cleanUp();
+    }
+
+    /**
+     * Inside a transaction, the entry comes back if the transaction rolls back
+     */
+    boolean remove(String presignedId) {
+        Entry removed = cache.asMap().remove(presignedId);
+        if (removed == null) {
+            return false;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        cache.asMap().putIfAbsent(presignedId, removed);
+                    }
+                }
+            });
+        }
+        return true;
+    }
+
+    /**
+     * When an upload expires: its URL's lifetime from now, or {@code defaultTtlSeconds} if the provider gave none
+     */
+    static Instant expiresAt(PresignedUploadInfo info, long defaultTtlSeconds) {
+        Integer seconds = info.getExpiresInSeconds();
+        return Instant.now().plusSeconds(seconds != null ? seconds : defaultTtlSeconds);
+    }
+}
@@ -1,31 +1,47 @@
 package com.devhunter.ingest.storage;
 
 import com.google.auth.oauth2.GoogleCredentials;
+import com.google.cloud.ReadChannel;
 import com.google.cloud.storage.Blob;
 import com.google.cloud.storage.BlobId;
 import com.google.cloud.storage.BlobInfo;
 import com.google.cloud.storage.Storage;
 import com.google.cloud.storage.StorageOptions;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
 @Slf4j
 @Component
-@ConditionalOnProperty(name = "app.storage.provider", havingValue = "gcs")
+@ConditionalOnStorageProvider("gcs")
 public class GcsStorageProvider implements StorageProvider {
 
     private final Storage storage;
     private final String bucketName;
     private final int presignExpirySeconds = 3600; // 1 hour
+    private static final int MAX_COMPOSE_SOURCES = 32; // Compose limit per request
+
+    // Runs the blocking client for the async methods
+    private final ExecutorService ioExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
     public GcsStorageProvider(
             @Value("${app.storage.gcs.project-id}") String projectId,
@@ -75,25 +91,159 @@ public class GcsStorageProvider implements StorageProvider {
                 .build();
     }
 
+    /**
+     * The GCS client has no async API: the blocking call runs on a virtual thread, so it holds no
+     * request thread while it waits.
+     */
     @Override
-    public String finalizeUpload(String presignedId, String objectKey, long expectedSize, String expectedSha256) {
-        BlobId blobId = BlobId.of(bucketName, objectKey);
-        Blob blob = storage.get(blobId);
+    public CompletableFuture<String> finalizeUploadAsync(String presignedId, String objectKey, long expectedSize,
+                                                         String expectedSha256) {
+        return CompletableFuture.supplyAsync(() -> {
+            BlobId blobId = BlobId.of(bucketName, objectKey);
+            Blob blob = storage.get(blobId);
+
+            if (blob == null) {
+                throw new IllegalStateException("Blob does not exist: " + objectKey);
+            }
+
+            // Verify size
+            if (blob.getSize() != expectedSize) {
+                throw new IllegalArgumentException(
+                        String.format("Size mismatch: expected %d, got %d", expectedSize, blob.getSize())
+                );
+            }
+
+            log.info("Finalized GCS object: {} (size: {})", objectKey, expectedSize);
+
+            return String.format("gs://%s/%s", bucketName, objectKey);
+        }, ioExecutor);
+    }
 
-        if (blob == null) {
-            throw new IllegalStateException("Blob does not exist: " + objectKey);
+    /**
+     * Parts are uploaded as separate objects next to the target and composed into it on completion.
+     * A resumable upload would keep one stream per object; compose lets parts go up in parallel.
+     */
+    @Override
+    public PresignedUploadInfo initiateMultipartUpload(String filename, String contentType, long sizeBytes) {
+        return PresignedUploadInfo.builder()
+                .presignedId(UUID.randomUUID().toString())
+                .provider("gcs")
+                .expiresInSeconds(presignExpirySeconds)
+                .objectKey(generateObjectKey(filename))
+                .uploadId(UUID.randomUUID().toString())
+                .build();
+    }
+
+    @Override
+    public List<PresignedPart> presignUploadParts(String objectKey, String uploadId, String contentType,
+                                                  long sizeBytes, long partSize, List<Integer> partNumbers) {
+        return partNumbers.stream()
+                .map(partNumber -> {
+                    BlobInfo partInfo = BlobInfo.newBuilder(BlobId.of(bucketName, partKey(objectKey, uploadId, partNumber)))
+                            .setContentType(contentType)
+                            .build();
+                    java.net.URL signedUrl = storage.signUrl(
+                            partInfo,
+                            presignExpirySeconds,
+                            TimeUnit.SECONDS,
+                            Storage.SignUrlOption.httpMethod(com.google.cloud.storage.HttpMethod.PUT),
+                            Storage.SignUrlOption.withV4Signature()
+                    );
+                    return PresignedPart.builder()
+                            .partNumber(partNumber)
+                            .uploadUrl(signedUrl.toString())
+                            .headers(Map.of("Content-Type", contentType))
+                            .expiresInSeconds(presignExpirySeconds)
+                            .build();
+                })
+                .toList();
+    }
+
+    @Override
+    public void completeMultipartUpload(String objectKey, String uploadId, String contentType, int partCount) {
+        List<String> partKeys = IntStream.rangeClosed(1, partCount)
+                .mapToObj(partNumber -> partKey(objectKey, uploadId, partNumber))
+                .toList();
+
+        // One batch request for all part lookups
+        List<Blob> parts = storage.get(partKeys.stream().map(key -> BlobId.of(bucketName, key)).toList());
+        List<Integer> missing = IntStream.rangeClosed(1, partCount)
+                .filter(partNumber -> parts.get(partNumber - 1) == null)
+                .boxed()
+                .toList();
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Upload incomplete, missing parts: " + missing);
         }
 
-        // Verify size
-        if (blob.getSize() != expectedSize) {
-            throw new IllegalArgumentException(
-                    String.format("Size mismatch: expected %d, got %d", expectedSize, blob.getSize())
-            );
+        // Compose takes at most 32 sources, so larger uploads are composed in rounds of intermediates
+        List<String> intermediates = new ArrayList<>();
+        List<String> sources = partKeys;
+        for (int round = 1; sources.size() > MAX_COMPOSE_SOURCES; round++) {
+            List<String> next = new ArrayList<>();
+            for (int from = 0; from < sources.size(); from += MAX_COMPOSE_SOURCES) {
+                String target = String.format("%s.compose-%s-%d-%d", objectKey, uploadId, round, next.size());
+                compose(sources.subList(from, Math.min(from + MAX_COMPOSE_SOURCES, sources.size())), target, contentType);
+                next.add(target);
+            }
+            intermediates.addAll(next);
+            sources = next;
         }
+        compose(sources, objectKey, contentType);
+
+        List<String> leftovers = new ArrayList<>(partKeys);
+        leftovers.addAll(intermediates);
+        deleteObjects(leftovers);
+        log.info("Composed GCS object: {} ({} parts)", objectKey, partCount);
+    }
+
+    @Override
+    public void abortMultipartUpload(String objectKey, String uploadId, int partCount) {
+        deleteObjects(IntStream.rangeClosed(1, partCount)
+                .mapToObj(partNumber -> partKey(objectKey, uploadId, partNumber))
+                .toList());
+    }
 
-        log.info("Finalized GCS object: {} (size: {})", objectKey, expectedSize);
+    /**
+     * GCS keeps CRC32C and MD5 of objects, never a SHA-256
+     */
+    @Override
+    public Optional<String> getStoredSha256(String objectKey) {
+        return Optional.empty();
+    }
 
-        return String.format("gs://%s/%s", bucketName, objectKey);
+    @Override
+    public String presignDownload(String objectKey, int expiresInSeconds) {
+        return storage.signUrl(
+                BlobInfo.newBuilder(BlobId.of(bucketName, objectKey)).build(),
+                expiresInSeconds,
+                TimeUnit.SECONDS,
+                Storage.SignUrlOption.httpMethod(com.google.cloud.storage.HttpMethod.GET),
+                Storage.SignUrlOption.withV4Signature()
+        ).toString();
+    }
+
+    @Override
+    public byte[] readRange(String objectKey, long offset, int length) {
+        ByteBuffer content = ByteBuffer.allocate(length);
+        try (ReadChannel reader = storage.reader(BlobId.of(bucketName, objectKey))) {
+            reader.seek(offset);
+            reader.limit(offset + length);
+            while (content.hasRemaining() && reader.read(content) >= 0) {
+                // Read until the range is filled or the object ends
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + objectKey, e);
+        }
+        return Arrays.copyOf(content.array(), content.position());
+    }
+
+    @Override
+    public void deleteObjects(List<String> objectKeys) {
+        // Sent as one batch request; missing objects come back as false and are ignored
+        storage.delete(objectKeys.stream()
+                .map(key -> BlobId.of(bucketName, key))
+                .toList());
+        log.info("Deleted {} GCS objects from bucket: {}", objectKeys.size(), bucketName);
     }
 
     @Override
@@ -112,11 +262,28 @@ public class GcsStorageProvider implements StorageProvider {
         }
     }
 
+    private void compose(List<String> sourceKeys, String targetKey, String contentType) {
+        storage.compose(Storage.ComposeRequest.newBuilder()
+                .addSource(sourceKeys)
+                .setTarget(BlobInfo.newBuilder(BlobId.of(bucketName, targetKey))
+                        .setContentType(contentType)
+                        .build())
+                .build());
+    }
+
+    private static String partKey(String objectKey, String uploadId, int partNumber) {
+        return String.format("%s.part-%s-%05d", objectKey, uploadId, partNumber);
+    }
+
     private String generateObjectKey(String filename) {
         String sanitized = filename.replaceAll("[^a-zA-Z0-9._-]", "_");
         return String.format("uploads/%s/%s",
                 OffsetDateTime.now().toLocalDate(),
                 UUID.randomUUID() + "_" + sanitized);
     }
-}
 
+    @PreDestroy
+    void shutdown() {
+        ioExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,65 @@
+package com.devhunter.ingest.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Single-node store: entries live in this process only, so finalize must reach the node that
+ * presigned. Bounded to {@code app.storage.presign.max-entries}; past that, the least useful
+ * entries are evicted before they expire. Multipart uploads of entries that expire or are evicted
+ * are aborted.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.presign.store", havingValue = "memory")
+public class InMemoryPresignStore implements PresignStore {
+
+    private final ExpiringPresignCache cache;
+    private final long defaultTtlSeconds;
+
+    public InMemoryPresignStore(ExpiredUploadAborter expiredUploadAborter,
+                                @Value("${app.storage.presign.max-entries:100000}") long maxEntries,
+                                @Value("${app.storage.presign.default-ttl-seconds:3600}") long defaultTtlSeconds) {
+        // Aborting is a provider call; it must not block the cache's maintenance
+        this.cache = new ExpiringPresignCache(maxEntries,
+                info -> Thread.ofVirtual().start(() -> expiredUploadAborter.abort(info)));
+        this.defaultTtlSeconds = defaultTtlSeconds;
+    }
+
+    @Override
+    public void put(PresignedUploadInfo info) {
+        cache.put(info, ExpiringPresignCache.expiresAt(info, defaultTtlSeconds));
+    }
+
+    @Override
+    public void putAll(List<PresignedUploadInfo> infos) {
+        infos.forEach(this::put);
+    }
+
+    @Override
+    public Optional<PresignedUploadInfo> get(String presignedId) {
+        return cache.get(presignedId);
+    }
+
+    @Override
+    public void markAssembled(String presignedId) {
+        cache.markAssembled(presignedId);
+    }
+
+    @Override
+    public boolean remove(String presignedId) {
+        return cache.remove(presignedId);
+    }
+
+    /**
+     * Expire due entries even without traffic, so their multipart uploads are aborted
+     */
+    @Scheduled(fixedRate = 3600000) // Run every hour
+    public void cleanupExpiredUploads() {
+        cache.cleanUp();
+    }
+}
@@ -0,0 +1,192 @@
+package com.devhunter.ingest.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Cluster-wide store in the presigned_uploads table, so finalize works on any node. A local
+ * near-cache serves finalizes that return to the presigning node without a read; the delete in
+ * {@link #remove} is the authority, so a stale near-cache entry cannot finalize an upload twice.
+ * An hourly sweep deletes expired rows, aborting their multipart uploads first.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.storage.presign.store", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcPresignStore implements PresignStore {
+
+    private static final String INSERT_SQL = """
+        INSERT INTO presigned_uploads (presigned_id, provider, object_key, filename, content_type, expires_at,
+                                       upload_id, size_bytes, part_size, part_count)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+
+    private static final String FIND_SQL = """
+        SELECT presigned_id, provider, object_key, filename, content_type, expires_at,
+               upload_id, size_bytes, part_size, part_count
+        FROM presigned_uploads
+        WHERE presigned_id = ? AND expires_at > now()
+        """;
+
+    private static final String DELETE_SQL =
+            "DELETE FROM presigned_uploads WHERE presigned_id = ? AND expires_at > now()";
+
+    private static final String DELETE_EXPIRED_SQL = "DELETE FROM presigned_uploads WHERE expires_at <= now()";
+
+    private static final String MARK_ASSEMBLED_SQL =
+            "UPDATE presigned_uploads SET upload_id = NULL WHERE presigned_id = ? AND expires_at > now()";
+
+    // Locked so nodes sweeping at the same time abort each upload once
+    private static final String CLAIM_EXPIRED_MULTIPART_SQL = """
+        SELECT presigned_id, provider, object_key, upload_id, part_count
+        FROM presigned_uploads
+        WHERE expires_at <= now() AND upload_id IS NOT NULL
+        LIMIT ?
+        FOR UPDATE SKIP LOCKED
+        """;
+
+    private static final String DELETE_BY_ID_SQL = "DELETE FROM presigned_uploads WHERE presigned_id = ?";
+
+    private static final int SWEEP_BATCH_SIZE = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate sweepTransaction;
+    private final ExpiredUploadAborter expiredUploadAborter;
+    private final ExpiringPresignCache nearCache;
+    private final long defaultTtlSeconds;
+
+    public JdbcPresignStore(DataSource dataSource,
+                            PlatformTransactionManager transactionManager,
+                            ExpiredUploadAborter expiredUploadAborter,
+                            @Value("${app.storage.presign.max-entries:100000}") long maxEntries,
+                            @Value("${app.storage.presign.default-ttl-seconds:3600}") long defaultTtlSeconds) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.sweepTransaction = new TransactionTemplate(transactionManager);
+        this.expiredUploadAborter = expiredUploadAborter;
+        this.nearCache = new ExpiringPresignCache(maxEntries);
+        this.defaultTtlSeconds = defaultTtlSeconds;
+    }
+
+    @Override
+    public void put(PresignedUploadInfo info) {
+        putAll(List.of(info));
+    }
+
+    @Override
+    public void putAll(List<PresignedUploadInfo> infos) {
+        List<Instant> expiries = infos.stream()
+                .map(info -> ExpiringPresignCache.expiresAt(info, defaultTtlSeconds))
+                .toList();
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                PresignedUploadInfo info = infos.get(i);
+                ps.setString(1, info.getPresignedId());
+                ps.setString(2, info.getProvider());
+                ps.setString(3, info.getObjectKey());
+                ps.setString(4, info.getFilename());
+                ps.setString(5, info.getContentType());
+                ps.setObject(6, expiries.get(i).atOffset(ZoneOffset.UTC));
+                ps.setString(7, info.getUploadId());
+                ps.setObject(8, info.getSizeBytes(), Types.BIGINT);
+                ps.setObject(9, info.getPartSize(), Types.BIGINT);
+                ps.setObject(10, info.getPartCount(), Types.INTEGER);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return infos.size();
+            }
+        });
+        for (int i = 0; i < infos.size(); i++) {
+            nearCache.put(infos.get(i), expiries.get(i));
+        }
+    }
+
+    @Override
+    public Optional<PresignedUploadInfo> get(String presignedId) {
+        Optional<PresignedUploadInfo> cached = nearCache.get(presignedId);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        // Presigned on another node (or evicted here); misses are not cached, the row may not be visible yet
+        List<PresignedUploadInfo> rows = jdbcTemplate.query(FIND_SQL, this::mapRow, presignedId);
+        return rows.stream().findFirst();
+    }
+
+    @Override
+    public void markAssembled(String presignedId) {
+        jdbcTemplate.update(MARK_ASSEMBLED_SQL, presignedId);
+        nearCache.markAssembled(presignedId);
+    }
+
+    @Override
+    public boolean remove(String presignedId) {
+        nearCache.remove(presignedId);
+        return jdbcTemplate.update(DELETE_SQL, presignedId) > 0;
+    }
+
+    @Scheduled(fixedRate = 3600000) // Run every hour
+    public void cleanupExpiredUploads() {
+        // Multipart uploads are aborted before their row goes: it holds the only reference to the parts
+        int aborted = 0;
+        for (int batch = SWEEP_BATCH_SIZE; batch == SWEEP_BATCH_SIZE; aborted += batch) {
+            batch = sweepTransaction.execute(status -> abortExpiredMultipartUploads());
+        }
+        int deleted = jdbcTemplate.update(DELETE_EXPIRED_SQL);
+        if (aborted + deleted > 0) {
+            log.info("Cleaned up {} expired presigned uploads, {} of them multipart", aborted + deleted, aborted);
+        }
+    }
+
+    private int abortExpiredMultipartUploads() {
+        List<PresignedUploadInfo> expired = jdbcTemplate.query(CLAIM_EXPIRED_MULTIPART_SQL, (rs, rowNum) ->
+                PresignedUploadInfo.builder()
+                        .presignedId(rs.getString("presigned_id"))
+                        .provider(rs.getString("provider"))
+                        .objectKey(rs.getString("object_key"))
+                        .uploadId(rs.getString("upload_id"))
+                        .partCount(rs.getObject("part_count", Integer.class))
+                        .build(), SWEEP_BATCH_SIZE);
+        // Failures are logged and the row deleted all the same; the provider's own expiry is the backstop
+        expired.forEach(expiredUploadAborter::abort);
+        jdbcTemplate.batchUpdate(DELETE_BY_ID_SQL, expired, expired.size(),
+                (ps, info) -> ps.setString(1, info.getPresignedId()));
+        return expired.size();
+    }
+
+    private PresignedUploadInfo mapRow(ResultSet rs, int rowNum) throws SQLException {
+        Instant expiresAt = rs.getObject("expires_at", OffsetDateTime.class).toInstant();
+        PresignedUploadInfo info = PresignedUploadInfo.builder()
+                .presignedId(rs.getString("presigned_id"))
+                .provider(rs.getString("provider"))
+                .objectKey(rs.getString("object_key"))
+                .filename(rs.getString("filename"))
+                .contentType(rs.getString("content_type"))
+                .uploadId(rs.getString("upload_id"))
+                .sizeBytes(rs.getObject("size_bytes", Long.class))
+                .partSize(rs.getObject("part_size", Long.class))
+                .partCount(rs.getObject("part_count", Integer.class))
+                .expiresInSeconds((int) Math.max(0, expiresAt.getEpochSecond() - Instant.now().getEpochSecond()))
+                .build();
+        nearCache.put(info, expiresAt);
+        return info;
+    }
+}
@@ -0,0 +1,415 @@
+package com.devhunter.ingest.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
+
+/**
+ * Stores objects on a local (or mounted) file system, for on-prem installs and tests. Uploads and
+ * downloads go to the service itself, through HMAC-signed URLs served by
+ * {@code LocalStorageController}. The SHA-256 of an upload is computed while it is written and kept
+ * next to the object, so verifying it needs no read.
+ */
+@Slf4j
+@Component
+@ConditionalOnStorageProvider("local")
+public class LocalStorageProvider implements StorageProvider {
+
+    public static final String OBJECTS_PATH = "/v1/storage/local/objects";
+
+    private static final int BUFFER_SIZE = 1 << 20; // 1 MiB per upload in flight, off-heap
+    private static final int MAX_POOLED_BUFFERS = 64;
+    private static final int MIN_SIGNING_KEY_LENGTH = 32;
+    private static final String SHA256_SUFFIX = ".sha256";
+
+    private final Path rootDir;
+    private final Path tempDir;
+    private final String baseUrl;
+    private final LocalUrlSigner signer;
+    private final int presignExpirySeconds = 3600; // 1 hour
+    private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+
+    public LocalStorageProvider(
+            @Value("${app.storage.local.root-dir}") String rootDir,
+            @Value("${app.storage.local.base-url}") String baseUrl,
+            @Value("${app.storage.local.signing-key:}") String signingKey) throws IOException {
+        if (signingKey == null || signingKey.length() < MIN_SIGNING_KEY_LENGTH) {
+            throw new IllegalStateException(String.format(
+                    "app.storage.local.signing-key must be at least %d characters", MIN_SIGNING_KEY_LENGTH));
+        }
+        this.rootDir = Paths.get(rootDir).toAbsolutePath().normalize();
+        // Uploads are written here and renamed into place; same file system, so the rename is atomic
+        this.tempDir = this.rootDir.resolve(".tmp");
+        Files.createDirectories(this.tempDir);
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.signer = new LocalUrlSigner(signingKey.getBytes(StandardCharsets.UTF_8));
+        log.info("Initialized local storage provider in: {}", this.rootDir);
+    }
+
+    @Override
+    public PresignedUploadInfo generatePresignedUpload(String filename, String contentType, long sizeBytes) {
+        String objectKey = generateObjectKey(filename);
+
+        return PresignedUploadInfo.builder()
+                .presignedId(UUID.randomUUID().toString())
+                .uploadUrl(signedUrl("PUT", objectKey, sizeBytes))
+                .provider("local")
+                .headers(Map.of("Content-Type", contentType))
+                .expiresInSeconds(presignExpirySeconds)
+                .objectKey(objectKey)
+                .build();
+    }
+
+    /**
+     * A stat of a local file: completes on the caller's thread.
+     */
+    @Override
+    public CompletableFuture<String> finalizeUploadAsync(String presignedId, String objectKey, long expectedSize,
+                                                         String expectedSha256) {
+        try {
+            Path path = resolve(objectKey);
+            if (!Files.isRegularFile(path)) {
+                throw new IllegalStateException("Object does not exist: " + objectKey);
+            }
+
+            // Verify size
+            long size = Files.size(path);
+            if (size != expectedSize) {
+                throw new IllegalArgumentException(
+                        String.format("Size mismatch: expected %d, got %d", expectedSize, size)
+                );
+            }
+
+            log.info("Finalized local object: {} (size: {})", objectKey, expectedSize);
+
+            return CompletableFuture.completedFuture("local://" + objectKey);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new UncheckedIOException("Failed to stat " + objectKey, e));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Parts are stored as separate files next to the target and concatenated into it on completion.
+     */
+    @Override
+    public PresignedUploadInfo initiateMultipartUpload(String filename, String contentType, long sizeBytes) {
+        return PresignedUploadInfo.builder()
+                .presignedId(UUID.randomUUID().toString())
+                .provider("local")
+                .expiresInSeconds(presignExpirySeconds)
+                .objectKey(generateObjectKey(filename))
+                .uploadId(UUID.randomUUID().toString())
+                .build();
+    }
+
+    @Override
+    public List<PresignedPart> presignUploadParts(String objectKey, String uploadId, String contentType,
+                                                  long sizeBytes, long partSize, List<Integer> partNumbers) {
+        return partNumbers.stream()
+                .map(partNumber -> PresignedPart.builder()
+                        .partNumber(partNumber)
+                        .uploadUrl(signedUrl("PUT", partKey(objectKey, uploadId, partNumber),
+                                Math.min(partSize, sizeBytes - (partNumber - 1) * partSize)))
+                        .headers(Map.of("Content-Type", contentType))
+                        .expiresInSeconds(presignExpirySeconds)
+                        .build())
+                .toList();
+    }
+
+    @Override
+    public void completeMultipartUpload(String objectKey, String uploadId, String contentType, int partCount) {
+        List<String> partKeys = IntStream.rangeClosed(1, partCount)
+                .mapToObj(partNumber -> partKey(objectKey, uploadId, partNumber))
+                .toList();
+        List<Integer> missing = IntStream.rangeClosed(1, partCount)
+                .filter(partNumber -> !Files.isRegularFile(resolve(partKeys.get(partNumber - 1))))
+                .boxed()
+                .toList();
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Upload incomplete, missing parts: " + missing);
+        }
+
+        Path temp = tempDir.resolve(UUID.randomUUID() + ".upload");
+        try {
+            try (FileChannel target = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                for (String partKey : partKeys) {
+                    // File to file: copy_file_range on Linux, the bytes never reach user space
+                    try (FileChannel part = FileChannel.open(resolve(partKey), StandardOpenOption.READ)) {
+                        long size = part.size();
+                        for (long position = 0; position < size; ) {
+                            position += part.transferTo(position, size - position, target);
+                        }
+                    }
+                }
+                target.force(false);
+            }
+            // The parts' checksums say nothing about the whole; verification reads it back
+            moveIntoPlace(temp, objectKey, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to assemble " + objectKey, e);
+        } finally {
+            deleteQuietly(temp);
+        }
+
+        deleteObjects(partKeys);
+        log.info("Assembled local object: {} ({} parts)", objectKey, partCount);
+    }
+
+    @Override
+    public void abortMultipartUpload(String objectKey, String uploadId, int partCount) {
+        deleteObjects(IntStream.rangeClosed(1, partCount)
+                .mapToObj(partNumber -> partKey(objectKey, uploadId, partNumber))
+                .toList());
+    }
+
+    /**
+     * The SHA-256 computed when the object was uploaded in one piece
+     */
+    @Override
+    public Optional<String> getStoredSha256(String objectKey) {
+        try {
+            return Optional.of(Files.readString(checksumPath(resolve(objectKey))).trim());
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read checksum of " + objectKey, e);
+        }
+    }
+
+    /**
+     * Downloads are served by this service too
+     */
+    @Override
+    public String presignDownload(String objectKey, int expiresInSeconds) {
+        return signedUrl("GET", objectKey, null, Instant.now().getEpochSecond() + expiresInSeconds);
+    }
+
+    @Override
+    public byte[] readRange(String objectKey, long offset, int length) {
+        ByteBuffer content = ByteBuffer.allocate(length);
+        try (FileChannel file = FileChannel.open(resolve(objectKey), StandardOpenOption.READ)) {
+            while (content.hasRemaining() && file.read(content, offset + content.position()) >= 0) {
+                // Read until the range is filled or the file ends
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + objectKey, e);
+        }
+        return Arrays.copyOf(content.array(), content.position());
+    }
+
+    @Override
+    public void deleteObjects(List<String> objectKeys) {
+        try {
+            for (String objectKey : objectKeys) {
+                Path path = resolve(objectKey);
+                Files.deleteIfExists(path);
+                Files.deleteIfExists(checksumPath(path));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete local objects", e);
+        }
+        log.info("Deleted {} local objects from: {}", objectKeys.size(), rootDir);
+    }
+
+    @Override
+    public String getProviderName() {
+        return "local";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return Files.isDirectory(rootDir) && Files.isWritable(rootDir);
+    }
+
+    /**
+     * Whether a request to {@link #OBJECTS_PATH} carries a valid, unexpired signature
+     *
+     * @param maxBytes the size bound of the upload URL, null for downloads
+     */
+    public boolean isValidSignature(String method, String objectKey, long expires, Long maxBytes, String signature) {
+        return signer.verify(method, objectKey, expires, maxBytes, signature, Instant.now().getEpochSecond());
+    }
+
+    /**
+     * Stream a request body into the object. The body passes through one direct buffer, so it is
+     * never held on the heap, and is hashed on the way; the object only appears, atomically, once
+     * it is complete and on disk.
+     *
+     * @param maxBytes the largest body accepted, null for no bound
+     * @return the SHA-256 of the object (hex)
+     * @throws IllegalArgumentException if the body is larger than {@code maxBytes}
+     */
+    public String write(String objectKey, Long maxBytes, ReadableByteChannel body) {
+        Path temp = tempDir.resolve(UUID.randomUUID() + ".upload");
+        MessageDigest sha256 = newSha256();
+        ByteBuffer buffer = takeBuffer();
+        try {
+            long written = 0;
+            try (FileChannel file = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                boolean eof = false;
+                while (!eof) {
+                    // Request bodies arrive in small reads; the disk is written in whole buffers
+                    while (buffer.hasRemaining() && !eof) {
+                        eof = body.read(buffer) < 0;
+                    }
+                    written += buffer.position();
+                    if (maxBytes != null && written > maxBytes) {
+                        throw new IllegalArgumentException(String.format(
+                                "Upload exceeds max of %d bytes", maxBytes));
+                    }
+                    buffer.flip();
+                    sha256.update(buffer.duplicate());
+                    while (buffer.hasRemaining()) {
+                        file.write(buffer);
+                    }
+                    buffer.clear();
+                }
+                file.force(false);
+            }
+            String digest = HexFormat.of().formatHex(sha256.digest());
+            moveIntoPlace(temp, objectKey, digest);
+            log.debug("Stored local object: {} ({} bytes)", objectKey, written);
+            return digest;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write " + objectKey, e);
+        } finally {
+            releaseBuffer(buffer);
+            deleteQuietly(temp);
+        }
+    }
+
+    /**
+     * Copy {@code length} bytes of the object from {@code offset} with {@link FileChannel#transferTo},
+     * for when the container cannot send the file itself
+     */
+    public void transferTo(String objectKey, long offset, long length, WritableByteChannel target) {
+        try (FileChannel file = FileChannel.open(resolve(objectKey), StandardOpenOption.READ)) {
+            long end = offset + length;
+            for (long position = offset; position < end; ) {
+                long transferred = file.transferTo(position, end - position, target);
+                if (transferred <= 0) {
+                    throw new IllegalStateException("Object shrank while sending: " + objectKey);
+                }
+                position += transferred;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to send " + objectKey, e);
+        }
+    }
+
+    /**
+     * The file of an object
+     *
+     * @throws IllegalArgumentException if the key points outside the storage directory
+     */
+    public Path resolve(String objectKey) {
+        Path path = rootDir.resolve(objectKey).normalize();
+        if (!path.startsWith(rootDir) || path.equals(rootDir) || path.startsWith(tempDir)) {
+            throw new IllegalArgumentException("Invalid object key: " + objectKey);
+        }
+        return path;
+    }
+
+    private void moveIntoPlace(Path temp, String objectKey, String sha256) throws IOException {
+        Path path = resolve(objectKey);
+        Path checksum = checksumPath(path);
+        Files.createDirectories(path.getParent());
+        // A checksum of the content being replaced must not outlive it
+        Files.deleteIfExists(checksum);
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        if (sha256 != null) {
+            Path checksumTemp = tempDir.resolve(UUID.randomUUID() + SHA256_SUFFIX);
+            Files.writeString(checksumTemp, sha256);
+            Files.move(checksumTemp, checksum, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private String signedUrl(String method, String objectKey, Long maxBytes) {
+        return signedUrl(method, objectKey, maxBytes, Instant.now().getEpochSecond() + presignExpirySeconds);
+    }
+
+    private String signedUrl(String method, String objectKey, Long maxBytes, long expires) {
+        StringBuilder url = new StringBuilder(baseUrl)
+                .append(OBJECTS_PATH)
+                .append("?key=").append(URLEncoder.encode(objectKey, StandardCharsets.UTF_8))
+                .append("&expires=").append(expires);
+        if (maxBytes != null) {
+            url.append("&size=").append(maxBytes);
+        }
+        return url.append("&signature=").append(signer.sign(method, objectKey, expires, maxBytes)).toString();
+    }
+
+    private ByteBuffer takeBuffer() {
+        ByteBuffer buffer = buffers.poll();
+        return buffer != null ? buffer.clear() : ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    private void releaseBuffer(ByteBuffer buffer) {
+        // Direct memory is only freed by GC; keep buffers for reuse instead of dropping them per upload
+        if (buffers.size() < MAX_POOLED_BUFFERS) {
+            buffers.offer(buffer);
+        }
+    }
+
+    private static Path checksumPath(Path path) {
+        return path.resolveSibling(path.getFileName() + SHA256_SUFFIX);
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete {}", path, e);
+        }
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String partKey(String objectKey, String uploadId, int partNumber) {
+        return String.format("%s.part-%s-%05d", objectKey, uploadId, partNumber);
+    }
+
+    private String generateObjectKey(String filename) {
+        String sanitized = filename.replaceAll("[^a-zA-Z0-9._-]", "_");
+        return String.format("uploads/%s/%s",
+                OffsetDateTime.now().toLocalDate(),
+                UUID.randomUUID() + "_" + sanitized);
+    }
+}
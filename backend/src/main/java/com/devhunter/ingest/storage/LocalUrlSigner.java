@@ -0,0 +1,44 @@
+package com.devhunter.ingest.storage;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+/**
+ * HMAC-SHA256 signatures of the local provider's upload and download URLs. A signature covers the
+ * method, the object key, the expiry (epoch seconds) and, for uploads, the largest body accepted.
+ */
+final class LocalUrlSigner {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+
+    LocalUrlSigner(byte[] secret) {
+        this.key = new SecretKeySpec(secret, ALGORITHM);
+    }
+
+    String sign(String method, String objectKey, long expires, Long maxBytes) {
+        String canonical = String.join("\n", method, objectKey, Long.toString(expires),
+                maxBytes == null ? "" : maxBytes.toString());
+        try {
+            // Mac instances are not thread-safe; one per signature is cheap next to the I/O it guards
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return HexFormat.of().formatHex(mac.doFinal(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    boolean verify(String method, String objectKey, long expires, Long maxBytes, String signature, long now) {
+        if (signature == null || now > expires) {
+            return false;
+        }
+        byte[] expected = sign(method, objectKey, expires, maxBytes).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, signature.toLowerCase().getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,37 @@
+package com.devhunter.ingest.storage;
+
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+class OnStorageProviderCondition implements Condition {
+
+    @Override
+    public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        Map<String, Object> attributes = metadata.getAnnotationAttributes(ConditionalOnStorageProvider.class.getName());
+        Environment environment = context.getEnvironment();
+        return attributes != null && configured(
+                environment.getProperty("app.storage.providers", ""),
+                environment.getProperty("app.storage.provider", ""))
+                .contains((String) attributes.get("value"));
+    }
+
+    /**
+     * Configured provider names in order of preference: the list in {@code providers}, or else the
+     * single {@code provider}
+     */
+    static List<String> configured(String providers, String provider) {
+        String names = providers.isBlank() ? provider : providers;
+        return Arrays.stream(names.split(","))
+                .map(name -> name.trim().toLowerCase(Locale.ROOT))
+                .filter(name -> !name.isEmpty())
+                .distinct()
+                .toList();
+    }
+}
@@ -0,0 +1,41 @@
+package com.devhunter.ingest.storage;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Presigned uploads between presign and finalize. Entries expire with their upload URL
+ * ({@link PresignedUploadInfo#getExpiresInSeconds()}); multipart uploads that expire unassembled
+ * are aborted ({@link ExpiredUploadAborter}).
+ */
+public interface PresignStore {
+
+    /**
+     * Remember an upload until its URL expires
+     */
+    void put(PresignedUploadInfo info);
+
+    /**
+     * Remember several uploads in one write
+     */
+    void putAll(List<PresignedUploadInfo> infos);
+
+    /**
+     * Look up an upload that has not expired or been finalized
+     */
+    Optional<PresignedUploadInfo> get(String presignedId);
+
+    /**
+     * Record that a multipart upload's parts were assembled into its object: a retried finalize
+     * then checks the object again instead of completing the upload a second time
+     */
+    void markAssembled(String presignedId);
+
+    /**
+     * Forget an upload once it is finalized. Inside a transaction, the upload comes back if the
+     * transaction rolls back, so a finalize that fails after claiming it can be retried.
+     *
+     * @return false if it was already removed or expired, e.g. finalized concurrently
+     */
+    boolean remove(String presignedId);
+}
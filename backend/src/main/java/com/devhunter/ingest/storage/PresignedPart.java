@@ -0,0 +1,20 @@
+package com.devhunter.ingest.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresignedPart {
+    // 1-based, in the order the parts make up the object
+    private int partNumber;
+    private String uploadUrl;
+    private Map<String, String> headers;
+    private Integer expiresInSeconds;
+}
@@ -7,7 +7,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class PresignedUploadInfo {
@@ -17,5 +17,13 @@ public class PresignedUploadInfo {
     private java.util.Map<String, String> headers;
     private Integer expiresInSeconds;
     private String objectKey;
+    // Set by StorageService from the presign request, for the artifact row written at finalize
+    private String filename;
+    private String contentType;
+    // Multipart uploads only: the provider's upload id and how the object is split
+    private String uploadId;
+    private Long sizeBytes;
+    private Long partSize;
+    private Integer partCount;
 }
 
@@ -0,0 +1,72 @@
+package com.devhunter.ingest.storage;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Health of one storage provider from its recent probe and request outcomes.
+ *
+ * HEALTHY takes traffic. DEGRADED (some consecutive failures, below the threshold) still takes
+ * traffic. OPEN (threshold reached) takes none and is not probed until the open period has passed;
+ * then one HALF_OPEN probe decides between HEALTHY and another open period. Starts HEALTHY, so
+ * traffic flows before the first probe has completed.
+ */
+class ProviderCircuitBreaker {
+
+    enum State { HEALTHY, DEGRADED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+
+    // Written under the lock, read without it on the presign path
+    private volatile State state = State.HEALTHY;
+    private int consecutiveFailures;
+    private long openedAt;
+
+    ProviderCircuitBreaker(int failureThreshold, long openNanos, LongSupplier nanoClock) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openNanos;
+        this.nanoClock = nanoClock;
+    }
+
+    State state() {
+        return state;
+    }
+
+    boolean allowsTraffic() {
+        State current = state;
+        return current == State.HEALTHY || current == State.DEGRADED;
+    }
+
+    /**
+     * Whether a probe should run now; moves an expired OPEN breaker to HALF_OPEN.
+     */
+    synchronized boolean tryProbe() {
+        if (state == State.OPEN) {
+            if (nanoClock.getAsLong() - openedAt < openNanos) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+        }
+        return true;
+    }
+
+    synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        state = State.HEALTHY;
+    }
+
+    synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.OPEN) {
+            // Already open; keep the time it opened
+            return;
+        }
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = nanoClock.getAsLong();
+        } else {
+            state = State.DEGRADED;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.devhunter.ingest.storage;
+
+import com.devhunter.ingest.storage.ProviderCircuitBreaker.State;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tracks provider health off the request path. {@link StorageProvider#isAvailable()} is a remote
+ * call, so it runs here on a schedule, each provider behind a {@link ProviderCircuitBreaker};
+ * requests only read the breaker state. Request failures are not fed in: most of them (missing
+ * object, size mismatch) are the client's, not the provider's.
+ */
+@Slf4j
+@Component
+public class ProviderHealthMonitor implements HealthIndicator {
+
+    private record Probe(StorageProvider provider, ProviderCircuitBreaker breaker, AtomicBoolean running) {
+    }
+
+    private final Map<String, Probe> probes = new LinkedHashMap<>();
+    private final long probeTimeoutMs;
+
+    // isAvailable() blocks on the network; a slow provider only ties up its own virtual thread
+    private final ExecutorService probeExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ProviderHealthMonitor(List<StorageProvider> storageProviders,
+                                 @Value("${app.storage.health.failure-threshold:3}") int failureThreshold,
+                                 @Value("${app.storage.health.open-duration-ms:30000}") long openDurationMs,
+                                 @Value("${app.storage.health.probe-timeout-ms:5000}") long probeTimeoutMs) {
+        if (failureThreshold <= 0 || openDurationMs < 0 || probeTimeoutMs <= 0) {
+            throw new IllegalStateException(String.format(
+                    "Invalid app.storage.health settings: failure-threshold=%d, open-duration-ms=%d, probe-timeout-ms=%d",
+                    failureThreshold, openDurationMs, probeTimeoutMs));
+        }
+        this.probeTimeoutMs = probeTimeoutMs;
+        for (StorageProvider provider : storageProviders) {
+            ProviderCircuitBreaker breaker = new ProviderCircuitBreaker(
+                    failureThreshold, TimeUnit.MILLISECONDS.toNanos(openDurationMs), System::nanoTime);
+            probes.put(provider.getProviderName(), new Probe(provider, breaker, new AtomicBoolean()));
+        }
+    }
+
+    /**
+     * Whether the provider currently takes traffic; never makes a remote call.
+     */
+    public boolean isAvailable(String providerName) {
+        Probe probe = probes.get(providerName);
+        return probe != null && probe.breaker().allowsTraffic();
+    }
+
+    /**
+     * Breaker state of the provider, OPEN for an unknown one; never makes a remote call.
+     */
+    State state(String providerName) {
+        Probe probe = probes.get(providerName);
+        return probe != null ? probe.breaker().state() : State.OPEN;
+    }
+
+    /**
+     * Start a probe for every provider that is due one. Returns at once; a provider whose last probe
+     * call has not returned yet is not probed again. A call that outlives the timeout counts as a
+     * failure and is interrupted.
+     */
+    @Scheduled(fixedDelayString = "${app.storage.health.probe-interval-ms:10000}")
+    public void probeProviders() {
+        probes.forEach((name, probe) -> {
+            if (!probe.breaker().tryProbe() || !probe.running().compareAndSet(false, true)) {
+                return;
+            }
+            CompletableFuture<Boolean> result = new CompletableFuture<>();
+            // Cleared when the call returns, not at the timeout: a provider that ignores the
+            // interrupt keeps its one blocked probe instead of piling up a new one every round
+            Future<?> call = probeExecutor.submit(() -> {
+                try {
+                    result.complete(probe.provider().isAvailable());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    probe.running().set(false);
+                }
+            });
+            result.orTimeout(probeTimeoutMs, TimeUnit.MILLISECONDS)
+                    .whenComplete((available, error) -> {
+                        if (error != null) {
+                            log.warn("Health probe of storage provider {} failed", name, error);
+                        }
+                        if (error instanceof TimeoutException) {
+                            call.cancel(true);
+                        }
+                        transition(name, probe.breaker(), error == null && available);
+                    });
+        });
+    }
+
+    /**
+     * Provider states as health details. Always UP: storage outages should not fail liveness checks
+     * of a service that still serves reads.
+     */
+    @Override
+    public Health health() {
+        Health.Builder health = Health.up();
+        probes.forEach((name, probe) -> health.withDetail(name, probe.breaker().state()));
+        return health.build();
+    }
+
+    private void transition(String name, ProviderCircuitBreaker breaker, boolean success) {
+        State before = breaker.state();
+        if (success) {
+            breaker.recordSuccess();
+        } else {
+            breaker.recordFailure();
+        }
+        State after = breaker.state();
+        if (before != after) {
+            if (after == State.OPEN) {
+                log.error("Storage provider {} is unavailable ({} -> {}), taking it out of rotation", name, before, after);
+            } else {
+                log.info("Storage provider {} health: {} -> {}", name, before, after);
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        probeExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,283 @@
+package com.devhunter.ingest.storage;
+
+import com.devhunter.ingest.storage.ProviderCircuitBreaker.State;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+
+/**
+ * Chooses the provider of new uploads among the configured ones. Returns every provider that takes
+ * traffic, best first, so a caller whose presign fails moves on to the next one:
+ * <ol>
+ *   <li>healthy providers before degraded ones ({@link ProviderHealthMonitor});</li>
+ *   <li>then the provider of the first routing rule matching the content type and size;</li>
+ *   <li>then by policy: "ordered" (configuration order), "weighted" (random, in proportion to the
+ *       weights) or "latency" (lowest sum of the presign and finalize latency averages, with a few
+ *       requests sent elsewhere to keep the other averages current).</li>
+ * </ol>
+ * Routing only applies to new uploads; a presigned upload stays with the provider recorded for it.
+ */
+@Slf4j
+@Component
+public class ProviderRouter {
+
+    enum Policy { ORDERED, WEIGHTED, LATENCY }
+
+    /**
+     * Timed steps of an upload. Averaged apart: a presign is often a local signature and a finalize
+     * a remote call, so one shared average would mostly reflect the mix of the two.
+     */
+    public enum Operation { PRESIGN, FINALIZE }
+
+    /**
+     * Uploads of a content type (prefix, or "*" for any) of at least {@code minBytes} go to {@code provider}
+     */
+    private record Rule(String contentTypePrefix, long minBytes, String provider) {
+
+        boolean matches(String contentType, long sizeBytes) {
+            return sizeBytes >= minBytes && (contentTypePrefix.equals("*") || contentType.startsWith(contentTypePrefix));
+        }
+    }
+
+    // Weight of the newest sample in a provider's latency average
+    private static final double LATENCY_SMOOTHING = 0.2;
+
+    private final List<String> names;
+    private final Function<String, State> health;
+    private final Policy policy;
+    private final Map<String, Double> weights;
+    private final List<Rule> rules;
+    private final double exploreRatio;
+    private final long failurePenaltyNanos;
+    private final DoubleSupplier random;
+    private final Map<Operation, Map<String, LatencyAverage>> latencies = new EnumMap<>(Operation.class);
+    // Empty when built for tests, which route by name only
+    private final Map<String, StorageProvider> providers = new HashMap<>();
+
+    @Autowired
+    public ProviderRouter(List<StorageProvider> storageProviders,
+                          ProviderHealthMonitor providerHealthMonitor,
+                          @Value("${app.storage.providers:}") String providerNames,
+                          @Value("${app.storage.provider:}") String providerName,
+                          @Value("${app.storage.routing.policy:ordered}") String policy,
+                          @Value("${app.storage.routing.weights:}") String weights,
+                          @Value("${app.storage.routing.rules:}") String rules,
+                          @Value("${app.storage.routing.explore-ratio:0.05}") double exploreRatio,
+                          @Value("${app.storage.routing.failure-penalty-ms:5000}") long failurePenaltyMs) {
+        this(OnStorageProviderCondition.configured(providerNames, providerName), providerHealthMonitor::state,
+                policy, weights, rules, exploreRatio, failurePenaltyMs, () -> ThreadLocalRandom.current().nextDouble());
+        storageProviders.forEach(provider -> providers.put(provider.getProviderName(), provider));
+        for (String name : names) {
+            if (!providers.containsKey(name)) {
+                throw new IllegalStateException("Unknown storage provider in app.storage.providers: " + name);
+            }
+        }
+        log.info("Routing uploads to storage providers {} by {} policy{}", names, this.policy.name().toLowerCase(Locale.ROOT),
+                this.rules.isEmpty() ? "" : " and rules " + this.rules);
+    }
+
+    ProviderRouter(List<String> names, Function<String, State> health, String policy, String weights, String rules,
+                   double exploreRatio, long failurePenaltyMs, DoubleSupplier random) {
+        if (names.isEmpty()) {
+            throw new IllegalStateException("No storage provider configured (app.storage.providers)");
+        }
+        if (exploreRatio < 0 || exploreRatio > 1 || failurePenaltyMs < 0) {
+            throw new IllegalStateException(String.format(
+                    "Invalid app.storage.routing settings: explore-ratio=%s, failure-penalty-ms=%d",
+                    exploreRatio, failurePenaltyMs));
+        }
+        this.names = names;
+        this.health = health;
+        this.policy = parsePolicy(policy);
+        this.weights = parseWeights(weights, names);
+        this.rules = parseRules(rules, names);
+        this.exploreRatio = exploreRatio;
+        this.failurePenaltyNanos = TimeUnit.MILLISECONDS.toNanos(failurePenaltyMs);
+        this.random = random;
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Providers that take traffic for an upload of this content type and size, best first.
+     *
+     * @throws IllegalStateException if none does
+     */
+    public List<StorageProvider> candidates(String contentType, long sizeBytes) {
+        return order(contentType, sizeBytes).stream().map(providers::get).toList();
+    }
+
+    /**
+     * Record how long a presign or finalize with the provider took
+     */
+    public void recordLatency(String providerName, Operation operation, long nanos) {
+        latencies.get(operation).computeIfAbsent(providerName, name -> new LatencyAverage()).add(nanos);
+    }
+
+    /**
+     * Record a presign or finalize the provider failed; counts as a slow request for the latency policy
+     */
+    public void recordFailure(String providerName, Operation operation) {
+        recordLatency(providerName, operation, failurePenaltyNanos);
+    }
+
+    List<String> order(String contentType, long sizeBytes) {
+        // Breaker states are read once, so the filter and the sort agree
+        Map<String, State> states = new HashMap<>();
+        names.forEach(name -> states.put(name, health.apply(name)));
+        List<String> available = names.stream()
+                .filter(name -> states.get(name) == State.HEALTHY || states.get(name) == State.DEGRADED)
+                .toList();
+        if (available.isEmpty()) {
+            throw new IllegalStateException("No storage provider available");
+        }
+
+        String type = contentType.toLowerCase(Locale.ROOT);
+        String preferred = rules.stream()
+                .filter(rule -> rule.matches(type, sizeBytes))
+                .map(Rule::provider)
+                .findFirst()
+                .orElse(null);
+
+        // Stable: the policy order decides among providers equal on health and rule
+        List<String> ordered = new ArrayList<>(byPolicy(available));
+        ordered.sort(Comparator.comparing((String name) -> states.get(name) != State.HEALTHY)
+                .thenComparing(name -> !name.equals(preferred)));
+        return ordered;
+    }
+
+    double averageLatencyNanos(String providerName) {
+        double nanos = 0;
+        for (Map<String, LatencyAverage> averages : latencies.values()) {
+            LatencyAverage average = averages.get(providerName);
+            // Unmeasured providers come first, so they get measured
+            nanos += average != null ? average.get() : 0;
+        }
+        return nanos;
+    }
+
+    private List<String> byPolicy(List<String> available) {
+        switch (policy) {
+            case WEIGHTED -> {
+                // Weighted sampling without replacement: sort by u^(1/w); weight 0 only as a fallback
+                Map<String, Double> keys = new HashMap<>();
+                for (String name : available) {
+                    double weight = weights.getOrDefault(name, 1.0);
+                    keys.put(name, weight > 0 ? Math.pow(random.getAsDouble(), 1 / weight) : -1);
+                }
+                return available.stream()
+                        .sorted(Comparator.comparing(keys::get).reversed())
+                        .toList();
+            }
+            case LATENCY -> {
+                List<String> ordered = new ArrayList<>(available.stream()
+                        .sorted(Comparator.comparingDouble(this::averageLatencyNanos))
+                        .toList());
+                if (ordered.size() > 1 && random.getAsDouble() < exploreRatio) {
+                    // Otherwise a provider that was slow once would never be measured again
+                    int index = 1 + (int) (random.getAsDouble() * (ordered.size() - 1));
+                    ordered.add(0, ordered.remove(Math.min(index, ordered.size() - 1)));
+                }
+                return ordered;
+            }
+            default -> {
+                return available;
+            }
+        }
+    }
+
+    private static Policy parsePolicy(String policy) {
+        try {
+            return Policy.valueOf(policy.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid app.storage.routing.policy (ordered|weighted|latency): " + policy);
+        }
+    }
+
+    /**
+     * "aws=3,gcs=1"; providers without a weight get 1
+     */
+    private static Map<String, Double> parseWeights(String weights, List<String> names) {
+        Map<String, Double> parsed = new HashMap<>();
+        for (String entry : entries(weights)) {
+            int separator = entry.indexOf('=');
+            String name = separator > 0 ? entry.substring(0, separator).trim() : "";
+            double weight;
+            try {
+                weight = Double.parseDouble(entry.substring(separator + 1).trim());
+            } catch (NumberFormatException e) {
+                weight = -1;
+            }
+            if (!names.contains(name) || !(weight >= 0)) {
+                throw new IllegalStateException("Invalid app.storage.routing.weights entry: " + entry);
+            }
+            parsed.put(name, weight);
+        }
+        return parsed;
+    }
+
+    /**
+     * "video/=gcs,>=104857600=aws,image/png>=1048576=azure": content type prefix, minimum size or
+     * both, then the provider; the first matching rule applies
+     */
+    private static List<Rule> parseRules(String rules, List<String> names) {
+        List<Rule> parsed = new ArrayList<>();
+        for (String entry : entries(rules)) {
+            int separator = entry.lastIndexOf('=');
+            int size = entry.indexOf(">=");
+            String provider = entry.substring(separator + 1).trim();
+            String prefix = (size >= 0 ? entry.substring(0, size) : entry.substring(0, Math.max(separator, 0))).trim();
+            long minBytes;
+            try {
+                minBytes = size >= 0 ? Long.parseLong(entry.substring(size + 2, separator).trim()) : 0;
+            } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                minBytes = -1;
+            }
+            if (separator <= 0 || separator == size + 1 || !names.contains(provider) || minBytes < 0
+                    || (prefix.isEmpty() && size < 0)) {
+                throw new IllegalStateException("Invalid app.storage.routing.rules entry: " + entry);
+            }
+            parsed.add(new Rule(prefix.isEmpty() ? "*" : prefix, minBytes, provider));
+        }
+        return parsed;
+    }
+
+    private static List<String> entries(String list) {
+        return Arrays.stream(list.split(","))
+                .map(entry -> entry.trim().toLowerCase(Locale.ROOT))
+                .filter(entry -> !entry.isEmpty())
+                .toList();
+    }
+
+    /**
+     * Exponentially weighted moving average of latency samples
+     */
+    private static final class LatencyAverage {
+
+        private double nanos = Double.NaN;
+
+        synchronized void add(long sample) {
+            nanos = Double.isNaN(nanos) ? sample : nanos + LATENCY_SMOOTHING * (sample - nanos);
+        }
+
+        synchronized double get() {
+            return Double.isNaN(nanos) ? 0 : nanos;
+        }
+    }
+}
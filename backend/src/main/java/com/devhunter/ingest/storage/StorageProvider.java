@@ -1,5 +1,9 @@
 package com.devhunter.ingest.storage;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
 public interface StorageProvider {
 
     /**
@@ -8,12 +12,64 @@ public interface StorageProvider {
     PresignedUploadInfo generatePresignedUpload(String filename, String contentType, long sizeBytes);
 
     /**
-     * Verify and finalize an uploaded artifact
+     * Verify and finalize an uploaded artifact; completes with its URL. Does not block the caller:
+     * the future completes on the provider client's I/O threads, so callers must not block in
+     * dependent stages run there.
+     */
+    CompletableFuture<String> finalizeUploadAsync(String presignedId, String objectKey, long expectedSize,
+                                                  String expectedSha256);
+
+    /**
+     * Start a multipart upload. The returned info has the object key and the provider's upload id
+     * ({@link PresignedUploadInfo#getUploadId()}) but no upload URL; parts are signed separately.
+     */
+    PresignedUploadInfo initiateMultipartUpload(String filename, String contentType, long sizeBytes);
+
+    /**
+     * Presign uploads of the given parts (1-based) of an initiated upload. Parts can be uploaded in
+     * parallel and re-uploaded (with a freshly signed URL if needed) until the upload is completed.
+     * Every part is {@code partSize} bytes but the last, which holds the rest of {@code sizeBytes};
+     * a provider that can bound an upload URL's size bounds each part to its own.
+     */
+    List<PresignedPart> presignUploadParts(String objectKey, String uploadId, String contentType,
+                                           long sizeBytes, long partSize, List<Integer> partNumbers);
+
+    /**
+     * Assemble parts 1..partCount into the object at {@code objectKey}.
+     *
+     * @throws IllegalStateException if a part has not been uploaded
+     * @throws IllegalArgumentException if the provider no longer knows the upload
+     */
+    void completeMultipartUpload(String objectKey, String uploadId, String contentType, int partCount);
+
+    /**
+     * Discard the parts of an upload that will not be completed
+     */
+    void abortMultipartUpload(String objectKey, String uploadId, int partCount);
+
+    /**
+     * SHA-256 of the object (hex) if the provider computed and stored one, so verifying it needs no
+     * read. Empty when the provider has none for this object.
+     */
+    Optional<String> getStoredSha256(String objectKey);
+
+    /**
+     * A URL to download the object with a plain GET, valid for {@code expiresInSeconds}
+     */
+    String presignDownload(String objectKey, int expiresInSeconds);
+
+    /**
+     * Read {@code length} bytes of the object starting at {@code offset}
+     */
+    byte[] readRange(String objectKey, long offset, int length);
+
+    /**
+     * Delete uploaded objects by key. Keys that no longer exist are ignored.
      */
-    String finalizeUpload(String presignedId, String objectKey, long expectedSize, String expectedSha256);
+    void deleteObjects(List<String> objectKeys);
 
     /**
-     * Get the provider name (azure, aws, gcs)
+     * Get the provider name (azure, aws, gcs, local)
      */
     String getProviderName();
 
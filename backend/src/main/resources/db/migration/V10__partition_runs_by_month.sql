@@ -0,0 +1,219 @@
+-- V10__partition_runs_by_month.sql
+-- Range-partition runs by created_at (monthly). The existing table is attached as the partition
+-- holding all history up to the next month, so no rows are copied.
+
+-- Partition key must be NOT NULL; date undated runs while the rollup triggers still count them
+UPDATE runs SET created_at = coalesce(updated_at, now()) WHERE created_at IS NULL;
+
+-- Triggers are recreated on the partitioned parent (and cloned to every partition) below
+DROP TRIGGER IF EXISTS runs_updated_at ON runs;
+DROP TRIGGER IF EXISTS runs_tsv_update ON runs;
+DROP TRIGGER IF EXISTS runs_facet_counts_insert_delete ON runs;
+DROP TRIGGER IF EXISTS runs_facet_counts_update ON runs;
+DROP TRIGGER IF EXISTS runs_stats_insert_delete ON runs;
+DROP TRIGGER IF EXISTS runs_stats_update ON runs;
+
+-- Triggers on a partition see the partition's row type, so these take columns instead of a runs row
+DROP FUNCTION IF EXISTS run_facet_counts_apply(runs, integer);
+DROP FUNCTION IF EXISTS run_stats_apply(runs, integer);
+
+-- A partitioned table cannot have a unique constraint on id alone; artifacts are cascaded by trigger
+ALTER TABLE artifacts DROP CONSTRAINT IF EXISTS artifacts_run_id_fkey;
+ALTER TABLE runs DROP CONSTRAINT runs_pkey;
+
+ALTER TABLE runs RENAME TO runs_legacy;
+ALTER INDEX idx_runs_document_tsv RENAME TO runs_legacy_document_tsv_idx;
+ALTER INDEX idx_runs_metadata_path RENAME TO runs_legacy_metadata_path_idx;
+ALTER INDEX idx_runs_created_at RENAME TO runs_legacy_created_at_idx;
+ALTER INDEX idx_runs_test_created_id RENAME TO runs_legacy_test_created_id_idx;
+ALTER TABLE runs_legacy ALTER COLUMN created_at SET NOT NULL;
+
+CREATE TABLE runs (
+  id UUID NOT NULL DEFAULT gen_random_uuid(),
+  test_id UUID REFERENCES tests(id) ON DELETE CASCADE,
+  status TEXT,
+  metadata JSONB,
+  created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+  updated_at TIMESTAMP WITH TIME ZONE DEFAULT now(),
+  version BIGINT DEFAULT 0,
+  document_tsv tsvector,
+  PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+-- Same indexes as before, now per partition; matching legacy indexes are reused on attach
+CREATE INDEX IF NOT EXISTS idx_runs_document_tsv ON runs USING GIN (document_tsv);
+CREATE INDEX IF NOT EXISTS idx_runs_metadata_path ON runs USING GIN (metadata jsonb_path_ops);
+CREATE INDEX IF NOT EXISTS idx_runs_created_at ON runs (created_at);
+CREATE INDEX IF NOT EXISTS idx_runs_test_created_id ON runs (test_id, created_at DESC, id DESC);
+
+DO $$
+declare
+  upper_bound TIMESTAMP WITH TIME ZONE;
+begin
+  SELECT greatest(date_trunc('month', now() AT TIME ZONE 'UTC') + INTERVAL '1 month',
+                  date_trunc('month', max(created_at) AT TIME ZONE 'UTC') + INTERVAL '1 month')
+         AT TIME ZONE 'UTC'
+  INTO upper_bound
+  FROM runs_legacy;
+
+  -- A validated CHECK matching the bound lets ATTACH skip its own scan
+  EXECUTE format('ALTER TABLE runs_legacy ADD CONSTRAINT runs_legacy_bound CHECK (created_at < %L)', upper_bound);
+  EXECUTE format('ALTER TABLE runs ATTACH PARTITION runs_legacy FOR VALUES FROM (MINVALUE) TO (%L)', upper_bound);
+  ALTER TABLE runs_legacy DROP CONSTRAINT runs_legacy_bound;
+end
+$$;
+
+-- Monthly partitions runs_pYYYY_MM (UTC) from the current month through months_ahead;
+-- months already covered (e.g. by runs_legacy) are skipped
+CREATE OR REPLACE FUNCTION runs_ensure_partitions(months_ahead INT) RETURNS INT AS $$
+declare
+  first_month DATE := date_trunc('month', now() AT TIME ZONE 'UTC')::date;
+  month_start DATE;
+  partition_name TEXT;
+  created INT := 0;
+begin
+  FOR i IN 0..months_ahead LOOP
+    month_start := (first_month + make_interval(months => i))::date;
+    partition_name := 'runs_p' || to_char(month_start, 'YYYY_MM');
+    CONTINUE WHEN to_regclass(partition_name) IS NOT NULL;
+    begin
+      EXECUTE format('CREATE TABLE %I PARTITION OF runs FOR VALUES FROM (%L) TO (%L)',
+                     partition_name,
+                     month_start::timestamp AT TIME ZONE 'UTC',
+                     (month_start + INTERVAL '1 month')::timestamp AT TIME ZONE 'UTC');
+      created := created + 1;
+    exception when invalid_object_definition then
+      -- Overlaps an existing partition
+      NULL;
+    end;
+  END LOOP;
+  RETURN created;
+end
+$$ LANGUAGE plpgsql;
+
+SELECT runs_ensure_partitions(3);
+
+-- Rollup maintenance, unchanged apart from taking columns
+CREATE OR REPLACE FUNCTION run_facet_counts_apply(run_status TEXT, run_metadata JSONB,
+                                                  run_created_at TIMESTAMP WITH TIME ZONE,
+                                                  delta INT) RETURNS void AS $$
+begin
+  INSERT INTO run_facet_counts_daily (day, facet, value, hits)
+  SELECT (run_created_at AT TIME ZONE 'UTC')::date, f.facet, f.value, delta
+  FROM (
+    SELECT 'status' AS facet, run_status AS value
+    UNION ALL
+    SELECT k.key, run_metadata ->> k.key FROM run_facet_keys k
+  ) f
+  WHERE f.value IS NOT NULL AND run_created_at IS NOT NULL
+  ON CONFLICT (day, facet, value) DO UPDATE SET hits = run_facet_counts_daily.hits + EXCLUDED.hits;
+end
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION runs_facet_counts_trigger() RETURNS trigger AS $$
+begin
+  IF TG_OP IN ('UPDATE', 'DELETE') THEN
+    PERFORM run_facet_counts_apply(OLD.status, OLD.metadata, OLD.created_at, -1);
+  END IF;
+  IF TG_OP IN ('INSERT', 'UPDATE') THEN
+    PERFORM run_facet_counts_apply(NEW.status, NEW.metadata, NEW.created_at, 1);
+  END IF;
+  RETURN NULL;
+end
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION run_stats_apply(run_id UUID, run_test_id UUID, run_status TEXT, run_metadata JSONB,
+                                           run_created_at TIMESTAMP WITH TIME ZONE,
+                                           delta INT) RETURNS void AS $$
+declare
+  run_day DATE;
+  stats_status TEXT;
+  duration BIGINT;
+begin
+  IF run_test_id IS NULL OR run_created_at IS NULL THEN
+    RETURN;
+  END IF;
+  run_day := (run_created_at AT TIME ZONE 'UTC')::date;
+  stats_status := coalesce(run_status, 'unknown');
+  duration := run_duration_ms(run_metadata);
+
+  PERFORM pg_advisory_xact_lock_shared(run_stats_lock_key(run_test_id));
+
+  INSERT INTO run_stats_daily AS s (test_id, day, status, runs, duration_ms_sum, duration_ms_max)
+  VALUES (run_test_id, run_day, stats_status, delta, delta * coalesce(duration, 0),
+          CASE WHEN delta > 0 THEN duration END)
+  ON CONFLICT (test_id, day, status) DO UPDATE
+  SET runs = s.runs + EXCLUDED.runs,
+      duration_ms_sum = s.duration_ms_sum + EXCLUDED.duration_ms_sum,
+      duration_ms_max = GREATEST(s.duration_ms_max, EXCLUDED.duration_ms_max);
+
+  -- A max cannot be decremented: only when the removed run held it, recompute from that day's runs
+  IF delta < 0 AND duration IS NOT NULL THEN
+    UPDATE run_stats_daily s
+    SET duration_ms_max = (
+      SELECT max(run_duration_ms(x.metadata))
+      FROM runs x
+      WHERE x.test_id = run_test_id
+        AND x.created_at >= run_day::timestamp AT TIME ZONE 'UTC'
+        AND x.created_at < (run_day + 1)::timestamp AT TIME ZONE 'UTC'
+        AND coalesce(x.status, 'unknown') = stats_status
+        AND x.id <> run_id
+    )
+    WHERE s.test_id = run_test_id AND s.day = run_day AND s.status = stats_status
+      AND s.duration_ms_max = duration;
+  END IF;
+end
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION runs_stats_trigger() RETURNS trigger AS $$
+begin
+  IF TG_OP IN ('UPDATE', 'DELETE') THEN
+    PERFORM run_stats_apply(OLD.id, OLD.test_id, OLD.status, OLD.metadata, OLD.created_at, -1);
+  END IF;
+  IF TG_OP IN ('INSERT', 'UPDATE') THEN
+    PERFORM run_stats_apply(NEW.id, NEW.test_id, NEW.status, NEW.metadata, NEW.created_at, 1);
+  END IF;
+  RETURN NULL;
+end
+$$ LANGUAGE plpgsql;
+
+-- Replaces ON DELETE CASCADE from artifacts. An UPDATE that moves a run to another partition
+-- fires DELETE on the old one, so only cascade when the run is really gone.
+CREATE OR REPLACE FUNCTION runs_artifacts_cascade_trigger() RETURNS trigger AS $$
+begin
+  IF NOT EXISTS (SELECT 1 FROM runs WHERE id = OLD.id) THEN
+    DELETE FROM artifacts WHERE run_id = OLD.id;
+  END IF;
+  RETURN NULL;
+end
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER runs_updated_at BEFORE UPDATE ON runs
+FOR EACH ROW EXECUTE FUNCTION update_updated_at_column();
+
+CREATE TRIGGER runs_tsv_update BEFORE INSERT OR UPDATE ON runs
+FOR EACH ROW EXECUTE FUNCTION runs_tsv_trigger();
+
+CREATE TRIGGER runs_facet_counts_insert_delete AFTER INSERT OR DELETE ON runs
+FOR EACH ROW EXECUTE FUNCTION runs_facet_counts_trigger();
+
+CREATE TRIGGER runs_facet_counts_update AFTER UPDATE OF status, metadata, created_at ON runs
+FOR EACH ROW
+WHEN (OLD.status IS DISTINCT FROM NEW.status
+      OR OLD.metadata IS DISTINCT FROM NEW.metadata
+      OR OLD.created_at IS DISTINCT FROM NEW.created_at)
+EXECUTE FUNCTION runs_facet_counts_trigger();
+
+CREATE TRIGGER runs_stats_insert_delete AFTER INSERT OR DELETE ON runs
+FOR EACH ROW EXECUTE FUNCTION runs_stats_trigger();
+
+CREATE TRIGGER runs_stats_update AFTER UPDATE OF test_id, status, metadata, created_at ON runs
+FOR EACH ROW
+WHEN (OLD.test_id IS DISTINCT FROM NEW.test_id
+      OR OLD.status IS DISTINCT FROM NEW.status
+      OR run_duration_ms(OLD.metadata) IS DISTINCT FROM run_duration_ms(NEW.metadata)
+      OR OLD.created_at IS DISTINCT FROM NEW.created_at)
+EXECUTE FUNCTION runs_stats_trigger();
+
+CREATE TRIGGER runs_artifacts_cascade AFTER DELETE ON runs
+FOR EACH ROW EXECUTE FUNCTION runs_artifacts_cascade_trigger();
@@ -0,0 +1,17 @@
+-- V11__add_bulk_run_merge.sql
+-- Bulk run loads (COPY into a staging table, then one INSERT ... SELECT) maintain the rollups with
+-- one aggregate upsert per statement. While the transaction-local setting devhunter.bulk_merge is
+-- 'on', the per-row rollup triggers skip inserted rows; the loader counts them itself.
+
+DROP TRIGGER IF EXISTS runs_facet_counts_insert_delete ON runs;
+DROP TRIGGER IF EXISTS runs_stats_insert_delete ON runs;
+
+CREATE TRIGGER runs_facet_counts_insert_delete AFTER INSERT OR DELETE ON runs
+FOR EACH ROW
+WHEN (current_setting('devhunter.bulk_merge', true) IS DISTINCT FROM 'on')
+EXECUTE FUNCTION runs_facet_counts_trigger();
+
+CREATE TRIGGER runs_stats_insert_delete AFTER INSERT OR DELETE ON runs
+FOR EACH ROW
+WHEN (current_setting('devhunter.bulk_merge', true) IS DISTINCT FROM 'on')
+EXECUTE FUNCTION runs_stats_trigger();
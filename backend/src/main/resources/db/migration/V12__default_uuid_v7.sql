@@ -0,0 +1,23 @@
+-- V12__default_uuid_v7.sql
+-- Time-ordered UUIDv7 defaults for rows inserted in SQL (upserts, bulk merges); the entities
+-- generate the same layout in Java (UuidV7Generator). Existing random ids stay as they are.
+
+-- 48 bits of Unix milliseconds over a random v4 uuid, with the version nibble turned from 4 into 7
+CREATE OR REPLACE FUNCTION uuid_generate_v7() RETURNS UUID AS $$
+  SELECT encode(
+    set_bit(
+      set_bit(
+        overlay(uuid_send(gen_random_uuid())
+                PLACING substring(int8send(floor(extract(epoch FROM clock_timestamp()) * 1000)::bigint) FROM 3)
+                FROM 1 FOR 6),
+        52, 1),
+      53, 1),
+    'hex')::uuid
+$$ LANGUAGE sql VOLATILE;
+
+ALTER TABLE tests ALTER COLUMN id SET DEFAULT uuid_generate_v7();
+-- Recurses into every partition
+ALTER TABLE runs ALTER COLUMN id SET DEFAULT uuid_generate_v7();
+ALTER TABLE artifacts ALTER COLUMN id SET DEFAULT uuid_generate_v7();
+ALTER TABLE operations ALTER COLUMN id SET DEFAULT uuid_generate_v7();
+ALTER TABLE idempotency ALTER COLUMN id SET DEFAULT uuid_generate_v7();
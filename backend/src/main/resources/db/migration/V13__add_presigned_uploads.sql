@@ -0,0 +1,15 @@
+-- V13__add_presigned_uploads.sql
+-- Pending presigned uploads, so a finalize can land on any node (app.storage.presign.store=jdbc)
+
+CREATE TABLE IF NOT EXISTS presigned_uploads (
+  presigned_id TEXT PRIMARY KEY,
+  provider TEXT NOT NULL,
+  object_key TEXT NOT NULL,
+  filename TEXT,
+  content_type TEXT,
+  expires_at TIMESTAMP WITH TIME ZONE NOT NULL,
+  created_at TIMESTAMP WITH TIME ZONE DEFAULT now()
+);
+
+-- Periodic removal of abandoned uploads
+CREATE INDEX IF NOT EXISTS idx_presigned_uploads_expires_at ON presigned_uploads (expires_at);
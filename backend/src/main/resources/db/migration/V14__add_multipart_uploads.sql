@@ -0,0 +1,6 @@
+-- V14__add_multipart_uploads.sql
+-- Multipart uploads keep the provider's upload id and part layout until finalize assembles them
+
+ALTER TABLE presigned_uploads ADD COLUMN IF NOT EXISTS upload_id TEXT;
+ALTER TABLE presigned_uploads ADD COLUMN IF NOT EXISTS part_size BIGINT;
+ALTER TABLE presigned_uploads ADD COLUMN IF NOT EXISTS part_count INT;
@@ -0,0 +1,5 @@
+-- V15__add_artifact_verification.sql
+-- Outcome of the server-side checksum check of an artifact (verifying, verified, failed);
+-- NULL when the client-provided sha256 was taken as is (app.storage.verification.enabled=false)
+
+ALTER TABLE artifacts ADD COLUMN IF NOT EXISTS verification TEXT;
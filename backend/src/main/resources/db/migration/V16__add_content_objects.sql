@@ -0,0 +1,19 @@
+-- V16__add_content_objects.sql
+-- Stored objects by content, so an upload of content that is already stored can reuse its object.
+-- ref_count is the number of artifacts pointing at the object; it is deleted with the last one.
+-- Only one shareable object per digest; one that failed checksum verification stops being shareable.
+
+CREATE TABLE IF NOT EXISTS content_objects (
+  provider TEXT NOT NULL,
+  object_key TEXT NOT NULL,
+  sha256 TEXT NOT NULL,
+  size_bytes BIGINT NOT NULL,
+  url TEXT NOT NULL,
+  ref_count BIGINT NOT NULL,
+  shareable BOOLEAN NOT NULL DEFAULT true,
+  created_at TIMESTAMP WITH TIME ZONE DEFAULT now(),
+  PRIMARY KEY (provider, object_key)
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_content_objects_digest
+  ON content_objects (sha256, size_bytes) WHERE shareable;
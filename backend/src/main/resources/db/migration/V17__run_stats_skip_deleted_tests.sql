@@ -0,0 +1,55 @@
+-- V17__run_stats_skip_deleted_tests.sql
+-- Removing a run only decrements an existing stats row. When a test is deleted, its runs cascade
+-- and fire the stats trigger after the test's stats rows are gone; an upsert would insert a
+-- negative row for the missing test and fail its foreign key.
+
+CREATE OR REPLACE FUNCTION run_stats_apply(run_id UUID, run_test_id UUID, run_status TEXT, run_metadata JSONB,
+                                           run_created_at TIMESTAMP WITH TIME ZONE,
+                                           delta INT) RETURNS void AS $$
+declare
+  run_day DATE;
+  stats_status TEXT;
+  duration BIGINT;
+begin
+  IF run_test_id IS NULL OR run_created_at IS NULL THEN
+    RETURN;
+  END IF;
+  run_day := (run_created_at AT TIME ZONE 'UTC')::date;
+  stats_status := coalesce(run_status, 'unknown');
+  duration := run_duration_ms(run_metadata);
+
+  PERFORM pg_advisory_xact_lock_shared(run_stats_lock_key(run_test_id));
+
+  IF delta > 0 THEN
+    INSERT INTO run_stats_daily AS s (test_id, day, status, runs, duration_ms_sum, duration_ms_max)
+    VALUES (run_test_id, run_day, stats_status, delta, delta * coalesce(duration, 0), duration)
+    ON CONFLICT (test_id, day, status) DO UPDATE
+    SET runs = s.runs + EXCLUDED.runs,
+        duration_ms_sum = s.duration_ms_sum + EXCLUDED.duration_ms_sum,
+        duration_ms_max = GREATEST(s.duration_ms_max, EXCLUDED.duration_ms_max);
+    RETURN;
+  END IF;
+
+  -- No row: the test is being deleted, or the run predates the rollup and the backfill will count it
+  UPDATE run_stats_daily s
+  SET runs = s.runs + delta,
+      duration_ms_sum = s.duration_ms_sum + delta * coalesce(duration, 0)
+  WHERE s.test_id = run_test_id AND s.day = run_day AND s.status = stats_status;
+
+  -- A max cannot be decremented: only when the removed run held it, recompute from that day's runs
+  IF duration IS NOT NULL THEN
+    UPDATE run_stats_daily s
+    SET duration_ms_max = (
+      SELECT max(run_duration_ms(x.metadata))
+      FROM runs x
+      WHERE x.test_id = run_test_id
+        AND x.created_at >= run_day::timestamp AT TIME ZONE 'UTC'
+        AND x.created_at < (run_day + 1)::timestamp AT TIME ZONE 'UTC'
+        AND coalesce(x.status, 'unknown') = stats_status
+        AND x.id <> run_id
+    )
+    WHERE s.test_id = run_test_id AND s.day = run_day AND s.status = stats_status
+      AND s.duration_ms_max = duration;
+  END IF;
+end
+$$ LANGUAGE plpgsql;
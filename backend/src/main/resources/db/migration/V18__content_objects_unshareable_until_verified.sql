@@ -0,0 +1,13 @@
+-- V18__content_objects_unshareable_until_verified.sql
+-- A client-claimed sha256 is no longer trusted for reuse: objects start unshareable and become
+-- shareable once the server verified their content or the provider enforced the checksum.
+-- Objects recorded before that keep being shared only if an artifact of theirs was verified.
+
+ALTER TABLE content_objects ALTER COLUMN shareable SET DEFAULT false;
+
+UPDATE content_objects c SET shareable = false
+WHERE c.shareable
+  AND NOT EXISTS (
+    SELECT 1 FROM artifacts a
+    WHERE a.provider = c.provider AND a.object_key = c.object_key AND a.verification = 'verified'
+  );
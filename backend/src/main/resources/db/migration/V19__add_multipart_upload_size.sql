@@ -0,0 +1,5 @@
+-- V19__add_multipart_upload_size.sql
+-- The whole size of a multipart upload, so part URLs can bound the last, shorter part too.
+-- NULL for uploads presigned before; their parts are bounded by the part size only.
+
+ALTER TABLE presigned_uploads ADD COLUMN IF NOT EXISTS size_bytes BIGINT;
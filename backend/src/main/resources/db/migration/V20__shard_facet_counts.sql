@@ -0,0 +1,73 @@
+-- V20__shard_facet_counts.sql
+-- Facet rollup maintenance:
+--  * Each (day, facet, value) counter is spread over 16 shard rows, picked by the writing session,
+--    so concurrent ingests of the same day and status no longer queue behind one row lock.
+--    Readers sum the shards.
+--  * Adding a key to run_facet_keys backfills its counts from existing runs, and removing one drops
+--    them. Before, runs older than a key were never counted but were subtracted when deleted.
+-- Runs of tombstoned tests stay counted until their purge deletes them; SearchRepository subtracts
+-- them when reading from the rollup, as the live facet search excludes them.
+
+-- Runs written during the rebuild would be counted twice or not at all
+LOCK TABLE runs IN SHARE MODE;
+
+ALTER TABLE run_facet_counts_daily ADD COLUMN IF NOT EXISTS shard SMALLINT NOT NULL DEFAULT 0;
+ALTER TABLE run_facet_counts_daily DROP CONSTRAINT IF EXISTS run_facet_counts_daily_pkey;
+ALTER TABLE run_facet_counts_daily ADD PRIMARY KEY (day, facet, value, shard);
+
+CREATE OR REPLACE FUNCTION run_facet_counts_shard() RETURNS SMALLINT AS $$
+  SELECT (pg_backend_pid() % 16)::smallint
+$$ LANGUAGE sql STABLE;
+
+CREATE OR REPLACE FUNCTION run_facet_counts_apply(run_status TEXT, run_metadata JSONB,
+                                                  run_created_at TIMESTAMP WITH TIME ZONE,
+                                                  delta INT) RETURNS void AS $$
+begin
+  INSERT INTO run_facet_counts_daily (day, facet, value, shard, hits)
+  SELECT (run_created_at AT TIME ZONE 'UTC')::date, f.facet, f.value, run_facet_counts_shard(), delta
+  FROM (
+    SELECT 'status' AS facet, run_status AS value
+    UNION ALL
+    SELECT k.key, run_metadata ->> k.key FROM run_facet_keys k
+  ) f
+  WHERE f.value IS NOT NULL AND run_created_at IS NOT NULL
+  ON CONFLICT (day, facet, value, shard) DO UPDATE SET hits = run_facet_counts_daily.hits + EXCLUDED.hits;
+end
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION run_facet_keys_trigger() RETURNS trigger AS $$
+begin
+  -- Waits for run writers that read the keys before this change; later ones see it
+  LOCK TABLE runs IN SHARE MODE;
+  IF TG_OP IN ('UPDATE', 'DELETE') THEN
+    DELETE FROM run_facet_counts_daily WHERE facet = OLD.key;
+  END IF;
+  IF TG_OP IN ('INSERT', 'UPDATE') THEN
+    INSERT INTO run_facet_counts_daily (day, facet, value, shard, hits)
+    SELECT (r.created_at AT TIME ZONE 'UTC')::date, NEW.key, r.metadata ->> NEW.key, 0, count(*)
+    FROM runs r
+    WHERE r.metadata ->> NEW.key IS NOT NULL
+    GROUP BY 1, 3
+    ON CONFLICT (day, facet, value, shard) DO UPDATE SET hits = run_facet_counts_daily.hits + EXCLUDED.hits;
+  END IF;
+  RETURN NULL;
+end
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS run_facet_keys_backfill ON run_facet_keys;
+CREATE TRIGGER run_facet_keys_backfill AFTER INSERT OR UPDATE OR DELETE ON run_facet_keys
+FOR EACH ROW EXECUTE FUNCTION run_facet_keys_trigger();
+
+-- Rebuild, counting keys that were added after their runs
+TRUNCATE run_facet_counts_daily;
+
+INSERT INTO run_facet_counts_daily (day, facet, value, shard, hits)
+SELECT (r.created_at AT TIME ZONE 'UTC')::date, f.facet, f.value, 0, count(*)
+FROM runs r
+CROSS JOIN LATERAL (
+  SELECT 'status' AS facet, r.status AS value
+  UNION ALL
+  SELECT k.key, r.metadata ->> k.key FROM run_facet_keys k
+) f
+WHERE f.value IS NOT NULL
+GROUP BY 1, 2, 3;
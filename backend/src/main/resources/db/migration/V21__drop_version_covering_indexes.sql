@@ -0,0 +1,8 @@
+-- V21__drop_version_covering_indexes.sql
+-- version and updated_at change on every write to their table, so indexing them (even as INCLUDE
+-- columns) made every such UPDATE a non-HOT one that also wrote the extra index. Measured on
+-- PostgreSQL 15: 0 of 300 version bumps and operation updates were HOT with these indexes, 300 of
+-- 300 without. Version lookups go through the primary key and read the single heap row instead.
+
+DROP INDEX IF EXISTS idx_tests_id_version;
+DROP INDEX IF EXISTS idx_operations_id_updated_at;
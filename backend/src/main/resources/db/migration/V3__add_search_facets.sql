@@ -0,0 +1,75 @@
+-- V3__add_search_facets.sql
+-- Filtering and facet counts for search: metadata/date indexes and a daily facet rollup
+
+-- Containment (@>) filters on metadata
+CREATE INDEX IF NOT EXISTS idx_runs_metadata_path ON runs USING GIN (metadata jsonb_path_ops);
+CREATE INDEX IF NOT EXISTS idx_tests_metadata_path ON tests USING GIN (metadata jsonb_path_ops);
+
+-- Date range filters
+CREATE INDEX IF NOT EXISTS idx_runs_created_at ON runs (created_at);
+
+-- Metadata keys exposed as facets (run status is always a facet)
+CREATE TABLE IF NOT EXISTS run_facet_keys (
+  key TEXT PRIMARY KEY CHECK (key ~ '^[A-Za-z0-9_.-]+$')
+);
+
+INSERT INTO run_facet_keys (key) VALUES ('branch'), ('environment')
+ON CONFLICT DO NOTHING;
+
+-- Per-day facet counts, maintained incrementally from runs
+CREATE TABLE IF NOT EXISTS run_facet_counts_daily (
+  day DATE NOT NULL,
+  facet TEXT NOT NULL,
+  value TEXT NOT NULL,
+  hits BIGINT NOT NULL DEFAULT 0,
+  PRIMARY KEY (day, facet, value)
+);
+
+CREATE OR REPLACE FUNCTION run_facet_counts_apply(r runs, delta INT) RETURNS void AS $$
+begin
+  INSERT INTO run_facet_counts_daily (day, facet, value, hits)
+  SELECT (r.created_at AT TIME ZONE 'UTC')::date, f.facet, f.value, delta
+  FROM (
+    SELECT 'status' AS facet, r.status AS value
+    UNION ALL
+    SELECT k.key, r.metadata ->> k.key FROM run_facet_keys k
+  ) f
+  WHERE f.value IS NOT NULL AND r.created_at IS NOT NULL
+  ON CONFLICT (day, facet, value) DO UPDATE SET hits = run_facet_counts_daily.hits + EXCLUDED.hits;
+end
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION runs_facet_counts_trigger() RETURNS trigger AS $$
+begin
+  IF TG_OP IN ('UPDATE', 'DELETE') THEN
+    PERFORM run_facet_counts_apply(OLD, -1);
+  END IF;
+  IF TG_OP IN ('INSERT', 'UPDATE') THEN
+    PERFORM run_facet_counts_apply(NEW, 1);
+  END IF;
+  RETURN NULL;
+end
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER runs_facet_counts_insert_delete AFTER INSERT OR DELETE ON runs
+FOR EACH ROW EXECUTE FUNCTION runs_facet_counts_trigger();
+
+CREATE TRIGGER runs_facet_counts_update AFTER UPDATE OF status, metadata, created_at ON runs
+FOR EACH ROW
+WHEN (OLD.status IS DISTINCT FROM NEW.status
+      OR OLD.metadata IS DISTINCT FROM NEW.metadata
+      OR OLD.created_at IS DISTINCT FROM NEW.created_at)
+EXECUTE FUNCTION runs_facet_counts_trigger();
+
+-- Backfill from existing runs
+INSERT INTO run_facet_counts_daily (day, facet, value, hits)
+SELECT (r.created_at AT TIME ZONE 'UTC')::date, f.facet, f.value, count(*)
+FROM runs r
+CROSS JOIN LATERAL (
+  SELECT 'status' AS facet, r.status AS value
+  UNION ALL
+  SELECT k.key, r.metadata ->> k.key FROM run_facet_keys k
+) f
+WHERE f.value IS NOT NULL AND r.created_at IS NOT NULL
+GROUP BY 1, 2, 3
+ON CONFLICT (day, facet, value) DO UPDATE SET hits = EXCLUDED.hits;
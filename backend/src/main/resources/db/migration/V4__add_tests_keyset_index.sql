@@ -0,0 +1,4 @@
+-- V4__add_tests_keyset_index.sql
+-- Keyset pagination over tests ordered by (created_at, id)
+
+CREATE INDEX IF NOT EXISTS idx_tests_created_at_id ON tests (created_at, id);
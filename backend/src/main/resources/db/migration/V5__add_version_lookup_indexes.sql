@@ -0,0 +1,5 @@
+-- V5__add_version_lookup_indexes.sql
+-- Covering indexes so conditional GETs can read the current version with an index-only scan
+
+CREATE INDEX IF NOT EXISTS idx_tests_id_version ON tests (id) INCLUDE (version);
+CREATE INDEX IF NOT EXISTS idx_operations_id_updated_at ON operations (id) INCLUDE (updated_at);
@@ -0,0 +1,26 @@
+-- V6__add_jsonb_merge_patch.sql
+-- RFC 7386 JSON Merge Patch for jsonb: objects merge recursively, null removes a key,
+-- anything else replaces the target value
+
+CREATE OR REPLACE FUNCTION jsonb_merge_patch(target jsonb, patch jsonb) RETURNS jsonb AS $$
+DECLARE
+  result jsonb;
+  item record;
+begin
+  IF patch IS NULL OR jsonb_typeof(patch) <> 'object' THEN
+    RETURN patch;
+  END IF;
+
+  result := CASE WHEN jsonb_typeof(target) = 'object' THEN target ELSE '{}'::jsonb END;
+
+  FOR item IN SELECT key, value FROM jsonb_each(patch) LOOP
+    IF jsonb_typeof(item.value) = 'null' THEN
+      result := result - item.key;
+    ELSE
+      result := jsonb_set(result, ARRAY[item.key], jsonb_merge_patch(result -> item.key, item.value));
+    END IF;
+  END LOOP;
+
+  RETURN result;
+end
+$$ LANGUAGE plpgsql IMMUTABLE;
@@ -0,0 +1,18 @@
+-- V7__add_test_tombstones.sql
+-- Soft-delete marker for tests whose runs and artifacts are removed in the background
+
+ALTER TABLE tests ADD COLUMN IF NOT EXISTS deleted_at TIMESTAMP WITH TIME ZONE;
+
+-- Storage key of the uploaded object, so it can be removed along with the row
+ALTER TABLE artifacts ADD COLUMN IF NOT EXISTS object_key TEXT;
+
+-- Version lookups only ever target live tests; keep them index-only
+DROP INDEX IF EXISTS idx_tests_id_version;
+CREATE INDEX IF NOT EXISTS idx_tests_id_version ON tests (id) INCLUDE (version) WHERE deleted_at IS NULL;
+
+-- Small set of tombstoned tests, for excluding their runs from search
+CREATE INDEX IF NOT EXISTS idx_tests_tombstoned ON tests (id) WHERE deleted_at IS NOT NULL;
+
+-- Batch deletes walk a test's runs and each run's artifacts
+CREATE INDEX IF NOT EXISTS idx_runs_test_id ON runs (test_id);
+CREATE INDEX IF NOT EXISTS idx_artifacts_run_id ON artifacts (run_id);
@@ -0,0 +1,7 @@
+-- V8__add_runs_by_test_index.sql
+-- Run history per test, newest first, keyset-paginated on (created_at, id)
+
+CREATE INDEX IF NOT EXISTS idx_runs_test_created_id ON runs (test_id, created_at DESC, id DESC);
+
+-- Superseded by the composite index above (same leading column)
+DROP INDEX IF EXISTS idx_runs_test_id;
@@ -0,0 +1,92 @@
+-- V9__add_run_stats_daily.sql
+-- Per-test daily run statistics, maintained incrementally from runs
+
+CREATE TABLE IF NOT EXISTS run_stats_daily (
+  test_id UUID NOT NULL REFERENCES tests(id) ON DELETE CASCADE,
+  day DATE NOT NULL,
+  status TEXT NOT NULL,
+  runs BIGINT NOT NULL DEFAULT 0,
+  duration_ms_sum BIGINT NOT NULL DEFAULT 0,
+  duration_ms_max BIGINT,
+  PRIMARY KEY (test_id, day, status)
+);
+
+-- Run duration from metadata.duration_ms; anything that is not a non-negative number counts as unknown
+CREATE OR REPLACE FUNCTION run_duration_ms(metadata JSONB) RETURNS BIGINT AS $$
+  SELECT CASE WHEN v >= 0 AND v < 1e18 THEN round(v)::bigint END
+  FROM (SELECT CASE WHEN jsonb_typeof(metadata -> 'duration_ms') = 'number'
+                    THEN (metadata ->> 'duration_ms')::numeric END AS v) d
+$$ LANGUAGE sql IMMUTABLE;
+
+-- Run writes hold this per-test lock shared; the backfill takes it exclusively while it recomputes a test
+CREATE OR REPLACE FUNCTION run_stats_lock_key(test_id UUID) RETURNS BIGINT AS $$
+  SELECT hashtextextended(test_id::text, 36)
+$$ LANGUAGE sql IMMUTABLE;
+
+CREATE OR REPLACE FUNCTION run_stats_apply(r runs, delta INT) RETURNS void AS $$
+declare
+  run_day DATE;
+  run_status TEXT;
+  duration BIGINT;
+begin
+  IF r.test_id IS NULL OR r.created_at IS NULL THEN
+    RETURN;
+  END IF;
+  run_day := (r.created_at AT TIME ZONE 'UTC')::date;
+  run_status := coalesce(r.status, 'unknown');
+  duration := run_duration_ms(r.metadata);
+
+  PERFORM pg_advisory_xact_lock_shared(run_stats_lock_key(r.test_id));
+
+  INSERT INTO run_stats_daily AS s (test_id, day, status, runs, duration_ms_sum, duration_ms_max)
+  VALUES (r.test_id, run_day, run_status, delta, delta * coalesce(duration, 0),
+          CASE WHEN delta > 0 THEN duration END)
+  ON CONFLICT (test_id, day, status) DO UPDATE
+  SET runs = s.runs + EXCLUDED.runs,
+      duration_ms_sum = s.duration_ms_sum + EXCLUDED.duration_ms_sum,
+      duration_ms_max = GREATEST(s.duration_ms_max, EXCLUDED.duration_ms_max);
+
+  -- A max cannot be decremented: only when the removed run held it, recompute from that day's runs
+  IF delta < 0 AND duration IS NOT NULL THEN
+    UPDATE run_stats_daily s
+    SET duration_ms_max = (
+      SELECT max(run_duration_ms(x.metadata))
+      FROM runs x
+      WHERE x.test_id = r.test_id
+        AND x.created_at >= run_day::timestamp AT TIME ZONE 'UTC'
+        AND x.created_at < (run_day + 1)::timestamp AT TIME ZONE 'UTC'
+        AND coalesce(x.status, 'unknown') = run_status
+        AND x.id <> r.id
+    )
+    WHERE s.test_id = r.test_id AND s.day = run_day AND s.status = run_status
+      AND s.duration_ms_max = duration;
+  END IF;
+end
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION runs_stats_trigger() RETURNS trigger AS $$
+begin
+  IF TG_OP IN ('UPDATE', 'DELETE') THEN
+    PERFORM run_stats_apply(OLD, -1);
+  END IF;
+  IF TG_OP IN ('INSERT', 'UPDATE') THEN
+    PERFORM run_stats_apply(NEW, 1);
+  END IF;
+  RETURN NULL;
+end
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER runs_stats_insert_delete AFTER INSERT OR DELETE ON runs
+FOR EACH ROW EXECUTE FUNCTION runs_stats_trigger();
+
+CREATE TRIGGER runs_stats_update AFTER UPDATE OF test_id, status, metadata, created_at ON runs
+FOR EACH ROW
+WHEN (OLD.test_id IS DISTINCT FROM NEW.test_id
+      OR OLD.status IS DISTINCT FROM NEW.status
+      OR run_duration_ms(OLD.metadata) IS DISTINCT FROM run_duration_ms(NEW.metadata)
+      OR OLD.created_at IS DISTINCT FROM NEW.created_at)
+EXECUTE FUNCTION runs_stats_trigger();
+
+-- Existing runs are counted by a chunked background operation instead of in this migration
+INSERT INTO operations (type, status, payload)
+VALUES ('RUN_STATS_BACKFILL', 'PENDING', '{}'::jsonb);
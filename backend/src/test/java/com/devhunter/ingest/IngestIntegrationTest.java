@@ -1,7 +1,17 @@
 package com.devhunter.ingest;
 
-import com.devhunter.ingest.domain.Test;
+import com.devhunter.ingest.domain.Run;
+import com.devhunter.ingest.domain.UuidV7Generator;
+import com.devhunter.ingest.repository.ArtifactWriteRepository;
+import com.devhunter.ingest.repository.ArtifactWriteRepository.ArtifactRow;
+import com.devhunter.ingest.repository.ContentObjectRepository;
+import com.devhunter.ingest.repository.RunRepository;
 import com.devhunter.ingest.repository.TestRepository;
+import com.devhunter.ingest.service.ArtifactWriteBuffer;
+import com.devhunter.ingest.storage.ExpiredUploadAborter;
+import com.devhunter.ingest.storage.JdbcPresignStore;
+import com.devhunter.ingest.storage.PresignStore;
+import com.devhunter.ingest.storage.PresignedUploadInfo;
 import io.restassured.RestAssured;
 import io.restassured.http.ContentType;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,16 +21,26 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import javax.sql.DataSource;
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
 
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.Matchers.*;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @Testcontainers
@@ -48,6 +68,27 @@ class IngestIntegrationTest {
     @Autowired
     private TestRepository testRepository;
 
+    @Autowired
+    private RunRepository runRepository;
+
+    @Autowired
+    private ArtifactWriteRepository artifactWriteRepository;
+
+    @Autowired
+    private ArtifactWriteBuffer artifactWriteBuffer;
+
+    @Autowired
+    private PresignStore presignStore;
+
+    @Autowired
+    private ContentObjectRepository contentObjectRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @BeforeEach
     void setUp() {
         RestAssured.port = port;
@@ -131,6 +172,32 @@ class IngestIntegrationTest {
         assertEquals(firstOperationId, secondOperationId);
     }
 
+    @Test
+    void testConcurrentFirstIngestResolvesSameTest() {
+        Map<String, Object> request = Map.of(
+                "test_id", "race-test",
+                "artifact", Map.of(
+                        "filename", "race.json",
+                        "content_type", "application/json",
+                        "size_bytes", 10
+                )
+        );
+
+        List<CompletableFuture<Integer>> calls = IntStream.range(0, 8)
+                .mapToObj(i -> CompletableFuture.supplyAsync(() -> given()
+                        .contentType(ContentType.JSON)
+                        .body(request)
+                        .when()
+                        .post("/v1/ingest")
+                        .then()
+                        .extract()
+                        .statusCode()))
+                .toList();
+
+        calls.forEach(call -> assertEquals(202, call.join()));
+        assertTrue(testRepository.findByExternalId("race-test").isPresent());
+    }
+
     @Test
     void testValidationErrors() {
         Map<String, Object> invalidRequest = Map.of(
@@ -193,5 +260,653 @@ class IngestIntegrationTest {
                 .statusCode(412)
                 .contentType("application/problem+json");
     }
-}
 
+    @Test
+    void testConditionalGet() {
+        com.devhunter.ingest.domain.Test test = testRepository.save(com.devhunter.ingest.domain.Test.builder()
+                .externalId("conditional-test")
+                .name("Conditional GET")
+                .build());
+
+        String etag = given()
+                .when()
+                .get("/v1/tests/" + test.getId())
+                .then()
+                .statusCode(200)
+                .extract()
+                .header("ETag");
+
+        given()
+                .header("If-None-Match", etag)
+                .when()
+                .get("/v1/tests/" + test.getId())
+                .then()
+                .statusCode(304)
+                .header("ETag", equalTo(etag));
+
+        given()
+                .header("If-None-Match", "\"-1\"")
+                .when()
+                .get("/v1/tests/" + test.getId())
+                .then()
+                .statusCode(200);
+
+        String operationId = given()
+                .contentType(ContentType.JSON)
+                .body(Map.of(
+                        "test_id", "conditional-op",
+                        "artifact", Map.of(
+                                "filename", "results.json",
+                                "content_type", "application/json",
+                                "size_bytes", 10)))
+                .when()
+                .post("/v1/ingest")
+                .then()
+                .statusCode(202)
+                .extract()
+                .path("id");
+
+        String operationEtag = given()
+                .when()
+                .get("/v1/operations/" + operationId)
+                .then()
+                .statusCode(200)
+                .extract()
+                .header("ETag");
+
+        int status = given()
+                .header("If-None-Match", operationEtag)
+                .when()
+                .get("/v1/operations/" + operationId)
+                .then()
+                .extract()
+                .statusCode();
+
+        // The background worker may have moved the operation on in between
+        assertTrue(status == 304 || status == 200);
+    }
+
+    @Test
+    void testMergePatch() {
+        com.devhunter.ingest.domain.Test test = testRepository.save(com.devhunter.ingest.domain.Test.builder()
+                .externalId("patch-test")
+                .name("Patch Me")
+                .metadata(Map.of("owner", "qa", "labels", Map.of("tier", "1", "area", "checkout")))
+                .build());
+        String etag = "\"" + test.getVersion() + "\"";
+
+        String newEtag = given()
+                .contentType("application/merge-patch+json")
+                .header("If-Match", etag)
+                .body("{\"metadata\": {\"tag\": \"smoke\", \"labels\": {\"tier\": null}}}")
+                .when()
+                .patch("/v1/tests/" + test.getId())
+                .then()
+                .statusCode(204)
+                .header("ETag", not(equalTo(etag)))
+                .extract()
+                .header("ETag");
+
+        given()
+                .when()
+                .get("/v1/tests/" + test.getId())
+                .then()
+                .statusCode(200)
+                .header("ETag", equalTo(newEtag))
+                .body("name", equalTo("Patch Me"))
+                .body("metadata.owner", equalTo("qa"))
+                .body("metadata.tag", equalTo("smoke"))
+                .body("metadata.labels.area", equalTo("checkout"))
+                .body("metadata.labels", not(hasKey("tier")));
+
+        // Stale version is rejected without writing
+        given()
+                .contentType("application/merge-patch+json")
+                .header("If-Match", etag)
+                .body("{\"name\": \"Lost Update\"}")
+                .when()
+                .patch("/v1/tests/" + test.getId())
+                .then()
+                .statusCode(412)
+                .contentType("application/problem+json");
+
+        // Metadata stays an object
+        given()
+                .contentType("application/merge-patch+json")
+                .header("If-Match", newEtag)
+                .body("{\"metadata\": \"x\"}")
+                .when()
+                .patch("/v1/tests/" + test.getId())
+                .then()
+                .statusCode(400);
+    }
+
+    @Test
+    void testKeysetPaginatedListing() {
+        for (int i = 0; i < 3; i++) {
+            testRepository.save(com.devhunter.ingest.domain.Test.builder()
+                    .externalId("page-" + i)
+                    .name("Paged " + i)
+                    .metadata(Map.of("index", i))
+                    .build());
+        }
+
+        String cursor = given()
+                .queryParam("limit", 2)
+                .queryParam("fields", "id,name")
+                .when()
+                .get("/v1/tests")
+                .then()
+                .statusCode(200)
+                .body("items", hasSize(2))
+                .body("items[0]", not(hasKey("metadata")))
+                .body("items[0].name", equalTo("Paged 0"))
+                .body("nextCursor", notNullValue())
+                .extract()
+                .path("nextCursor");
+
+        given()
+                .queryParam("limit", 2)
+                .queryParam("after", cursor)
+                .when()
+                .get("/v1/tests")
+                .then()
+                .statusCode(200)
+                .body("items", hasSize(1))
+                .body("items[0].metadata.index", equalTo(2))
+                .body("nextCursor", nullValue());
+
+        String export = given()
+                .queryParam("fields", "externalId")
+                .when()
+                .get("/v1/tests/export")
+                .then()
+                .statusCode(200)
+                .contentType("application/x-ndjson")
+                .extract()
+                .asString();
+
+        assertEquals(3, export.lines().count());
+    }
+
+    @Test
+    void testDeleteIsAsynchronous() throws InterruptedException {
+        com.devhunter.ingest.domain.Test test = testRepository.save(com.devhunter.ingest.domain.Test.builder()
+                .externalId("delete-test")
+                .name("Delete Me")
+                .build());
+        IntStream.range(0, 3).forEach(i -> runRepository.save(Run.builder()
+                .test(test)
+                .status("passed")
+                .build()));
+
+        String operationId = given()
+                .when()
+                .delete("/v1/tests/" + test.getId())
+                .then()
+                .statusCode(202)
+                .header("Location", startsWith("/v1/operations/"))
+                .extract()
+                .path("id");
+
+        // Tombstoned: hidden immediately, while its runs are still being removed
+        given()
+                .when()
+                .get("/v1/tests/" + test.getId())
+                .then()
+                .statusCode(404);
+
+        given()
+                .when()
+                .delete("/v1/tests/" + test.getId())
+                .then()
+                .statusCode(404);
+
+        String status = null;
+        for (int attempt = 0; attempt < 30 && !"SUCCEEDED".equals(status); attempt++) {
+            Thread.sleep(500);
+            status = given()
+                    .when()
+                    .get("/v1/operations/" + operationId)
+                    .then()
+                    .statusCode(200)
+                    .extract()
+                    .path("status");
+        }
+
+        assertEquals("SUCCEEDED", status);
+        assertTrue(runRepository.findByTestId(test.getId()).isEmpty());
+        assertFalse(testRepository.existsById(test.getId()));
+    }
+
+    @Test
+    void testListRunsForTest() {
+        com.devhunter.ingest.domain.Test test = testRepository.save(com.devhunter.ingest.domain.Test.builder()
+                .externalId("runs-test")
+                .name("Run History")
+                .build());
+        List<String> statuses = List.of("passed", "failed", "passed");
+        IntStream.range(0, statuses.size()).forEach(i -> runRepository.save(Run.builder()
+                .test(test)
+                .status(statuses.get(i))
+                .metadata(Map.of("index", i))
+                .build()));
+
+        String cursor = given()
+                .queryParam("limit", 2)
+                .when()
+                .get("/v1/tests/" + test.getId() + "/runs")
+                .then()
+                .statusCode(200)
+                .body("items", hasSize(2))
+                .body("items[0].metadata.index", equalTo(2))
+                .body("items[1].metadata.index", equalTo(1))
+                .body("nextCursor", notNullValue())
+                .extract()
+                .path("nextCursor");
+
+        given()
+                .queryParam("limit", 2)
+                .queryParam("before", cursor)
+                .when()
+                .get("/v1/tests/" + test.getId() + "/runs")
+                .then()
+                .statusCode(200)
+                .body("items", hasSize(1))
+                .body("items[0].metadata.index", equalTo(0))
+                .body("nextCursor", nullValue());
+
+        given()
+                .queryParam("status", "failed")
+                .when()
+                .get("/v1/tests/" + test.getId() + "/runs")
+                .then()
+                .statusCode(200)
+                .body("items", hasSize(1))
+                .body("items[0].status", equalTo("failed"));
+
+        given()
+                .when()
+                .get("/v1/tests/" + java.util.UUID.randomUUID() + "/runs")
+                .then()
+                .statusCode(404);
+    }
+
+    @Test
+    void testRunStatsRollup() {
+        com.devhunter.ingest.domain.Test test = testRepository.save(com.devhunter.ingest.domain.Test.builder()
+                .externalId("stats-test")
+                .name("Stats")
+                .build());
+        Run slowest = runRepository.save(Run.builder()
+                .test(test).status("passed").metadata(Map.of("duration_ms", 300)).build());
+        runRepository.save(Run.builder()
+                .test(test).status("passed").metadata(Map.of("duration_ms", 100)).build());
+        runRepository.save(Run.builder()
+                .test(test).status("failed").metadata(Map.of("duration_ms", "n/a")).build());
+
+        given()
+                .when()
+                .get("/v1/tests/" + test.getId() + "/stats")
+                .then()
+                .statusCode(200)
+                .body("runs", equalTo(3))
+                .body("runsByStatus.passed", equalTo(2))
+                .body("runsByStatus.failed", equalTo(1))
+                .body("days.find { it.status == 'passed' }.durationMsSum", equalTo(400))
+                .body("days.find { it.status == 'passed' }.durationMsMax", equalTo(300))
+                .body("days.find { it.status == 'failed' }.durationMsMax", nullValue());
+
+        // Removing the slowest run recomputes the max from the remaining runs
+        runRepository.delete(slowest);
+
+        given()
+                .when()
+                .get("/v1/tests/" + test.getId() + "/stats")
+                .then()
+                .statusCode(200)
+                .body("runsByStatus.passed", equalTo(1))
+                .body("days.find { it.status == 'passed' }.durationMsSum", equalTo(100))
+                .body("days.find { it.status == 'passed' }.durationMsMax", equalTo(100));
+
+        given()
+                .queryParam("from", "2024-02-01")
+                .queryParam("to", "2024-01-01")
+                .when()
+                .get("/v1/tests/" + test.getId() + "/stats")
+                .then()
+                .statusCode(400);
+    }
+
+    @Test
+    void testImportRuns() {
+        com.devhunter.ingest.domain.Test test = testRepository.save(com.devhunter.ingest.domain.Test.builder()
+                .externalId("import-test")
+                .name("Import")
+                .build());
+        String body = String.join("\n",
+                "{\"status\":\"passed\",\"metadata\":{\"duration_ms\":120,\"note\":\"say \\\"hi\\\", ok\"},"
+                        + "\"createdAt\":\"2024-01-02T10:00:00Z\","
+                        + "\"artifacts\":[{\"filename\":\"log.txt\",\"url\":\"https://ci.example.com/42/log.txt\"}]}",
+                "{\"status\":\"failed\",\"createdAt\":\"2024-01-02T11:00:00Z\"}",
+                "");
+
+        given()
+                .contentType("application/x-ndjson")
+                .body(body)
+                .when()
+                .post("/v1/tests/" + test.getId() + "/runs:import")
+                .then()
+                .statusCode(200)
+                .body("runs", equalTo(2))
+                .body("artifacts", equalTo(1));
+
+        given()
+                .when()
+                .get("/v1/tests/" + test.getId() + "/runs")
+                .then()
+                .statusCode(200)
+                .body("items", hasSize(2))
+                .body("items[1].metadata.note", equalTo("say \"hi\", ok"));
+
+        // The bulk merge maintains the rollup itself
+        given()
+                .queryParam("from", "2024-01-01")
+                .queryParam("to", "2024-02-01")
+                .when()
+                .get("/v1/tests/" + test.getId() + "/stats")
+                .then()
+                .statusCode(200)
+                .body("runs", equalTo(2))
+                .body("days.find { it.status == 'passed' }.durationMsMax", equalTo(120));
+
+        // One invalid line rejects the whole import
+        given()
+                .contentType("application/x-ndjson")
+                .body("{\"status\":\"passed\"}\n{\"status\": oops}\n")
+                .when()
+                .post("/v1/tests/" + test.getId() + "/runs:import")
+                .then()
+                .statusCode(400);
+        // Imports cannot point artifacts at stored objects
+        given()
+                .contentType("application/x-ndjson")
+                .body("{\"status\":\"passed\",\"artifacts\":[{\"filename\":\"log.txt\",\"provider\":\"aws\","
+                        + "\"objectKey\":\"uploads/other-tenant.txt\"}]}\n")
+                .when()
+                .post("/v1/tests/" + test.getId() + "/runs:import")
+                .then()
+                .statusCode(400);
+        assertEquals(2, runRepository.findByTestId(test.getId()).size());
+    }
+
+    @Test
+    void testRunArtifactsIncludeBufferedWrites() throws InterruptedException {
+        com.devhunter.ingest.domain.Test test = testRepository.save(com.devhunter.ingest.domain.Test.builder()
+                .externalId("artifacts-test")
+                .name("Artifacts")
+                .build());
+        Run run = runRepository.save(Run.builder()
+                .test(test)
+                .status("passed")
+                .build());
+
+        // What finalize hands to the buffer after verifying the upload
+        ArtifactRow row = new ArtifactRow(UuidV7Generator.nextId(), run.getId(), "report.json",
+                "https://storage.example.com/report.json", "aws", "k/report.json", 2048L, "abc123",
+                "application/json", Instant.now(), null);
+        artifactWriteBuffer.enqueue(row);
+
+        // Listed at once, whether or not its batch has committed yet
+        given()
+                .when()
+                .get("/v1/runs/" + run.getId() + "/artifacts")
+                .then()
+                .statusCode(200)
+                .body("$", hasSize(1))
+                .body("[0].id", equalTo(row.id().toString()))
+                .body("[0].provider", equalTo("aws"))
+                .body("[0].sizeBytes", equalTo(2048));
+
+        for (int attempt = 0; attempt < 20 && !artifactWriteBuffer.pendingFor(run.getId()).isEmpty(); attempt++) {
+            Thread.sleep(100);
+        }
+        assertTrue(artifactWriteBuffer.pendingFor(run.getId()).isEmpty());
+        assertEquals(List.of(row.id()), artifactWriteRepository.findByRun(run.getId()).stream()
+                .map(ArtifactRow::id)
+                .toList());
+
+        given()
+                .when()
+                .get("/v1/runs/" + UUID.randomUUID() + "/artifacts")
+                .then()
+                .statusCode(404);
+    }
+
+    @Test
+    void testPresignedUploadIsSharedAcrossNodes() {
+        // A second application node with its own near-cache
+        ExpiredUploadAborter aborter = mock(ExpiredUploadAborter.class);
+        JdbcPresignStore otherNode = new JdbcPresignStore(dataSource, transactionManager, aborter, 100, 3600);
+        String presignedId = UUID.randomUUID().toString();
+        presignStore.put(PresignedUploadInfo.builder()
+                .presignedId(presignedId)
+                .provider("aws")
+                .objectKey("uploads/" + presignedId)
+                .filename("report.json")
+                .contentType("application/json")
+                .expiresInSeconds(600)
+                .build());
+
+        PresignedUploadInfo found = otherNode.get(presignedId).orElseThrow();
+        assertEquals("uploads/" + presignedId, found.getObjectKey());
+        assertEquals("report.json", found.getFilename());
+
+        // Finalized on the other node: this node's near-cache entry no longer wins
+        assertTrue(otherNode.remove(presignedId));
+        assertFalse(presignStore.remove(presignedId));
+        assertTrue(otherNode.get(presignedId).isEmpty());
+
+        String expiredId = UUID.randomUUID().toString();
+        presignStore.put(PresignedUploadInfo.builder()
+                .presignedId(expiredId)
+                .provider("aws")
+                .objectKey("uploads/" + expiredId)
+                .expiresInSeconds(0)
+                .build());
+        assertTrue(otherNode.get(expiredId).isEmpty());
+
+        // Expired multipart uploads are aborted by whichever node sweeps first
+        String multipartId = UUID.randomUUID().toString();
+        presignStore.put(PresignedUploadInfo.builder()
+                .presignedId(multipartId)
+                .provider("aws")
+                .objectKey("uploads/" + multipartId)
+                .uploadId("upload-" + multipartId)
+                .partCount(3)
+                .expiresInSeconds(0)
+                .build());
+        otherNode.cleanupExpiredUploads();
+        verify(aborter).abort(argThat(info -> info.getPresignedId().equals(multipartId)
+                && info.getUploadId().equals("upload-" + multipartId) && info.getPartCount() == 3));
+        verify(aborter, never()).abort(argThat(info -> info.getPresignedId().equals(expiredId)));
+    }
+
+    @Test
+    void testBatchPresignReportsErrorsPerFile() {
+        Map<String, Object> batch = Map.of("files", List.of(
+                Map.of("filename", "setup.exe", "contentType", "application/x-msdownload", "sizeBytes", 10),
+                Map.of("filename", "", "contentType", "image/png", "sizeBytes", 10),
+                Map.of("filename", "huge.zip", "contentType", "application/zip", "sizeBytes", 10_000_000_000L)));
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(batch)
+                .when()
+                .post("/v1/artifacts/presign:batch")
+                .then()
+                .statusCode(200)
+                .body("succeeded", equalTo(0))
+                .body("failed", equalTo(3))
+                .body("results.index", contains(0, 1, 2))
+                .body("results.status", contains(415, 400, 413))
+                .body("results[1].error", equalTo("filename is required"));
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(Map.of("files", List.of()))
+                .when()
+                .post("/v1/artifacts/presign:batch")
+                .then()
+                .statusCode(400);
+    }
+
+    @Test
+    void testMultipartUploadRejectsBadRequests() {
+        given()
+                .contentType(ContentType.JSON)
+                .body(Map.of("filename", "setup.exe", "contentType", "application/x-msdownload", "sizeBytes", 10))
+                .when()
+                .post("/v1/artifacts/presign:multipart")
+                .then()
+                .statusCode(415);
+
+        given()
+                .queryParam("partNumbers", 1)
+                .when()
+                .post("/v1/artifacts/uploads/unknown-upload/parts")
+                .then()
+                .statusCode(404);
+
+        given()
+                .when()
+                .delete("/v1/artifacts/uploads/unknown-upload")
+                .then()
+                .statusCode(404);
+    }
+
+    @Test
+    void testPresignReusesStoredContent() {
+        com.devhunter.ingest.domain.Test test = testRepository.save(com.devhunter.ingest.domain.Test.builder()
+                .externalId("dedup-test")
+                .name("Dedup")
+                .build());
+        Run run = runRepository.save(Run.builder()
+                .test(test)
+                .status("passed")
+                .build());
+        String sha256 = "5f".repeat(32);
+        // What finalize records for the first upload of the content, once its checksum is trusted
+        contentObjectRepository.acquire("azure", "uploads/fixture.json", sha256, 2048,
+                "https://storage.example.com/uploads/fixture.json");
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(Map.of("filename", "fixture-copy.json", "contentType", "application/json", "sizeBytes", 2048,
+                        "sha256", sha256.toUpperCase(), "runId", run.getId().toString()))
+                .when()
+                .post("/v1/artifacts/presign")
+                .then()
+                .statusCode(200)
+                .body("deduplicated", equalTo(true))
+                .body("uploadUrl", nullValue())
+                .body("artifact.url", equalTo("https://storage.example.com/uploads/fixture.json"))
+                .body("artifact.filename", equalTo("fixture-copy.json"))
+                .body("artifact.runId", equalTo(run.getId().toString()));
+
+        given()
+                .when()
+                .get("/v1/runs/" + run.getId() + "/artifacts")
+                .then()
+                .statusCode(200)
+                .body("$", hasSize(1))
+                .body("[0].sha256", equalTo(sha256));
+
+        // A run that does not exist is rejected before a reference is taken
+        given()
+                .contentType(ContentType.JSON)
+                .body(Map.of("filename", "fixture.json", "contentType", "application/json", "sizeBytes", 4096,
+                        "sha256", sha256, "runId", UUID.randomUUID().toString()))
+                .when()
+                .post("/v1/artifacts/presign")
+                .then()
+                .statusCode(404);
+
+        // Content only claimed by its uploader is not handed out until it is verified
+        String unverified = "6e".repeat(32);
+        contentObjectRepository.registerUnverified("azure", "uploads/claimed.json", unverified, 1024,
+                "https://storage.example.com/uploads/claimed.json");
+        given()
+                .contentType(ContentType.JSON)
+                .body(Map.of("filename", "claimed-copy.json", "contentType", "application/json", "sizeBytes", 1024,
+                        "sha256", unverified))
+                .when()
+                .post("/v1/artifacts/presign")
+                .then()
+                .statusCode(200)
+                .body("deduplicated", equalTo(false));
+
+        contentObjectRepository.markShareable("azure", "uploads/claimed.json");
+        given()
+                .contentType(ContentType.JSON)
+                .body(Map.of("filename", "claimed-copy.json", "contentType", "application/json", "sizeBytes", 1024,
+                        "sha256", unverified))
+                .when()
+                .post("/v1/artifacts/presign")
+                .then()
+                .statusCode(200)
+                .body("deduplicated", equalTo(true))
+                .body("artifact.url", equalTo("https://storage.example.com/uploads/claimed.json"));
+
+        given()
+                .contentType(ContentType.JSON)
+                .body(Map.of("filename", "fixture.json", "contentType", "application/json", "sizeBytes", 2048,
+                        "sha256", "not-a-digest"))
+                .when()
+                .post("/v1/artifacts/presign")
+                .then()
+                .statusCode(400);
+    }
+
+    @Test
+    void testArtifactContentRedirectsToPresignedUrl() {
+        // Larger than the content cache takes, so it is handed to the provider
+        ArtifactRow row = new ArtifactRow(UuidV7Generator.nextId(), null, "trace.zip",
+                "https://storage.example.com/uploads/trace.zip", "azure", "uploads/trace.zip", 64L << 20, "abc123",
+                "application/zip", Instant.now(), null);
+        artifactWriteBuffer.enqueue(row);
+
+        String location = given()
+                .redirects().follow(false)
+                .when()
+                .get("/v1/artifacts/" + row.id() + "/content")
+                .then()
+                .statusCode(302)
+                .extract()
+                .header("Location");
+        assertTrue(location.contains("/uploads/trace.zip?"), location);
+        assertTrue(location.contains("sp=r"), location);
+
+        // The URL is reused while it has plenty of life left
+        given()
+                .redirects().follow(false)
+                .when()
+                .get("/v1/artifacts/" + row.id() + "/content")
+                .then()
+                .statusCode(302)
+                .header("Location", equalTo(location));
+
+        given()
+                .header("If-None-Match", "\"" + row.id() + "\"")
+                .when()
+                .get("/v1/artifacts/" + row.id() + "/content")
+                .then()
+                .statusCode(304);
+
+        given()
+                .when()
+                .get("/v1/artifacts/" + UUID.randomUUID() + "/content")
+                .then()
+                .statusCode(404);
+    }
+}
@@ -1,16 +1,25 @@
 package com.devhunter.ingest;
 
+import com.devhunter.ingest.domain.Run;
 import com.devhunter.ingest.domain.Test;
+import com.devhunter.ingest.dto.SearchFilters;
+import com.devhunter.ingest.dto.SearchHit;
+import com.devhunter.ingest.dto.SearchResults;
+import com.devhunter.ingest.repository.RunRepository;
+import com.devhunter.ingest.repository.SearchRepository;
 import com.devhunter.ingest.repository.TestRepository;
+import com.devhunter.ingest.service.SearchService;
 import org.junit.jupiter.api.BeforeEach;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 
@@ -36,6 +45,18 @@ class SearchIntegrationTest {
     @Autowired
     private TestRepository testRepository;
 
+    @Autowired
+    private RunRepository runRepository;
+
+    @Autowired
+    private SearchRepository searchRepository;
+
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @BeforeEach
     void setUp() {
         testRepository.deleteAll();
@@ -63,7 +84,8 @@ class SearchIntegrationTest {
     @org.junit.jupiter.api.Test
     void testFullTextSearch() {
         // Search for "integration"
-        List<Test> results = testRepository.searchByFullText("integration", 10, 0);
+        List<SearchHit> hits = searchRepository.rankTests("integration", SearchFilters.none(), 10, 0);
+        List<Test> results = testRepository.findAllById(hits.stream().map(SearchHit::getId).toList());
 
         assertFalse(results.isEmpty());
         assertTrue(results.stream().anyMatch(t -> t.getName().contains("Integration")));
@@ -72,14 +94,17 @@ class SearchIntegrationTest {
     @org.junit.jupiter.api.Test
     void testSearchRanking() {
         // Search for "test" - should return all
-        List<Test> results = testRepository.searchByFullText("test", 10, 0);
+        List<SearchHit> hits = searchRepository.rankTests("test", SearchFilters.none(), 10, 0);
 
-        assertEquals(3, results.size());
+        assertEquals(3, hits.size());
+        for (int i = 1; i < hits.size(); i++) {
+            assertTrue(hits.get(i - 1).getRank() >= hits.get(i).getRank());
+        }
     }
 
     @org.junit.jupiter.api.Test
     void testSearchCount() {
-        long count = testRepository.countByFullText("test");
+        long count = searchRepository.countTests("test", SearchFilters.none());
 
         assertEquals(3, count);
     }
@@ -93,5 +118,69 @@ class SearchIntegrationTest {
         // document_tsv should be populated by trigger
         assertNotNull(tests.get(0).getDocumentTsv());
     }
-}
 
+    @org.junit.jupiter.api.Test
+    void testSearchServiceMergesSubQueries() {
+        SearchResults results = searchService.search("integration", 10, 0);
+
+        assertFalse(results.isPartial());
+        assertEquals(1, results.getTotal());
+        assertEquals("test", results.getItems().get(0).getType());
+        assertTrue(results.getItems().get(0).getScore() > 0);
+        assertTrue(results.getItems().get(0).getSnippet().contains("<b>Integration</b>"));
+    }
+
+    @org.junit.jupiter.api.Test
+    void testFilteredSearchWithFacets() {
+        Test owner = testRepository.findByExternalId("search-1").orElseThrow();
+        runRepository.save(Run.builder().test(owner).status("passed")
+                .metadata(Map.of("branch", "main", "suite", "checkout")).build());
+        runRepository.save(Run.builder().test(owner).status("failed")
+                .metadata(Map.of("branch", "main", "suite", "checkout")).build());
+        runRepository.save(Run.builder().test(owner).status("failed")
+                .metadata(Map.of("branch", "dev", "suite", "checkout")).build());
+
+        SearchFilters filters = SearchFilters.of(List.of("failed"), null, null, List.of("branch:main"));
+        SearchResults results = searchService.search("checkout", filters, 10, 0, 5);
+
+        assertEquals(1, results.getTotal());
+        assertEquals("run", results.getItems().get(0).getType());
+        assertEquals("failed", results.getFacets().get("status").get(0).getValue());
+        assertEquals(1, results.getFacets().get("branch").get(0).getCount());
+
+        // Unfiltered browsing is answered from the daily rollup
+        SearchResults browse = searchService.search("", SearchFilters.none(), 10, 0, 5);
+
+        assertTrue(browse.getItems().isEmpty());
+        assertEquals(2, browse.getFacets().get("status").stream()
+                .filter(f -> f.getValue().equals("failed"))
+                .findFirst().orElseThrow().getCount());
+    }
+
+    @org.junit.jupiter.api.Test
+    void testRollupFacetsMatchTheLiveSearch() {
+        Test kept = testRepository.findByExternalId("search-1").orElseThrow();
+        Test deleted = testRepository.findByExternalId("search-2").orElseThrow();
+        runRepository.save(Run.builder().test(kept).status("passed").metadata(Map.of("suite", "checkout")).build());
+        runRepository.save(Run.builder().test(kept).status("failed").metadata(Map.of("suite", "checkout")).build());
+        runRepository.save(Run.builder().test(deleted).status("failed").metadata(Map.of("suite", "cart")).build());
+        jdbcTemplate.update("UPDATE tests SET deleted_at = now() WHERE id = ?", deleted.getId());
+
+        // Added after its runs: backfilled from them
+        jdbcTemplate.update("INSERT INTO run_facet_keys (key) VALUES ('suite')");
+        try {
+            SearchResults rollup = searchService.search("", SearchFilters.none(), 10, 0, 5);
+            SearchResults live = searchService.search("", SearchFilters.of(List.of(), Instant.ofEpochSecond(1), null,
+                    List.of()), 10, 0, 5);
+
+            assertEquals(live.getFacets().get("status"), rollup.getFacets().get("status"));
+            assertEquals(1, rollup.getFacets().get("status").stream()
+                    .filter(f -> f.getValue().equals("failed"))
+                    .findFirst().orElseThrow().getCount());
+            assertEquals(List.of(SearchResults.FacetCount.builder().value("checkout").count(2L).build()),
+                    rollup.getFacets().get("suite"));
+        } finally {
+            jdbcTemplate.update("DELETE FROM run_facet_keys WHERE key = 'suite'");
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.devhunter.ingest.controller;
+
+import com.devhunter.ingest.exception.GlobalExceptionHandler;
+import com.devhunter.ingest.repository.ArtifactWriteRepository;
+import com.devhunter.ingest.repository.ArtifactWriteRepository.ArtifactRow;
+import com.devhunter.ingest.service.ArtifactContentCache;
+import com.devhunter.ingest.service.ArtifactDownloadService;
+import com.devhunter.ingest.service.ArtifactWriteBuffer;
+import com.devhunter.ingest.service.StorageService;
+import com.devhunter.ingest.storage.LocalStorageProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class ArtifactControllerTest {
+
+    @TempDir
+    Path rootDir;
+
+    @TempDir
+    Path cacheDir;
+
+    private final ArtifactWriteRepository artifactWriteRepository = mock(ArtifactWriteRepository.class);
+    private LocalStorageProvider provider;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        provider = new LocalStorageProvider(rootDir.toString(), "http://localhost:8080/",
+                "0123456789abcdef0123456789abcdef");
+    }
+
+    private MockMvc mockMvc(String mode, long cacheMaxObjectBytes) throws Exception {
+        ArtifactDownloadService downloadService = new ArtifactDownloadService(List.of(provider),
+                artifactWriteRepository, mock(ArtifactWriteBuffer.class),
+                new ArtifactContentCache(cacheDir.toString(), 1 << 20, cacheMaxObjectBytes),
+                mode, 900, 600, 100);
+        return MockMvcBuilders.standaloneSetup(new ArtifactController(mock(StorageService.class), downloadService))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    private ArtifactRow store(String filename, String contentType, byte[] content) throws Exception {
+        String objectKey = "uploads/" + UUID.randomUUID() + "_" + filename;
+        Files.createDirectories(rootDir.resolve(objectKey).getParent());
+        Files.write(rootDir.resolve(objectKey), content);
+        ArtifactRow row = new ArtifactRow(UUID.randomUUID(), null, filename, "local://" + objectKey, "local",
+                objectKey, (long) content.length, null, contentType, Instant.now(), null);
+        when(artifactWriteRepository.findById(row.id())).thenReturn(Optional.of(row));
+        return row;
+    }
+
+    @Test
+    void testActiveContentIsDownloadedNotRendered() throws Exception {
+        MockMvc mockMvc = mockMvc("stream", 1024);
+        ArtifactRow html = store("report.html", "text/html", "<script>alert(1)</script>".getBytes());
+        ArtifactRow svg = store("logo.svg", "image/svg+xml", "<svg onload=\"alert(1)\"/>".getBytes());
+        ArtifactRow png = store("screen.png", "image/png", new byte[]{(byte) 0x89, 'P', 'N', 'G'});
+        ArtifactRow invalid = store("odd.bin", "not a type", new byte[]{1});
+
+        mockMvc.perform(get("/v1/artifacts/" + html.id() + "/content"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Content-Type-Options", "nosniff"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"report.html\""));
+        mockMvc.perform(get("/v1/artifacts/" + svg.id() + "/content"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"logo.svg\""));
+        mockMvc.perform(get("/v1/artifacts/" + invalid.id() + "/content"))
+                .andExpect(content().contentType("application/octet-stream"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"odd.bin\""));
+
+        mockMvc.perform(get("/v1/artifacts/" + png.id() + "/content"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/png"))
+                .andExpect(header().string("X-Content-Type-Options", "nosniff"))
+                .andExpect(header().string("Content-Disposition", "inline; filename=\"screen.png\""));
+    }
+
+    @Test
+    void testRangesFromTheCache() throws Exception {
+        MockMvc mockMvc = mockMvc("redirect", 1024);
+        ArtifactRow row = store("report.json", "application/json", "0123456789".getBytes());
+
+        mockMvc.perform(get("/v1/artifacts/" + row.id() + "/content"))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue("Content-Length", 10))
+                .andExpect(content().string("0123456789"));
+        mockMvc.perform(get("/v1/artifacts/" + row.id() + "/content").header("Range", "bytes=2-4"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 2-4/10"))
+                .andExpect(content().string("234"));
+        mockMvc.perform(get("/v1/artifacts/" + row.id() + "/content").header("Range", "bytes=10-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string("Content-Range", "bytes */10"))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void testRangesStreamedFromTheProvider() throws Exception {
+        // Too large for the cache, and streamed instead of redirected
+        MockMvc mockMvc = mockMvc("stream", 4);
+        ArtifactRow row = store("report.json", "application/json", "0123456789".getBytes());
+
+        mockMvc.perform(get("/v1/artifacts/" + row.id() + "/content"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("0123456789"));
+        mockMvc.perform(get("/v1/artifacts/" + row.id() + "/content").header("Range", "bytes=-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 7-9/10"))
+                .andExpect(content().string("789"));
+        mockMvc.perform(get("/v1/artifacts/" + row.id() + "/content").header("Range", "bytes=20-30"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string("Content-Range", "bytes */10"));
+    }
+
+    @Test
+    void testArtifactsWithoutSizeOrStoredObjectRedirect() throws Exception {
+        MockMvc mockMvc = mockMvc("stream", 1024);
+        ArtifactRow stored = store("report.json", "application/json", "0123456789".getBytes());
+        ArtifactRow unsized = new ArtifactRow(UUID.randomUUID(), null, "report.json", stored.url(), "local",
+                stored.objectKey(), null, null, "application/json", Instant.now(), null);
+        ArtifactRow external = new ArtifactRow(UUID.randomUUID(), null, "trace.zip",
+                "https://ci.example.com/builds/42/trace.zip", null, null, null, null, "application/zip",
+                Instant.now(), null);
+        ArtifactRow unreachable = new ArtifactRow(UUID.randomUUID(), null, "trace.zip", "file:///tmp/trace.zip",
+                null, null, 100L, null, "application/zip", Instant.now(), null);
+        List.of(unsized, external, unreachable).forEach(row ->
+                when(artifactWriteRepository.findById(row.id())).thenReturn(Optional.of(row)));
+
+        // Neither cached nor streamed: the range handling needs the size
+        mockMvc.perform(get("/v1/artifacts/" + unsized.id() + "/content"))
+                .andExpect(status().isFound())
+                .andExpect(header().string("Location", containsString(
+                        "key=" + URLEncoder.encode(stored.objectKey(), StandardCharsets.UTF_8))));
+        mockMvc.perform(get("/v1/artifacts/" + external.id() + "/content"))
+                .andExpect(status().isFound())
+                .andExpect(header().string("Location", "https://ci.example.com/builds/42/trace.zip"));
+        mockMvc.perform(get("/v1/artifacts/" + unreachable.id() + "/content"))
+                .andExpect(status().isNotFound());
+    }
+}
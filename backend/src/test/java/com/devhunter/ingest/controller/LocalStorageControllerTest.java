@@ -0,0 +1,147 @@
+package com.devhunter.ingest.controller;
+
+import com.devhunter.ingest.exception.GlobalExceptionHandler;
+import com.devhunter.ingest.storage.LocalStorageProvider;
+import com.devhunter.ingest.storage.PresignedPart;
+import com.devhunter.ingest.storage.PresignedUploadInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class LocalStorageControllerTest {
+
+    @TempDir
+    Path rootDir;
+
+    private LocalStorageProvider provider;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        provider = new LocalStorageProvider(rootDir.toString(), "http://localhost:8080/",
+                "0123456789abcdef0123456789abcdef");
+        mockMvc = MockMvcBuilders.standaloneSetup(new LocalStorageController(provider))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    private String store(String content) throws Exception {
+        PresignedUploadInfo info = provider.generatePresignedUpload("stored.txt", "text/plain", content.length());
+        mockMvc.perform(put(URI.create(info.getUploadUrl())).content(content))
+                .andExpect(status().isOk());
+        return info.getObjectKey();
+    }
+
+    @Test
+    void testUploadRequiresAValidSignature() throws Exception {
+        PresignedUploadInfo info = provider.generatePresignedUpload("report.txt", "text/plain", 10);
+        String url = info.getUploadUrl();
+
+        mockMvc.perform(put(URI.create(url.replace("signature=", "signature=0"))).content("0123456789"))
+                .andExpect(status().isForbidden());
+        // The size bound is signed too
+        mockMvc.perform(put(URI.create(url.replace("size=10", "size=1000"))).content("0123456789"))
+                .andExpect(status().isForbidden());
+        assertFalse(Files.exists(provider.resolve(info.getObjectKey())));
+
+        String sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest("0123456789".getBytes()));
+        mockMvc.perform(put(URI.create(url)).content("0123456789"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"" + sha256 + "\""));
+        assertEquals("0123456789", Files.readString(provider.resolve(info.getObjectKey())));
+    }
+
+    @Test
+    void testUploadsLargerThanSignedAreRejected() throws Exception {
+        PresignedUploadInfo info = provider.generatePresignedUpload("report.txt", "text/plain", 4);
+
+        mockMvc.perform(put(URI.create(info.getUploadUrl())).content("0123456789"))
+                .andExpect(status().isPayloadTooLarge());
+        assertFalse(Files.exists(provider.resolve(info.getObjectKey())));
+    }
+
+    @Test
+    void testPartUploadsAreBoundedByTheirOwnSize() throws Exception {
+        PresignedUploadInfo info = provider.initiateMultipartUpload("parts.bin", "application/octet-stream", 10);
+        List<PresignedPart> parts = provider.presignUploadParts(info.getObjectKey(), info.getUploadId(),
+                "application/octet-stream", 10, 4, List.of(1, 2, 3));
+
+        mockMvc.perform(put(URI.create(parts.get(0).getUploadUrl())).content("01234"))
+                .andExpect(status().isPayloadTooLarge());
+        // The last part holds the remaining 2 bytes only
+        mockMvc.perform(put(URI.create(parts.get(2).getUploadUrl())).content("8901"))
+                .andExpect(status().isPayloadTooLarge());
+
+        mockMvc.perform(put(URI.create(parts.get(0).getUploadUrl())).content("0123")).andExpect(status().isOk());
+        mockMvc.perform(put(URI.create(parts.get(1).getUploadUrl())).content("4567")).andExpect(status().isOk());
+        mockMvc.perform(put(URI.create(parts.get(2).getUploadUrl())).content("89")).andExpect(status().isOk());
+        provider.completeMultipartUpload(info.getObjectKey(), info.getUploadId(), "application/octet-stream", 3);
+        assertEquals("0123456789", Files.readString(provider.resolve(info.getObjectKey())));
+    }
+
+    @Test
+    void testDownloadRequiresAValidSignature() throws Exception {
+        String key = store("0123456789");
+
+        mockMvc.perform(get(URI.create(provider.presignDownload(key, 60).replace("signature=", "signature=0"))))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get(URI.create(provider.presignDownload(key, -10))))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get(URI.create(provider.presignDownload("uploads/missing.txt", 60))))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testDownloadRanges() throws Exception {
+        String url = provider.presignDownload(store("0123456789"), 60);
+
+        mockMvc.perform(get(URI.create(url)))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue("Content-Length", 10))
+                .andExpect(content().string("0123456789"));
+        mockMvc.perform(get(URI.create(url)).header("Range", "bytes=2-4"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 2-4/10"))
+                .andExpect(content().string("234"));
+        mockMvc.perform(get(URI.create(url)).header("Range", "bytes=10-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string("Content-Range", "bytes */10"));
+    }
+
+    @Test
+    void testDownloadIsLeftToSendfileWhenTheContainerSupportsIt() throws Exception {
+        String key = store("0123456789");
+        String url = provider.presignDownload(key, 60);
+
+        MvcResult result = mockMvc.perform(get(URI.create(url)).header("Range", "bytes=2-4")
+                        .requestAttr("org.apache.tomcat.sendfile.support", true))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().string(""))
+                .andReturn();
+        assertEquals(provider.resolve(key).toRealPath().toString(),
+                result.getRequest().getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals(2L, result.getRequest().getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(5L, result.getRequest().getAttribute("org.apache.tomcat.sendfile.end"));
+
+        // Without sendfile the controller copies the range itself
+        result = mockMvc.perform(get(URI.create(url)).header("Range", "bytes=2-4"))
+                .andExpect(content().string("234"))
+                .andReturn();
+        assertNull(result.getRequest().getAttribute("org.apache.tomcat.sendfile.filename"));
+    }
+}
@@ -0,0 +1,125 @@
+package com.devhunter.ingest.domain;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Random (v4) against time-ordered (v7) primary keys.
+ *
+ * Generator benchmarks always run. The insert benchmark runs against a live, migrated database
+ * when -Dbench.jdbc.url (plus bench.jdbc.user / bench.jdbc.password) is set: per id version it
+ * fills a scratch table with -Dbench.rows rows (default 1,000,000), measures batched inserts of
+ * 1000 rows on top, and prints the primary key index size when done.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UuidV7Benchmark {
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Benchmark
+    public UUID randomUuid() {
+        return UUID.randomUUID();
+    }
+
+    @Benchmark
+    public UUID uuidV7() {
+        return UuidV7Generator.nextId();
+    }
+
+    @State(Scope.Thread)
+    public static class Database {
+
+        @Param({"v4", "v7"})
+        public String idVersion;
+
+        Connection connection;
+        PreparedStatement insert;
+        String table;
+
+        @Setup(Level.Trial)
+        public void open() throws SQLException {
+            Properties props = new Properties();
+            props.setProperty("user", System.getProperty("bench.jdbc.user", "devhunter"));
+            props.setProperty("password", System.getProperty("bench.jdbc.password", "devhunter"));
+            props.setProperty("reWriteBatchedInserts", "true");
+
+            connection = DriverManager.getConnection(System.getProperty("bench.jdbc.url"), props);
+            table = "uuid_bench_" + idVersion;
+            long rows = Long.getLong("bench.rows", 1_000_000L);
+            String sqlDefault = "v7".equals(idVersion) ? "uuid_generate_v7()" : "gen_random_uuid()";
+
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP TABLE IF EXISTS " + table);
+                statement.execute("CREATE TABLE " + table + " (id UUID PRIMARY KEY, "
+                        + "created_at TIMESTAMP WITH TIME ZONE DEFAULT now(), status TEXT)");
+                statement.execute("INSERT INTO " + table + " (id, status) SELECT " + sqlDefault
+                        + ", 'passed' FROM generate_series(1, " + rows + ")");
+                statement.execute("VACUUM ANALYZE " + table);
+            }
+            insert = connection.prepareStatement("INSERT INTO " + table + " (id, status) VALUES (?, ?)");
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws SQLException {
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT count(*), pg_relation_size('" + table + "_pkey') FROM " + table)) {
+                rs.next();
+                long rows = rs.getLong(1);
+                long indexBytes = rs.getLong(2);
+                System.out.printf("%n%s: %d rows, primary key index %d MB (%.1f bytes/row)%n",
+                        idVersion, rows, indexBytes >> 20, (double) indexBytes / rows);
+                statement.execute("DROP TABLE " + table);
+            }
+            connection.close();
+        }
+
+        UUID nextId() {
+            return "v7".equals(idVersion) ? UuidV7Generator.nextId() : UUID.randomUUID();
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int insertBatch(Database db) throws SQLException {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            db.insert.setObject(1, db.nextId());
+            db.insert.setString(2, "passed");
+            db.insert.addBatch();
+        }
+        return db.insert.executeBatch().length;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(UuidV7Benchmark.class.getName() + ".(randomUuid|uuidV7)");
+
+        String jdbcUrl = System.getProperty("bench.jdbc.url");
+        if (jdbcUrl != null) {
+            options.include(UuidV7Benchmark.class.getName() + ".insertBatch")
+                    .jvmArgsAppend(
+                            "-Dbench.jdbc.url=" + jdbcUrl,
+                            "-Dbench.jdbc.user=" + System.getProperty("bench.jdbc.user", "devhunter"),
+                            "-Dbench.jdbc.password=" + System.getProperty("bench.jdbc.password", "devhunter"),
+                            "-Dbench.rows=" + System.getProperty("bench.rows", "1000000"));
+        }
+
+        new Runner(options.build()).run();
+    }
+}
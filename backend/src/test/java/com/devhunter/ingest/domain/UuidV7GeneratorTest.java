@@ -0,0 +1,40 @@
+package com.devhunter.ingest.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UuidV7GeneratorTest {
+
+    @Test
+    void testVersionVariantAndTimestamp() {
+        Instant now = Instant.parse("2024-05-01T12:34:56.789123Z");
+        UUID id = UuidV7Generator.nextId(now);
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        assertEquals(now.toEpochMilli(), id.getMostSignificantBits() >>> 16);
+        assertTrue(id.toString().startsWith("018f3426-9c95-71f7"), id.toString());
+    }
+
+    @Test
+    void testIdsSortByTimeAsDatabaseUuids() {
+        Instant start = Instant.parse("2024-05-01T12:34:56Z");
+        UUID earlier = UuidV7Generator.nextId(start);
+        UUID sameMilliLater = UuidV7Generator.nextId(start.plusNanos(500_000));
+        UUID nextMilli = UuidV7Generator.nextId(start.plusMillis(1));
+
+        // PostgreSQL compares uuids as unsigned bytes, which is the order of their string form
+        assertTrue(earlier.toString().compareTo(sameMilliLater.toString()) < 0);
+        assertTrue(sameMilliLater.toString().compareTo(nextMilli.toString()) < 0);
+    }
+
+    @Test
+    void testRandomBitsDiffer() {
+        Instant now = Instant.now();
+        assertNotEquals(UuidV7Generator.nextId(now), UuidV7Generator.nextId(now));
+    }
+}
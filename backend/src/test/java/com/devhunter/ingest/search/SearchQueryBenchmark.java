@@ -0,0 +1,122 @@
+package com.devhunter.ingest.search;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmarks for search query building and execution.
+ *
+ * Parser benchmarks always run. The query benchmark runs against a live
+ * database when -Dbench.jdbc.url (plus bench.jdbc.user / bench.jdbc.password)
+ * is set, and compares client-side (prepareThreshold=0) against server-side
+ * prepared execution of the search SQL.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchQueryBenchmark {
+
+    private static final String[] INPUTS = {
+            "integration",
+            "login flow smoke",
+            "\"checkout page\" payment* OR -flaky",
+            "a & & b ! (c",
+            "nightly-build-2024 regression timeout OR crash OR oom"
+    };
+
+    private static final String SEARCH_SQL = """
+            SELECT t.id, ts_rank(t.document_tsv, q) AS rank
+            FROM tests t, to_tsquery('english', ?) q
+            WHERE t.document_tsv @@ q
+            ORDER BY rank DESC
+            LIMIT ? OFFSET ?
+            """;
+
+    @Benchmark
+    public void parse(Blackhole bh) {
+        for (String input : INPUTS) {
+            bh.consume(SearchQueryParser.toTsQuery(input));
+        }
+    }
+
+    @Benchmark
+    public void legacySanitize(Blackhole bh) {
+        // Previous SearchService.sanitizeQuery, kept as a baseline
+        for (String input : INPUTS) {
+            bh.consume(input.trim()
+                    .replaceAll("\\s+", " & ")
+                    .replaceAll("[^a-zA-Z0-9&|!() ]", ""));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Database {
+
+        @Param({"0", "3"})
+        public String prepareThreshold;
+
+        Connection connection;
+        PreparedStatement statement;
+        String tsQuery;
+
+        @Setup
+        public void open() throws SQLException {
+            Properties props = new Properties();
+            props.setProperty("user", System.getProperty("bench.jdbc.user", "devhunter"));
+            props.setProperty("password", System.getProperty("bench.jdbc.password", "devhunter"));
+            props.setProperty("prepareThreshold", prepareThreshold);
+
+            connection = DriverManager.getConnection(System.getProperty("bench.jdbc.url"), props);
+            statement = connection.prepareStatement(SEARCH_SQL);
+            tsQuery = SearchQueryParser.toTsQuery(System.getProperty("bench.query", "test"));
+        }
+
+        @TearDown
+        public void close() throws SQLException {
+            connection.close();
+        }
+    }
+
+    @Benchmark
+    public void search(Database db, Blackhole bh) throws SQLException {
+        db.statement.setString(1, db.tsQuery);
+        db.statement.setInt(2, 10);
+        db.statement.setInt(3, 0);
+        try (ResultSet rs = db.statement.executeQuery()) {
+            while (rs.next()) {
+                bh.consume(rs.getObject(1));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(SearchQueryBenchmark.class.getName() + ".(parse|legacySanitize)");
+
+        String jdbcUrl = System.getProperty("bench.jdbc.url");
+        if (jdbcUrl != null) {
+            options.include(SearchQueryBenchmark.class.getName() + ".search")
+                    .jvmArgsAppend(
+                            "-Dbench.jdbc.url=" + jdbcUrl,
+                            "-Dbench.jdbc.user=" + System.getProperty("bench.jdbc.user", "devhunter"),
+                            "-Dbench.jdbc.password=" + System.getProperty("bench.jdbc.password", "devhunter"),
+                            "-Dbench.query=" + System.getProperty("bench.query", "test"));
+        }
+
+        new Runner(options.build()).run();
+    }
+}
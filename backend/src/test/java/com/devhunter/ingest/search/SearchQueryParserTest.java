@@ -0,0 +1,45 @@
+package com.devhunter.ingest.search;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchQueryParserTest {
+
+    @Test
+    void testTermsAreAnded() {
+        assertEquals("integration & test", SearchQueryParser.toTsQuery("  integration   test "));
+    }
+
+    @Test
+    void testPhrasePrefixOrAndNegation() {
+        assertEquals("login <-> flow & smoke:* | !flaky",
+                SearchQueryParser.toTsQuery("\"login flow\" smoke* OR -flaky"));
+        assertEquals("a | b", SearchQueryParser.toTsQuery("a | b"));
+        assertEquals("!(foo <-> bar) & baz", SearchQueryParser.toTsQuery("!\"foo bar\" baz"));
+    }
+
+    @Test
+    void testPunctuationSplitsWordsIntoPhrase() {
+        assertEquals("checkout <-> v2", SearchQueryParser.toTsQuery("checkout-v2"));
+        assertEquals("it <-> s", SearchQueryParser.toTsQuery("it's"));
+    }
+
+    @Test
+    void testDanglingOperatorsAreDropped() {
+        assertEquals("a & b", SearchQueryParser.toTsQuery("a & & b"));
+        assertEquals("", SearchQueryParser.toTsQuery("!"));
+        assertEquals("", SearchQueryParser.toTsQuery("OR | -"));
+        assertEquals("a", SearchQueryParser.toTsQuery("OR a OR"));
+        assertEquals("foo", SearchQueryParser.toTsQuery("! foo"));
+        assertEquals("x <-> y", SearchQueryParser.toTsQuery("\"x y"));
+        assertEquals("", SearchQueryParser.toTsQuery("':*()<->"));
+    }
+
+    @Test
+    void testTermCountIsBounded() {
+        String query = SearchQueryParser.toTsQuery("t ".repeat(SearchQueryParser.MAX_TERMS * 2));
+
+        assertEquals(SearchQueryParser.MAX_TERMS, query.split(" & ").length);
+    }
+}
@@ -0,0 +1,149 @@
+package com.devhunter.ingest.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArtifactContentCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<ArtifactContentCache> caches = new ArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+        caches.forEach(ArtifactContentCache::shutdown);
+    }
+
+    private ArtifactContentCache cache(long maxBytes, long maxObjectBytes) throws Exception {
+        ArtifactContentCache cache = new ArtifactContentCache(dir.toString(), maxBytes, maxObjectBytes, Duration.ZERO);
+        caches.add(cache);
+        return cache;
+    }
+
+    private static byte[] read(FileChannel channel) throws Exception {
+        try (channel) {
+            ByteBuffer content = ByteBuffer.allocate((int) channel.size());
+            while (content.hasRemaining() && channel.read(content) >= 0) {
+                // Read the whole file
+            }
+            return content.array();
+        }
+    }
+
+    private long files() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void testHitIsServedWithoutFetching() throws Exception {
+        ArtifactContentCache cache = cache(1000, 100);
+        AtomicInteger fetches = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            byte[] content = read(cache.open("aws", "k/a", () -> {
+                fetches.incrementAndGet();
+                return "screenshot".getBytes();
+            }));
+            assertEquals("screenshot", new String(content));
+        }
+
+        assertEquals(1, fetches.get());
+    }
+
+    @Test
+    void testConcurrentMissesShareOneFetch() throws Exception {
+        ArtifactContentCache cache = cache(1000, 100);
+        AtomicInteger fetches = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<byte[]>> downloads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            downloads.add(executor.submit(() -> read(cache.open("aws", "k/a", () -> {
+                fetches.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return "report".getBytes();
+            }))));
+        }
+        Thread.sleep(50);
+        release.countDown();
+
+        for (Future<byte[]> download : downloads) {
+            assertEquals("report", new String(download.get()));
+        }
+        assertEquals(1, fetches.get());
+    }
+
+    @Test
+    void testEvictionKeepsTheCacheWithinItsSize() throws Exception {
+        ArtifactContentCache cache = cache(300, 100);
+
+        for (int i = 0; i < 20; i++) {
+            read(cache.open("aws", "k/" + i, () -> new byte[100]));
+        }
+
+        // Evicted entries take their files with them, on another thread
+        for (int attempt = 0; attempt < 50 && files() > 3; attempt++) {
+            Thread.sleep(20);
+        }
+        assertTrue(files() <= 3, "files left: " + files());
+    }
+
+    @Test
+    void testFailedFetchIsNotCached() throws Exception {
+        ArtifactContentCache cache = cache(1000, 100);
+
+        assertThrows(IllegalStateException.class, () -> cache.open("aws", "k/a", () -> {
+            throw new IllegalStateException("provider down");
+        }));
+
+        assertEquals("ok", new String(read(cache.open("aws", "k/a", () -> "ok".getBytes()))));
+    }
+
+    @Test
+    void testOnlySmallObjectsAreCached() throws Exception {
+        assertTrue(cache(1000, 100).accepts(100));
+        assertFalse(cache(1000, 100).accepts(101));
+        assertFalse(cache(0, 100).accepts(1));
+    }
+
+    @Test
+    void testLeftoversOfAPreviousRunAreRemoved() throws Exception {
+        Files.writeString(dir.resolve(UUID.randomUUID().toString()), "from before a restart");
+        Files.writeString(dir.resolve(UUID.randomUUID() + ".tmp"), "half written");
+        // Not the cache's: the directory may be shared
+        Files.writeString(dir.resolve("notes.txt"), "someone else's");
+        Files.writeString(Files.createDirectories(dir.resolve(UUID.randomUUID().toString())).resolve("a"), "nested");
+
+        cache(1000, 100);
+
+        assertEquals(2, files());
+        assertTrue(Files.exists(dir.resolve("notes.txt")));
+    }
+}
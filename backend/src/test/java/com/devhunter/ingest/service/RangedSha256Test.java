@@ -0,0 +1,93 @@
+package com.devhunter.ingest.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RangedSha256Test {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static byte[] object(int size) {
+        byte[] content = new byte[size];
+        new Random(42).nextBytes(content);
+        return content;
+    }
+
+    private static String sha256(byte[] content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+
+    @Test
+    void testMatchesDigestOfWholeObject() throws Exception {
+        byte[] content = object(10_000);
+
+        // Last segment shorter than the others, and an object smaller than one segment
+        assertEquals(sha256(content), RangedSha256.digest(content.length, 1024, 4, executor,
+                (offset, length) -> Arrays.copyOfRange(content, (int) offset, (int) offset + length)));
+        assertEquals(sha256(content), RangedSha256.digest(content.length, 1 << 20, 4, executor,
+                (offset, length) -> Arrays.copyOfRange(content, (int) offset, (int) offset + length)));
+    }
+
+    @Test
+    void testSegmentsCompletingOutOfOrderAreHashedInOrder() throws Exception {
+        byte[] content = object(8 * 512);
+
+        String digest = RangedSha256.digest(content.length, 512, 8, executor, (offset, length) -> {
+            // Earlier ranges take longer
+            try {
+                Thread.sleep(40 - offset / 128);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return Arrays.copyOfRange(content, (int) offset, (int) offset + length);
+        });
+
+        assertEquals(sha256(content), digest);
+    }
+
+    @Test
+    void testReadsAtMostParallelismRangesAtOnce() {
+        byte[] content = object(64 * 100);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        RangedSha256.digest(content.length, 100, 3, executor, (offset, length) -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            return Arrays.copyOfRange(content, (int) offset, (int) offset + length);
+        });
+
+        assertTrue(maxInFlight.get() <= 3, "max in flight " + maxInFlight.get());
+    }
+
+    @Test
+    void testObjectShorterThanExpectedFails() {
+        byte[] content = object(1000);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> RangedSha256.digest(2000, 256, 2, executor, (offset, length) -> Arrays.copyOfRange(
+                        content, (int) Math.min(offset, content.length), (int) Math.min(offset + length, content.length))));
+        assertTrue(e.getMessage().startsWith("Short read at offset 768"), e.getMessage());
+    }
+}
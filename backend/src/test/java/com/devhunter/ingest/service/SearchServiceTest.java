@@ -0,0 +1,148 @@
+package com.devhunter.ingest.service;
+
+import com.devhunter.ingest.dto.SearchFilters;
+import com.devhunter.ingest.dto.SearchHit;
+import com.devhunter.ingest.dto.SearchResults;
+import com.devhunter.ingest.repository.RunRepository;
+import com.devhunter.ingest.repository.SearchRepository;
+import com.devhunter.ingest.repository.TestRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SearchServiceTest {
+
+    private final TestRepository testRepository = mock(TestRepository.class);
+    private final RunRepository runRepository = mock(RunRepository.class);
+    private final SearchRepository searchRepository = mock(SearchRepository.class);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private SearchService searchService;
+
+    private SearchService searchService(long subQueryTimeoutMs, int maxConcurrentSubQueries) {
+        searchService = new SearchService(testRepository, runRepository, searchRepository,
+                mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(searchService, "subQueryTimeoutMs", subQueryTimeoutMs);
+        ReflectionTestUtils.setField(searchService, "maxConcurrentSubQueries", maxConcurrentSubQueries);
+        ReflectionTestUtils.setField(searchService, "connectionPoolSize", 10);
+        ReflectionTestUtils.setField(searchService, "snippetMaxWords", 35);
+        ReflectionTestUtils.setField(searchService, "snippetMinWords", 15);
+        ReflectionTestUtils.setField(searchService, "snippetMaxFragments", 2);
+        searchService.init();
+        return searchService;
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (searchService != null) {
+            searchService.shutdown();
+        }
+    }
+
+    @Test
+    void testSnippetTextIsEscapedAndOnlyMatchesAreMarkedUp() {
+        assertEquals("&lt;img src=x onerror=alert(1)&gt; <b>failing</b> &quot;test&quot; &amp; ... <b>fail</b>",
+                SearchService.highlight("<img src=x onerror=alert(1)> \u0002failing\u0003 \"test\" & ... \u0002fail\u0003"));
+        assertEquals("<b>&lt;/b&gt;</b>", SearchService.highlight("\u0002</b>\u0003"));
+    }
+
+    @Test
+    void testTimedOutSubQueryGivesPartialResults() {
+        UUID testId = UUID.randomUUID();
+        when(searchRepository.rankTests(anyString(), any(), anyInt(), anyInt()))
+                .thenReturn(List.of(new SearchHit(testId, 0.5)));
+        when(searchRepository.countTests(anyString(), any())).thenReturn(1L);
+        when(searchRepository.rankRuns(anyString(), any(), anyInt(), anyInt())).thenAnswer(invocation -> {
+            release.await();
+            return List.of(new SearchHit(UUID.randomUUID(), 0.9));
+        });
+        when(searchRepository.countRuns(anyString(), any())).thenReturn(7L);
+
+        SearchResults results = searchService(200, 0).search("fail", SearchFilters.none(), 10, 0, 0);
+
+        assertTrue(results.isPartial());
+        assertEquals(8L, results.getTotal());
+        assertEquals(1, results.getItems().size());
+        assertEquals(testId, results.getItems().get(0).getId());
+    }
+
+    @Test
+    void testOneSearchRunsItsSubQueriesAtOnceByDefault() {
+        // Each first-phase sub-query only returns once all five are running
+        CountDownLatch running = new CountDownLatch(5);
+        UUID testId = UUID.randomUUID();
+        UUID runId = UUID.randomUUID();
+        when(searchRepository.rankTests(anyString(), any(), anyInt(), anyInt())).thenAnswer(invocation -> {
+            running.countDown();
+            running.await();
+            return List.of(new SearchHit(testId, 0.5));
+        });
+        when(searchRepository.rankRuns(anyString(), any(), anyInt(), anyInt())).thenAnswer(invocation -> {
+            running.countDown();
+            running.await();
+            return List.of(new SearchHit(runId, 0.9));
+        });
+        when(searchRepository.countTests(anyString(), any())).thenAnswer(invocation -> {
+            running.countDown();
+            running.await();
+            return 1L;
+        });
+        when(searchRepository.countRuns(anyString(), any())).thenAnswer(invocation -> {
+            running.countDown();
+            running.await();
+            return 1L;
+        });
+        when(searchRepository.countFacets(anyString(), any(), anyInt())).thenAnswer(invocation -> {
+            running.countDown();
+            running.await();
+            return Map.of();
+        });
+
+        SearchResults results = searchService(2000, 0).search("fail", SearchFilters.none(), 10, 0, 5);
+
+        assertFalse(results.isPartial());
+        assertEquals(2L, results.getTotal());
+        assertEquals(2, results.getItems().size());
+        verify(testRepository).headlines(anyString(), eq(testId.toString()), anyString());
+    }
+
+    @Test
+    void testTheConnectionCapMustLeaveConnectionsForOtherWork() {
+        assertThrows(IllegalStateException.class, () -> searchService(2000, 10));
+    }
+
+    @Test
+    void testSubQueriesShareALimitedNumberOfConnections() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        when(searchRepository.rankRuns(anyString(), any(), anyInt(), anyInt())).thenAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            release.await();
+            running.decrementAndGet();
+            return List.of();
+        });
+        when(searchRepository.countRuns(anyString(), any())).thenAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            running.decrementAndGet();
+            return 0L;
+        });
+
+        // Status filter: runs only, rank and count. Rank keeps its permit past its timeout.
+        SearchResults results = searchService(200, 1).search("fail",
+                SearchFilters.builder().statuses(List.of("failed")).build(), 10, 0, 0);
+
+        assertTrue(results.isPartial());
+        assertEquals(1, maxRunning.get());
+    }
+}
@@ -0,0 +1,97 @@
+package com.devhunter.ingest.storage;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class InMemoryPresignStoreTest {
+
+    private final ExpiredUploadAborter aborter = mock(ExpiredUploadAborter.class);
+
+    private static PresignedUploadInfo upload(String id, Integer expiresInSeconds) {
+        return PresignedUploadInfo.builder()
+                .presignedId(id)
+                .provider("aws")
+                .objectKey("k/" + id)
+                .expiresInSeconds(expiresInSeconds)
+                .build();
+    }
+
+    @Test
+    void testEntryLivesUntilFinalized() {
+        InMemoryPresignStore store = new InMemoryPresignStore(aborter, 100, 3600);
+        store.put(upload("a", 60));
+
+        assertEquals("k/a", store.get("a").orElseThrow().getObjectKey());
+        assertTrue(store.remove("a"));
+        assertFalse(store.remove("a"));
+        assertTrue(store.get("a").isEmpty());
+    }
+
+    @Test
+    void testRemovalIsUndoneWithItsTransaction() {
+        InMemoryPresignStore store = new InMemoryPresignStore(aborter, 100, 3600);
+        store.put(upload("a", 60));
+        store.put(upload("b", 60));
+
+        for (String id : List.of("a", "b")) {
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                assertTrue(store.remove(id));
+                assertTrue(store.get(id).isEmpty());
+                int status = id.equals("a") ? TransactionSynchronization.STATUS_ROLLED_BACK
+                        : TransactionSynchronization.STATUS_COMMITTED;
+                TransactionSynchronizationManager.getSynchronizations().forEach(sync -> sync.afterCompletion(status));
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+        }
+
+        // The failed finalize can be retried
+        assertEquals("k/a", store.get("a").orElseThrow().getObjectKey());
+        assertTrue(store.get("b").isEmpty());
+    }
+
+    @Test
+    void testEntryExpiresWithItsUrl() {
+        InMemoryPresignStore store = new InMemoryPresignStore(aborter, 100, 3600);
+        store.put(upload("expired", 0));
+        store.put(upload("default-ttl", null));
+
+        assertTrue(store.get("expired").isEmpty());
+        assertFalse(store.remove("expired"));
+        assertTrue(store.get("default-ttl").isPresent());
+    }
+
+    @Test
+    void testExpiredMultipartUploadIsAborted() {
+        InMemoryPresignStore store = new InMemoryPresignStore(aborter, 100, 3600);
+        PresignedUploadInfo multipart = upload("multipart", 0).toBuilder().uploadId("u1").partCount(3).build();
+        store.put(multipart);
+        store.put(upload("finalized", 60).toBuilder().uploadId("u2").partCount(3).build());
+        store.remove("finalized");
+
+        store.cleanupExpiredUploads();
+
+        verify(aborter, timeout(1000)).abort(argThat(info -> info.getPresignedId().equals("multipart")));
+        verify(aborter, after(100).times(1)).abort(any());
+    }
+
+    @Test
+    void testAssembledUploadIsNotCompletedAgain() {
+        InMemoryPresignStore store = new InMemoryPresignStore(aborter, 100, 3600);
+        store.put(upload("a", 60).toBuilder().uploadId("u1").partCount(3).build());
+
+        store.markAssembled("a");
+
+        PresignedUploadInfo info = store.get("a").orElseThrow();
+        assertNull(info.getUploadId());
+        assertEquals("k/a", info.getObjectKey());
+    }
+}
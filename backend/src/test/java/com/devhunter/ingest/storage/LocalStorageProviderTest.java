@@ -0,0 +1,151 @@
+package com.devhunter.ingest.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalStorageProviderTest {
+
+    @TempDir
+    Path rootDir;
+
+    private LocalStorageProvider provider;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        provider = new LocalStorageProvider(rootDir.toString(), "http://localhost:8080/",
+                "0123456789abcdef0123456789abcdef");
+    }
+
+    private static byte[] content(int size) {
+        byte[] content = new byte[size];
+        new Random(42).nextBytes(content);
+        return content;
+    }
+
+    private static String sha256(byte[] content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+
+    private static Map<String, String> query(String url) {
+        Map<String, String> params = new HashMap<>();
+        for (String param : URI.create(url).getRawQuery().split("&")) {
+            String[] pair = param.split("=", 2);
+            params.put(pair[0], URLDecoder.decode(pair[1], StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private String upload(String key, Long maxBytes, byte[] content) {
+        return provider.write(key, maxBytes, Channels.newChannel(new ByteArrayInputStream(content)));
+    }
+
+    @Test
+    void testPresignedUrlIsSignedForTheUpload() {
+        PresignedUploadInfo info = provider.generatePresignedUpload("a b.txt", "text/plain", 42);
+        Map<String, String> params = query(info.getUploadUrl());
+
+        assertTrue(info.getUploadUrl().startsWith("http://localhost:8080" + LocalStorageProvider.OBJECTS_PATH + "?"));
+        assertEquals(info.getObjectKey(), params.get("key"));
+        assertEquals("42", params.get("size"));
+        long expires = Long.parseLong(params.get("expires"));
+        assertTrue(provider.isValidSignature("PUT", info.getObjectKey(), expires, 42L, params.get("signature")));
+        assertFalse(provider.isValidSignature("PUT", info.getObjectKey(), expires, 43L, params.get("signature")));
+        assertFalse(provider.isValidSignature("GET", info.getObjectKey(), expires, 42L, params.get("signature")));
+    }
+
+    @Test
+    void testUploadIsHashedWhileWritten() throws Exception {
+        // Larger than the write buffer, not a multiple of it
+        byte[] content = content((1 << 20) * 3 + 123);
+        String key = provider.generatePresignedUpload("big.bin", "application/octet-stream", content.length).getObjectKey();
+
+        assertEquals(sha256(content), upload(key, (long) content.length, content));
+        assertEquals(sha256(content), provider.getStoredSha256(key).orElseThrow());
+        assertEquals("local://" + key, provider.finalizeUploadAsync("id", key, content.length, null).join());
+        assertArrayEquals(Arrays.copyOfRange(content, 1000, 3000), provider.readRange(key, 1000, 2000));
+        assertEquals(0, Files.list(rootDir.resolve(".tmp")).count());
+    }
+
+    @Test
+    void testUploadLargerThanSignedSizeIsRejected() throws Exception {
+        byte[] content = content(2000);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> upload("uploads/too-big", 1999L, content));
+        assertTrue(e.getMessage().contains("max"), e.getMessage());
+        assertFalse(Files.exists(rootDir.resolve("uploads/too-big")));
+        assertEquals(0, Files.list(rootDir.resolve(".tmp")).count());
+    }
+
+    @Test
+    void testPartsAreConcatenatedOnCompletion() throws Exception {
+        byte[] content = content(5000);
+        PresignedUploadInfo info = provider.initiateMultipartUpload("parts.bin", "application/octet-stream", 5000);
+        List<PresignedPart> parts = provider.presignUploadParts(info.getObjectKey(), info.getUploadId(),
+                "application/octet-stream", 5000, 2000, List.of(1, 2, 3));
+        // Each part URL is bounded by its own size, the last one by the rest
+        assertEquals(List.of("2000", "2000", "1000"),
+                parts.stream().map(part -> query(part.getUploadUrl()).get("size")).toList());
+
+        upload(query(parts.get(0).getUploadUrl()).get("key"), null, Arrays.copyOfRange(content, 0, 2000));
+        upload(query(parts.get(2).getUploadUrl()).get("key"), null, Arrays.copyOfRange(content, 4000, 5000));
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> provider.completeMultipartUpload(info.getObjectKey(), info.getUploadId(), "application/octet-stream", 3));
+        assertEquals("Upload incomplete, missing parts: [2]", e.getMessage());
+
+        upload(query(parts.get(1).getUploadUrl()).get("key"), null, Arrays.copyOfRange(content, 2000, 4000));
+        provider.completeMultipartUpload(info.getObjectKey(), info.getUploadId(), "application/octet-stream", 3);
+
+        ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        provider.transferTo(info.getObjectKey(), 0, 5000, Channels.newChannel(sent));
+        assertArrayEquals(content, sent.toByteArray());
+        // Only the assembled object is left, without a checksum of its own
+        try (var files = Files.list(provider.resolve(info.getObjectKey()).getParent())) {
+            assertEquals(List.of(provider.resolve(info.getObjectKey())), files.toList());
+        }
+        assertTrue(provider.getStoredSha256(info.getObjectKey()).isEmpty());
+    }
+
+    @Test
+    void testDeleteRemovesObjectAndChecksum() {
+        upload("uploads/gone", null, content(10));
+
+        provider.deleteObjects(List.of("uploads/gone", "uploads/never-existed"));
+
+        assertFalse(Files.exists(rootDir.resolve("uploads/gone")));
+        assertTrue(provider.getStoredSha256("uploads/gone").isEmpty());
+    }
+
+    @Test
+    void testKeysOutsideTheStorageDirectoryAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> provider.resolve("../escape"));
+        assertThrows(IllegalArgumentException.class, () -> provider.resolve("uploads/../../escape"));
+        assertThrows(IllegalArgumentException.class, () -> provider.resolve(".tmp/x"));
+        assertThrows(IllegalArgumentException.class, () -> provider.resolve("/etc/passwd"));
+    }
+
+    @Test
+    void testShortSigningKeyIsRejected() {
+        assertThrows(IllegalStateException.class,
+                () -> new LocalStorageProvider(rootDir.toString(), "http://localhost:8080", "short"));
+    }
+}
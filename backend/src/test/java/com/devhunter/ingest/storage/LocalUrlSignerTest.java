@@ -0,0 +1,41 @@
+package com.devhunter.ingest.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalUrlSignerTest {
+
+    private final LocalUrlSigner signer = new LocalUrlSigner("0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.UTF_8));
+
+    @Test
+    void testSignatureCoversMethodKeyExpiryAndSize() {
+        String signature = signer.sign("PUT", "uploads/a", 1000, 42L);
+
+        assertTrue(signer.verify("PUT", "uploads/a", 1000, 42L, signature, 999));
+        assertTrue(signer.verify("PUT", "uploads/a", 1000, 42L, signature.toUpperCase(), 999));
+        assertFalse(signer.verify("GET", "uploads/a", 1000, 42L, signature, 999));
+        assertFalse(signer.verify("PUT", "uploads/b", 1000, 42L, signature, 999));
+        assertFalse(signer.verify("PUT", "uploads/a", 2000, 42L, signature, 999));
+        assertFalse(signer.verify("PUT", "uploads/a", 1000, 43L, signature, 999));
+        assertFalse(signer.verify("PUT", "uploads/a", 1000, null, signature, 999));
+        assertFalse(signer.verify("PUT", "uploads/a", 1000, 42L, null, 999));
+    }
+
+    @Test
+    void testExpiredSignatureIsRejected() {
+        String signature = signer.sign("GET", "uploads/a", 1000, null);
+
+        assertTrue(signer.verify("GET", "uploads/a", 1000, null, signature, 1000));
+        assertFalse(signer.verify("GET", "uploads/a", 1000, null, signature, 1001));
+    }
+
+    @Test
+    void testOtherKeySignsDifferently() {
+        LocalUrlSigner other = new LocalUrlSigner("fedcba9876543210fedcba9876543210".getBytes(StandardCharsets.UTF_8));
+
+        assertNotEquals(signer.sign("GET", "uploads/a", 1000, null), other.sign("GET", "uploads/a", 1000, null));
+    }
+}
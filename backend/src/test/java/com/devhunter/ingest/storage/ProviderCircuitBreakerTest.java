@@ -0,0 +1,63 @@
+package com.devhunter.ingest.storage;
+
+import com.devhunter.ingest.storage.ProviderCircuitBreaker.State;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProviderCircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final ProviderCircuitBreaker breaker = new ProviderCircuitBreaker(3, 1000, now::get);
+
+    @Test
+    void testDegradesThenOpensAfterThreshold() {
+        assertEquals(State.HEALTHY, breaker.state());
+
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertEquals(State.DEGRADED, breaker.state());
+        assertTrue(breaker.allowsTraffic());
+
+        breaker.recordFailure();
+        assertEquals(State.OPEN, breaker.state());
+        assertFalse(breaker.allowsTraffic());
+    }
+
+    @Test
+    void testSuccessResetsFailureCount() {
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+
+        assertEquals(State.DEGRADED, breaker.state());
+    }
+
+    @Test
+    void testHalfOpenProbeAfterOpenPeriod() {
+        for (int i = 0; i < 3; i++) {
+            breaker.recordFailure();
+        }
+        assertFalse(breaker.tryProbe());
+
+        now.addAndGet(1000);
+        assertTrue(breaker.tryProbe());
+        assertEquals(State.HALF_OPEN, breaker.state());
+        assertFalse(breaker.allowsTraffic());
+
+        // A failed trial opens it again for a full period
+        breaker.recordFailure();
+        assertEquals(State.OPEN, breaker.state());
+        now.addAndGet(999);
+        assertFalse(breaker.tryProbe());
+        now.addAndGet(1);
+        assertTrue(breaker.tryProbe());
+
+        breaker.recordSuccess();
+        assertEquals(State.HEALTHY, breaker.state());
+        assertTrue(breaker.allowsTraffic());
+    }
+}
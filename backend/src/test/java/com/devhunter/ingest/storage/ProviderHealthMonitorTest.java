@@ -0,0 +1,54 @@
+package com.devhunter.ingest.storage;
+
+import com.devhunter.ingest.storage.ProviderCircuitBreaker.State;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProviderHealthMonitorTest {
+
+    @Test
+    void testTimedOutProbeIsNotStartedAgainUntilItsCallReturns() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        StorageProvider provider = mock(StorageProvider.class);
+        when(provider.getProviderName()).thenReturn("aws");
+        when(provider.isAvailable()).thenAnswer(invocation -> {
+            // A client that ignores interrupts
+            while (release.getCount() > 0) {
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+            }
+            return true;
+        });
+        ProviderHealthMonitor monitor = new ProviderHealthMonitor(List.of(provider), 3, 30000, 50);
+
+        monitor.probeProviders();
+        awaitState(monitor, State.DEGRADED);
+
+        // Timed out, but the call is still blocked
+        monitor.probeProviders();
+        Thread.sleep(100);
+        verify(provider, times(1)).isAvailable();
+
+        release.countDown();
+        verify(provider, timeout(1000).times(1)).isAvailable();
+        Thread.sleep(50);
+        monitor.probeProviders();
+        verify(provider, timeout(1000).times(2)).isAvailable();
+        awaitState(monitor, State.HEALTHY);
+        monitor.shutdown();
+    }
+
+    private static void awaitState(ProviderHealthMonitor monitor, State expected) throws InterruptedException {
+        for (int i = 0; i < 100 && monitor.state("aws") != expected; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, monitor.state("aws"));
+    }
+}
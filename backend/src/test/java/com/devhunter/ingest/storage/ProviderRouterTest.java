@@ -0,0 +1,133 @@
+package com.devhunter.ingest.storage;
+
+import com.devhunter.ingest.storage.ProviderCircuitBreaker.State;
+import com.devhunter.ingest.storage.ProviderRouter.Operation;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProviderRouterTest {
+
+    private static final List<String> NAMES = List.of("aws", "azure", "gcs");
+
+    private final Map<String, State> states = new HashMap<>();
+    private final Deque<Double> randoms = new ArrayDeque<>();
+
+    private ProviderRouter router(String policy, String weights, String rules) {
+        return new ProviderRouter(NAMES, name -> states.getOrDefault(name, State.HEALTHY),
+                policy, weights, rules, 0.1, 5000, () -> randoms.isEmpty() ? 0.5 : randoms.pop());
+    }
+
+    @Test
+    void testOrderedFailsOverPastOpenAndDegradedProviders() {
+        ProviderRouter router = router("ordered", "", "");
+        assertEquals(NAMES, router.order("image/png", 100));
+
+        states.put("aws", State.DEGRADED);
+        states.put("azure", State.OPEN);
+        assertEquals(List.of("gcs", "aws"), router.order("image/png", 100));
+
+        states.put("aws", State.HALF_OPEN);
+        states.put("gcs", State.OPEN);
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> router.order("image/png", 100));
+        assertEquals("No storage provider available", e.getMessage());
+    }
+
+    @Test
+    void testFirstMatchingRuleGoesFirst() {
+        ProviderRouter router = router("ordered", "", "video/=gcs, >=1000=azure, image/png>=10=gcs");
+
+        assertEquals(List.of("gcs", "aws", "azure"), router.order("Video/MP4", 1));
+        assertEquals(List.of("gcs", "aws", "azure"), router.order("video/mp4", 1000));
+        assertEquals(List.of("azure", "aws", "gcs"), router.order("application/json", 1000));
+        assertEquals(List.of("gcs", "aws", "azure"), router.order("image/png", 10));
+        assertEquals(NAMES, router.order("image/png", 9));
+
+        // Health comes before rules
+        states.put("gcs", State.DEGRADED);
+        assertEquals(List.of("aws", "azure", "gcs"), router.order("video/mp4", 1));
+    }
+
+    @Test
+    void testWeightedSamplesInProportionToWeights() {
+        ProviderRouter router = router("weighted", "aws=3, azure=0", "");
+
+        // Keys u^(1/w): aws 0.5^(1/3) ~ 0.79 beats gcs 0.7; azure (weight 0) draws none and is always last
+        randoms.addAll(List.of(0.5, 0.7));
+        assertEquals(List.of("aws", "gcs", "azure"), router.order("image/png", 1));
+
+        // aws 0.2^(1/3) ~ 0.58
+        randoms.addAll(List.of(0.2, 0.7));
+        assertEquals(List.of("gcs", "aws", "azure"), router.order("image/png", 1));
+    }
+
+    @Test
+    void testLatencyPrefersFastestAndPenalizesFailures() {
+        ProviderRouter router = router("latency", "", "");
+        router.recordLatency("aws", Operation.PRESIGN, 300);
+        router.recordLatency("azure", Operation.PRESIGN, 100);
+        router.recordLatency("gcs", Operation.PRESIGN, 200);
+        assertEquals(List.of("azure", "gcs", "aws"), router.order("image/png", 1));
+
+        router.recordFailure("azure", Operation.PRESIGN);
+        assertEquals(List.of("gcs", "aws", "azure"), router.order("image/png", 1));
+
+        // Now and then another provider goes first, so its average stays current
+        randoms.addAll(List.of(0.05, 0.99));
+        assertEquals(List.of("azure", "gcs", "aws"), router.order("image/png", 1));
+    }
+
+    @Test
+    void testLatencyMeasuresUnmeasuredProvidersFirst() {
+        ProviderRouter router = router("latency", "", "");
+        router.recordLatency("aws", Operation.PRESIGN, 100);
+        router.recordLatency("gcs", Operation.PRESIGN, 100);
+
+        assertEquals("azure", router.order("image/png", 1).get(0));
+    }
+
+    @Test
+    void testLatencyAddsPresignAndFinalizeAverages() {
+        ProviderRouter router = router("latency", "", "");
+        // Many fast presigns do not hide slow finalizes
+        for (int i = 0; i < 20; i++) {
+            router.recordLatency("aws", Operation.PRESIGN, 1);
+            router.recordLatency("azure", Operation.PRESIGN, 50);
+            router.recordLatency("gcs", Operation.PRESIGN, 50);
+        }
+        router.recordLatency("aws", Operation.FINALIZE, 1000);
+        router.recordLatency("azure", Operation.FINALIZE, 100);
+        router.recordLatency("gcs", Operation.FINALIZE, 200);
+        assertEquals(List.of("azure", "gcs", "aws"), router.order("image/png", 1));
+
+        // A failed finalize is penalized like a failed presign
+        router.recordFailure("azure", Operation.FINALIZE);
+        assertEquals(List.of("gcs", "aws", "azure"), router.order("image/png", 1));
+    }
+
+    @Test
+    void testInvalidSettingsAreRejected() {
+        assertThrows(IllegalStateException.class, () -> router("fastest", "", ""));
+        assertThrows(IllegalStateException.class, () -> router("weighted", "s3=1", ""));
+        assertThrows(IllegalStateException.class, () -> router("weighted", "aws=-1", ""));
+        assertThrows(IllegalStateException.class, () -> router("weighted", "aws", ""));
+        assertThrows(IllegalStateException.class, () -> router("ordered", "", "video/=s3"));
+        assertThrows(IllegalStateException.class, () -> router("ordered", "", ">=big=aws"));
+        assertThrows(IllegalStateException.class, () -> router("ordered", "", "=aws"));
+        assertThrows(IllegalStateException.class, () -> router("ordered", "", "video/>=gcs"));
+        assertThrows(IllegalStateException.class, () -> new ProviderRouter(List.of(), name -> State.HEALTHY,
+                "ordered", "", "", 0.1, 5000, () -> 0.5));
+    }
+
+    @Test
+    void testConfiguredProvidersFallBackToTheSingleProvider() {
+        assertEquals(List.of("aws", "gcs"), OnStorageProviderCondition.configured(" AWS, gcs ,aws", "azure"));
+        assertEquals(List.of("azure"), OnStorageProviderCondition.configured("", "azure"));
+    }
+}